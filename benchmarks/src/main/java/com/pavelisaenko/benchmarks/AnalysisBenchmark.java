@@ -0,0 +1,155 @@
+package com.pavelisaenko.benchmarks;
+
+import com.pavelisaenko.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end analysis like {@code Main} does it, with {@code -t 45 -u 90 -w 3}: reading, parsing and
+ * detecting intervals of a whole log held in memory. Intervals are recorded instead of printed.
+ * <p>
+ * {@code synthetic} log has {@link #SYNTHETIC_LINES} lines of {@link SyntheticLogGenerator}.
+ * Score is time of the whole log.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class AnalysisBenchmark {
+
+    static final int SYNTHETIC_LINES = 1_000_000;
+
+    @Param({"access.log", "access.modified4.log", "synthetic"})
+    public String logFile;
+
+    @Param({"BUCKETED"})
+    public WindowMode windowMode;
+
+    private byte[] bytes;
+    private Path path;
+    private Path columnarPath;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (logFile.equals("synthetic")) {
+            bytes = new SyntheticLogGenerator(100, 0.05, 1).generate(SYNTHETIC_LINES);
+            path = Files.createTempFile("synthetic", ".log");
+            Files.write(path, bytes);
+        } else {
+            path = Path.of(logFile);
+            bytes = Files.readAllBytes(path);
+        }
+
+        columnarPath = Files.createTempFile("columnar", ".alog");
+        try (ColumnarLogWriter writer = new ColumnarLogWriter(columnarPath)) {
+            new MappedLogFileParser(path).parse(batch -> {
+                try {
+                    writer.write(batch);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (logFile.equals("synthetic")) Files.deleteIfExists(path);
+        Files.deleteIfExists(columnarPath);
+    }
+
+    private LogAnalyzer createLogAnalyzer(RecordingIntervalProcessor recorder) {
+        return new LogAnalyzer(new LogLinesProcessor(45, 90, Duration.ofSeconds(3), windowMode), recorder);
+    }
+
+    /**
+     * Reading of the original {@code Main}: {@link BufferedReader} and {@link LogLineParser}.
+     */
+    @Benchmark
+    public int stringReaderAnalysis() throws IOException {
+        RecordingIntervalProcessor recorder = new RecordingIntervalProcessor();
+        LogAnalyzer logAnalyzer = createLogAnalyzer(recorder);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                logAnalyzer.processLogLine(LogLineParser.parseLogLine(line));
+            }
+        }
+        return recorder.getEvents().size();
+    }
+
+    /**
+     * Default reading of stdin: {@link ByteLineReader} and {@link ByteLogLineParser}.
+     */
+    @Benchmark
+    public int byteReaderAnalysis() throws IOException {
+        RecordingIntervalProcessor recorder = new RecordingIntervalProcessor();
+        LogAnalyzer logAnalyzer = createLogAnalyzer(recorder);
+        ByteLogLineParser parser = new ByteLogLineParser();
+        try (ByteLineReader lineReader = new ByteLineReader(new ByteArrayInputStream(bytes))) {
+            while (lineReader.nextLine()) {
+                if (lineReader.isLineBlank()) continue;
+                parser.parse(lineReader.getBuffer(), lineReader.getLineStart(), lineReader.getLineEnd());
+                logAnalyzer.processLogLine(parser.getEpochMillis(), parser.getStatusCode(), parser.getResponseTime());
+            }
+        }
+        return recorder.getEvents().size();
+    }
+
+    /**
+     * {@code --pipeline} reading of stdin.
+     */
+    @Benchmark
+    public int pipelineAnalysis() throws IOException {
+        RecordingIntervalProcessor recorder = new RecordingIntervalProcessor();
+        LogAnalyzer logAnalyzer = createLogAnalyzer(recorder);
+        new LogPipeline(new ByteArrayInputStream(bytes)).run(logAnalyzer::processBatch);
+        return recorder.getEvents().size();
+    }
+
+    /**
+     * {@code --file} reading, file is in page cache after the first invocation.
+     */
+    @Benchmark
+    public int mappedFileAnalysis() throws IOException {
+        RecordingIntervalProcessor recorder = new RecordingIntervalProcessor();
+        LogAnalyzer logAnalyzer = createLogAnalyzer(recorder);
+        new MappedLogFileParser(path).parse(logAnalyzer::processBatch);
+        return recorder.getEvents().size();
+    }
+
+    /**
+     * {@code --file --parallel} analysis.
+     */
+    @Benchmark
+    public int parallelFileAnalysis() throws IOException {
+        RecordingIntervalProcessor recorder = new RecordingIntervalProcessor();
+        ParallelLogAnalyzer parallelLogAnalyzer = new ParallelLogAnalyzer(45, 90, Duration.ofSeconds(3),
+                windowMode, recorder, ForkJoinPool.commonPool(), ParallelLogAnalyzer.DEFAULT_SEGMENT_LINES);
+        new MappedLogFileParser(path).parse(parallelLogAnalyzer::processBatch);
+        parallelLogAnalyzer.finish();
+        return recorder.getEvents().size();
+    }
+
+    /**
+     * {@code --file} reading of columnar file written by {@code convert}.
+     */
+    @Benchmark
+    public int columnarFileAnalysis() throws IOException {
+        RecordingIntervalProcessor recorder = new RecordingIntervalProcessor();
+        LogAnalyzer logAnalyzer = createLogAnalyzer(recorder);
+        new ColumnarLogReader(columnarPath).read(logAnalyzer::processBatch);
+        return recorder.getEvents().size();
+    }
+}
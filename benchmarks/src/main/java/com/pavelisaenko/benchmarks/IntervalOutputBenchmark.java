@@ -0,0 +1,98 @@
+package com.pavelisaenko.benchmarks;
+
+import com.pavelisaenko.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Printing of {@link #INTERVALS} intervals of a flapping service to auto-flushed {@link PrintStream} like
+ * {@link System#out}, which discards bytes but counts flushes: {@code println} of
+ * {@link IntervalProcessor#getInfo()} like before {@link IntervalSink}s, and sinks of every format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class IntervalOutputBenchmark {
+
+    static final int INTERVALS = 100_000;
+
+    private static final long START_MILLIS = Instant.parse("2017-06-14T06:47:02Z").toEpochMilli();
+
+    private PrintStream printStream;
+
+    @Setup
+    public void setUp() {
+        printStream = new PrintStream(OutputStream.nullOutputStream(), true);
+    }
+
+    @Benchmark
+    public int println() {
+        IntervalProcessor intervalProcessor = new IntervalProcessor() {
+            @Override
+            public void endInterval(Instant endTime) {
+                super.endInterval(endTime);
+                printStream.println(getInfo());
+            }
+        };
+        intervalProcessor.setSink(new NullIntervalSink());
+        return process(intervalProcessor);
+    }
+
+    @Benchmark
+    public int text() {
+        return processWith(new TextIntervalSink(printStream, BufferedIntervalSink.DEFAULT_BUFFER_SIZE, false));
+    }
+
+    @Benchmark
+    public int textFullDates() {
+        return processWith(new TextIntervalSink(printStream, BufferedIntervalSink.DEFAULT_BUFFER_SIZE, true));
+    }
+
+    @Benchmark
+    public int json() {
+        return processWith(new JsonIntervalSink(printStream, BufferedIntervalSink.DEFAULT_BUFFER_SIZE));
+    }
+
+    @Benchmark
+    public int csv() {
+        return processWith(new CsvIntervalSink(printStream, BufferedIntervalSink.DEFAULT_BUFFER_SIZE));
+    }
+
+    private int processWith(IntervalSink sink) {
+        IntervalProcessor intervalProcessor = new IntervalProcessor();
+        intervalProcessor.setSink(sink);
+        int intervals = process(intervalProcessor);
+        sink.flush();
+        return intervals;
+    }
+
+    private static int process(IntervalProcessor intervalProcessor) {
+        intervalProcessor.setZone(ZoneOffset.ofHours(10));
+        for (int i = 0; i < INTERVALS; i++) {
+            intervalProcessor.beginNewInterval(Instant.ofEpochMilli(START_MILLIS + i * 3000L));
+            intervalProcessor.considerLogLines(7, 3);
+            intervalProcessor.endInterval(Instant.ofEpochMilli(START_MILLIS + i * 3000L + 2000));
+        }
+        return INTERVALS;
+    }
+
+    private static class NullIntervalSink implements IntervalSink {
+        @Override
+        public void write(String label, long beginEpochMillis, long endEpochMillis, ZoneId zone,
+                          double availability, LatencyHistogram responseTimes) {
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}
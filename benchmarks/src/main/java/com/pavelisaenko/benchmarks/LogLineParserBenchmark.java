@@ -0,0 +1,110 @@
+package com.pavelisaenko.benchmarks;
+
+import com.pavelisaenko.ByteLogLineParser;
+import com.pavelisaenko.LogFormat;
+import com.pavelisaenko.LogLine;
+import com.pavelisaenko.LogLineParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link LogLineParser#parseLogLine(String)} with {@link ByteLogLineParser}
+ * over all lines of a bundled log, and field positions of {@link ByteLogLineParser} with its plan of
+ * template of the file. Score is time of parsing the whole file.
+ * Run from repository root: {@code java -jar benchmarks/target/benchmarks.jar LogLineParserBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogLineParserBenchmark {
+
+    /**
+     * Format of {@code access.modified4.log}, which is {@link LogFormat#BUNDLED} without quotes
+     */
+    private static final String UNQUOTED = "$remote_addr - $remote_user [$time_local] $request_method $request_uri " +
+            "$server_protocol $status $body_bytes_sent $response_time $http_referer $http_user_agent prio:$priority";
+
+    @Param({"access.log", "access.modified4.log"})
+    public String logFile;
+
+    private String[] lines;
+    private byte[] bytes;
+    private int[] lineStarts;
+    private int[] lineEnds;
+    private final ByteLogLineParser byteLogLineParser = new ByteLogLineParser();
+    private ByteLogLineParser formattedLogLineParser;
+
+    @Setup
+    public void setUp() throws IOException {
+        formattedLogLineParser = new ByteLogLineParser(LogFormat.compile(logFile.equals("access.log") ? LogFormat.BUNDLED : UNQUOTED));
+
+        List<String> allLines = Files.readAllLines(Path.of(logFile));
+        lines = allLines.stream().filter(line -> !line.isBlank()).toArray(String[]::new);
+
+        bytes = Files.readAllBytes(Path.of(logFile));
+        lineStarts = new int[lines.length];
+        lineEnds = new int[lines.length];
+        int line = 0;
+        int start = 0;
+        for (int i = 0; i <= bytes.length && line < lines.length; i++) {
+            if (i == bytes.length || bytes[i] == '\n') {
+                if (i > start) {
+                    lineStarts[line] = start;
+                    lineEnds[line] = i;
+                    line++;
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    @Benchmark
+    public void stringSplitParser(Blackhole blackhole) {
+        for (String line : lines) {
+            LogLine logLine = LogLineParser.parseLogLine(line);
+            blackhole.consume(logLine);
+        }
+    }
+
+    /**
+     * Includes decoding of bytes to string, as {@code BufferedReader.readLine} does it before
+     * {@link LogLineParser#parseLogLine(String)} is called.
+     */
+    @Benchmark
+    public void stringSplitParserWithDecoding(Blackhole blackhole) {
+        for (int i = 0; i < lineStarts.length; i++) {
+            String line = new String(bytes, lineStarts[i], lineEnds[i] - lineStarts[i], StandardCharsets.UTF_8);
+            blackhole.consume(LogLineParser.parseLogLine(line));
+        }
+    }
+
+    @Benchmark
+    public void byteParser(Blackhole blackhole) {
+        for (int i = 0; i < lineStarts.length; i++) {
+            byteLogLineParser.parse(bytes, lineStarts[i], lineEnds[i]);
+            blackhole.consume(byteLogLineParser.getEpochSecond());
+            blackhole.consume(byteLogLineParser.getStatusCode());
+            blackhole.consume(byteLogLineParser.getResponseTime());
+        }
+    }
+
+    @Benchmark
+    public void formattedByteParser(Blackhole blackhole) {
+        for (int i = 0; i < lineStarts.length; i++) {
+            formattedLogLineParser.parse(bytes, lineStarts[i], lineEnds[i]);
+            blackhole.consume(formattedLogLineParser.getEpochSecond());
+            blackhole.consume(formattedLogLineParser.getStatusCode());
+            blackhole.consume(formattedLogLineParser.getResponseTime());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.pavelisaenko.benchmarks;
+
+import com.pavelisaenko.LogLine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link LogLine#LogLine(String, int, double)}, which parses timestamp with {@code DateTimeFormatter}.
+ * Score is time of one line.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogLineTimestampBenchmark {
+
+    private static final int TIMESTAMPS_NUMBER = 4096;
+
+    private String[] timestamps;
+
+    @Setup
+    public void setUp() throws IOException {
+        timestamps = Files.readAllLines(Path.of("access.modified4.log")).stream()
+                .filter(line -> !line.isBlank())
+                .limit(TIMESTAMPS_NUMBER)
+                .map(line -> line.split(" ")[3].substring(1))
+                .toArray(String[]::new);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TIMESTAMPS_NUMBER)
+    public void stringTimestamp(Blackhole blackhole) {
+        for (String timestamp : timestamps) {
+            blackhole.consume(new LogLine(timestamp, 200, 1.0));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.pavelisaenko.benchmarks;
+
+import com.pavelisaenko.LogLinesProcessor;
+import com.pavelisaenko.WindowMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link LogLinesProcessor#processNewLogLine(long, int, double)} on synthetic lines,
+ * {@link #LINES_PER_SECOND} lines per second. Every invocation feeds {@link #LINES_NUMBER} lines
+ * to a new processor, score is time of one line.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogLinesProcessorBenchmark {
+
+    static final int LINES_PER_SECOND = 100;
+    static final int LINES_NUMBER = 200_000;
+
+    @Param({"1", "60", "600"})
+    public long windowSeconds;
+
+    @Param({"0.0", "0.01", "0.2"})
+    public double errorRate;
+
+    @Param({"EXACT", "BUCKETED", "OFF_HEAP"})
+    public WindowMode windowMode;
+
+    private long[] epochMillis;
+    private int[] statusCodes;
+    private double[] responseTimes;
+
+    @Setup
+    public void setUp() {
+        epochMillis = new long[LINES_NUMBER];
+        statusCodes = new int[LINES_NUMBER];
+        responseTimes = new double[LINES_NUMBER];
+        fillLines(epochMillis, statusCodes, responseTimes, errorRate, new Random(1));
+    }
+
+    /**
+     * Fills arrays with lines of {@link #LINES_PER_SECOND} lines per second starting at epoch,
+     * half of errors are 5xx and half are slow.
+     */
+    static void fillLines(long[] epochMillis, int[] statusCodes, double[] responseTimes, double errorRate,
+                          Random random) {
+        for (int i = 0; i < epochMillis.length; i++) {
+            epochMillis[i] = i / LINES_PER_SECOND * 1000L;
+            statusCodes[i] = 200;
+            responseTimes[i] = random.nextDouble() * SyntheticLogGenerator.MAX_RESPONSE_TIME;
+            if (random.nextDouble() < errorRate) {
+                if (random.nextBoolean()) statusCodes[i] = 500;
+                else responseTimes[i] = SyntheticLogGenerator.SLOW_RESPONSE_TIME;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES_NUMBER)
+    public LogLinesProcessor processNewLogLine() {
+        LogLinesProcessor processor =
+                new LogLinesProcessor(45, 99.9, Duration.ofSeconds(windowSeconds), windowMode);
+        for (int i = 0; i < LINES_NUMBER; i++) {
+            processor.processNewLogLine(epochMillis[i], statusCodes[i], responseTimes[i]);
+        }
+        return processor;
+    }
+}
@@ -0,0 +1,87 @@
+package com.pavelisaenko.benchmarks;
+
+import com.pavelisaenko.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@code --metrics}: the same analysis of synthetic log with and without {@link AnalyzerMetrics}.
+ * Line by line reading shows per line cost, columnar reading is the fastest input, so per line cost
+ * is the most visible there.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+
+    @Param({"false", "true"})
+    public boolean instrumented;
+
+    private byte[] bytes;
+    private Path columnarPath;
+
+    @Setup
+    public void setUp() throws IOException {
+        bytes = new SyntheticLogGenerator(100, 0.05, 1).generate(AnalysisBenchmark.SYNTHETIC_LINES);
+        Path path = Files.createTempFile("synthetic", ".log");
+        columnarPath = Files.createTempFile("columnar", ".alog");
+        try (ColumnarLogWriter writer = new ColumnarLogWriter(columnarPath)) {
+            Files.write(path, bytes);
+            new MappedLogFileParser(path).parse(batch -> {
+                try {
+                    writer.write(batch);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(columnarPath);
+    }
+
+    private LogAnalyzer createLogAnalyzer(RecordingIntervalProcessor recorder) {
+        LogAnalyzer logAnalyzer = new LogAnalyzer(
+                new LogLinesProcessor(45, 90, Duration.ofSeconds(3), WindowMode.BUCKETED), recorder);
+        if (instrumented) logAnalyzer.setMetrics(new AnalyzerMetrics());
+        return logAnalyzer;
+    }
+
+    @Benchmark
+    public int byteReaderAnalysis() throws IOException {
+        RecordingIntervalProcessor recorder = new RecordingIntervalProcessor();
+        LogAnalyzer logAnalyzer = createLogAnalyzer(recorder);
+        ByteLogLineParser parser = new ByteLogLineParser();
+        try (ByteLineReader lineReader = new ByteLineReader(new ByteArrayInputStream(bytes))) {
+            while (lineReader.nextLine()) {
+                if (lineReader.isLineBlank()) continue;
+                parser.parse(lineReader.getBuffer(), lineReader.getLineStart(), lineReader.getLineEnd());
+                logAnalyzer.processLogLine(parser.getEpochMillis(), parser.getStatusCode(), parser.getResponseTime());
+            }
+        }
+        logAnalyzer.publishMetrics();
+        return recorder.getEvents().size();
+    }
+
+    @Benchmark
+    public int columnarFileAnalysis() throws IOException {
+        RecordingIntervalProcessor recorder = new RecordingIntervalProcessor();
+        LogAnalyzer logAnalyzer = createLogAnalyzer(recorder);
+        new ColumnarLogReader(columnarPath).read(logAnalyzer::processBatch);
+        return recorder.getEvents().size();
+    }
+}
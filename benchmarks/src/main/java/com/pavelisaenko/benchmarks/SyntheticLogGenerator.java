@@ -0,0 +1,93 @@
+package com.pavelisaenko.benchmarks;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+/**
+ * Generates access log in format of bundled logs, to scale benchmark inputs to millions of lines.
+ * Every second has {@code linesPerSecond} lines; a line is an error (5xx status or slow response)
+ * with probability {@code errorRate}.
+ * <p>
+ * Usage: {@code java -cp benchmarks/target/benchmarks.jar com.pavelisaenko.benchmarks.SyntheticLogGenerator
+ * <lines> <linesPerSecond> <errorRate> <output>}
+ */
+public class SyntheticLogGenerator {
+
+    /**
+     * Response time of slow lines, bigger than thresholds of benchmarks
+     */
+    public static final double SLOW_RESPONSE_TIME = 120;
+    /**
+     * Maximum response time of normal lines, smaller than thresholds of benchmarks
+     */
+    public static final double MAX_RESPONSE_TIME = 30;
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy:HH:mm:ss Z");
+    private static final ZonedDateTime START_TIME = ZonedDateTime.of(2017, 6, 14, 16, 47, 2, 0, ZoneOffset.ofHours(10));
+
+    private final int linesPerSecond;
+    private final double errorRate;
+    private final Random random;
+
+    public SyntheticLogGenerator(int linesPerSecond, double errorRate, long seed) {
+        if (linesPerSecond <= 0) throw new IllegalArgumentException("Lines per second must be positive");
+        if (errorRate < 0 || errorRate > 1) throw new IllegalArgumentException("Error rate must be in [0...1]");
+        this.linesPerSecond = linesPerSecond;
+        this.errorRate = errorRate;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Writes {@code lines} lines separated by {@code \n}.
+     */
+    public void generate(Writer writer, int lines) throws IOException {
+        String timestamp = null;
+        for (int i = 0; i < lines; i++) {
+            if (i % linesPerSecond == 0)
+                timestamp = START_TIME.plusSeconds(i / linesPerSecond).format(TIMESTAMP_FORMATTER);
+
+            int statusCode = 200;
+            double responseTime = random.nextDouble() * MAX_RESPONSE_TIME;
+            if (random.nextDouble() < errorRate) {
+                if (random.nextBoolean()) statusCode = 500 + random.nextInt(4);
+                else responseTime = SLOW_RESPONSE_TIME;
+            }
+
+            writer.write(String.format(
+                    "192.168.32.181 - - [%s] \"PUT /rest/v1.4/documents?zone=default&_rid=%08x HTTP/1.1\" %d 2 %.6f \"-\" \"@list-item-updater\" prio:0\n",
+                    timestamp, random.nextInt(), statusCode, responseTime));
+        }
+    }
+
+    /**
+     * @return {@code lines} generated lines as bytes
+     */
+    public byte[] generate(int lines) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(lines * 160);
+        try (Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.US_ASCII)) {
+            generate(writer, lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: SyntheticLogGenerator <lines> <linesPerSecond> <errorRate> <output>");
+            System.exit(2);
+        }
+        SyntheticLogGenerator generator =
+                new SyntheticLogGenerator(Integer.parseInt(args[1]), Double.parseDouble(args[2]), 1);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(Path.of(args[3])), StandardCharsets.US_ASCII), 1 << 16)) {
+            generator.generate(writer, Integer.parseInt(args[0]));
+        }
+    }
+}
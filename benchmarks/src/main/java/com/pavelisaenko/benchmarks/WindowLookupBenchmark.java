@@ -0,0 +1,60 @@
+package com.pavelisaenko.benchmarks;
+
+import com.pavelisaenko.LogLinesProcessor;
+import com.pavelisaenko.WindowMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures error lookups of {@link LogLinesProcessor} on a full window of
+ * {@link LogLinesProcessorBenchmark#LINES_PER_SECOND} lines per second.
+ * Rare errors show the cost of scanning correct lines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WindowLookupBenchmark {
+
+    @Param({"1", "60", "600"})
+    public long windowSeconds;
+
+    @Param({"0.001", "0.1"})
+    public double errorRate;
+
+    @Param({"EXACT", "BUCKETED"})
+    public WindowMode windowMode;
+
+    private LogLinesProcessor processor;
+
+    @Setup
+    public void setUp() {
+        int linesNumber = (int) (windowSeconds + 1) * LogLinesProcessorBenchmark.LINES_PER_SECOND;
+        long[] epochMillis = new long[linesNumber];
+        int[] statusCodes = new int[linesNumber];
+        double[] responseTimes = new double[linesNumber];
+        LogLinesProcessorBenchmark.fillLines(epochMillis, statusCodes, responseTimes, errorRate, new Random(1));
+
+        processor = new LogLinesProcessor(45, 99.9, Duration.ofSeconds(windowSeconds), windowMode);
+        for (int i = 0; i < linesNumber; i++) {
+            processor.processNewLogLine(epochMillis[i], statusCodes[i], responseTimes[i]);
+        }
+    }
+
+    @Benchmark
+    public Optional<Instant> findFirstErrorTimestampInWindow() {
+        return processor.findFirstErrorTimestampInWindow();
+    }
+
+    @Benchmark
+    public Optional<Instant> findLastErrorTimestampInWindow() {
+        return processor.findLastErrorTimestampInWindow();
+    }
+}
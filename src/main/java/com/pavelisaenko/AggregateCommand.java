@@ -0,0 +1,72 @@
+package com.pavelisaenko;
+
+import picocli.CommandLine.*;
+import picocli.CommandLine.Model.CommandSpec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Reduces logs of one node to per-second aggregates of {@link AggregateWriter}, which {@code merge} combines
+ * into intervals of cluster.
+ */
+@Command(name = "aggregate", mixinStandardHelpOptions = true,
+        description = "Reduce logs of a node, plain or .gz, to per-second aggregates for merge of many nodes")
+public class AggregateCommand implements Runnable {
+    @Spec
+    CommandSpec spec;
+    @Option(names = {"-t", "--response-time"}, required = true, description = "Maximum response time ms")
+    double responseThreshold;
+    @Option(names = {"--error-status"}, split = ",", description = "Statuses of error lines: codes, ranges like 500-504 or classes like 5xx. Default: 5xx")
+    List<String> errorStatuses;
+    @Option(names = {"--log-format"}, description = "nginx log_format of lines. Default: format of the bundled logs")
+    String logFormatTemplate;
+    @Option(names = {"-o", "--output"}, description = "File of aggregates. Default: stdout")
+    Path output;
+    @Parameters(paramLabel = "FILE", description = "Log files to merge by time. Default: stdin")
+    List<Path> files = List.of();
+
+    @Override
+    public void run() {
+        ErrorRules errorRules;
+        LogFormat logFormat;
+        try {
+            errorRules = new ErrorRules(responseThreshold);
+            if (errorStatuses != null) errorRules.setErrorStatuses(errorStatuses);
+            logFormat = logFormatTemplate == null ? null : LogFormat.compile(logFormatTemplate);
+        } catch (IllegalArgumentException e) {
+            throw new ParameterException(spec.commandLine(), e.getMessage());
+        }
+
+        try (OutputStream outputStream = output == null ? System.out : Files.newOutputStream(output);
+             AggregateWriter writer = new AggregateWriter(outputStream, errorRules)) {
+            if (files.isEmpty()) {
+                LogPipeline logPipeline = new LogPipeline(System.in);
+                logPipeline.setLogFormat(logFormat);
+                logPipeline.run(batch -> write(writer, batch));
+            } else {
+                LogMerger logMerger = new LogMerger(files);
+                logMerger.setLogFormat(logFormat);
+                logMerger.run(batch -> write(writer, batch));
+            }
+            System.err.printf("Aggregated log lines: %d into %d seconds%n", writer.getLinesNumber(), writer.getSecondsNumber());
+        } catch (IOException | UncheckedIOException e) {
+            System.err.printf("Logs aggregating error: %s%n", e.getMessage());
+        }
+    }
+
+    private static void write(AggregateWriter writer, LogLineBatch batch) {
+        batch.getParseErrors().forEach(error ->
+                System.err.printf("Wrong argument for parsing input line: %s", error));
+        try {
+            writer.addBatch(batch);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
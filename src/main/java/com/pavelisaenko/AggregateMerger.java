@@ -0,0 +1,113 @@
+package com.pavelisaenko;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Merges streams of {@link AggregateWriter} of many nodes by second into cluster-wide {@link SecondAggregate}s,
+ * like {@link LogMerger} merges raw logs. Streams are read lazily, so they may be live, e.g. named pipes.
+ * <p>
+ * Aggregates of the same second are concatenated in order of streams, as {@link LogMerger} takes lines with equal
+ * time in order of files, so analysis of merged aggregates prints exactly the intervals of merged raw logs.
+ * Every stream must be ordered by time itself.
+ */
+public class AggregateMerger {
+
+    private final List<InputStream> inputs;
+
+    /**
+     * Number of aggregates which were read
+     */
+    private long aggregatesNumber = 0;
+
+    public AggregateMerger(List<InputStream> inputs) {
+        if (inputs.isEmpty()) throw new IllegalArgumentException("Inputs must not be empty");
+        this.inputs = List.copyOf(inputs);
+    }
+
+    public long getAggregatesNumber() {
+        return aggregatesNumber;
+    }
+
+    /**
+     * Reads all streams and passes one merged aggregate per second to consumer, in order of seconds.
+     * @exception IllegalArgumentException if a stream is not a stream of aggregates, is malformed or its lines
+     * were classified by other error rules than lines of the first stream
+     */
+    public void run(Consumer<SecondAggregate> consumer) throws IOException {
+        List<Source> sources = new ArrayList<>(inputs.size());
+        String header = null;
+        for (int i = 0; i < inputs.size(); i++) {
+            Source source = new Source(i, new BufferedReader(new InputStreamReader(inputs.get(i), StandardCharsets.US_ASCII)));
+            String sourceHeader = source.reader.readLine();
+            if (sourceHeader == null || !sourceHeader.startsWith(AggregateWriter.HEADER))
+                throw new IllegalArgumentException("Input " + (i + 1) + " is not a stream of aggregates");
+            if (header == null) header = sourceHeader;
+            else if (!header.equals(sourceHeader))
+                throw new IllegalArgumentException("Input " + (i + 1) + " was aggregated with other error rules");
+            sources.add(source);
+        }
+
+        PriorityQueue<Source> heads = new PriorityQueue<>(Comparator.<Source>comparingLong(source -> source.head.epochSecond())
+                .thenComparingInt(source -> source.index));
+        for (Source source : sources) {
+            if (source.advance()) heads.add(source);
+        }
+
+        SecondAggregate merged = null;
+        while (!heads.isEmpty()) {
+            Source source = heads.poll();
+            SecondAggregate head = source.head;
+            if (source.advance()) heads.add(source);
+
+            if (merged != null && merged.epochSecond() == head.epochSecond()) {
+                merged = merged.concat(head);
+            } else {
+                if (merged != null) consumer.accept(merged);
+                merged = head;
+            }
+        }
+        if (merged != null) consumer.accept(merged);
+    }
+
+    private class Source {
+        private final int index;
+        private final BufferedReader reader;
+        private SecondAggregate head;
+        private long lineNumber = 1;
+
+        private Source(int index, BufferedReader reader) {
+            this.index = index;
+            this.reader = reader;
+        }
+
+        /**
+         * Reads the next aggregate into {@link #head}.
+         * @return {@code false} if stream has ended
+         */
+        private boolean advance() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber++;
+                if (line == null) return false;
+            } while (line.isBlank());
+
+            try {
+                head = SecondAggregate.parse(line);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Input " + (index + 1) + " line " + lineNumber + ": " + e.getMessage(), e);
+            }
+            aggregatesNumber++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.pavelisaenko;
+
+import lombok.Getter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reduces lines of one node to {@link SecondAggregate}s and writes them as text lines, so only a few dozen bytes
+ * per second instead of every line are moved to the box which judges availability of cluster.
+ * <p>
+ * Stream starts with {@link #HEADER} and canonical form of error rules, so aggregates classified by other rules are
+ * not merged. Lines are classified by {@link ErrorClassifier#isError(int, double)} when they are added.
+ */
+public class AggregateWriter implements Closeable {
+
+    /**
+     * Beginning of the first line of stream
+     */
+    public static final String HEADER = "# analyze-aggregates 1 ";
+
+    private final Writer writer;
+    private final ErrorClassifier errorClassifier;
+
+    @Getter
+    private long linesNumber = 0;
+    @Getter
+    private long secondsNumber = 0;
+
+    // runs of the current second
+    private long epochSecond = Long.MIN_VALUE;
+    private int offsetSeconds;
+    private int[] runs = new int[16];
+    private int runsNumber = 0;
+
+    public AggregateWriter(OutputStream outputStream, ErrorRules errorRules) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.US_ASCII));
+        this.errorClassifier = errorRules.compile();
+        writer.write(HEADER + errorRules + "\n");
+    }
+
+    /**
+     * Adds line of time-ordered input. Aggregate of second is written when a line of another second comes.
+     */
+    public void add(long epochMillis, int offsetSeconds, int statusCode, double responseTime) throws IOException {
+        long second = Math.floorDiv(epochMillis, 1000);
+        if (second != epochSecond) {
+            writeSecond();
+            epochSecond = second;
+            this.offsetSeconds = offsetSeconds;
+            runs[0] = 0;
+            runsNumber = 1;
+        }
+
+        // even runs are correct lines, odd runs are errors
+        boolean isError = errorClassifier.isError(statusCode, responseTime);
+        if (isError == (runsNumber % 2 == 0)) {
+            runs[runsNumber - 1]++;
+        } else {
+            if (runsNumber == runs.length) runs = Arrays.copyOf(runs, runsNumber * 2);
+            runs[runsNumber++] = 1;
+        }
+        linesNumber++;
+    }
+
+    /**
+     * Adds lines of batch, offset of all of them is offset of batch.
+     */
+    public void addBatch(LogLineBatch batch) throws IOException {
+        int offsetSeconds = batch.getZoneOffset() == null ? 0 : batch.getZoneOffset().getTotalSeconds();
+        for (int i = 0; i < batch.getSize(); i++) {
+            add(batch.getEpochMillis()[i], offsetSeconds, batch.getStatusCodes()[i], batch.getResponseTimes()[i]);
+        }
+    }
+
+    /**
+     * Passes written aggregates to output stream, e.g. after every batch of a live stream. Aggregate of
+     * the current second is written when its second ends or on {@link #close()}.
+     */
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Writes aggregate of the current second and closes output stream.
+     */
+    @Override
+    public void close() throws IOException {
+        writeSecond();
+        epochSecond = Long.MIN_VALUE;
+        writer.close();
+    }
+
+    private void writeSecond() throws IOException {
+        if (epochSecond == Long.MIN_VALUE) return;
+        writer.write(new SecondAggregate(epochSecond, offsetSeconds, Arrays.copyOf(runs, runsNumber)).format());
+        writer.write('\n');
+        secondsNumber++;
+    }
+}
@@ -0,0 +1,150 @@
+package com.pavelisaenko;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime metrics of analysis, readable from any thread through JMX or {@link #toPrometheusText()}.
+ * <p>
+ * Analysis threads do not touch shared state per line: {@link LogAnalyzer} accumulates its counters in plain
+ * fields and publishes them here every few thousand lines and after every batch. Counters are {@link LongAdder}s,
+ * so several analyzers may publish at once without contention. Analyzers publish changes of their windows, so
+ * window gauges are sums over all analyzers, e.g. over all keys of {@link GroupedLogAnalyzer}, and ingestion lag
+ * is of the newest line of any analyzer.
+ */
+public class AnalyzerMetrics implements AnalyzerMetricsMXBean {
+
+    public static final String OBJECT_NAME = "com.pavelisaenko:type=AnalyzerMetrics";
+
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder parseErrors = new LongAdder();
+    private final LongAdder evictedLines = new LongAdder();
+    private final LongAdder intervalsOpened = new LongAdder();
+    private final LongAdder intervalsClosed = new LongAdder();
+
+    private final LongAdder windowLines = new LongAdder();
+    private final LongAdder windowErrorLines = new LongAdder();
+    private final AtomicLong lastEpochMillis = new AtomicLong(Long.MIN_VALUE);
+
+    private long rateSampleNanos = System.nanoTime();
+    private long rateSampleLines = 0;
+    private double linesPerSecond = 0;
+
+    /**
+     * Adds counters accumulated by analyzer since its previous publication and changes of its window.
+     * @param windowLinesChange change of number of lines in window of analyzer since its previous publication
+     * @param windowErrorLinesChange change of number of error lines in window of analyzer
+     * @param lastEpochMillis time of the last line of analyzer
+     */
+    public void publish(long lines, long evictedLines, long intervalsOpened, long intervalsClosed,
+                        long windowLinesChange, long windowErrorLinesChange, long lastEpochMillis) {
+        if (lines > 0) this.lines.add(lines);
+        if (evictedLines > 0) this.evictedLines.add(evictedLines);
+        if (intervalsOpened > 0) this.intervalsOpened.add(intervalsOpened);
+        if (intervalsClosed > 0) this.intervalsClosed.add(intervalsClosed);
+        if (windowLinesChange != 0) windowLines.add(windowLinesChange);
+        if (windowErrorLinesChange != 0) windowErrorLines.add(windowErrorLinesChange);
+        if (lastEpochMillis > this.lastEpochMillis.get()) this.lastEpochMillis.accumulateAndGet(lastEpochMillis, Math::max);
+    }
+
+    public void addParseErrors(long parseErrors) {
+        this.parseErrors.add(parseErrors);
+    }
+
+    /**
+     * Registers metrics in platform MBean server as {@link #OBJECT_NAME}.
+     * @exception IllegalStateException if metrics can not be registered
+     */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            throw new IllegalStateException("Metrics can not be registered", e);
+        }
+    }
+
+    @Override
+    public long getLinesTotal() {
+        return lines.sum();
+    }
+
+    @Override
+    public synchronized double getLinesPerSecond() {
+        long now = System.nanoTime();
+        if (now - rateSampleNanos >= 1_000_000_000L) {
+            long currentLines = lines.sum();
+            linesPerSecond = (currentLines - rateSampleLines) * 1e9 / (now - rateSampleNanos);
+            rateSampleNanos = now;
+            rateSampleLines = currentLines;
+        }
+        return linesPerSecond;
+    }
+
+    @Override
+    public long getParseErrorsTotal() {
+        return parseErrors.sum();
+    }
+
+    @Override
+    public long getWindowLines() {
+        return windowLines.sum();
+    }
+
+    @Override
+    public double getWindowAvailability() {
+        long total = windowLines.sum();
+        if (total <= 0) return 100;
+        return 100 * (total - Math.min(total, windowErrorLines.sum())) / (double) total;
+    }
+
+    @Override
+    public long getEvictedLinesTotal() {
+        return evictedLines.sum();
+    }
+
+    @Override
+    public long getIntervalsOpenedTotal() {
+        return intervalsOpened.sum();
+    }
+
+    @Override
+    public long getIntervalsClosedTotal() {
+        return intervalsClosed.sum();
+    }
+
+    @Override
+    public long getIngestionLagMillis() {
+        long last = lastEpochMillis.get();
+        return last == Long.MIN_VALUE ? 0 : System.currentTimeMillis() - last;
+    }
+
+    /**
+     * @return metrics in Prometheus text exposition format
+     */
+    public String toPrometheusText() {
+        StringBuilder text = new StringBuilder();
+        appendMetric(text, "analyze_lines_total", "counter", "Analyzed log lines", getLinesTotal());
+        appendMetric(text, "analyze_parse_errors_total", "counter", "Log lines which could not be parsed", getParseErrorsTotal());
+        appendMetric(text, "analyze_evicted_lines_total", "counter", "Lines which left the window", getEvictedLinesTotal());
+        appendMetric(text, "analyze_intervals_opened_total", "counter", "Failing intervals which began", getIntervalsOpenedTotal());
+        appendMetric(text, "analyze_intervals_closed_total", "counter", "Failing intervals which ended", getIntervalsClosedTotal());
+        appendMetric(text, "analyze_window_lines", "gauge", "Lines in the window", getWindowLines());
+        appendMetric(text, "analyze_window_availability_percent", "gauge", "Availability of the window", getWindowAvailability());
+        appendMetric(text, "analyze_ingestion_lag_seconds", "gauge", "Wall clock minus time of the last analyzed line",
+                getIngestionLagMillis() / 1000.0);
+        return text.toString();
+    }
+
+    private static void appendMetric(StringBuilder text, String name, String type, String help, double value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        text.append(name).append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) text.append((long) value);
+        else text.append(String.format(Locale.ROOT, "%s", value));
+        text.append('\n');
+    }
+}
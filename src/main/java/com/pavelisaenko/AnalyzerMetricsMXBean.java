@@ -0,0 +1,34 @@
+package com.pavelisaenko;
+
+/**
+ * JMX view of {@link AnalyzerMetrics}.
+ */
+public interface AnalyzerMetricsMXBean {
+
+    long getLinesTotal();
+
+    /**
+     * @return lines analyzed per second since the previous call, at least one second ago
+     */
+    double getLinesPerSecond();
+
+    long getParseErrorsTotal();
+
+    long getWindowLines();
+
+    /**
+     * @return availability of window in percents, 100 if window is empty
+     */
+    double getWindowAvailability();
+
+    long getEvictedLinesTotal();
+
+    long getIntervalsOpenedTotal();
+
+    long getIntervalsClosedTotal();
+
+    /**
+     * @return wall clock minus time of the last analyzed line in milliseconds, 0 if no lines were analyzed
+     */
+    long getIngestionLagMillis();
+}
@@ -0,0 +1,221 @@
+package com.pavelisaenko;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Window of per-second counters kept in circular arrays. Memory is O(window seconds)
+ * and does not depend on the number of lines. Second {@code s} lives in bucket {@code s mod bucketsNumber};
+ * live seconds are {@code [oldestSecond...newestSecond]}. Range of live seconds depends on the newest second
+ * only, so two windows with the same lines in range behave equally regardless of older history.
+ * <p>
+ * A second is evicted as a whole when it is completely before cutoff, so for logs with
+ * second precision the window contains exactly the same lines as {@link DequeLogWindow}.
+ * Lines which are older than the oldest live second are ignored.
+ */
+public class BucketedLogWindow implements LogWindow {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final int bucketsNumber;
+
+    private final int[] totals;
+    private final int[] errors;
+    /**
+     * Offsets in millis from the beginning of second
+     */
+    private final short[] firstLineOffsets;
+    private final short[] firstErrorOffsets;
+    private final short[] lastErrorOffsets;
+
+    private long oldestSecond = EMPTY;
+    private long newestSecond = EMPTY;
+
+    private long totalLinesNumber = 0;
+    private long errorLinesNumber = 0;
+
+    /**
+     * @param windowSize expiration value of lines. Rounded up to whole seconds.
+     */
+    public BucketedLogWindow(Duration windowSize) {
+        long windowSeconds = windowSize.getSeconds() + (windowSize.getNano() > 0 ? 1 : 0);
+        if (windowSeconds >= Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Window size is too big for bucketed window");
+        bucketsNumber = (int) windowSeconds + 1;
+        totals = new int[bucketsNumber];
+        errors = new int[bucketsNumber];
+        firstLineOffsets = new short[bucketsNumber];
+        firstErrorOffsets = new short[bucketsNumber];
+        lastErrorOffsets = new short[bucketsNumber];
+    }
+
+    @Override
+    public void add(long epochMillis, boolean isError, double responseTime) {
+        long second = Math.floorDiv(epochMillis, 1000);
+        short offset = (short) Math.floorMod(epochMillis, 1000);
+
+        if (newestSecond == EMPTY) {
+            oldestSecond = second - bucketsNumber + 1;
+            newestSecond = second;
+        } else if (second > newestSecond) {
+            long firstReused = Math.max(newestSecond + 1, second - bucketsNumber + 1);
+            for (long reused = firstReused; reused <= second; reused++) clearBucket(indexOf(reused));
+            newestSecond = second;
+            oldestSecond = Math.max(oldestSecond, second - bucketsNumber + 1);
+        } else if (second < oldestSecond) {
+            return;
+        }
+
+        int index = indexOf(second);
+        if (totals[index] == 0 || offset < firstLineOffsets[index]) firstLineOffsets[index] = offset;
+        totals[index]++;
+        totalLinesNumber++;
+
+        if (isError) {
+            if (errors[index] == 0 || offset < firstErrorOffsets[index]) firstErrorOffsets[index] = offset;
+            if (errors[index] == 0 || offset > lastErrorOffsets[index]) lastErrorOffsets[index] = offset;
+            errors[index]++;
+            errorLinesNumber++;
+        }
+    }
+
+    @Override
+    public void evictBefore(long cutoffMillis) {
+        if (newestSecond == EMPTY) return;
+        long cutoffSecond = Math.min(Math.floorDiv(cutoffMillis, 1000), newestSecond + 1);
+        if (cutoffSecond <= oldestSecond) return;
+
+        long firstEvicted = Math.max(oldestSecond, cutoffSecond - bucketsNumber);
+        for (long evicted = firstEvicted; evicted < cutoffSecond; evicted++) clearBucket(indexOf(evicted));
+
+        if (cutoffSecond > newestSecond) {
+            oldestSecond = EMPTY;
+            newestSecond = EMPTY;
+        } else {
+            oldestSecond = cutoffSecond;
+        }
+    }
+
+    @Override
+    public long getTotalLinesNumber() {
+        return totalLinesNumber;
+    }
+
+    @Override
+    public long getErrorLinesNumber() {
+        return errorLinesNumber;
+    }
+
+    @Override
+    public Optional<Instant> findFirstErrorTimestamp() {
+        if (errorLinesNumber == 0) return Optional.empty();
+        for (long second = oldestSecond; second <= newestSecond; second++) {
+            int index = indexOf(second);
+            if (errors[index] > 0) return Optional.of(toInstant(second, firstErrorOffsets[index]));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Instant> findLastErrorTimestamp() {
+        if (errorLinesNumber == 0) return Optional.empty();
+        for (long second = newestSecond; second >= oldestSecond; second--) {
+            int index = indexOf(second);
+            if (errors[index] > 0) return Optional.of(toInstant(second, lastErrorOffsets[index]));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Instant> findFirstTimestamp() {
+        if (totalLinesNumber == 0) return Optional.empty();
+        for (long second = oldestSecond; second <= newestSecond; second++) {
+            int index = indexOf(second);
+            if (totals[index] > 0) return Optional.of(toInstant(second, firstLineOffsets[index]));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean hasSameContent(LogWindow other) {
+        if (!(other instanceof BucketedLogWindow otherWindow)) return false;
+        if (bucketsNumber != otherWindow.bucketsNumber || oldestSecond != otherWindow.oldestSecond ||
+                newestSecond != otherWindow.newestSecond || totalLinesNumber != otherWindow.totalLinesNumber ||
+                errorLinesNumber != otherWindow.errorLinesNumber)
+            return false;
+        if (newestSecond == EMPTY) return true;
+
+        for (long second = oldestSecond; second <= newestSecond; second++) {
+            int index = indexOf(second);
+            if (totals[index] != otherWindow.totals[index] || errors[index] != otherWindow.errors[index]) return false;
+            if (totals[index] > 0 && firstLineOffsets[index] != otherWindow.firstLineOffsets[index]) return false;
+            if (errors[index] > 0 && (firstErrorOffsets[index] != otherWindow.firstErrorOffsets[index] ||
+                    lastErrorOffsets[index] != otherWindow.lastErrorOffsets[index]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes live seconds: counters and offsets of non-empty seconds.
+     */
+    @Override
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeInt(bucketsNumber);
+        output.writeLong(oldestSecond);
+        output.writeLong(newestSecond);
+        if (newestSecond == EMPTY) return;
+
+        for (long second = oldestSecond; second <= newestSecond; second++) {
+            int index = indexOf(second);
+            output.writeInt(totals[index]);
+            if (totals[index] == 0) continue;
+            output.writeInt(errors[index]);
+            output.writeShort(firstLineOffsets[index]);
+            if (errors[index] == 0) continue;
+            output.writeShort(firstErrorOffsets[index]);
+            output.writeShort(lastErrorOffsets[index]);
+        }
+    }
+
+    @Override
+    public void readFrom(DataInput input) throws IOException {
+        if (input.readInt() != bucketsNumber) throw new IllegalArgumentException("Window was written with another size");
+        for (int index = 0; index < bucketsNumber; index++) clearBucket(index);
+        oldestSecond = input.readLong();
+        newestSecond = input.readLong();
+        if (newestSecond == EMPTY) return;
+
+        for (long second = oldestSecond; second <= newestSecond; second++) {
+            int index = indexOf(second);
+            totals[index] = input.readInt();
+            if (totals[index] == 0) continue;
+            errors[index] = input.readInt();
+            firstLineOffsets[index] = input.readShort();
+            totalLinesNumber += totals[index];
+            if (errors[index] == 0) continue;
+            firstErrorOffsets[index] = input.readShort();
+            lastErrorOffsets[index] = input.readShort();
+            errorLinesNumber += errors[index];
+        }
+    }
+
+    private int indexOf(long second) {
+        return (int) Math.floorMod(second, (long) bucketsNumber);
+    }
+
+    private void clearBucket(int index) {
+        totalLinesNumber -= totals[index];
+        errorLinesNumber -= errors[index];
+        totals[index] = 0;
+        errors[index] = 0;
+    }
+
+    private static Instant toInstant(long second, short offset) {
+        return Instant.ofEpochMilli(second * 1000 + offset);
+    }
+}
@@ -0,0 +1,173 @@
+package com.pavelisaenko;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Base of {@link IntervalSink}s which format intervals into one reused {@link StringBuilder} and write it out
+ * when it grows over buffer size, so output costs one write per buffer instead of one per interval.
+ * <p>
+ * Time-points are formatted without {@link java.time.format.DateTimeFormatter}: offset of fixed zone is
+ * computed once, date is formatted once per day. Methods are guarded by a lock, so one sink may be shared by
+ * analyzers of several threads, also virtual ones of {@link LogAggregator}: the lock does not pin their carriers
+ * during writes, unlike {@code synchronized}.
+ */
+public abstract class BufferedIntervalSink implements IntervalSink {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    private final Writer writer;
+    private final int bufferSize;
+    private final StringBuilder buffer = new StringBuilder(256);
+    private final ReentrantLock lock = new ReentrantLock();
+    private char[] chars = new char[256];
+    private boolean isHeaderAppended = false;
+
+    // cache of the last formatted zone, day and offset
+    private ZoneId cachedZone;
+    private ZoneRules cachedRules;
+    private int cachedFixedOffsetSeconds;
+    private long cachedEpochDay = Long.MIN_VALUE;
+    private String cachedDate;
+    private int cachedOffsetSeconds = Integer.MIN_VALUE;
+    private String cachedOffsetId;
+
+    /**
+     * @param bufferSize number of chars after which intervals are written out, {@code 0} to write and flush
+     *                   every interval
+     */
+    protected BufferedIntervalSink(OutputStream outputStream, int bufferSize) {
+        if (bufferSize < 0) throw new IllegalArgumentException("Buffer size must not be negative");
+        this.writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Appends interval to {@code buffer} without line terminator.
+     */
+    protected abstract void appendInterval(StringBuilder buffer, String label, long beginEpochMillis,
+                                           long endEpochMillis, ZoneId zone, double availability,
+                                           LatencyHistogram responseTimes, TopOffenders topOffenders);
+
+    /**
+     * Appends header line of output if it has one. Called once, before the first interval.
+     */
+    protected void appendHeader(StringBuilder buffer) {
+    }
+
+    @Override
+    public void write(String label, long beginEpochMillis, long endEpochMillis, ZoneId zone,
+                      double availability, LatencyHistogram responseTimes) {
+        write(label, beginEpochMillis, endEpochMillis, zone, availability, responseTimes, null);
+    }
+
+    @Override
+    public void write(String label, long beginEpochMillis, long endEpochMillis, ZoneId zone,
+                      double availability, LatencyHistogram responseTimes, TopOffenders topOffenders) {
+        lock.lock();
+        try {
+            if (!isHeaderAppended) {
+                appendHeader(buffer);
+                isHeaderAppended = true;
+            }
+            appendInterval(buffer, label, beginEpochMillis, endEpochMillis, zone, availability, responseTimes, topOffenders);
+            buffer.append('\n');
+
+            if (buffer.length() >= bufferSize) flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes buffer out at once and flushes output stream. Does nothing if buffer is empty.
+     */
+    @Override
+    public void flush() {
+        lock.lock();
+        try {
+            int length = buffer.length();
+            if (length == 0) return;
+            if (chars.length < length) chars = new char[Math.max(length, chars.length * 2)];
+            buffer.getChars(0, length, chars, 0);
+            buffer.setLength(0);
+            writer.write(chars, 0, length);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends {@code HH:mm:ss} of {@code epochMillis} in {@code zone}.
+     */
+    protected void appendTime(StringBuilder buffer, long epochMillis, ZoneId zone) {
+        long localSecond = Math.floorDiv(epochMillis, 1000) + getOffsetSeconds(epochMillis, zone);
+        appendTimeOfDay(buffer, Math.floorMod(localSecond, 86400));
+    }
+
+    /**
+     * Appends ISO-8601 date-time with offset like {@code 2017-06-14T16:47:02+10:00} of {@code epochMillis} in
+     * {@code zone}. Milliseconds are dropped, like in log.
+     */
+    protected void appendDateTime(StringBuilder buffer, long epochMillis, ZoneId zone) {
+        int offsetSeconds = getOffsetSeconds(epochMillis, zone);
+        long localSecond = Math.floorDiv(epochMillis, 1000) + offsetSeconds;
+
+        long epochDay = Math.floorDiv(localSecond, 86400);
+        if (epochDay != cachedEpochDay) {
+            cachedDate = LocalDate.ofEpochDay(epochDay).toString();
+            cachedEpochDay = epochDay;
+        }
+        buffer.append(cachedDate).append('T');
+        appendTimeOfDay(buffer, Math.floorMod(localSecond, 86400));
+
+        if (offsetSeconds != cachedOffsetSeconds) {
+            cachedOffsetId = ZoneOffset.ofTotalSeconds(offsetSeconds).getId();
+            cachedOffsetSeconds = offsetSeconds;
+        }
+        buffer.append(cachedOffsetId);
+    }
+
+    /**
+     * Appends response time rounded to tenths like {@link IntervalProcessor#getInfo()}.
+     */
+    protected static void appendResponseTime(StringBuilder buffer, double responseTime) {
+        buffer.append(Math.round(responseTime * 10) / 10.0);
+    }
+
+    private int getOffsetSeconds(long epochMillis, ZoneId zone) {
+        if (zone != cachedZone) {
+            cachedZone = zone;
+            cachedRules = zone.getRules();
+            cachedFixedOffsetSeconds = cachedRules.isFixedOffset()
+                    ? cachedRules.getOffset(Instant.EPOCH).getTotalSeconds() : Integer.MIN_VALUE;
+        }
+        if (cachedFixedOffsetSeconds != Integer.MIN_VALUE) return cachedFixedOffsetSeconds;
+        return cachedRules.getOffset(Instant.ofEpochMilli(epochMillis)).getTotalSeconds();
+    }
+
+    private static void appendTimeOfDay(StringBuilder buffer, long secondOfDay) {
+        appendTwoDigits(buffer, (int) (secondOfDay / 3600));
+        buffer.append(':');
+        appendTwoDigits(buffer, (int) (secondOfDay / 60 % 60));
+        buffer.append(':');
+        appendTwoDigits(buffer, (int) (secondOfDay % 60));
+    }
+
+    private static void appendTwoDigits(StringBuilder buffer, int value) {
+        buffer.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
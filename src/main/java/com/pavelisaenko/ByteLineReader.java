@@ -0,0 +1,118 @@
+package com.pavelisaenko;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads lines from {@link InputStream} as ranges of internal byte buffer without decoding them to strings.
+ * Current line is {@code buffer[lineStart...lineEnd)} and is valid until the next {@link #nextLine()} call.
+ * Line terminators ({@code \n} and {@code \r\n}) are not included into the line.
+ */
+@Getter
+public class ByteLineReader implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    @Getter(AccessLevel.NONE)
+    private final InputStream inputStream;
+
+    private byte[] buffer;
+    private int lineStart = 0;
+    private int lineEnd = 0;
+
+    @Getter(AccessLevel.NONE)
+    private int position = 0;
+    @Getter(AccessLevel.NONE)
+    private int limit = 0;
+    @Getter(AccessLevel.NONE)
+    private int scanned = 0;
+    @Getter(AccessLevel.NONE)
+    private boolean isEndOfStream = false;
+
+    /**
+     * Called before every read of input, which may block, e.g. to flush buffered output. May be {@code null}.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter
+    private Runnable beforeRead;
+
+    public ByteLineReader(InputStream inputStream) {
+        this(inputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param inputStream source of lines
+     * @param bufferSize initial size of buffer. Buffer grows if a line is longer.
+     */
+    public ByteLineReader(InputStream inputStream, int bufferSize) {
+        if (bufferSize <= 0) throw new IllegalArgumentException("Buffer size must be positive");
+        this.inputStream = inputStream;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Moves to the next line.
+     * @return {@code false} if there are no more lines
+     */
+    public boolean nextLine() throws IOException {
+        while (true) {
+            for (int i = scanned; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    setLine(i);
+                    position = i + 1;
+                    scanned = position;
+                    return true;
+                }
+            }
+            scanned = limit;
+
+            if (isEndOfStream) {
+                if (position == limit) return false;
+                setLine(limit);
+                position = limit;
+                return true;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * @return {@code true} if current line consists of whitespaces only
+     */
+    public boolean isLineBlank() {
+        return ByteLogLineParser.isBlank(buffer, lineStart, lineEnd);
+    }
+
+    private void setLine(int end) {
+        lineStart = position;
+        lineEnd = end > position && buffer[end - 1] == '\r' ? end - 1 : end;
+    }
+
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            scanned -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            byte[] grown = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, grown, 0, limit);
+            buffer = grown;
+        }
+        if (beforeRead != null) beforeRead.run();
+        int read = inputStream.read(buffer, limit, buffer.length - limit);
+        if (read < 0) isEndOfStream = true;
+        else limit += read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
@@ -0,0 +1,394 @@
+package com.pavelisaenko;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Allocation-free replacement of {@link LogLineParser#parseLogLine(String)}.
+ * Scans raw bytes of a log line once and extracts only timestamp (field 3 and its offset),
+ * status code (field 8) and response time (field 10) straight to primitives.
+ * <p>
+ * Parser keeps the last seen timestamp, so a burst of lines within the same second costs
+ * a 25-byte comparison instead of date math. One instance must not be shared between threads.
+ * <p>
+ * Parser created with {@link LogFormat} runs its extraction plan instead of counting fields,
+ * so lines of any nginx {@code log_format} are parsed with the same decoders.
+ */
+@Getter
+public class ByteLogLineParser {
+
+    private static final int TIMESTAMP_FIELD = 3;
+    private static final int STATUS_FIELD = 8;
+    private static final int RESPONSE_TIME_FIELD = 10;
+
+    /**
+     * Length of {@code [dd/MM/yyyy:HH:mm:ss +hhmm]}
+     */
+    private static final int TIMESTAMP_LENGTH = 27;
+
+    /**
+     * Length of {@code dd/MM/yyyy:HH:mm:ss +hhmm}
+     */
+    private static final int TIME_LOCAL_LENGTH = 25;
+
+    /**
+     * Length of {@code yyyy-MM-ddTHH:mm:ss+hh:mm}
+     */
+    private static final int TIME_ISO8601_LENGTH = 25;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private long epochSecond;
+    private int statusCode;
+    private double responseTime;
+    private int offsetSeconds;
+
+    @Getter(AccessLevel.NONE)
+    private final LogFormat logFormat;
+
+    @Getter(AccessLevel.NONE)
+    private final byte[] cachedTimestamp = new byte[TIME_LOCAL_LENGTH];
+    @Getter(AccessLevel.NONE)
+    private boolean hasCachedTimestamp = false;
+    @Getter(AccessLevel.NONE)
+    private ZoneOffset zoneOffset = ZoneOffset.UTC;
+    @Getter(AccessLevel.NONE)
+    private byte[] scratch = new byte[512];
+
+    /**
+     * Creates parser of the bundled logs format, which finds fields by their positions.
+     */
+    public ByteLogLineParser() {
+        this(null);
+    }
+
+    /**
+     * @param logFormat format of lines, {@code null} for the bundled logs format
+     */
+    public ByteLogLineParser(LogFormat logFormat) {
+        this.logFormat = logFormat;
+    }
+
+    /**
+     * Parses line stored in {@code line[from...to)}. Results are available through getters
+     * until the next call.
+     * @param line buffer with log line bytes
+     * @param from index of first byte of line
+     * @param to index after last byte of line
+     * @exception IllegalArgumentException if line does not contain needed fields or they are malformed
+     */
+    public void parse(byte[] line, int from, int to) {
+        if (logFormat != null) {
+            parseFormatted(line, from, to);
+            return;
+        }
+
+        int field = 0;
+        int position = from;
+        int timestampStart = -1;
+        int statusStart = -1;
+        int statusEnd = -1;
+
+        while (field < RESPONSE_TIME_FIELD) {
+            while (position < to && line[position] != ' ') position++;
+            if (position >= to) throw new IllegalArgumentException("log string must contain at least 11 fields");
+            position++;
+            field++;
+            if (field == TIMESTAMP_FIELD) {
+                timestampStart = position;
+            } else if (field == STATUS_FIELD) {
+                statusStart = position;
+            } else if (field == STATUS_FIELD + 1) {
+                statusEnd = position - 1;
+            }
+        }
+        int responseTimeEnd = position;
+        while (responseTimeEnd < to && line[responseTimeEnd] != ' ') responseTimeEnd++;
+
+        parseTimestamp(line, timestampStart, to);
+        statusCode = parseStatusCode(line, statusStart, statusEnd);
+        responseTime = parseResponseTime(line, position, responseTimeEnd, 0);
+    }
+
+    /**
+     * Runs extraction plan of {@link #logFormat}: matches literals, finds end of every variable by its delimiter
+     * and decodes needed variables. Times have fixed length, so they may contain their delimiter.
+     */
+    private void parseFormatted(byte[] line, int from, int to) {
+        int[] kinds = logFormat.kinds;
+        byte[][] literals = logFormat.literals;
+        int[] delimiters = logFormat.delimiters;
+
+        int position = from;
+        for (int step = 0; step < kinds.length; step++) {
+            int kind = kinds[step];
+            if (kind == LogFormat.LITERAL) {
+                byte[] literal = literals[step];
+                int end = position + literal.length;
+                if (end > to || !Arrays.equals(line, position, end, literal, 0, literal.length))
+                    throw new IllegalArgumentException("log string does not match log format");
+                position = end;
+                continue;
+            }
+
+            int end;
+            if (kind == LogFormat.TIME_LOCAL) {
+                end = position + TIME_LOCAL_LENGTH;
+                parseTimeLocal(line, position, to);
+            } else if (kind == LogFormat.TIME_ISO8601) {
+                end = position + TIME_ISO8601_LENGTH;
+                parseTimeIso8601(line, position, to);
+            } else {
+                end = findDelimiter(line, position, to, delimiters[step]);
+                if (kind == LogFormat.STATUS) statusCode = parseStatusCode(line, position, end);
+                else if (kind == LogFormat.RESPONSE_TIME_SECONDS) responseTime = parseResponseTime(line, position, end, 3);
+                else if (kind == LogFormat.RESPONSE_TIME_MILLIS) responseTime = parseResponseTime(line, position, end, 0);
+            }
+            position = end;
+        }
+    }
+
+    private static int findDelimiter(byte[] line, int start, int end, int delimiter) {
+        if (delimiter == LogFormat.END_OF_LINE) return end;
+        int position = start;
+        while (position < end && line[position] != delimiter) position++;
+        if (position == end) throw new IllegalArgumentException("log string does not match log format");
+        return position;
+    }
+
+    /**
+     * Parses line stored in {@code buffer[from...to)} using absolute reads,
+     * so position and limit of {@code buffer} are not changed.
+     * @see #parse(byte[], int, int)
+     */
+    public void parse(ByteBuffer buffer, int from, int to) {
+        if (buffer.hasArray()) {
+            parse(buffer.array(), buffer.arrayOffset() + from, buffer.arrayOffset() + to);
+            return;
+        }
+        int length = to - from;
+        if (scratch.length < length) scratch = new byte[Math.max(length, scratch.length * 2)];
+        buffer.get(from, scratch, 0, length);
+        parse(scratch, 0, length);
+    }
+
+    /**
+     * @return {@code true} if {@code line[from...to)} consists of whitespaces only
+     */
+    public static boolean isBlank(byte[] line, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(line[i])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Absolute reads version of {@link #isBlank(byte[], int, int)}.
+     */
+    public static boolean isBlank(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(buffer.get(i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return epoch millis of last parsed line
+     */
+    public long getEpochMillis() {
+        return epochSecond * 1000;
+    }
+
+    /**
+     * @return offset of last parsed line
+     */
+    public ZoneOffset getZoneOffset() {
+        if (zoneOffset.getTotalSeconds() != offsetSeconds) zoneOffset = ZoneOffset.ofTotalSeconds(offsetSeconds);
+        return zoneOffset;
+    }
+
+    /**
+     * @return last parsed line as {@link LogLine}
+     */
+    public LogLine toLogLine() {
+        return new LogLine(Instant.ofEpochSecond(epochSecond), statusCode, responseTime);
+    }
+
+    /**
+     * Parses {@code [dd/MM/yyyy:HH:mm:ss +hhmm]} starting at {@code start}.
+     */
+    private void parseTimestamp(byte[] line, int start, int end) {
+        if (start + TIMESTAMP_LENGTH > end || line[start] != '[' || line[start + TIMESTAMP_LENGTH - 1] != ']')
+            throw new IllegalArgumentException("timestamp must be in [dd/MM/yyyy:HH:mm:ss +hhmm] format");
+        parseTimeLocal(line, start + 1, end);
+    }
+
+    /**
+     * Parses {@code dd/MM/yyyy:HH:mm:ss +hhmm} starting at {@code start}.
+     * Reuses previous result if bytes are equal to the previous timestamp.
+     */
+    private void parseTimeLocal(byte[] line, int start, int end) {
+        if (start + TIME_LOCAL_LENGTH > end)
+            throw new IllegalArgumentException("timestamp must be in [dd/MM/yyyy:HH:mm:ss +hhmm] format");
+
+        if (hasCachedTimestamp && isCachedTimestamp(line, start, TIME_LOCAL_LENGTH)) return;
+
+        if (line[start + 2] != '/' || line[start + 5] != '/' || line[start + 10] != ':' ||
+                line[start + 13] != ':' || line[start + 16] != ':' || line[start + 19] != ' ')
+            throw new IllegalArgumentException("timestamp must be in [dd/MM/yyyy:HH:mm:ss +hhmm] format");
+
+        int day = parseDigits(line, start, 2);
+        int month = parseDigits(line, start + 3, 2);
+        int year = parseDigits(line, start + 6, 4);
+        int hour = parseDigits(line, start + 11, 2);
+        int minute = parseDigits(line, start + 14, 2);
+        int second = parseDigits(line, start + 17, 2);
+
+        setTimestamp(year, month, day, hour, minute, second, line[start + 20],
+                parseDigits(line, start + 21, 2), parseDigits(line, start + 23, 2));
+        cacheTimestamp(line, start, TIME_LOCAL_LENGTH);
+    }
+
+    /**
+     * Parses {@code yyyy-MM-ddTHH:mm:ss+hh:mm} of nginx {@code $time_iso8601} starting at {@code start}.
+     * Reuses previous result if bytes are equal to the previous timestamp.
+     */
+    private void parseTimeIso8601(byte[] line, int start, int end) {
+        if (start + TIME_ISO8601_LENGTH > end)
+            throw new IllegalArgumentException("timestamp must be in yyyy-MM-ddTHH:mm:ss+hh:mm format");
+
+        if (hasCachedTimestamp && isCachedTimestamp(line, start, TIME_ISO8601_LENGTH)) return;
+
+        if (line[start + 4] != '-' || line[start + 7] != '-' || line[start + 10] != 'T' ||
+                line[start + 13] != ':' || line[start + 16] != ':' || line[start + 22] != ':')
+            throw new IllegalArgumentException("timestamp must be in yyyy-MM-ddTHH:mm:ss+hh:mm format");
+
+        int year = parseDigits(line, start, 4);
+        int month = parseDigits(line, start + 5, 2);
+        int day = parseDigits(line, start + 8, 2);
+        int hour = parseDigits(line, start + 11, 2);
+        int minute = parseDigits(line, start + 14, 2);
+        int second = parseDigits(line, start + 17, 2);
+
+        setTimestamp(year, month, day, hour, minute, second, line[start + 19],
+                parseDigits(line, start + 20, 2), parseDigits(line, start + 23, 2));
+        cacheTimestamp(line, start, TIME_ISO8601_LENGTH);
+    }
+
+    private void setTimestamp(int year, int month, int day, int hour, int minute, int second,
+                              byte sign, int offsetHours, int offsetMinutes) {
+        if (sign != '+' && sign != '-')
+            throw new IllegalArgumentException("timestamp offset must start with + or -");
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month) ||
+                hour > 23 || minute > 59 || second > 59 || offsetHours > 18 || offsetMinutes > 59)
+            throw new IllegalArgumentException("timestamp fields are out of range");
+
+        int offset = (sign == '-' ? -1 : 1) * (offsetHours * 3600 + offsetMinutes * 60);
+
+        epochSecond = daysFromCivil(year, month, day) * 86400 + hour * 3600L + minute * 60L + second - offset;
+        offsetSeconds = offset;
+    }
+
+    private void cacheTimestamp(byte[] line, int start, int length) {
+        System.arraycopy(line, start, cachedTimestamp, 0, length);
+        hasCachedTimestamp = true;
+    }
+
+    private boolean isCachedTimestamp(byte[] line, int start, int length) {
+        return Arrays.equals(line, start, start + length, cachedTimestamp, 0, length);
+    }
+
+    private static int parseDigits(byte[] line, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) throw new IllegalArgumentException("timestamp must contain digits only");
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int parseStatusCode(byte[] line, int start, int end) {
+        if (start >= end || end - start > 9) throw new IllegalArgumentException("status code must be a number");
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) throw new IllegalArgumentException("status code must be a number");
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Decodes plain decimal {@code digits[.digits]} multiplied by {@code 10^scale} without creating strings,
+     * e.g. scale 3 converts seconds to millis. Result is exact because both mantissa (below 2^53) and power
+     * of ten (up to 10^22) are exact doubles, and one division or multiplication is correctly rounded.
+     * Other forms fall back to {@link Double#parseDouble(String)}.
+     */
+    private static double parseResponseTime(byte[] line, int start, int end, int scale) {
+        if (start >= end) throw new IllegalArgumentException("response time must be a number");
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean isFraction = false;
+        for (int i = start; i < end; i++) {
+            byte symbol = line[i];
+            if (symbol == '.' && !isFraction) {
+                isFraction = true;
+                continue;
+            }
+            int digit = symbol - '0';
+            if (digit < 0 || digit > 9 || digits >= 15) return parseResponseTimeSlowly(line, start, end) * POWERS_OF_TEN[scale];
+            mantissa = mantissa * 10 + digit;
+            digits++;
+            if (isFraction) fractionDigits++;
+        }
+        if (digits == 0) throw new IllegalArgumentException("response time must be a number");
+        int exponent = fractionDigits - scale;
+        return exponent >= 0 ? mantissa / POWERS_OF_TEN[exponent] : mantissa * POWERS_OF_TEN[-exponent];
+    }
+
+    private static double parseResponseTimeSlowly(byte[] line, int start, int end) {
+        try {
+            return Double.parseDouble(new String(line, start, end - start, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("response time must be a number", e);
+        }
+    }
+
+    static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * @return number of days since 1970-01-01 in proleptic Gregorian calendar
+     * @see <a href="https://howardhinnant.github.io/date_algorithms.html#days_from_civil">days_from_civil</a>
+     */
+    static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+}
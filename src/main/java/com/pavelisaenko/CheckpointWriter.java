@@ -0,0 +1,82 @@
+package com.pavelisaenko;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes {@link Checkpoint}s atomically: into a temporary file which is forced to disk and moved over the
+ * previous checkpoint, so a crash leaves either the previous or the new checkpoint.
+ * <p>
+ * {@link #submit(Checkpoint)} returns at once and the checkpoint is written on a background thread, so analysis
+ * does not wait for disk. If checkpoints come faster than they are written, only the newest one is written.
+ */
+public class CheckpointWriter implements Closeable {
+
+    private final Path path;
+    private final Path temporaryPath;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "checkpoint-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<Checkpoint> pending = new AtomicReference<>();
+
+    public CheckpointWriter(Path path) {
+        this.path = path.toAbsolutePath();
+        this.temporaryPath = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+    }
+
+    /**
+     * Writes checkpoint on background thread. Errors are reported to {@link System#err}.
+     */
+    public void submit(Checkpoint checkpoint) {
+        if (pending.getAndSet(checkpoint) == null) executor.execute(this::writePending);
+    }
+
+    /**
+     * Writes checkpoint on the calling thread, e.g. the last one.
+     * @exception IOException if checkpoint can not be written
+     */
+    public synchronized void write(Checkpoint checkpoint) throws IOException {
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(checkpoint.toBytes());
+            while (bytes.hasRemaining()) channel.write(bytes);
+            channel.force(true);
+        }
+        Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Waits until submitted checkpoints are written.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writePending() {
+        Checkpoint checkpoint = pending.getAndSet(null);
+        if (checkpoint == null) return;
+        try {
+            write(checkpoint);
+        } catch (IOException e) {
+            System.err.printf("Checkpoint writing error: %s%n", e);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.pavelisaenko;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneOffset;
+import java.util.function.Consumer;
+
+/**
+ * Memory-maps file written by {@link ColumnarLogWriter} and decodes its blocks straight into
+ * {@link LogLineBatch}es, without any text parsing.
+ */
+@Getter
+public class ColumnarLogReader {
+
+    /**
+     * Maximum size of one mapping. {@link MappedByteBuffer} is limited by {@link Integer#MAX_VALUE}.
+     */
+    private static final int MAX_REGION_SIZE = 1 << 30;
+
+    private final Path path;
+    private final long linesNumber;
+    private final long oldestEpochSecond;
+    private final long newestEpochSecond;
+    private final ZoneOffset zoneOffset;
+    private final int blocksNumber;
+    private final int blockSize;
+
+    /**
+     * Reads header of file.
+     * @exception IOException if file can not be read
+     * @exception IllegalArgumentException if file is not a columnar log
+     */
+    public ColumnarLogReader(Path path) throws IOException {
+        this.path = path;
+        ByteBuffer header = ByteBuffer.allocate(ColumnarLogWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) throw new IllegalArgumentException(path + " is not a columnar log");
+            }
+        }
+        header.flip();
+        if (header.getInt() != ColumnarLogWriter.MAGIC) throw new IllegalArgumentException(path + " is not a columnar log");
+        int version = header.getInt();
+        if (version != ColumnarLogWriter.VERSION)
+            throw new IllegalArgumentException("Unsupported version " + version + " of columnar log " + path);
+
+        linesNumber = header.getLong();
+        oldestEpochSecond = header.getLong();
+        newestEpochSecond = header.getLong();
+        zoneOffset = ZoneOffset.ofTotalSeconds(header.getInt());
+        blocksNumber = header.getInt();
+        blockSize = header.getInt();
+    }
+
+    /**
+     * @return {@code true} if {@code path} starts with magic of columnar log
+     */
+    public static boolean isColumnarLog(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) return false;
+        ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (magic.hasRemaining()) {
+                if (channel.read(magic) < 0) return false;
+            }
+        }
+        return magic.getInt(0) == ColumnarLogWriter.MAGIC;
+    }
+
+    /**
+     * Reads all lines in order of file.
+     * @param consumer receives one batch per block in order of file, on the calling thread. Batches are not reused,
+     *                 so they may be kept, e.g. by {@link ParallelLogAnalyzer}
+     * @exception IOException if file can not be read
+     * @exception IllegalStateException if file is broken
+     */
+    public void read(Consumer<LogLineBatch> consumer) throws IOException {
+        if (blocksNumber == 0) return;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long blockStart = ColumnarLogWriter.HEADER_SIZE;
+            long regionStart = blockStart;
+            MappedByteBuffer region = null;
+
+            for (int block = 0; block < blocksNumber; block++) {
+                // blocks never cross regions: region is mapped again from the block which does not fit
+                if (region == null || blockStart + ColumnarLogWriter.BLOCK_HEADER_SIZE > regionStart + region.limit() ||
+                        blockStart + blockByteSize(region, (int) (blockStart - regionStart)) > regionStart + region.limit()) {
+                    regionStart = blockStart;
+                    region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart,
+                            Math.min(MAX_REGION_SIZE, fileSize - regionStart));
+                    region.order(ByteOrder.LITTLE_ENDIAN);
+                    if (region.limit() < ColumnarLogWriter.BLOCK_HEADER_SIZE || blockByteSize(region, 0) > region.limit())
+                        throw new IllegalStateException("Columnar log " + path + " is truncated");
+                }
+
+                int position = (int) (blockStart - regionStart);
+                LogLineBatch batch = decodeBlock(region, position);
+                batch.setZoneOffset(zoneOffset);
+                consumer.accept(batch);
+                blockStart += blockByteSize(region, position);
+            }
+        }
+    }
+
+    /**
+     * @return size in bytes of block which starts at {@code position}
+     */
+    private static long blockByteSize(ByteBuffer region, int position) {
+        int lines = region.getInt(position);
+        int timestampsSize = region.getInt(position + Integer.BYTES + Long.BYTES);
+        return ColumnarLogWriter.BLOCK_HEADER_SIZE + (long) timestampsSize + (long) lines * (Short.BYTES + Float.BYTES);
+    }
+
+    private LogLineBatch decodeBlock(ByteBuffer region, int position) {
+        int lines = region.getInt(position);
+        if (lines <= 0 || lines > blockSize) throw new IllegalStateException("Columnar log " + path + " is broken");
+        LogLineBatch batch = new LogLineBatch(lines);
+        long epochSecond = region.getLong(position + Integer.BYTES);
+        int timestampsSize = region.getInt(position + Integer.BYTES + Long.BYTES);
+
+        int timestamp = position + ColumnarLogWriter.BLOCK_HEADER_SIZE;
+        int status = timestamp + timestampsSize;
+        int responseTime = status + lines * Short.BYTES;
+
+        for (int i = 0; i < lines; i++) {
+            long zigzag = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = region.get(timestamp++);
+                zigzag |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while (current < 0);
+            epochSecond += (zigzag >>> 1) ^ -(zigzag & 1);
+
+            batch.add(epochSecond * 1000, region.getShort(status), region.getFloat(responseTime));
+            status += Short.BYTES;
+            responseTime += Float.BYTES;
+        }
+        return batch;
+    }
+}
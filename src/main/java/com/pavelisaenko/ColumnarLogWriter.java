@@ -0,0 +1,181 @@
+package com.pavelisaenko;
+
+import lombok.Setter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneOffset;
+
+/**
+ * Writes parsed log lines into compact columnar file, which is read back by {@link ColumnarLogReader}
+ * much faster than text is parsed.
+ * <p>
+ * File starts with a header of {@link #HEADER_SIZE} bytes: magic, version, number of lines, the oldest and
+ * the newest epoch second, zone offset of the first line, number of blocks and maximum lines per block.
+ * Lines follow in blocks, every block keeps its columns one after another:
+ * <ul>
+ *     <li>number of lines and epoch second of the first line,</li>
+ *     <li>epoch seconds as zigzag varint deltas from the previous line, usually 1 byte per line,</li>
+ *     <li>status codes as shorts,</li>
+ *     <li>response times as floats, which keep about 7 significant digits.</li>
+ * </ul>
+ * All numbers are little-endian.
+ */
+public class ColumnarLogWriter implements Closeable {
+
+    public static final int MAGIC = 0x474F4C41;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+    /**
+     * Size of block header: number of lines, the first epoch second and size of timestamps column
+     */
+    static final int BLOCK_HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    /**
+     * Maximum size of varint of 64-bit number
+     */
+    private static final int MAX_VARINT_SIZE = 10;
+
+    private final FileChannel channel;
+    private final int blockSize;
+
+    private final long[] epochSeconds;
+    private final short[] statusCodes;
+    private final float[] responseTimes;
+    private final ByteBuffer blockBuffer;
+    private int size = 0;
+
+    private long linesNumber = 0;
+    private int blocksNumber = 0;
+    private long oldestEpochSecond = Long.MAX_VALUE;
+    private long newestEpochSecond = Long.MIN_VALUE;
+    /**
+     * Zone offset kept in header, by default offset of the first written batch
+     */
+    @Setter
+    private ZoneOffset zoneOffset;
+
+    public ColumnarLogWriter(Path path) throws IOException {
+        this(path, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates or truncates file.
+     * @param blockSize maximum number of lines in block
+     */
+    public ColumnarLogWriter(Path path, int blockSize) throws IOException {
+        if (blockSize <= 0) throw new IllegalArgumentException("Block size must be positive");
+        this.blockSize = blockSize;
+        epochSeconds = new long[blockSize];
+        statusCodes = new short[blockSize];
+        responseTimes = new float[blockSize];
+        blockBuffer = ByteBuffer.allocateDirect(BLOCK_HEADER_SIZE + blockSize * (MAX_VARINT_SIZE + Short.BYTES + Float.BYTES))
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        channel.position(HEADER_SIZE);
+    }
+
+    /**
+     * Adds line to the end of file.
+     * @exception IllegalArgumentException if time is not a whole second or status code does not fit in short
+     */
+    public void write(long epochMillis, int statusCode, double responseTime) throws IOException {
+        if (epochMillis % 1000 != 0) throw new IllegalArgumentException("Columnar log keeps whole seconds only");
+        if (statusCode < 0 || statusCode > Short.MAX_VALUE) throw new IllegalArgumentException("Wrong status code " + statusCode);
+
+        long epochSecond = epochMillis / 1000;
+        epochSeconds[size] = epochSecond;
+        statusCodes[size] = (short) statusCode;
+        responseTimes[size] = (float) responseTime;
+        size++;
+
+        oldestEpochSecond = Math.min(oldestEpochSecond, epochSecond);
+        newestEpochSecond = Math.max(newestEpochSecond, epochSecond);
+        if (size == blockSize) writeBlock();
+    }
+
+    /**
+     * Adds lines of batch. Zone offset of the first batch with lines is kept in header.
+     */
+    public void write(LogLineBatch batch) throws IOException {
+        if (zoneOffset == null) zoneOffset = batch.getZoneOffset();
+        for (int i = 0; i < batch.getSize(); i++) {
+            write(batch.getEpochMillis()[i], batch.getStatusCodes()[i], batch.getResponseTimes()[i]);
+        }
+    }
+
+    public long getLinesNumber() {
+        return linesNumber + size;
+    }
+
+    /**
+     * Writes the last block and header.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (size > 0) writeBlock();
+            writeHeader();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        blockBuffer.clear();
+        blockBuffer.putInt(size);
+        blockBuffer.putLong(epochSeconds[0]);
+        int timestampsSizePosition = blockBuffer.position();
+        blockBuffer.putInt(0);
+
+        long previous = epochSeconds[0];
+        for (int i = 0; i < size; i++) {
+            long delta = epochSeconds[i] - previous;
+            putVarint(blockBuffer, (delta << 1) ^ (delta >> 63));
+            previous = epochSeconds[i];
+        }
+        blockBuffer.putInt(timestampsSizePosition, blockBuffer.position() - timestampsSizePosition - Integer.BYTES);
+
+        for (int i = 0; i < size; i++) blockBuffer.putShort(statusCodes[i]);
+        for (int i = 0; i < size; i++) blockBuffer.putFloat(responseTimes[i]);
+
+        blockBuffer.flip();
+        while (blockBuffer.hasRemaining()) channel.write(blockBuffer);
+
+        linesNumber += size;
+        blocksNumber++;
+        size = 0;
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(linesNumber);
+        header.putLong(linesNumber == 0 ? 0 : oldestEpochSecond);
+        header.putLong(linesNumber == 0 ? 0 : newestEpochSecond);
+        header.putInt(zoneOffset == null ? 0 : zoneOffset.getTotalSeconds());
+        header.putInt(blocksNumber);
+        header.putInt(blockSize);
+        header.clear();
+        long position = 0;
+        while (header.hasRemaining()) position += channel.write(header, position);
+    }
+
+    private static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
@@ -0,0 +1,44 @@
+package com.pavelisaenko;
+
+import picocli.CommandLine.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Converts text logs into columnar file of {@link ColumnarLogWriter}, so they can be analyzed again
+ * with {@code --file} without text parsing.
+ */
+@Command(name = "convert", mixinStandardHelpOptions = true,
+        description = "Convert logs, plain or .gz, into columnar file for fast re-analysis with --file")
+public class ConvertCommand implements Runnable {
+    @Option(names = {"-o", "--output"}, required = true, description = "Columnar file to write")
+    Path output;
+    @Option(names = {"--block-size"}, description = "Lines per block of columnar file. Default: ${DEFAULT-VALUE}")
+    int blockSize = ColumnarLogWriter.DEFAULT_BLOCK_SIZE;
+    @Parameters(paramLabel = "FILE", description = "Log files to merge by time. Default: stdin")
+    List<Path> files = List.of();
+
+    @Override
+    public void run() {
+        try (ColumnarLogWriter writer = new ColumnarLogWriter(output, blockSize)) {
+            if (files.isEmpty()) new LogPipeline(System.in).run(batch -> write(writer, batch));
+            else new LogMerger(files).run(batch -> write(writer, batch));
+            System.err.printf("Converted log lines: %d%n", writer.getLinesNumber());
+        } catch (IOException e) {
+            System.err.printf("Logs converting error: %s", e.getMessage());
+        }
+    }
+
+    private static void write(ColumnarLogWriter writer, LogLineBatch batch) {
+        batch.getParseErrors().forEach(error ->
+                System.err.printf("Wrong argument for parsing input line: %s", error));
+        try {
+            writer.write(batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
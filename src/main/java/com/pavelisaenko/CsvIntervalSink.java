@@ -0,0 +1,70 @@
+package com.pavelisaenko;
+
+import java.io.OutputStream;
+import java.time.ZoneId;
+
+/**
+ * Prints intervals as CSV with header
+ * {@code label,begin,begin_millis,end,end_millis,availability,p50,p95,p99,max}.
+ * Columns are always present: {@code label} is empty if interval has no label, percentiles are empty
+ * if they are not reported. Top offenders are not printed, they do not fit fixed columns.
+ */
+public class CsvIntervalSink extends BufferedIntervalSink {
+
+    static final String HEADER = "label,begin,begin_millis,end,end_millis,availability,p50,p95,p99,max";
+
+    public CsvIntervalSink(OutputStream outputStream, int bufferSize) {
+        super(outputStream, bufferSize);
+    }
+
+    @Override
+    protected void appendHeader(StringBuilder buffer) {
+        buffer.append(HEADER).append('\n');
+    }
+
+    @Override
+    protected void appendInterval(StringBuilder buffer, String label, long beginEpochMillis, long endEpochMillis,
+                                  ZoneId zone, double availability, LatencyHistogram responseTimes,
+                                  TopOffenders topOffenders) {
+        if (label != null) appendField(buffer, label);
+        buffer.append(',');
+        appendDateTime(buffer, beginEpochMillis, zone);
+        buffer.append(',').append(beginEpochMillis).append(',');
+        appendDateTime(buffer, endEpochMillis, zone);
+        buffer.append(',').append(endEpochMillis).append(',').append(availability).append(',');
+
+        if (responseTimes == null) {
+            buffer.append(",,,");
+            return;
+        }
+        appendResponseTime(buffer, responseTimes.getValueAtPercentile(50));
+        buffer.append(',');
+        appendResponseTime(buffer, responseTimes.getValueAtPercentile(95));
+        buffer.append(',');
+        appendResponseTime(buffer, responseTimes.getValueAtPercentile(99));
+        buffer.append(',');
+        appendResponseTime(buffer, responseTimes.getMaxValue());
+    }
+
+    /**
+     * Appends {@code value} quoted if it contains separator, quote or line terminator.
+     */
+    private static void appendField(StringBuilder buffer, String value) {
+        boolean isQuoted = false;
+        for (int i = 0; i < value.length() && !isQuoted; i++) {
+            char c = value.charAt(i);
+            isQuoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!isQuoted) {
+            buffer.append(value);
+            return;
+        }
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') buffer.append('"');
+            buffer.append(c);
+        }
+        buffer.append('"');
+    }
+}
@@ -0,0 +1,148 @@
+package com.pavelisaenko;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Exact window. Keeps every line in order of arrival in a deque of circular primitive arrays,
+ * so once arrays have grown to the number of lines of window, adding a line allocates nothing.
+ */
+public class DequeLogWindow implements LogWindow {
+
+    /**
+     * Records per second the deque is presized for
+     */
+    private static final int EXPECTED_LINES_PER_SECOND = 80;
+
+    private static final int MAX_INITIAL_CAPACITY = 1 << 20;
+
+    // line i of window, counted from the oldest one, is at index (head + i) & (capacity - 1)
+    private long[] epochMillis;
+    private boolean[] errors;
+    private int head = 0;
+    private int size = 0;
+
+    private long errorLinesNumber = 0;
+
+    public DequeLogWindow(Duration windowSize) {
+        int expectedLines = (int) Math.min(
+                Math.max(windowSize.getSeconds(), 1) * EXPECTED_LINES_PER_SECOND, MAX_INITIAL_CAPACITY);
+        int capacity = Integer.highestOneBit(expectedLines - 1) << 1;
+        epochMillis = new long[capacity];
+        errors = new boolean[capacity];
+    }
+
+    @Override
+    public void add(long epochMillis, boolean isError, double responseTime) {
+        if (size == this.epochMillis.length) grow();
+        int index = indexOf(size);
+        this.epochMillis[index] = epochMillis;
+        errors[index] = isError;
+        size++;
+        if (isError) errorLinesNumber++;
+    }
+
+    @Override
+    public void evictBefore(long cutoffMillis) {
+        while (size > 0 && epochMillis[head] < cutoffMillis) {
+            if (errors[head]) errorLinesNumber--;
+            head = (head + 1) & (epochMillis.length - 1);
+            size--;
+        }
+    }
+
+    @Override
+    public long getTotalLinesNumber() {
+        return size;
+    }
+
+    @Override
+    public long getErrorLinesNumber() {
+        return errorLinesNumber;
+    }
+
+    @Override
+    public Optional<Instant> findFirstErrorTimestamp() {
+        if (errorLinesNumber == 0) return Optional.empty();
+        for (int i = 0; i < size; i++) {
+            if (errors[indexOf(i)]) return Optional.of(Instant.ofEpochMilli(epochMillis[indexOf(i)]));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Instant> findLastErrorTimestamp() {
+        if (errorLinesNumber == 0) return Optional.empty();
+        for (int i = size - 1; i >= 0; i--) {
+            if (errors[indexOf(i)]) return Optional.of(Instant.ofEpochMilli(epochMillis[indexOf(i)]));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Instant> findFirstTimestamp() {
+        if (size == 0) return Optional.empty();
+        return Optional.of(Instant.ofEpochMilli(epochMillis[head]));
+    }
+
+    @Override
+    public boolean hasSameContent(LogWindow other) {
+        if (!(other instanceof DequeLogWindow otherWindow)) return false;
+        if (size != otherWindow.size || errorLinesNumber != otherWindow.errorLinesNumber) return false;
+
+        for (int i = 0; i < size; i++) {
+            int index = indexOf(i);
+            int otherIndex = otherWindow.indexOf(i);
+            if (epochMillis[index] != otherWindow.epochMillis[otherIndex] || errors[index] != otherWindow.errors[otherIndex])
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            output.writeLong(epochMillis[indexOf(i)]);
+            output.writeBoolean(errors[indexOf(i)]);
+        }
+    }
+
+    @Override
+    public void readFrom(DataInput input) throws IOException {
+        head = 0;
+        size = 0;
+        errorLinesNumber = 0;
+        int size = input.readInt();
+        for (int i = 0; i < size; i++) add(input.readLong(), input.readBoolean(), 0);
+    }
+
+    /**
+     * @return index in arrays of line {@code i} of window counted from the oldest one
+     */
+    private int indexOf(int i) {
+        return (head + i) & (epochMillis.length - 1);
+    }
+
+    /**
+     * Doubles capacity and moves lines to the beginning of new arrays.
+     */
+    private void grow() {
+        int capacity = epochMillis.length;
+        if (capacity == 1 << 30) throw new IllegalStateException("Exact window can not keep more lines");
+        long[] grownEpochMillis = new long[capacity * 2];
+        boolean[] grownErrors = new boolean[capacity * 2];
+        int firstPart = capacity - head;
+        System.arraycopy(epochMillis, head, grownEpochMillis, 0, firstPart);
+        System.arraycopy(epochMillis, 0, grownEpochMillis, firstPart, head);
+        System.arraycopy(errors, head, grownErrors, 0, firstPart);
+        System.arraycopy(errors, 0, grownErrors, firstPart, head);
+        epochMillis = grownEpochMillis;
+        errors = grownErrors;
+        head = 0;
+    }
+}
@@ -0,0 +1,134 @@
+package com.pavelisaenko;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ErrorRules} compiled for classification of every line without boxing or allocation.
+ * <p>
+ * Error statuses are a bit mask of 1024 bits, so status check is one shift and one and; status and response
+ * time checks are combined without branches. Path prefixes and agents are kept as bytes and compared with
+ * bytes of line, only if rules have them.
+ */
+public final class ErrorClassifier {
+
+    public static final int CORRECT = 0;
+    public static final int ERROR = 1;
+    /**
+     * Line which is not analyzed, e.g. health check
+     */
+    public static final int IGNORED = 2;
+
+    private static final int PATH_FIELD = 6;
+    private static final int AGENT_FIELD = 12;
+
+    private final ErrorRules rules;
+    private final long[] errorStatuses = new long[(ErrorRules.MAX_STATUS_CODE >>> 6) + 1];
+    private final double responseThreshold;
+
+    /**
+     * Path prefixes in order of descending length, so the first matching one is the longest
+     */
+    private final byte[][] pathPrefixes;
+    private final double[] pathResponseThresholds;
+    private final byte[][] ignoredAgents;
+
+    ErrorClassifier(ErrorRules rules) {
+        this.rules = rules;
+        responseThreshold = rules.getResponseThreshold();
+        long[] words = rules.getErrorStatuses().toLongArray();
+        System.arraycopy(words, 0, errorStatuses, 0, words.length);
+
+        List<Map.Entry<String, Double>> paths = rules.getPathResponseThresholds().entrySet().stream()
+                .sorted(Comparator.comparingInt(entry -> -entry.getKey().length()))
+                .toList();
+        pathPrefixes = new byte[paths.size()][];
+        pathResponseThresholds = new double[paths.size()];
+        for (int i = 0; i < paths.size(); i++) {
+            pathPrefixes[i] = paths.get(i).getKey().getBytes(StandardCharsets.UTF_8);
+            pathResponseThresholds[i] = paths.get(i).getValue();
+        }
+
+        ignoredAgents = rules.getIgnoredAgents().stream()
+                .map(agent -> agent.getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+    }
+
+    public ErrorRules getRules() {
+        return rules;
+    }
+
+    /**
+     * @return {@code true} if classification needs bytes of line, see {@link ErrorRules#hasLineRules()}
+     */
+    public boolean hasLineRules() {
+        return pathPrefixes.length > 0 || ignoredAgents.length > 0;
+    }
+
+    /**
+     * Classifies line by status code and response time only, with default response threshold.
+     */
+    public boolean isError(int statusCode, double responseTime) {
+        return isErrorStatus(statusCode) | responseTime > responseThreshold;
+    }
+
+    /**
+     * Classifies line stored in {@code line[from...to)} which was parsed into {@code statusCode} and
+     * {@code responseTime}.
+     * @return {@link #CORRECT}, {@link #ERROR} or {@link #IGNORED}
+     */
+    public int classify(byte[] line, int from, int to, int statusCode, double responseTime) {
+        if (!hasLineRules()) return isError(statusCode, responseTime) ? ERROR : CORRECT;
+
+        int pathStart = findField(line, from, to, PATH_FIELD);
+        if (ignoredAgents.length > 0 && isIgnoredAgent(line, findField(line, pathStart, to, AGENT_FIELD - PATH_FIELD), to))
+            return IGNORED;
+
+        double threshold = responseThreshold;
+        for (int i = 0; i < pathPrefixes.length; i++) {
+            byte[] prefix = pathPrefixes[i];
+            if (pathStart + prefix.length <= to &&
+                    Arrays.equals(line, pathStart, pathStart + prefix.length, prefix, 0, prefix.length)) {
+                threshold = pathResponseThresholds[i];
+                break;
+            }
+        }
+        return isErrorStatus(statusCode) | responseTime > threshold ? ERROR : CORRECT;
+    }
+
+    private boolean isErrorStatus(int statusCode) {
+        return statusCode >>> 6 < errorStatuses.length && (errorStatuses[statusCode >>> 6] & 1L << statusCode) != 0;
+    }
+
+    /**
+     * @return {@code true} if field which starts at {@code start}, quoted or not, contains one of {@link #ignoredAgents}
+     */
+    private boolean isIgnoredAgent(byte[] line, int start, int to) {
+        byte terminator = start < to && line[start] == '"' ? (byte) '"' : (byte) ' ';
+        if (terminator == '"') start++;
+        int end = start;
+        while (end < to && line[end] != terminator) end++;
+        for (byte[] agent : ignoredAgents) {
+            for (int i = start; i + agent.length <= end; i++) {
+                if (Arrays.equals(line, i, i + agent.length, agent, 0, agent.length)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return index of the first byte of space-separated field {@code field} counted from {@code from},
+     * {@code to} if line has fewer fields
+     */
+    private static int findField(byte[] line, int from, int to, int field) {
+        int position = from;
+        for (int i = 0; i < field && position < to; i++) {
+            while (position < to && line[position] != ' ') position++;
+            position++;
+        }
+        return Math.min(position, to);
+    }
+}
@@ -0,0 +1,131 @@
+package com.pavelisaenko;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration of which log lines are errors, compiled by {@link #compile()} into {@link ErrorClassifier}.
+ * <p>
+ * A line is an error if its status code is one of error statuses, by default {@code 5xx}, or its response time
+ * is bigger than response threshold of its path. Lines of ignored user agents, e.g. health checks, are neither
+ * errors nor correct lines.
+ */
+@Getter
+public class ErrorRules {
+
+    /**
+     * Maximum error status code, statuses are 3-digit
+     */
+    public static final int MAX_STATUS_CODE = 999;
+
+    private final double responseThreshold;
+    private final BitSet errorStatuses = new BitSet(MAX_STATUS_CODE + 1);
+    /**
+     * Response thresholds of request paths starting with prefix; the longest matching prefix is used
+     */
+    private final Map<String, Double> pathResponseThresholds = new LinkedHashMap<>();
+    /**
+     * Substrings of user agents whose lines are ignored
+     */
+    private final List<String> ignoredAgents = new ArrayList<>();
+
+    /**
+     * Creates rules with {@code 5xx} error statuses.
+     * @param responseThreshold maximum response time of correct line. Must be positive.
+     */
+    public ErrorRules(double responseThreshold) {
+        if (responseThreshold <= 0) throw new IllegalArgumentException("Response threshold must be positive");
+        this.responseThreshold = responseThreshold;
+        errorStatuses.set(500, 600);
+    }
+
+    /**
+     * Replaces error statuses.
+     * @param specifications status codes {@code 429}, ranges {@code 500-504} or classes {@code 5xx}
+     * @exception IllegalArgumentException if a specification is malformed or out of {@code [0...999]}
+     */
+    public ErrorRules setErrorStatuses(List<String> specifications) {
+        BitSet statuses = new BitSet(MAX_STATUS_CODE + 1);
+        for (String specification : specifications) {
+            String value = specification.trim().toLowerCase();
+            try {
+                if (value.length() == 3 && value.endsWith("xx")) {
+                    int statusClass = Integer.parseInt(value.substring(0, 1));
+                    statuses.set(statusClass * 100, statusClass * 100 + 100);
+                } else if (value.indexOf('-') > 0) {
+                    int from = parseStatusCode(value.substring(0, value.indexOf('-')));
+                    int to = parseStatusCode(value.substring(value.indexOf('-') + 1));
+                    if (from > to) throw new IllegalArgumentException("Wrong error status range " + specification);
+                    statuses.set(from, to + 1);
+                } else {
+                    statuses.set(parseStatusCode(value));
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Wrong error status " + specification, e);
+            }
+        }
+        errorStatuses.clear();
+        errorStatuses.or(statuses);
+        return this;
+    }
+
+    /**
+     * Sets response threshold of request paths which start with {@code pathPrefix}, e.g. slow {@code /search}.
+     */
+    public ErrorRules setPathResponseThreshold(String pathPrefix, double responseThreshold) {
+        if (!pathPrefix.startsWith("/")) throw new IllegalArgumentException("Path prefix must start with /");
+        if (responseThreshold <= 0) throw new IllegalArgumentException("Response threshold must be positive");
+        pathResponseThresholds.put(pathPrefix, responseThreshold);
+        return this;
+    }
+
+    /**
+     * Ignores lines whose user agent contains {@code agent}, e.g. {@code kube-probe}.
+     */
+    public ErrorRules addIgnoredAgent(String agent) {
+        if (agent.isEmpty()) throw new IllegalArgumentException("Ignored agent must not be empty");
+        ignoredAgents.add(agent);
+        return this;
+    }
+
+    public Map<String, Double> getPathResponseThresholds() {
+        return Collections.unmodifiableMap(pathResponseThresholds);
+    }
+
+    public List<String> getIgnoredAgents() {
+        return Collections.unmodifiableList(ignoredAgents);
+    }
+
+    /**
+     * @return {@code true} if rules need path or user agent of line, which are not kept in {@link LogLineBatch}
+     */
+    public boolean hasLineRules() {
+        return !pathResponseThresholds.isEmpty() || !ignoredAgents.isEmpty();
+    }
+
+    public ErrorClassifier compile() {
+        return new ErrorClassifier(this);
+    }
+
+    /**
+     * @return canonical form of rules, equal for equal rules
+     */
+    @Override
+    public String toString() {
+        return "statuses=" + errorStatuses + " responseThreshold=" + responseThreshold +
+                " paths=" + pathResponseThresholds + " ignoredAgents=" + ignoredAgents;
+    }
+
+    private static int parseStatusCode(String value) {
+        int statusCode = Integer.parseInt(value);
+        if (statusCode < 0 || statusCode > MAX_STATUS_CODE)
+            throw new IllegalArgumentException("Error status must be in [0..." + MAX_STATUS_CODE + "]");
+        return statusCode;
+    }
+}
@@ -0,0 +1,69 @@
+package com.pavelisaenko;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Field of log line by which {@link GroupedLogAnalyzer} groups lines.
+ */
+public enum GroupKey {
+    /**
+     * Request path without query string: {@code /rest/v1.4/documents} of
+     * {@code "PUT /rest/v1.4/documents?zone=default&_rid=6076537c HTTP/1.1"}
+     */
+    PATH {
+        @Override
+        public String extract(byte[] line, int from, int to) {
+            int start = findField(line, from, to, 6);
+            int end = start;
+            while (end < to && line[end] != ' ' && line[end] != '?') end++;
+            return toKey(line, start, end);
+        }
+    },
+    /**
+     * Client IP, the first field
+     */
+    IP {
+        @Override
+        public String extract(byte[] line, int from, int to) {
+            int end = from;
+            while (end < to && line[end] != ' ') end++;
+            return toKey(line, from, end);
+        }
+    },
+    /**
+     * User agent without quotes
+     */
+    AGENT {
+        @Override
+        public String extract(byte[] line, int from, int to) {
+            int start = findField(line, from, to, 12);
+            if (start < to && line[start] == '"') start++;
+            int end = start;
+            while (end < to && line[end] != '"') end++;
+            return toKey(line, start, end);
+        }
+    };
+
+    /**
+     * @return key of line stored in {@code line[from...to)}
+     * @exception IllegalArgumentException if line does not contain key field
+     */
+    public abstract String extract(byte[] line, int from, int to);
+
+    /**
+     * @return index of the first byte of space-separated field {@code field}
+     */
+    private static int findField(byte[] line, int from, int to, int field) {
+        int position = from;
+        for (int i = 0; i < field; i++) {
+            while (position < to && line[position] != ' ') position++;
+            if (position >= to) throw new IllegalArgumentException("log string must contain at least " + (field + 1) + " fields");
+            position++;
+        }
+        return position;
+    }
+
+    private static String toKey(byte[] line, int start, int end) {
+        return new String(line, start, end - start, StandardCharsets.UTF_8);
+    }
+}
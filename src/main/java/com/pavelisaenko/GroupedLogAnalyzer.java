@@ -0,0 +1,286 @@
+package com.pavelisaenko;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Detects failing intervals independently for every key of lines (path, client IP, user agent).
+ * <p>
+ * Keys are striped across worker threads by hash: every worker owns a map of keys to their own
+ * {@link LogAnalyzer}, so all lines of a key are analyzed by the same thread in order of input and
+ * per-key state is never shared. Calling thread routes lines to workers in batches through
+ * {@link SpscRingBuffer}s, like {@link LogPipeline}.
+ * <p>
+ * Memory is bounded: every worker keeps its keys in order of last access and evicts keys whose last line
+ * is older than idle timeout (by time of lines) and the least recently used keys above the maximum
+ * number of keys. An open interval of an evicted key is not printed, like an open interval at the end of input.
+ * Counters of an evicted key are published to metrics of its analyzer and its window is withdrawn from them,
+ * counters of the rest of keys are published when workers finish.
+ */
+public class GroupedLogAnalyzer {
+
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+    public static final int DEFAULT_MAX_KEYS = 100_000;
+
+    private static final int BATCH_SIZE = 1024;
+    private static final int BATCHES_IN_FLIGHT = 4;
+
+    private final Function<String, LogAnalyzer> analyzerFactory;
+    private final long idleTimeoutMillis;
+    private final int maxKeysPerWorker;
+
+    private final Worker[] workers;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final AtomicLong evictedKeysNumber = new AtomicLong();
+
+    private Runnable beforeWait;
+
+    /**
+     * @param workersNumber number of worker threads
+     * @param analyzerFactory creates analyzer for a new key. Called on worker threads.
+     * @param idleTimeout time after the last line of key when key is evicted
+     * @param maxKeys maximum number of keys kept at once
+     */
+    public GroupedLogAnalyzer(int workersNumber, Function<String, LogAnalyzer> analyzerFactory,
+                              Duration idleTimeout, int maxKeys) {
+        if (workersNumber <= 0) throw new IllegalArgumentException("Number of workers must be positive");
+        if (idleTimeout.isNegative() || idleTimeout.isZero())
+            throw new IllegalArgumentException("Idle timeout must be positive");
+        if (maxKeys < workersNumber) throw new IllegalArgumentException("Maximum number of keys must not be less than number of workers");
+
+        this.analyzerFactory = analyzerFactory;
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.maxKeysPerWorker = maxKeys / workersNumber;
+
+        workers = new Worker[workersNumber];
+        for (int i = 0; i < workersNumber; i++) workers[i] = new Worker("log-group-worker-" + i);
+        for (Worker worker : workers) worker.thread.start();
+    }
+
+    /**
+     * @param beforeWait called on worker thread when it has analyzed all lines handed to it and is about to wait
+     *                   for more, e.g. to flush buffered output. May be {@code null}. Must be set before the first line.
+     */
+    public void setBeforeWait(Runnable beforeWait) {
+        this.beforeWait = beforeWait;
+    }
+
+    /**
+     * Passes line to worker of its key. Must be called from one thread.
+     * @exception IllegalStateException if a worker failed
+     */
+    public void processLogLine(String key, long epochMillis, int statusCode, double responseTime) {
+        Worker worker = workers[Math.floorMod(spread(key.hashCode()), workers.length)];
+        KeyedBatch batch = worker.currentBatch;
+        if (batch == null) batch = worker.currentBatch = takeFreeBatch(worker);
+
+        batch.add(key, epochMillis, statusCode, responseTime);
+        if (batch.size == BATCH_SIZE) {
+            worker.currentBatch = null;
+            putFullBatch(worker, batch);
+        }
+    }
+
+    /**
+     * Hands lines collected so far to workers without waiting for full batches, e.g. before reading of slow input
+     * blocks. Must be called from the thread of {@link #processLogLine(String, long, int, double)}.
+     * @exception IllegalStateException if a worker failed
+     */
+    public void handOffBatches() {
+        for (Worker worker : workers) {
+            KeyedBatch batch = worker.currentBatch;
+            if (batch == null || batch.size == 0) continue;
+            worker.currentBatch = null;
+            putFullBatch(worker, batch);
+        }
+    }
+
+    /**
+     * Analyzes the rest of lines and stops workers.
+     * @exception IllegalStateException if a worker failed
+     */
+    public void finish() {
+        for (Worker worker : workers) {
+            if (worker.currentBatch != null && !worker.fullBatches.isClosed()) worker.fullBatches.put(worker.currentBatch);
+            worker.currentBatch = null;
+            worker.fullBatches.close();
+        }
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+        rethrowFailure();
+    }
+
+    /**
+     * @return number of keys kept now. Exact only after {@link #finish()}.
+     */
+    public int getKeysNumber() {
+        int keysNumber = 0;
+        for (Worker worker : workers) keysNumber += worker.keysNumber;
+        return keysNumber;
+    }
+
+    /**
+     * @return number of keys evicted so far
+     */
+    public long getEvictedKeysNumber() {
+        return evictedKeysNumber.get();
+    }
+
+    private KeyedBatch takeFreeBatch(Worker worker) {
+        KeyedBatch batch = worker.freeBatches.take();
+        if (batch == null) rethrowFailure();
+        return batch;
+    }
+
+    /**
+     * Buffers of worker are closed only on failure, so failure of worker is thrown instead of closed buffer.
+     */
+    private void putFullBatch(Worker worker, KeyedBatch batch) {
+        try {
+            worker.fullBatches.put(batch);
+        } catch (IllegalStateException e) {
+            rethrowFailure();
+            throw e;
+        }
+    }
+
+    private void rethrowFailure() {
+        Throwable cause = failure.get();
+        if (cause instanceof RuntimeException e) throw e;
+        if (cause instanceof Error e) throw e;
+        if (cause != null) throw new IllegalStateException(cause);
+    }
+
+    /**
+     * Keeps the first failure and stops all workers.
+     */
+    private void fail(Throwable cause) {
+        failure.compareAndSet(null, cause);
+        for (Worker worker : workers) {
+            worker.fullBatches.close();
+            worker.freeBatches.close();
+        }
+    }
+
+    /**
+     * Mixes high bits of hash into low ones, so keys with similar hashes go to different workers.
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Lines with keys, routed to one worker.
+     */
+    private static final class KeyedBatch {
+        private final String[] keys = new String[BATCH_SIZE];
+        private final long[] epochMillis = new long[BATCH_SIZE];
+        private final int[] statusCodes = new int[BATCH_SIZE];
+        private final double[] responseTimes = new double[BATCH_SIZE];
+        private int size = 0;
+
+        private void add(String key, long epochMillis, int statusCode, double responseTime) {
+            keys[size] = key;
+            this.epochMillis[size] = epochMillis;
+            statusCodes[size] = statusCode;
+            responseTimes[size] = responseTime;
+            size++;
+        }
+
+        private void clear() {
+            Arrays.fill(keys, 0, size, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * State of key owned by worker.
+     */
+    private static final class KeyState {
+        private final LogAnalyzer logAnalyzer;
+        private long lastEpochMillis;
+
+        private KeyState(LogAnalyzer logAnalyzer) {
+            this.logAnalyzer = logAnalyzer;
+        }
+    }
+
+    private final class Worker {
+        private final Thread thread;
+        private final SpscRingBuffer<KeyedBatch> fullBatches = new SpscRingBuffer<>(BATCHES_IN_FLIGHT);
+        private final SpscRingBuffer<KeyedBatch> freeBatches = new SpscRingBuffer<>(BATCHES_IN_FLIGHT);
+        /**
+         * Keys in order of access, the least recently used first
+         */
+        private final LinkedHashMap<String, KeyState> keys = new LinkedHashMap<>(16, 0.75f, true);
+
+        /**
+         * Batch which is filled by calling thread
+         */
+        private KeyedBatch currentBatch;
+        private volatile int keysNumber = 0;
+        private long newestEpochMillis = Long.MIN_VALUE;
+
+        private Worker(String name) {
+            for (int i = 0; i < BATCHES_IN_FLIGHT; i++) freeBatches.put(new KeyedBatch());
+            thread = new Thread(() -> {
+                try {
+                    run();
+                } catch (RuntimeException | Error e) {
+                    fail(e);
+                }
+            }, name);
+            thread.setDaemon(true);
+        }
+
+        private void run() {
+            KeyedBatch batch;
+            while ((batch = fullBatches.take()) != null) {
+                for (int i = 0; i < batch.size; i++) {
+                    KeyState keyState = keys.get(batch.keys[i]);
+                    if (keyState == null) {
+                        keyState = new KeyState(analyzerFactory.apply(batch.keys[i]));
+                        keys.put(batch.keys[i], keyState);
+                    }
+                    keyState.lastEpochMillis = batch.epochMillis[i];
+                    newestEpochMillis = Math.max(newestEpochMillis, batch.epochMillis[i]);
+                    keyState.logAnalyzer.processLogLine(batch.epochMillis[i], batch.statusCodes[i],
+                            batch.responseTimes[i]);
+                }
+                batch.clear();
+                freeBatches.put(batch);
+                evictKeys();
+                if (beforeWait != null && fullBatches.isEmpty()) beforeWait.run();
+            }
+            for (KeyState keyState : keys.values()) keyState.logAnalyzer.publishMetrics();
+        }
+
+        /**
+         * Evicts idle keys and the least recently used keys above maximum.
+         */
+        private void evictKeys() {
+            Iterator<Map.Entry<String, KeyState>> iterator = keys.entrySet().iterator();
+            while (iterator.hasNext()) {
+                KeyState keyState = iterator.next().getValue();
+                boolean isIdle = keyState.lastEpochMillis < newestEpochMillis - idleTimeoutMillis;
+                if (!isIdle && keys.size() <= maxKeysPerWorker) break;
+                iterator.remove();
+                keyState.logAnalyzer.retireMetrics();
+                evictedKeysNumber.incrementAndGet();
+            }
+            keysNumber = keys.size();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.pavelisaenko;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Space-Saving sketch of the most frequent keys of a stream in bounded memory.
+ * <p>
+ * Sketch keeps at most {@code capacity} counters. A key which is not counted replaces the key with
+ * the smallest count and inherits its count as error, so counts are upper bounds of real frequencies
+ * and every key more frequent than {@code total / capacity} is always kept.
+ * <p>
+ * Keys are raw bytes copied into preallocated slots and found by an open addressing hash table;
+ * counters are ordered by a binary min-heap. One update costs O(log capacity) and allocates nothing,
+ * whatever number of distinct keys. Keys longer than maximum key length are truncated.
+ * One instance must not be shared between threads.
+ */
+public class HeavyHitters {
+
+    /**
+     * Counted key
+     * @param count upper bound of number of occurrences of key
+     * @param error maximum over-estimation of count
+     */
+    public record Entry(String key, long count, long error) {
+    }
+
+    private static final int EMPTY = 0;
+
+    private final int capacity;
+    private final int maxKeyLength;
+
+    // counters by slot
+    private final byte[] keys;
+    private final int[] keyLengths;
+    private final int[] keyHashes;
+    private final long[] counts;
+    private final long[] errors;
+
+    /**
+     * Min-heap of slots by count and position of every slot in heap
+     */
+    private final int[] heap;
+    private final int[] heapIndexes;
+
+    /**
+     * Hash table of {@code slot + 1}, {@link #EMPTY} for free cells; linear probing
+     */
+    private final int[] table;
+    private final int mask;
+
+    private int size = 0;
+    private long total = 0;
+
+    /**
+     * @param capacity maximum number of counted keys
+     * @param maxKeyLength maximum number of bytes of key, longer keys are truncated
+     */
+    public HeavyHitters(int capacity, int maxKeyLength) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+        if (maxKeyLength <= 0) throw new IllegalArgumentException("Maximum key length must be positive");
+        this.capacity = capacity;
+        this.maxKeyLength = maxKeyLength;
+
+        keys = new byte[capacity * maxKeyLength];
+        keyLengths = new int[capacity];
+        keyHashes = new int[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        heap = new int[capacity];
+        heapIndexes = new int[capacity];
+
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        table = new int[tableSize];
+        mask = tableSize - 1;
+    }
+
+    /**
+     * Counts one occurrence of key stored in {@code key[from...to)}.
+     */
+    public void record(byte[] key, int from, int to) {
+        int length = Math.min(to - from, maxKeyLength);
+        int hash = hash(key, from, length);
+        total++;
+
+        for (int cell = hash & mask; table[cell] != EMPTY; cell = (cell + 1) & mask) {
+            int slot = table[cell] - 1;
+            if (keyHashes[slot] == hash && isKey(slot, key, from, length)) {
+                counts[slot]++;
+                siftDown(heapIndexes[slot]);
+                return;
+            }
+        }
+
+        if (size < capacity) {
+            int slot = size++;
+            setKey(slot, key, from, length, hash);
+            counts[slot] = 1;
+            errors[slot] = 0;
+            heap[size - 1] = slot;
+            heapIndexes[slot] = size - 1;
+            siftUp(size - 1);
+            return;
+        }
+
+        // the least counted key is replaced, new key inherits its count
+        int slot = heap[0];
+        removeFromTable(slot);
+        setKey(slot, key, from, length, hash);
+        errors[slot] = counts[slot];
+        counts[slot]++;
+        siftDown(0);
+    }
+
+    /**
+     * Counts one occurrence of {@code key}.
+     */
+    public void record(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        record(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Forgets all keys.
+     */
+    public void clear() {
+        size = 0;
+        total = 0;
+        Arrays.fill(table, EMPTY);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of counted keys
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of occurrences of all keys since creation or {@link #clear()}
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return up to {@code number} keys with the biggest counts, in descending order of counts
+     */
+    public List<Entry> top(int number) {
+        Integer[] slots = new Integer[size];
+        for (int i = 0; i < size; i++) slots[i] = heap[i];
+        Arrays.sort(slots, Comparator.<Integer>comparingLong(slot -> counts[slot]).reversed()
+                .thenComparingLong(slot -> errors[slot]));
+
+        List<Entry> entries = new ArrayList<>(Math.min(number, size));
+        for (int i = 0; i < Math.min(number, size); i++) {
+            int slot = slots[i];
+            String key = new String(keys, slot * maxKeyLength, keyLengths[slot], StandardCharsets.UTF_8);
+            entries.add(new Entry(key, counts[slot], errors[slot]));
+        }
+        return entries;
+    }
+
+    private void setKey(int slot, byte[] key, int from, int length, int hash) {
+        System.arraycopy(key, from, keys, slot * maxKeyLength, length);
+        keyLengths[slot] = length;
+        keyHashes[slot] = hash;
+
+        int cell = hash & mask;
+        while (table[cell] != EMPTY) cell = (cell + 1) & mask;
+        table[cell] = slot + 1;
+    }
+
+    private boolean isKey(int slot, byte[] key, int from, int length) {
+        int start = slot * maxKeyLength;
+        return keyLengths[slot] == length && Arrays.equals(keys, start, start + length, key, from, from + length);
+    }
+
+    /**
+     * Removes slot from hash table, shifting back following cells of the same probe sequence.
+     */
+    private void removeFromTable(int slot) {
+        int cell = keyHashes[slot] & mask;
+        while (table[cell] != slot + 1) cell = (cell + 1) & mask;
+        table[cell] = EMPTY;
+
+        int next = cell;
+        while (true) {
+            next = (next + 1) & mask;
+            if (table[next] == EMPTY) return;
+            int home = keyHashes[table[next] - 1] & mask;
+            // cell of key stays if its home is cyclically within (cell...next]
+            boolean isInPlace = cell <= next ? cell < home && home <= next : cell < home || home <= next;
+            if (isInPlace) continue;
+            table[cell] = table[next];
+            table[next] = EMPTY;
+            cell = next;
+        }
+    }
+
+    private void siftUp(int index) {
+        int slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[slot]) break;
+            moveInHeap(parent, index);
+            index = parent;
+        }
+        heap[index] = slot;
+        heapIndexes[slot] = index;
+    }
+
+    private void siftDown(int index) {
+        int slot = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) break;
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) child++;
+            if (counts[heap[child]] >= counts[slot]) break;
+            moveInHeap(child, index);
+            index = child;
+        }
+        heap[index] = slot;
+        heapIndexes[slot] = index;
+    }
+
+    private void moveInHeap(int from, int to) {
+        heap[to] = heap[from];
+        heapIndexes[heap[to]] = to;
+    }
+
+    private static int hash(byte[] key, int from, int length) {
+        int hash = 1;
+        for (int i = from; i < from + length; i++) hash = 31 * hash + key[i];
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
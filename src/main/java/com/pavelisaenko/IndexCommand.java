@@ -0,0 +1,45 @@
+package com.pavelisaenko;
+
+import picocli.CommandLine.*;
+import picocli.CommandLine.Model.CommandSpec;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Builds sidecar {@link TimeIndex} of text logs, so {@code --from} and {@code --to} of {@code --file}
+ * seek without probing the log.
+ */
+@Command(name = "index", mixinStandardHelpOptions = true,
+        description = "Build sidecar time index <FILE>.idx for --from and --to of --file")
+public class IndexCommand implements Runnable {
+    @Spec
+    CommandSpec spec;
+    @Option(names = {"--interval"}, description = "Seconds between indexed lines. Default: ${DEFAULT-VALUE}")
+    long intervalSeconds = TimeIndex.DEFAULT_INTERVAL_SECONDS;
+    @Option(names = {"--log-format"}, description = "nginx log_format of lines. Default: format of the bundled logs")
+    String logFormatTemplate;
+    @Parameters(paramLabel = "FILE", arity = "1..*", description = "Text log files")
+    List<Path> files;
+
+    @Override
+    public void run() {
+        LogFormat logFormat;
+        try {
+            logFormat = logFormatTemplate == null ? null : LogFormat.compile(logFormatTemplate);
+        } catch (IllegalArgumentException e) {
+            throw new ParameterException(spec.commandLine(), e.getMessage());
+        }
+
+        for (Path file : files) {
+            try {
+                TimeIndex timeIndex = TimeIndex.build(file, intervalSeconds, logFormat);
+                timeIndex.write(file);
+                System.err.printf("Indexed %s: %d entries%n", file, timeIndex.getEntriesNumber());
+            } catch (IOException e) {
+                System.err.printf("Logs indexing error: %s", e.getMessage());
+            }
+        }
+    }
+}
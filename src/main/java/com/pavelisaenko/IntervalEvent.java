@@ -0,0 +1,21 @@
+package com.pavelisaenko;
+
+import java.time.Instant;
+
+/**
+ * Opening or closing of failing interval, published by {@link LogAnalysisPublisher}.
+ * @param end last time-point of closed interval, {@code null} for opened interval
+ * @param availability availability of closed interval in percents, {@link Double#NaN} for opened interval
+ */
+public record IntervalEvent(Type type, Instant begin, Instant end, double availability) {
+
+    public enum Type {OPENED, CLOSED}
+
+    static IntervalEvent opened(Instant begin) {
+        return new IntervalEvent(Type.OPENED, begin, null, Double.NaN);
+    }
+
+    static IntervalEvent closed(Instant begin, Instant end, double availability) {
+        return new IntervalEvent(Type.CLOSED, begin, end, availability);
+    }
+}
@@ -1,17 +1,74 @@
 package com.pavelisaenko;
 
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 
 public class IntervalProcessor {
+    /**
+     * Sink of processors which were not given one: prints every interval to {@link System#out} at once,
+     * like {@link java.io.PrintStream#println(String)}
+     */
+    private static final IntervalSink STANDARD_OUTPUT_SINK = new TextIntervalSink(System.out, 0, false);
+
     private Instant beginTime;
     private Instant endTime;
     private int errorsCounter = 0;
     private int totalCounter = 0;
 
+    /**
+     * Zone in which interval time-points are printed
+     */
+    @Getter
+    @Setter
+    private ZoneId zone = ZoneOffset.UTC;
+
+    /**
+     * Destination of ended intervals
+     */
+    @Getter
+    @Setter
+    private IntervalSink sink = STANDARD_OUTPUT_SINK;
+
+    /**
+     * If {@code true}, response time percentiles of interval are collected and printed
+     */
+    @Getter
+    @Setter
+    private boolean percentilesReported = false;
+
+    private final LatencyHistogram responseTimes = new LatencyHistogram();
+
+    /**
+     * The most frequent paths and client IPs of error lines of interval, {@code null} if they are not reported.
+     * They are not written by {@link #writeTo(DataOutput)}.
+     */
+    @Getter
+    @Setter
+    private TopOffenders topOffenders;
+
+    /**
+     * Printed before every interval if not {@code null}, e.g. key of group
+     */
+    @Getter
+    @Setter
+    private String label;
+
+    /**
+     * Intervals which end before it are not printed, e.g. intervals of lines which only warm window up
+     */
+    @Getter
+    @Setter
+    private Instant printedFrom;
 
     /**
      * Initialises and sets variables to 0;
@@ -23,6 +80,8 @@ public class IntervalProcessor {
         endTime = null;
         errorsCounter = 0;
         totalCounter = 0;
+        responseTimes.clear();
+        if (topOffenders != null) topOffenders.clear();
     }
 
     /**
@@ -31,7 +90,43 @@ public class IntervalProcessor {
      */
     public void endInterval(Instant endTime){
         this.endTime = endTime;
-        printInterval();
+        if (printedFrom == null || !endTime.isBefore(printedFrom)) printInterval();
+    }
+
+    /**
+     * Writes zone, time-points and counters of the current interval, e.g. into checkpoint.
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeUTF(zone.getId());
+        writeInstant(output, beginTime);
+        writeInstant(output, endTime);
+        output.writeInt(errorsCounter);
+        output.writeInt(totalCounter);
+        responseTimes.writeTo(output);
+    }
+
+    /**
+     * Replaces zone and the current interval by ones written by {@link #writeTo(DataOutput)}.
+     */
+    public void readFrom(DataInput input) throws IOException {
+        zone = ZoneId.of(input.readUTF());
+        beginTime = readInstant(input);
+        endTime = readInstant(input);
+        errorsCounter = input.readInt();
+        totalCounter = input.readInt();
+        responseTimes.readFrom(input);
+    }
+
+    private static void writeInstant(DataOutput output, Instant instant) throws IOException {
+        output.writeBoolean(instant != null);
+        if (instant == null) return;
+        output.writeLong(instant.getEpochSecond());
+        output.writeInt(instant.getNano());
+    }
+
+    private static Instant readInstant(DataInput input) throws IOException {
+        if (!input.readBoolean()) return null;
+        return Instant.ofEpochSecond(input.readLong(), input.readInt());
     }
 
     /**
@@ -49,6 +144,37 @@ public class IntervalProcessor {
         totalCounter++;
     }
 
+    /**
+     * Equivalent of {@code failedLines} calls of {@link #considerFailedLogLine()}
+     * and {@code correctLines} calls of {@link #considerCorrectLogLine()}.
+     */
+    public void considerLogLines(int correctLines, int failedLines){
+        errorsCounter += failedLines;
+        totalCounter += correctLines + failedLines;
+    }
+
+    /**
+     * Adds path and client IP of error line stored in {@code line[from...to)} to {@link #topOffenders},
+     * if they are reported and interval is not ended. Called after line is considered.
+     */
+    public void considerErrorLine(byte[] line, int from, int to){
+        if (topOffenders != null && beginTime != null && endTime == null) topOffenders.record(line, from, to);
+    }
+
+    /**
+     * Adds response time of considered line to percentiles of interval, if they are reported.
+     */
+    public void considerResponseTime(double responseTime){
+        if (percentilesReported) responseTimes.record(responseTime);
+    }
+
+    /**
+     * Equivalent of {@link #considerResponseTime(double)} calls for all values of {@code histogram}.
+     */
+    public void considerResponseTimes(LatencyHistogram histogram){
+        if (percentilesReported) responseTimes.add(histogram);
+    }
+
     /**
      * @return {@code availability} of current interval in percents
      */
@@ -57,10 +183,11 @@ public class IntervalProcessor {
     }
 
     /**
-     *  Puts interval to {@link System#out}
+     *  Puts interval to {@link #sink}
      */
     private void printInterval(){
-        System.out.println(getInfo());
+        sink.write(label, beginTime.toEpochMilli(), endTime.toEpochMilli(), zone, getAvailability(),
+                percentilesReported ? responseTimes : null, topOffenders);
     }
 
     /**
@@ -76,11 +203,36 @@ public class IntervalProcessor {
      * @return time stamp string
      */
     public static String formatTimeInstantToString(Instant timestamp){
-        OffsetDateTime offsetDateTime = OffsetDateTime.ofInstant(timestamp, ZoneId.of("UTC"));
+        return formatTimeInstantToString(timestamp, ZoneOffset.UTC);
+    }
+
+    /**
+     * Formats timestamp to String for output
+     * @param timestamp time stamp of Interval
+     * @param zone zone of output
+     * @return time stamp string
+     */
+    public static String formatTimeInstantToString(Instant timestamp, ZoneId zone){
+        OffsetDateTime offsetDateTime = OffsetDateTime.ofInstant(timestamp, zone);
         return offsetDateTime.format(STRING_TO_INSTANT_FORMATTER);
     }
 
     public String getInfo(){
-        return formatTimeInstantToString(beginTime) + " " + formatTimeInstantToString(endTime) + " " + getAvailability();
+        String info = formatTimeInstantToString(beginTime, zone) + " " + formatTimeInstantToString(endTime, zone) + " " + getAvailability();
+        if (percentilesReported) {
+            info += " p50=" + roundResponseTime(responseTimes.getValueAtPercentile(50)) +
+                    " p95=" + roundResponseTime(responseTimes.getValueAtPercentile(95)) +
+                    " p99=" + roundResponseTime(responseTimes.getValueAtPercentile(99)) +
+                    " max=" + roundResponseTime(responseTimes.getMaxValue());
+        }
+        if (topOffenders == null) return info;
+
+        StringBuilder builder = new StringBuilder(info);
+        topOffenders.appendTo(builder);
+        return builder.toString();
+    }
+
+    private static double roundResponseTime(double responseTime){
+        return Math.round(responseTime * 10) / 10.0;
     }
 }
@@ -0,0 +1,35 @@
+package com.pavelisaenko;
+
+import java.time.ZoneId;
+
+/**
+ * Destination of intervals which {@link IntervalProcessor} ends.
+ * Implementations may buffer intervals until {@link #flush()}.
+ */
+public interface IntervalSink {
+
+    /**
+     * @param label printed before interval if not {@code null}, e.g. key of group
+     * @param zone zone in which time-points are printed
+     * @param availability availability of interval in percents
+     * @param responseTimes response times of interval if percentiles are reported, otherwise {@code null}
+     */
+    void write(String label, long beginEpochMillis, long endEpochMillis, ZoneId zone, double availability,
+               LatencyHistogram responseTimes);
+
+    /**
+     * Writes interval with the most frequent paths and client IPs of its error lines.
+     * By default they are ignored.
+     * @param topOffenders offenders of interval if they are reported, otherwise {@code null}
+     */
+    default void write(String label, long beginEpochMillis, long endEpochMillis, ZoneId zone, double availability,
+                       LatencyHistogram responseTimes, TopOffenders topOffenders) {
+        write(label, beginEpochMillis, endEpochMillis, zone, availability, responseTimes);
+    }
+
+    /**
+     * Writes buffered intervals out.
+     * @exception java.io.UncheckedIOException if output fails
+     */
+    void flush();
+}
@@ -0,0 +1,90 @@
+package com.pavelisaenko;
+
+import java.io.OutputStream;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Prints intervals as JSON Lines, one object per interval:
+ * <pre>
+ * {"label":"/api","begin":"2017-06-14T16:47:02+10:00","begin_millis":1497422822000,
+ *  "end":"2017-06-14T16:47:05+10:00","end_millis":1497422825000,"availability":50.0,"p50":20.5,...}
+ * </pre>
+ * {@code label} is present for groups only, {@code p50}, {@code p95}, {@code p99} and {@code max} are present
+ * if percentiles are reported. {@code top_paths} and {@code top_ips} are arrays of
+ * {@code {"key":"/api/{id}","count":12,"error":0}}, present if top offenders are reported.
+ */
+public class JsonIntervalSink extends BufferedIntervalSink {
+
+    public JsonIntervalSink(OutputStream outputStream, int bufferSize) {
+        super(outputStream, bufferSize);
+    }
+
+    @Override
+    protected void appendInterval(StringBuilder buffer, String label, long beginEpochMillis, long endEpochMillis,
+                                  ZoneId zone, double availability, LatencyHistogram responseTimes,
+                                  TopOffenders topOffenders) {
+        buffer.append('{');
+        if (label != null) {
+            buffer.append("\"label\":");
+            appendString(buffer, label);
+            buffer.append(',');
+        }
+        buffer.append("\"begin\":\"");
+        appendDateTime(buffer, beginEpochMillis, zone);
+        buffer.append("\",\"begin_millis\":").append(beginEpochMillis);
+        buffer.append(",\"end\":\"");
+        appendDateTime(buffer, endEpochMillis, zone);
+        buffer.append("\",\"end_millis\":").append(endEpochMillis);
+        buffer.append(",\"availability\":").append(availability);
+
+        if (responseTimes != null) {
+            buffer.append(",\"p50\":");
+            appendResponseTime(buffer, responseTimes.getValueAtPercentile(50));
+            buffer.append(",\"p95\":");
+            appendResponseTime(buffer, responseTimes.getValueAtPercentile(95));
+            buffer.append(",\"p99\":");
+            appendResponseTime(buffer, responseTimes.getValueAtPercentile(99));
+            buffer.append(",\"max\":");
+            appendResponseTime(buffer, responseTimes.getMaxValue());
+        }
+        if (topOffenders != null) {
+            buffer.append(",\"top_paths\":");
+            appendEntries(buffer, topOffenders.getTopPaths());
+            buffer.append(",\"top_ips\":");
+            appendEntries(buffer, topOffenders.getTopClientIps());
+        }
+        buffer.append('}');
+    }
+
+    private static void appendEntries(StringBuilder buffer, List<HeavyHitters.Entry> entries) {
+        buffer.append('[');
+        for (int i = 0; i < entries.size(); i++) {
+            if (i > 0) buffer.append(',');
+            buffer.append("{\"key\":");
+            appendString(buffer, entries.get(i).key());
+            buffer.append(",\"count\":").append(entries.get(i).count());
+            buffer.append(",\"error\":").append(entries.get(i).error()).append('}');
+        }
+        buffer.append(']');
+    }
+
+    private static void appendString(StringBuilder buffer, String value) {
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> buffer.append("\\\"");
+                case '\\' -> buffer.append("\\\\");
+                case '\n' -> buffer.append("\\n");
+                case '\r' -> buffer.append("\\r");
+                case '\t' -> buffer.append("\\t");
+                default -> {
+                    if (c < 0x20) buffer.append(String.format("\\u%04x", (int) c));
+                    else buffer.append(c);
+                }
+            }
+        }
+        buffer.append('"');
+    }
+}
@@ -0,0 +1,180 @@
+package com.pavelisaenko;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Mergeable histogram of response times with logarithmic buckets, like HdrHistogram.
+ * <p>
+ * Response times are kept in microseconds. Values below {@link #SUB_BUCKETS_NUMBER} microseconds are exact,
+ * every next power of two is split into {@code SUB_BUCKETS_NUMBER / 2} equal buckets, so relative precision
+ * is {@code 2 / SUB_BUCKETS_NUMBER} (about 3%). Values above {@link #MAX_VALUE} are kept in the last bucket.
+ * Memory is constant and percentiles are found in O(buckets). The maximum value is also kept exactly, as long as
+ * no values are subtracted.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS_NUMBER = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS_NUMBER = SUB_BUCKETS_NUMBER / 2;
+    private static final int MAX_VALUE_BITS = 32;
+
+    /**
+     * Maximum distinguishable response time in microseconds, about 71 minutes
+     */
+    public static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    static final int BUCKETS_NUMBER = bucketIndexOf(MAX_VALUE) + 1;
+
+    private final int[] counts = new int[BUCKETS_NUMBER];
+    private long totalCount = 0;
+    /**
+     * The biggest recorded response time in milliseconds, 0 if histogram is empty. It may be a subtracted value
+     * if it is in the bucket of the biggest values, see {@link #getMaxValue()}.
+     */
+    private double maxValue = 0;
+
+    /**
+     * @param responseTime response time in milliseconds
+     */
+    public void record(double responseTime) {
+        counts[bucketIndexOf(responseTime)]++;
+        totalCount++;
+        if (responseTime > maxValue) maxValue = Math.min(responseTime, MAX_VALUE / 1000.0);
+    }
+
+    /**
+     * Adds all values of {@code other} histogram.
+     */
+    public void add(LatencyHistogram other) {
+        if (other.totalCount == 0) return;
+        for (int i = 0; i < BUCKETS_NUMBER; i++) counts[i] += other.counts[i];
+        totalCount += other.totalCount;
+        if (other.maxValue > maxValue) maxValue = other.maxValue;
+    }
+
+    /**
+     * Removes all values of {@code other} histogram, which must have been added before.
+     */
+    public void subtract(LatencyHistogram other) {
+        if (other.totalCount == 0) return;
+        for (int i = 0; i < BUCKETS_NUMBER; i++) counts[i] -= other.counts[i];
+        totalCount -= other.totalCount;
+        if (totalCount == 0) maxValue = 0;
+    }
+
+    public void clear() {
+        if (totalCount == 0) return;
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        maxValue = 0;
+    }
+
+    /**
+     * Writes non-empty buckets, so {@link #readFrom(DataInput)} restores histogram.
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        int nonEmptyBuckets = 0;
+        for (int count : counts) {
+            if (count != 0) nonEmptyBuckets++;
+        }
+        output.writeInt(nonEmptyBuckets);
+        for (int i = 0; i < BUCKETS_NUMBER; i++) {
+            if (counts[i] == 0) continue;
+            output.writeShort(i);
+            output.writeInt(counts[i]);
+        }
+        output.writeDouble(maxValue);
+    }
+
+    /**
+     * Replaces values of histogram by values written by {@link #writeTo(DataOutput)}.
+     */
+    public void readFrom(DataInput input) throws IOException {
+        clear();
+        int nonEmptyBuckets = input.readInt();
+        for (int i = 0; i < nonEmptyBuckets; i++) {
+            int index = input.readShort();
+            int count = input.readInt();
+            counts[index] = count;
+            totalCount += count;
+        }
+        maxValue = input.readDouble();
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @param percentile percentile in (0...100]
+     * @return the highest response time in milliseconds which is equivalent to the value at {@code percentile},
+     * 0 if histogram is empty
+     */
+    public double getValueAtPercentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) throw new IllegalArgumentException("Percentile must be in (0...100]");
+        if (totalCount == 0) return 0;
+
+        long rank = getRank(percentile, totalCount);
+        long count = 0;
+        for (int i = 0; i < BUCKETS_NUMBER; i++) {
+            count += counts[i];
+            if (count >= rank) return highestValueOf(i) / 1000.0;
+        }
+        throw new IllegalStateException("Histogram counts do not match total count");
+    }
+
+    /**
+     * @return the biggest response time in milliseconds. It is exact unless values were subtracted, then it is
+     * within precision of buckets.
+     */
+    public double getMaxValue() {
+        if (totalCount == 0) return 0;
+        double bucketMaxValue = getValueAtPercentile(100);
+        return bucketIndexOf(maxValue) == bucketIndexOf(bucketMaxValue) ? maxValue : bucketMaxValue;
+    }
+
+    /**
+     * @return rank of value at {@code percentile} among {@code totalCount} values, starting from 1
+     */
+    static long getRank(double percentile, long totalCount) {
+        return Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+    }
+
+    static int bucketIndexOf(double responseTime) {
+        long micros = Math.round(responseTime * 1000);
+        return bucketIndexOf(Math.min(Math.max(micros, 0), MAX_VALUE));
+    }
+
+    private static int bucketIndexOf(long micros) {
+        if (micros < SUB_BUCKETS_NUMBER) return (int) micros;
+        int shift = 64 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        return shift * HALF_SUB_BUCKETS_NUMBER + (int) (micros >>> shift);
+    }
+
+    private static long highestValueOf(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKETS_NUMBER) return bucketIndex;
+        int shift = bucketIndex / HALF_SUB_BUCKETS_NUMBER - 1;
+        long subBucket = bucketIndex - shift * HALF_SUB_BUCKETS_NUMBER;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Histograms are equal if they have the same counts of buckets, their exact maximums are not compared.
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) return true;
+        if (object == null || object.getClass() != this.getClass()) return false;
+
+        LatencyHistogram histogram = (LatencyHistogram) object;
+        return totalCount == histogram.totalCount && Arrays.equals(counts, histogram.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(counts);
+    }
+}
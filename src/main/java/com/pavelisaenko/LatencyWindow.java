@@ -0,0 +1,189 @@
+package com.pavelisaenko;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Sliding window of response times for percentile SLO. Keeps a {@link LatencyHistogram} per second in circular
+ * array, like {@link BucketedLogWindow}, and their sum for the whole window: a second is added to the sum on
+ * every line and subtracted when it is evicted, so percentiles of window are found in O(buckets).
+ * <p>
+ * Lines above {@link #slowThreshold} are also counted separately, so {@link #isPercentileAbove(double)}
+ * is O(1), may be checked on every line and compares exact response times with the threshold, not their buckets.
+ */
+public class LatencyWindow {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final double slowThreshold;
+    private final int bucketsNumber;
+
+    private final LatencyHistogram[] histograms;
+    private final int[] slowLines;
+    private final LatencyHistogram windowHistogram = new LatencyHistogram();
+
+    private long oldestSecond = EMPTY;
+    private long newestSecond = EMPTY;
+
+    private long slowLinesNumber = 0;
+
+    /**
+     * @param windowSize expiration value of lines. Rounded up to whole seconds.
+     * @param slowThreshold response time in milliseconds which is compared with percentiles
+     */
+    public LatencyWindow(Duration windowSize, double slowThreshold) {
+        long windowSeconds = windowSize.getSeconds() + (windowSize.getNano() > 0 ? 1 : 0);
+        if (windowSeconds >= Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Window size is too big for latency window");
+        this.slowThreshold = slowThreshold;
+        bucketsNumber = (int) windowSeconds + 1;
+        histograms = new LatencyHistogram[bucketsNumber];
+        slowLines = new int[bucketsNumber];
+    }
+
+    /**
+     * Enters response time of line into window. Lines older than the oldest second of window are ignored.
+     */
+    public void add(long epochMillis, double responseTime) {
+        long second = Math.floorDiv(epochMillis, 1000);
+
+        if (newestSecond == EMPTY) {
+            oldestSecond = second - bucketsNumber + 1;
+            newestSecond = second;
+        } else if (second > newestSecond) {
+            long firstReused = Math.max(newestSecond + 1, second - bucketsNumber + 1);
+            for (long reused = firstReused; reused <= second; reused++) clearBucket(indexOf(reused));
+            newestSecond = second;
+            oldestSecond = Math.max(oldestSecond, second - bucketsNumber + 1);
+        } else if (second < oldestSecond) {
+            return;
+        }
+
+        int index = indexOf(second);
+        if (histograms[index] == null) histograms[index] = new LatencyHistogram();
+        histograms[index].record(responseTime);
+        windowHistogram.record(responseTime);
+
+        if (responseTime > slowThreshold) {
+            slowLines[index]++;
+            slowLinesNumber++;
+        }
+    }
+
+    /**
+     * Deletes seconds which are completely before {@code cutoffMillis}.
+     */
+    public void evictBefore(long cutoffMillis) {
+        if (newestSecond == EMPTY) return;
+        long cutoffSecond = Math.min(Math.floorDiv(cutoffMillis, 1000), newestSecond + 1);
+        if (cutoffSecond <= oldestSecond) return;
+
+        long firstEvicted = Math.max(oldestSecond, cutoffSecond - bucketsNumber);
+        for (long evicted = firstEvicted; evicted < cutoffSecond; evicted++) clearBucket(indexOf(evicted));
+
+        if (cutoffSecond > newestSecond) {
+            oldestSecond = EMPTY;
+            newestSecond = EMPTY;
+        } else {
+            oldestSecond = cutoffSecond;
+        }
+    }
+
+    /**
+     * @return histogram of all lines of window. Must not be changed.
+     */
+    public LatencyHistogram getHistogram() {
+        return windowHistogram;
+    }
+
+    /**
+     * @param percentile percentile in (0...100]
+     * @return {@code true} if response time of window at {@code percentile} is bigger than slow threshold
+     */
+    public boolean isPercentileAbove(double percentile) {
+        long totalCount = windowHistogram.getTotalCount();
+        if (totalCount == 0) return false;
+        return totalCount - slowLinesNumber < LatencyHistogram.getRank(percentile, totalCount);
+    }
+
+    /**
+     * @return {@code true} if {@code other} window keeps the same response times in the same seconds
+     */
+    public boolean hasSameContent(LatencyWindow other) {
+        if (bucketsNumber != other.bucketsNumber || slowThreshold != other.slowThreshold ||
+                oldestSecond != other.oldestSecond || newestSecond != other.newestSecond ||
+                !windowHistogram.equals(other.windowHistogram))
+            return false;
+        if (newestSecond == EMPTY) return true;
+
+        for (long second = oldestSecond; second <= newestSecond; second++) {
+            int index = indexOf(second);
+            if (getCount(histograms[index]) != getCount(other.histograms[index])) return false;
+            if (getCount(histograms[index]) > 0 && !histograms[index].equals(other.histograms[index])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes histograms and slow lines of live seconds, e.g. into checkpoint.
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeInt(bucketsNumber);
+        output.writeLong(oldestSecond);
+        output.writeLong(newestSecond);
+        if (newestSecond == EMPTY) return;
+
+        for (long second = oldestSecond; second <= newestSecond; second++) {
+            int index = indexOf(second);
+            boolean isEmpty = getCount(histograms[index]) == 0;
+            output.writeBoolean(isEmpty);
+            if (isEmpty) continue;
+            histograms[index].writeTo(output);
+            output.writeInt(slowLines[index]);
+        }
+    }
+
+    /**
+     * Replaces response times of window by response times written by {@link #writeTo(DataOutput)}.
+     * @exception IllegalArgumentException if they were written by window of another size
+     */
+    public void readFrom(DataInput input) throws IOException {
+        if (input.readInt() != bucketsNumber) throw new IllegalArgumentException("Latency window was written with another size");
+        for (int index = 0; index < bucketsNumber; index++) clearBucket(index);
+        windowHistogram.clear();
+        slowLinesNumber = 0;
+        oldestSecond = input.readLong();
+        newestSecond = input.readLong();
+        if (newestSecond == EMPTY) return;
+
+        for (long second = oldestSecond; second <= newestSecond; second++) {
+            if (input.readBoolean()) continue;
+            int index = indexOf(second);
+            if (histograms[index] == null) histograms[index] = new LatencyHistogram();
+            histograms[index].readFrom(input);
+            windowHistogram.add(histograms[index]);
+            slowLines[index] = input.readInt();
+            slowLinesNumber += slowLines[index];
+        }
+    }
+
+    private static long getCount(LatencyHistogram histogram) {
+        return histogram == null ? 0 : histogram.getTotalCount();
+    }
+
+    private int indexOf(long second) {
+        return (int) Math.floorMod(second, (long) bucketsNumber);
+    }
+
+    private void clearBucket(int index) {
+        LatencyHistogram histogram = histograms[index];
+        if (histogram != null) {
+            windowHistogram.subtract(histogram);
+            histogram.clear();
+        }
+        slowLinesNumber -= slowLines[index];
+        slowLines[index] = 0;
+    }
+}
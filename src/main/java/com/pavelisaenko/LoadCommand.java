@@ -0,0 +1,49 @@
+package com.pavelisaenko;
+
+import picocli.CommandLine.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+/**
+ * Sends synthetic lines of {@link LoadGenerator} to {@code serve}, e.g. to test it on localhost.
+ */
+@Command(name = "load", mixinStandardHelpOptions = true,
+        description = "Send synthetic log lines to serve from many concurrent connections")
+public class LoadCommand implements Runnable {
+    @Option(names = {"--host"}, description = "Address of server. Default: ${DEFAULT-VALUE}")
+    InetAddress host = InetAddress.getLoopbackAddress();
+    @Option(names = {"-p", "--port"}, description = "Port of server. Default: ${DEFAULT-VALUE}")
+    int port = 5140;
+    @Option(names = {"--udp"}, description = "Send lines as UDP datagrams instead of TCP")
+    boolean isUdp;
+    @Option(names = {"-c", "--connections"}, description = "Number of concurrent connections. Default: ${DEFAULT-VALUE}")
+    int connectionsNumber = 1000;
+    @Option(names = {"-n", "--lines"}, description = "Lines sent by every connection. Default: ${DEFAULT-VALUE}")
+    long linesPerConnection = 10_000;
+    @Option(names = {"--lines-per-second"}, description = "Lines of every connection per second of log time. Default: ${DEFAULT-VALUE}")
+    int linesPerSecond = 100;
+    @Option(names = {"--error-percent"}, description = "Percent of error lines. Default: ${DEFAULT-VALUE}")
+    int errorPercent = 1;
+
+    @Override
+    public void run() {
+        LoadGenerator loadGenerator = new LoadGenerator(new InetSocketAddress(host, port), connectionsNumber, linesPerConnection);
+        loadGenerator.setUdp(isUdp);
+        loadGenerator.setLinesPerSecond(linesPerSecond);
+        loadGenerator.setErrorPercent(errorPercent);
+
+        long startNanos = System.nanoTime();
+        try {
+            long lines = loadGenerator.run();
+            long millis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+            System.err.printf("Sent %d log lines over %d connections in %d ms, %d lines/s%n",
+                    lines, connectionsNumber, millis, lines * 1000 / millis);
+        } catch (IOException e) {
+            System.err.printf("Load sending error: %s%n", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.pavelisaenko;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Client which sends synthetic log lines to {@link LogServer} from many connections at once, one virtual thread
+ * per connection, e.g. to load server on localhost.
+ * <p>
+ * Connection {@code c} sends lines of client IP {@code 10.0.x.y} with {@link #linesPerSecond} lines per second of
+ * log time, starting at {@link #startTime}. Line {@code i} is an error (status 500) if {@code i % 100} is less
+ * than {@link #errorPercent}, so errors are spread evenly.
+ */
+@Getter
+@Setter
+public class LoadGenerator {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER =
+            DateTimeFormatter.ofPattern("dd/MM/yyyy:HH:mm:ss Z").withZone(ZoneOffset.UTC);
+
+    /**
+     * Bytes of lines sent at once over TCP
+     */
+    private static final int TCP_CHUNK_SIZE = 64 * 1024;
+    /**
+     * Bytes of lines sent in one datagram, so datagram fits in one Ethernet frame
+     */
+    private static final int UDP_CHUNK_SIZE = 1400;
+
+    private final InetSocketAddress address;
+    private final int connectionsNumber;
+    private final long linesPerConnection;
+
+    private Instant startTime = Instant.parse("2017-06-14T06:47:02Z");
+    private int linesPerSecond = 100;
+    private int errorPercent = 1;
+    /**
+     * If {@code true}, lines are sent as UDP datagrams instead of TCP connections
+     */
+    private boolean udp = false;
+
+    /**
+     * @param address address of server
+     * @param connectionsNumber number of concurrent connections
+     * @param linesPerConnection number of lines sent by every connection
+     */
+    public LoadGenerator(InetSocketAddress address, int connectionsNumber, long linesPerConnection) {
+        if (connectionsNumber <= 0) throw new IllegalArgumentException("Number of connections must be positive");
+        if (linesPerConnection < 0) throw new IllegalArgumentException("Number of lines must not be negative");
+        this.address = address;
+        this.connectionsNumber = connectionsNumber;
+        this.linesPerConnection = linesPerConnection;
+    }
+
+    /**
+     * Sends lines from all connections and waits for them to end.
+     * @return number of sent lines
+     * @exception IOException if a connection failed
+     */
+    public long run() throws IOException, InterruptedException {
+        if (linesPerSecond <= 0) throw new IllegalArgumentException("Lines per second must be positive");
+        if (errorPercent < 0 || errorPercent > 100) throw new IllegalArgumentException("Error percent must be in [0...100]");
+
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>(connectionsNumber);
+        for (int i = 0; i < connectionsNumber; i++) {
+            int connection = i;
+            threads.add(Thread.ofVirtual().name("load-connection-" + i).start(() -> {
+                try {
+                    send(connection);
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.join();
+
+        if (failure.get() != null) throw failure.get();
+        return connectionsNumber * linesPerConnection;
+    }
+
+    private void send(int connection) throws IOException {
+        String clientIp = "10.0." + (connection >> 8 & 0xFF) + "." + (connection & 0xFF);
+        int chunkSize = udp ? UDP_CHUNK_SIZE : TCP_CHUNK_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+        StringBuilder line = new StringBuilder(160);
+        String timestamp = null;
+
+        try (SocketChannel socketChannel = udp ? null : SocketChannel.open(address);
+             DatagramChannel datagramChannel = udp ? DatagramChannel.open().connect(address) : null) {
+            for (long i = 0; i < linesPerConnection; i++) {
+                if (i % linesPerSecond == 0) timestamp = TIMESTAMP_FORMATTER.format(startTime.plusSeconds(i / linesPerSecond));
+                boolean isError = i % 100 < errorPercent;
+
+                line.setLength(0);
+                line.append(clientIp).append(" - - [").append(timestamp).append("] PUT /rest/v1.4/documents/")
+                        .append(i).append(" HTTP/1.1 ").append(isError ? 500 : 200).append(" 2 ")
+                        .append(10 + i % 20).append(".5 - @load-generator prio:0\n");
+                byte[] bytes = line.toString().getBytes(StandardCharsets.US_ASCII);
+
+                if (buffer.remaining() < bytes.length) {
+                    write(buffer, socketChannel, datagramChannel);
+                }
+                buffer.put(bytes);
+            }
+            write(buffer, socketChannel, datagramChannel);
+        }
+    }
+
+    private static void write(ByteBuffer buffer, SocketChannel socketChannel, DatagramChannel datagramChannel)
+            throws IOException {
+        buffer.flip();
+        if (buffer.hasRemaining()) {
+            if (socketChannel != null) {
+                while (buffer.hasRemaining()) socketChannel.write(buffer);
+            } else {
+                datagramChannel.write(buffer);
+            }
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,121 @@
+package com.pavelisaenko;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Shared destination of lines which {@link LogServer} receives from many senders: one {@link LogAnalyzer} for
+ * all senders or one per host.
+ * <p>
+ * Batches are analyzed under lock of their analyzer, so in per-host mode hosts are analyzed concurrently and
+ * only connections of the same host wait for each other. Lines of different connections interleave by batches,
+ * so time order of shared analyzer is approximate; {@link ReorderingLogAnalyzer}, the default of shared
+ * analyzer of {@link ServeCommand}, restores it.
+ */
+public class LogAggregator {
+
+    /**
+     * Key of analyzer of all senders
+     */
+    private static final String GLOBAL_KEY = "";
+
+    private final Function<String, LogAnalyzer> analyzerFactory;
+    /**
+     * If {@code true}, every host has its own analyzer
+     */
+    @Getter
+    private final boolean perHost;
+
+    /**
+     * If {@code true}, zone of analyzer is set to offset of its first line
+     */
+    @Getter
+    @Setter
+    private boolean zoneTakenFromInput = true;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong linesNumber = new AtomicLong();
+
+    /**
+     * @param analyzerFactory creates analyzer of host, or of all senders with {@code null} host.
+     *                        Called on threads of connections.
+     * @param perHost if {@code true}, every host has its own analyzer
+     */
+    public LogAggregator(Function<String, LogAnalyzer> analyzerFactory, boolean perHost) {
+        this.analyzerFactory = analyzerFactory;
+        this.perHost = perHost;
+    }
+
+    /**
+     * Analyzes lines of batch received from {@code host}. May be called concurrently.
+     */
+    public void accept(String host, LogLineBatch batch) {
+        if (batch.getSize() == 0) return;
+        String key = perHost ? host : GLOBAL_KEY;
+        Entry entry = entries.computeIfAbsent(key, ignored -> new Entry(analyzerFactory.apply(perHost ? host : null)));
+
+        entry.lock.lock();
+        try {
+            if (!entry.isZoneSet && zoneTakenFromInput && batch.getZoneOffset() != null) {
+                entry.logAnalyzer.getIntervalProcessor().setZone(batch.getZoneOffset());
+                entry.isZoneSet = true;
+            }
+            entry.logAnalyzer.processBatch(batch);
+        } finally {
+            entry.lock.unlock();
+        }
+        linesNumber.addAndGet(batch.getSize());
+    }
+
+    /**
+     * @return number of analyzed lines
+     */
+    public long getLinesNumber() {
+        return linesNumber.get();
+    }
+
+    /**
+     * @return number of analyzers, which is number of hosts in per-host mode
+     */
+    public int getAnalyzersNumber() {
+        return entries.size();
+    }
+
+    /**
+     * Analyzes lines buffered by {@link ReorderingLogAnalyzer}s, e.g. when server stops.
+     * @return number of dropped late lines of all analyzers
+     */
+    public long finish() {
+        long lateLinesNumber = 0;
+        for (Entry entry : entries.values()) {
+            if (!(entry.logAnalyzer instanceof ReorderingLogAnalyzer reorderingLogAnalyzer)) continue;
+            entry.lock.lock();
+            try {
+                reorderingLogAnalyzer.flush();
+                lateLinesNumber += reorderingLogAnalyzer.getLateLinesNumber();
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+        return lateLinesNumber;
+    }
+
+    /**
+     * Analyzer with lock which guards it. Lock does not pin carrier of virtual thread, unlike {@code synchronized}.
+     */
+    private static class Entry {
+        private final LogAnalyzer logAnalyzer;
+        private final ReentrantLock lock = new ReentrantLock();
+        private boolean isZoneSet = false;
+
+        private Entry(LogAnalyzer logAnalyzer) {
+            this.logAnalyzer = logAnalyzer;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.pavelisaenko;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Library form of the analyzer: lines are pushed in by the caller, failing intervals are published to
+ * {@link Flow.Subscriber}s as {@link IntervalEvent}s when they open and close.
+ * <p>
+ * Delivery and demand are handled by {@link SubmissionPublisher}: every subscriber gets events on
+ * {@code executor}, e.g. {@code Executors.newVirtualThreadPerTaskExecutor()}, no faster than it requests them.
+ * If a subscriber falls more than {@code maxBufferCapacity} events behind, processing of lines blocks until it
+ * catches up, so backpressure reaches the source of lines.
+ * <p>
+ * Lines are analyzed on the calling thread; process methods must not be called concurrently. Analysis of
+ * primitive and raw lines allocates nothing until an interval opens or closes.
+ */
+public class LogAnalysisPublisher implements Flow.Publisher<IntervalEvent>, AutoCloseable {
+
+    private final SubmissionPublisher<IntervalEvent> publisher;
+    private final LogAnalyzer logAnalyzer;
+    private final ByteLogLineParser parser = new ByteLogLineParser();
+    private long parseErrorsNumber = 0;
+
+    /**
+     * @param logLinesProcessor thresholds and window of analysis
+     * @param executor runs delivery of events to subscribers
+     * @param maxBufferCapacity maximum number of events buffered for every subscriber
+     */
+    public LogAnalysisPublisher(LogLinesProcessor logLinesProcessor, Executor executor, int maxBufferCapacity) {
+        this.publisher = new SubmissionPublisher<>(executor, maxBufferCapacity);
+        this.logAnalyzer = new LogAnalyzer(logLinesProcessor, new PublishingIntervalProcessor());
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super IntervalEvent> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    public void processLogLine(LogLine logLine) {
+        logAnalyzer.processLogLine(logLine);
+    }
+
+    /**
+     * Primitive form of {@link #processLogLine(LogLine)}.
+     */
+    public void processLogLine(long epochMillis, int statusCode, double responseTime) {
+        logAnalyzer.processLogLine(epochMillis, statusCode, responseTime);
+    }
+
+    public void processBatch(LogLineBatch batch) {
+        parseErrorsNumber += batch.getParseErrors().size();
+        logAnalyzer.processBatch(batch);
+    }
+
+    /**
+     * Parses and analyzes lines of {@code buffer[from...to)}, e.g. a chunk read from socket.
+     * Range must hold whole lines: the last line may have no line terminator. Blank lines are skipped,
+     * lines which can not be parsed are skipped and counted. Unlike lines of other process methods, these lines
+     * are classified also by rules of paths and agents of {@link LogLinesProcessor#setErrorRules(ErrorRules)}.
+     */
+    public void processLines(byte[] buffer, int from, int to) {
+        if (from < 0 || to > buffer.length || from > to) throw new IllegalArgumentException("Wrong range of buffer");
+
+        int lineStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i < to && buffer[i] != '\n') continue;
+            int lineEnd = i > lineStart && buffer[i - 1] == '\r' ? i - 1 : i;
+            if (!ByteLogLineParser.isBlank(buffer, lineStart, lineEnd)) processLine(buffer, lineStart, lineEnd);
+            lineStart = i + 1;
+        }
+    }
+
+    /**
+     * @return number of skipped lines of {@link #processLines(byte[], int, int)} and of processed batches
+     */
+    public long getParseErrorsNumber() {
+        return parseErrorsNumber;
+    }
+
+    /**
+     * @return estimate of events which were published but not yet delivered to the slowest subscriber
+     */
+    public int getLag() {
+        return publisher.estimateMaximumLag();
+    }
+
+    /**
+     * Completes subscribers after delivery of published events. An interval which is still open is not closed.
+     */
+    @Override
+    public void close() {
+        publisher.close();
+    }
+
+    /**
+     * Fails subscribers with {@code error}, e.g. if the source of lines failed.
+     */
+    public void closeExceptionally(Throwable error) {
+        publisher.closeExceptionally(error);
+    }
+
+    private void processLine(byte[] buffer, int from, int to) {
+        try {
+            parser.parse(buffer, from, to);
+        } catch (IllegalArgumentException e) {
+            parseErrorsNumber++;
+            return;
+        }
+        // rules of paths and agents of the processor need bytes of line
+        logAnalyzer.processLogLine(parser, buffer, from, to);
+    }
+
+    /**
+     * Publishes intervals instead of printing them.
+     */
+    private class PublishingIntervalProcessor extends IntervalProcessor implements IntervalSink {
+
+        PublishingIntervalProcessor() {
+            setSink(this);
+        }
+
+        @Override
+        public void beginNewInterval(Instant beginTime) {
+            super.beginNewInterval(beginTime);
+            publisher.submit(IntervalEvent.opened(beginTime));
+        }
+
+        @Override
+        public void write(String label, long beginEpochMillis, long endEpochMillis, ZoneId zone, double availability,
+                          LatencyHistogram responseTimes) {
+            publisher.submit(IntervalEvent.closed(Instant.ofEpochMilli(beginEpochMillis),
+                    Instant.ofEpochMilli(endEpochMillis), availability));
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}
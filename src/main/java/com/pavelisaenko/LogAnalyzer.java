@@ -0,0 +1,221 @@
+package com.pavelisaenko;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Detects failing intervals. Passes every line to {@link LogLinesProcessor} and begins or ends
+ * interval of {@link IntervalProcessor} when window starts or stops failing.
+ * <p>
+ * Interval begins on an error line which makes window fail, at the first error of window.
+ * Interval ends on a correct line after which window does not fail any more, at the last error of window.
+ * If percentile SLO is set, interval also begins on a correct line which makes percentile of window too big,
+ * at the first error of window or at the oldest line of window.
+ */
+@Getter
+public class LogAnalyzer {
+
+    /**
+     * Number of lines and log time after which counters are published to {@link #metrics}
+     */
+    private static final int PUBLISH_INTERVAL_LINES = 4096;
+    private static final long PUBLISH_INTERVAL_MILLIS = 5000;
+
+    private final LogLinesProcessor logLinesProcessor;
+    private final IntervalProcessor intervalProcessor;
+
+    /**
+     * Metrics which counters are published to, {@code null} if analysis is not instrumented
+     */
+    @Setter
+    private AnalyzerMetrics metrics;
+
+    // counters accumulated since the previous publication to metrics
+    @Getter(AccessLevel.NONE)
+    private int linesToPublish = PUBLISH_INTERVAL_LINES;
+    @Getter(AccessLevel.NONE)
+    private long publishedLines = 0;
+    @Getter(AccessLevel.NONE)
+    private long unpublishedOpenedIntervals = 0;
+    @Getter(AccessLevel.NONE)
+    private long unpublishedClosedIntervals = 0;
+    @Getter(AccessLevel.NONE)
+    private long publishedEvictedLines = 0;
+    @Getter(AccessLevel.NONE)
+    private long publishedWindowLines = 0;
+    @Getter(AccessLevel.NONE)
+    private long publishedWindowErrorLines = 0;
+    @Getter(AccessLevel.NONE)
+    private long lastEpochMillis = Long.MIN_VALUE;
+    @Getter(AccessLevel.NONE)
+    private long nextPublishMillis = Long.MIN_VALUE;
+
+    public LogAnalyzer(LogLinesProcessor logLinesProcessor, IntervalProcessor intervalProcessor) {
+        this.logLinesProcessor = logLinesProcessor;
+        this.intervalProcessor = intervalProcessor;
+    }
+
+    /**
+     * @param logLine prepared log line
+     */
+    public void processLogLine(LogLine logLine) {
+        if (logLine == null) throw new IllegalArgumentException("Log line must not be null");
+
+        processLogLine(logLine.getTimestamp().toEpochMilli(), logLine.getStatusCode(), logLine.getResponseTime());
+    }
+
+    /**
+     * Primitive form of {@link #processLogLine(LogLine)}.
+     */
+    public void processLogLine(long epochMillis, int statusCode, double responseTime) {
+        processClassifiedLogLine(epochMillis, logLinesProcessor.isLineError(statusCode, responseTime), responseTime);
+    }
+
+    /**
+     * Form of {@link #processLogLine(long, int, double)} for line which is already classified, so line is
+     * classified once and its class is reused by window.
+     * @param isError {@code true} if line is error
+     */
+    public void processClassifiedLogLine(long epochMillis, boolean isError, double responseTime) {
+        boolean isWindowFailedBefore = logLinesProcessor.isWindowFails();
+
+        logLinesProcessor.processClassifiedLogLine(epochMillis, isError, responseTime);
+
+        if (isError) {
+
+            if (logLinesProcessor.isWindowFails() && !isWindowFailedBefore) {
+                intervalProcessor.beginNewInterval(logLinesProcessor.findFirstErrorTimestampInWindow()
+                        .orElseThrow(() -> new IllegalStateException("No error element found in window")));
+                unpublishedOpenedIntervals++;
+            }
+            intervalProcessor.considerFailedLogLine();
+            intervalProcessor.considerResponseTime(responseTime);
+        } else {
+
+            if (logLinesProcessor.isLatencyFails() && !isWindowFailedBefore) {
+                intervalProcessor.beginNewInterval(logLinesProcessor.findFirstErrorTimestampInWindow()
+                        .orElseGet(this::findFirstTimestampInWindow));
+                unpublishedOpenedIntervals++;
+            }
+            // line which closes interval is its last line, so it is counted before interval ends
+            intervalProcessor.considerCorrectLogLine();
+            intervalProcessor.considerResponseTime(responseTime);
+            if (!logLinesProcessor.isWindowFails() && isWindowFailedBefore) {
+                intervalProcessor.endInterval(logLinesProcessor.findLastErrorTimestampInWindow()
+                        .orElseGet(this::findFirstTimestampInWindow));
+                unpublishedClosedIntervals++;
+            }
+        }
+
+        if (metrics != null && (--linesToPublish == 0 || epochMillis >= nextPublishMillis)) {
+            lastEpochMillis = epochMillis;
+            publishMetrics();
+        }
+    }
+
+    /**
+     * Processes line which {@code parser} just parsed from {@code line[from...to)}. Line is classified with rules
+     * of paths and agents, ignored lines are skipped. Error lines are also passed to
+     * {@link IntervalProcessor#considerErrorLine(byte[], int, int)}, so top offenders of interval are counted.
+     */
+    public void processLogLine(ByteLogLineParser parser, byte[] line, int from, int to) {
+        int lineClass = logLinesProcessor.getErrorClassifier()
+                .classify(line, from, to, parser.getStatusCode(), parser.getResponseTime());
+        if (lineClass == ErrorClassifier.IGNORED) return;
+
+        processClassifiedLogLine(parser.getEpochMillis(), lineClass == ErrorClassifier.ERROR, parser.getResponseTime());
+        if (lineClass == ErrorClassifier.ERROR) intervalProcessor.considerErrorLine(line, from, to);
+    }
+
+    /**
+     * Processes lines of aggregate in order of its runs, e.g. lines of all nodes merged by {@link AggregateMerger}.
+     * Response times of aggregated lines are not known, so they are replayed as {@code 0}.
+     */
+    public void processAggregate(SecondAggregate aggregate) {
+        long epochMillis = aggregate.epochSecond() * 1000;
+        int[] runs = aggregate.runs();
+        for (int i = 0; i < runs.length; i++) {
+            boolean isError = i % 2 == 1;
+            for (int line = 0; line < runs[i]; line++) processClassifiedLogLine(epochMillis, isError, 0);
+        }
+        lastEpochMillis = epochMillis;
+    }
+
+    /**
+     * Publishes counters accumulated since the previous publication to {@link #metrics}, if it is set.
+     * Called automatically every few thousand lines or seconds of log time and after every batch.
+     */
+    public void publishMetrics() {
+        if (metrics == null) return;
+        // every analyzed line is either in window or evicted, so lines are not counted one by one
+        long evictedLines = logLinesProcessor.getEvictedLinesNumber();
+        long windowLines = logLinesProcessor.getTotalLinesNumber();
+        long windowErrorLines = logLinesProcessor.getErrorLinesNumber();
+        long lines = evictedLines + windowLines;
+        metrics.publish(lines - publishedLines, evictedLines - publishedEvictedLines,
+                unpublishedOpenedIntervals, unpublishedClosedIntervals,
+                windowLines - publishedWindowLines, windowErrorLines - publishedWindowErrorLines, lastEpochMillis);
+        linesToPublish = PUBLISH_INTERVAL_LINES;
+        nextPublishMillis = lastEpochMillis == Long.MIN_VALUE ? Long.MIN_VALUE : lastEpochMillis + PUBLISH_INTERVAL_MILLIS;
+        publishedLines = lines;
+        unpublishedOpenedIntervals = 0;
+        unpublishedClosedIntervals = 0;
+        publishedEvictedLines = evictedLines;
+        publishedWindowLines = windowLines;
+        publishedWindowErrorLines = windowErrorLines;
+    }
+
+    /**
+     * Publishes the rest of counters and withdraws window of analyzer from gauges of {@link #metrics},
+     * e.g. when key of {@link GroupedLogAnalyzer} is evicted. Analyzer must not be used afterwards.
+     */
+    public void retireMetrics() {
+        if (metrics == null) return;
+        publishMetrics();
+        metrics.publish(0, 0, 0, 0, -publishedWindowLines, -publishedWindowErrorLines, lastEpochMillis);
+        publishedWindowLines = 0;
+        publishedWindowErrorLines = 0;
+    }
+
+    /**
+     * Processes all lines of batch in order.
+     */
+    public void processBatch(LogLineBatch batch) {
+        long[] epochMillis = batch.getEpochMillis();
+        int[] statusCodes = batch.getStatusCodes();
+        double[] responseTimes = batch.getResponseTimes();
+        for (int i = 0; i < batch.getSize(); i++) {
+            processLogLine(epochMillis[i], statusCodes[i], responseTimes[i]);
+        }
+        if (batch.getSize() > 0) lastEpochMillis = epochMillis[batch.getSize() - 1];
+        publishMetrics();
+    }
+
+    /**
+     * Writes state of {@link #logLinesProcessor} and {@link #intervalProcessor}, e.g. into {@link Checkpoint}.
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        logLinesProcessor.writeTo(output);
+        intervalProcessor.writeTo(output);
+    }
+
+    /**
+     * Restores state written by {@link #writeTo(DataOutput)} of analyzer with the same settings.
+     * @exception IllegalArgumentException if state was written by analyzer with other settings
+     */
+    public void readFrom(DataInput input) throws IOException {
+        logLinesProcessor.readFrom(input);
+        intervalProcessor.readFrom(input);
+    }
+
+    private Instant findFirstTimestampInWindow() {
+        return logLinesProcessor.findFirstTimestampInWindow()
+                .orElseThrow(() -> new IllegalStateException("Window is empty"));
+    }
+}
@@ -0,0 +1,272 @@
+package com.pavelisaenko;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Follows growing log file like {@code tail -F}: reads appended bytes with {@link FileChannel} into a direct
+ * buffer and parses whole lines into {@link LogLineBatch}es.
+ * <p>
+ * At the end of file the follower sleeps on {@link WatchService} of the parent directory until the file is
+ * changed, so it wakes up right after append without polling. Then it checks for:
+ * <ul>
+ *     <li>truncation (file is shorter than read position) – reading starts from the beginning of file;</li>
+ *     <li>rotation (path points to another file) – the rest of the old file is read, its last unterminated
+ *     line is parsed as a whole one and the new file is read from the beginning. While path is moved or deleted
+ *     and no new file is created yet, the old file is followed further: e.g. nginx writes to a renamed log
+ *     until logrotate makes it reopen the log.</li>
+ * </ul>
+ * Consumer is called when batch is full and whenever the end of file is reached, so lines are analyzed
+ * without waiting for a full batch.
+ */
+public class LogFollower implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /**
+     * Maximum time of sleep without events. Watch services of some platforms poll file system,
+     * so the file is checked at least this often.
+     */
+    private static final long MAX_WAIT_MILLIS = 1000;
+
+    private final Path path;
+    private final WatchService watchService;
+    private final LogLineBatch batch;
+    private ByteLogLineParser parser = new ByteLogLineParser();
+
+    /**
+     * Bytes read from file, {@code [0...position)} is the unterminated tail of the last read
+     */
+    private ByteBuffer buffer;
+
+    private FileChannel channel;
+    private Object fileKey;
+
+    private volatile boolean isClosed = false;
+    private int switchedFilesNumber = 0;
+
+    /**
+     * Offset from which the first opened file is read, e.g. of checkpoint
+     */
+    private long startOffset = 0;
+
+    public LogFollower(Path path) throws IOException {
+        this(path, DEFAULT_BUFFER_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param path followed log file. It may not exist yet, but its directory must.
+     * @param bufferSize initial size of direct buffer. Buffer grows if a line is longer.
+     * @param batchSize maximum number of lines in batch
+     * @exception IOException if directory of file can not be watched
+     */
+    public LogFollower(Path path, int bufferSize, int batchSize) throws IOException {
+        if (bufferSize <= 0) throw new IllegalArgumentException("Buffer size must be positive");
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive");
+        this.path = path.toAbsolutePath();
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.batch = new LogLineBatch(batchSize);
+
+        watchService = this.path.getFileSystem().newWatchService();
+        try {
+            this.path.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Follows file until {@link #close()} is called or thread is interrupted.
+     * Consumer is called on the calling thread; batch must not be used after consumer returns.
+     * @exception IOException if file can not be read
+     */
+    public void run(Consumer<LogLineBatch> consumer) throws IOException {
+        try {
+            while (!isClosed) {
+                if (channel == null && !openFile()) {
+                    await();
+                    continue;
+                }
+
+                if (readLines(consumer)) continue;
+                flush(consumer);
+
+                if (channel.size() < channel.position()) {
+                    channel.position(0);
+                    buffer.clear();
+                    switchedFilesNumber++;
+                } else if (isRotated()) {
+                    while (readLines(consumer)) {
+                        // drains lines written before rotation
+                    }
+                    parseTail(consumer);
+                    flush(consumer);
+                    closeFile();
+                    switchedFilesNumber++;
+                } else {
+                    await();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // closed while waiting
+        } finally {
+            closeFile();
+        }
+    }
+
+    /**
+     * Makes follower read the first opened file from {@code startOffset}, which must be a beginning of line.
+     * If file is shorter, it was truncated or rotated and is read from the beginning.
+     * Batches report offsets after their last lines by {@link LogLineBatch#getEndOffset()} and keys of files
+     * of these offsets by {@link LogLineBatch#getFileKey()}.
+     */
+    public void setStartOffset(long startOffset) {
+        if (startOffset < 0) throw new IllegalArgumentException("Start offset must not be negative");
+        this.startOffset = startOffset;
+    }
+
+    /**
+     * @param logFormat format of lines, {@code null} for the bundled logs format
+     */
+    public void setLogFormat(LogFormat logFormat) {
+        parser = new ByteLogLineParser(logFormat);
+    }
+
+    /**
+     * @return number of truncations and rotations of file
+     */
+    public int getSwitchedFilesNumber() {
+        return switchedFilesNumber;
+    }
+
+    /**
+     * Stops {@link #run(Consumer)}. May be called from any thread.
+     */
+    @Override
+    public void close() throws IOException {
+        isClosed = true;
+        watchService.close();
+    }
+
+    private boolean openFile() throws IOException {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            buffer.clear();
+            if (startOffset > 0 && channel.size() >= startOffset) channel.position(startOffset);
+            startOffset = 0;
+            return true;
+        } catch (NoSuchFileException e) {
+            closeFile();
+            return false;
+        }
+    }
+
+    private void closeFile() throws IOException {
+        if (channel != null) channel.close();
+        channel = null;
+        fileKey = null;
+    }
+
+    /**
+     * @return {@code true} if path points to another file than the opened one, {@code false} also if there is
+     * no file at path yet, so the opened file may still be written
+     */
+    private boolean isRotated() throws IOException {
+        try {
+            Object currentFileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            return currentFileKey != null && !Objects.equals(currentFileKey, fileKey);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sleeps until something is changed in directory of file.
+     */
+    private void await() throws IOException {
+        try {
+            WatchKey key = watchService.poll(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            while (key != null) {
+                key.pollEvents();
+                key.reset();
+                key = watchService.poll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+        }
+    }
+
+    /**
+     * Reads available bytes and parses all whole lines.
+     * @return {@code false} if there were no new bytes
+     */
+    private boolean readLines(Consumer<LogLineBatch> consumer) throws IOException {
+        if (!buffer.hasRemaining()) growBuffer();
+        if (channel.read(buffer) <= 0) return false;
+
+        int limit = buffer.position();
+        long bufferOffset = channel.position() - limit;
+        int lineStart = 0;
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) != '\n') continue;
+            parseLine(lineStart, i, bufferOffset + i + 1, consumer);
+            lineStart = i + 1;
+        }
+
+        buffer.limit(limit).position(lineStart);
+        buffer.compact();
+        return true;
+    }
+
+    /**
+     * Parses the unterminated tail of finished file as a whole line.
+     */
+    private void parseTail(Consumer<LogLineBatch> consumer) throws IOException {
+        if (buffer.position() > 0) parseLine(0, buffer.position(), channel.position(), consumer);
+        buffer.clear();
+    }
+
+    /**
+     * @param endOffset offset in file after the line and its terminator
+     */
+    private void parseLine(int lineStart, int lineEnd, long endOffset, Consumer<LogLineBatch> consumer) {
+        batch.setEndOffset(endOffset);
+        batch.setFileKey(fileKey);
+        if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') lineEnd--;
+        if (ByteLogLineParser.isBlank(buffer, lineStart, lineEnd)) return;
+
+        try {
+            parser.parse(buffer, lineStart, lineEnd);
+            batch.add(parser);
+        } catch (IllegalArgumentException e) {
+            batch.addParseError(e.toString());
+        }
+        if (batch.isFull()) flush(consumer);
+    }
+
+    private void flush(Consumer<LogLineBatch> consumer) {
+        if (batch.getSize() == 0 && batch.getParseErrors().isEmpty()) return;
+        consumer.accept(batch);
+        batch.clear();
+    }
+
+    private void growBuffer() {
+        ByteBuffer grownBuffer = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+        buffer.flip();
+        grownBuffer.put(buffer);
+        buffer = grownBuffer;
+    }
+}
@@ -0,0 +1,165 @@
+package com.pavelisaenko;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Log line format given by nginx {@code log_format}-style template, e.g.
+ * {@code $remote_addr - $remote_user [$time_local] "$request" $status $body_bytes_sent $request_time}.
+ * <p>
+ * Template is compiled once into an extraction plan which {@link ByteLogLineParser} runs for every line: a short
+ * array of steps, each either a literal to match or a variable which ends at the first byte of the next literal.
+ * Variables which are not needed are skipped by one scan for that byte, so quoted variables may contain spaces,
+ * and plan ends right after the last needed variable. Needed variables are
+ * <ul>
+ *     <li>{@code $time_local} ({@code 14/06/2017:16:47:02 +1000}) or {@code $time_iso8601}
+ *     ({@code 2017-06-14T16:47:02+10:00})</li>
+ *     <li>{@code $status}</li>
+ *     <li>response time: {@code $request_time} or {@code $upstream_response_time} in seconds like nginx writes
+ *     them, or {@code $response_time} in milliseconds like the bundled logs</li>
+ * </ul>
+ * Other variables, written as {@code $name} or {@code ${name}}, are skipped.
+ */
+public final class LogFormat {
+
+    /**
+     * Format of the bundled {@code access.log}, which {@link ByteLogLineParser} parses by field positions without a template
+     */
+    public static final String BUNDLED = "$remote_addr - $remote_user [$time_local] \"$request\" $status " +
+            "$body_bytes_sent $response_time \"$http_referer\" \"$http_user_agent\" prio:$priority";
+
+    // kinds of steps of plan
+    static final int LITERAL = 0;
+    static final int SKIP = 1;
+    static final int TIME_LOCAL = 2;
+    static final int TIME_ISO8601 = 3;
+    static final int STATUS = 4;
+    static final int RESPONSE_TIME_SECONDS = 5;
+    static final int RESPONSE_TIME_MILLIS = 6;
+
+    /**
+     * Delimiter of variable which lasts until the end of line
+     */
+    static final int END_OF_LINE = -1;
+
+    private final String template;
+
+    final int[] kinds;
+    /**
+     * Bytes of literal steps, {@code null} for variable steps
+     */
+    final byte[][] literals;
+    /**
+     * Byte which ends variable step, {@link #END_OF_LINE} if variable lasts until the end of line
+     */
+    final int[] delimiters;
+
+    private LogFormat(String template, int[] kinds, byte[][] literals, int[] delimiters) {
+        this.template = template;
+        this.kinds = kinds;
+        this.literals = literals;
+        this.delimiters = delimiters;
+    }
+
+    /**
+     * Compiles template into extraction plan.
+     * @exception IllegalArgumentException if template misses time, status or response time, has one of them twice
+     * or has two variables without literal between them
+     */
+    public static LogFormat compile(String template) {
+        List<Integer> kinds = new ArrayList<>();
+        List<byte[]> literals = new ArrayList<>();
+        ByteArrayOutputStream literal = new ByteArrayOutputStream();
+
+        int i = 0;
+        while (i < template.length()) {
+            char symbol = template.charAt(i);
+            if (symbol != '$') {
+                if (symbol > 127) throw new IllegalArgumentException("Log format must be ASCII");
+                literal.write(symbol);
+                i++;
+                continue;
+            }
+
+            int nameStart = i + 1;
+            boolean isBraced = nameStart < template.length() && template.charAt(nameStart) == '{';
+            if (isBraced) nameStart++;
+            int nameEnd = nameStart;
+            while (nameEnd < template.length() && isNameSymbol(template.charAt(nameEnd))) nameEnd++;
+            if (nameEnd == nameStart) throw new IllegalArgumentException("Variable name expected at " + i + " of log format");
+            if (isBraced && (nameEnd == template.length() || template.charAt(nameEnd) != '}'))
+                throw new IllegalArgumentException("Variable at " + i + " of log format is not closed with }");
+
+            if (literal.size() > 0) {
+                kinds.add(LITERAL);
+                literals.add(literal.toByteArray());
+                literal.reset();
+            } else if (!kinds.isEmpty()) {
+                throw new IllegalArgumentException("Variables of log format must be separated, e.g. by space");
+            }
+            kinds.add(kindOf(template.substring(nameStart, nameEnd)));
+            literals.add(null);
+            i = isBraced ? nameEnd + 1 : nameEnd;
+        }
+        if (literal.size() > 0) {
+            kinds.add(LITERAL);
+            literals.add(literal.toByteArray());
+        }
+
+        checkNeeded(kinds, template);
+
+        // plan ends with the last needed variable
+        int size = kinds.size();
+        while (kinds.get(size - 1) == LITERAL || kinds.get(size - 1) == SKIP) size--;
+
+        int[] delimiters = new int[size];
+        for (int step = 0; step < size; step++) {
+            boolean isLast = step + 1 == kinds.size();
+            delimiters[step] = kinds.get(step) == LITERAL || isLast ? END_OF_LINE : literals.get(step + 1)[0];
+        }
+        return new LogFormat(template, kinds.stream().limit(size).mapToInt(Integer::intValue).toArray(),
+                literals.subList(0, size).toArray(byte[][]::new), delimiters);
+    }
+
+    /**
+     * @return number of steps of plan
+     */
+    public int getStepsNumber() {
+        return kinds.length;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+    private static int kindOf(String name) {
+        return switch (name) {
+            case "time_local" -> TIME_LOCAL;
+            case "time_iso8601" -> TIME_ISO8601;
+            case "status" -> STATUS;
+            case "request_time", "upstream_response_time" -> RESPONSE_TIME_SECONDS;
+            case "response_time" -> RESPONSE_TIME_MILLIS;
+            default -> SKIP;
+        };
+    }
+
+    private static void checkNeeded(List<Integer> kinds, String template) {
+        int times = 0;
+        int statuses = 0;
+        int responseTimes = 0;
+        for (int kind : kinds) {
+            if (kind == TIME_LOCAL || kind == TIME_ISO8601) times++;
+            else if (kind == STATUS) statuses++;
+            else if (kind == RESPONSE_TIME_SECONDS || kind == RESPONSE_TIME_MILLIS) responseTimes++;
+        }
+        if (times != 1 || statuses != 1 || responseTimes != 1)
+            throw new IllegalArgumentException("Log format must have one time, one $status and one response time: " + template);
+    }
+
+    private static boolean isNameSymbol(char symbol) {
+        return symbol == '_' || symbol >= 'a' && symbol <= 'z' || symbol >= 'A' && symbol <= 'Z' ||
+                symbol >= '0' && symbol <= '9';
+    }
+}
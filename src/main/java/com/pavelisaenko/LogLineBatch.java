@@ -0,0 +1,113 @@
+package com.pavelisaenko;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Columnar batch of parsed log lines. Lines are kept in primitive arrays in order of input.
+ */
+@Getter
+public class LogLineBatch {
+
+    private final long[] epochMillis;
+    private final int[] statusCodes;
+    private final double[] responseTimes;
+    private int size = 0;
+
+    /**
+     * Offset of the first line of batch, {@code null} if batch has no lines
+     */
+    @Setter
+    private ZoneOffset zoneOffset;
+
+    /**
+     * Offset in input file after the last line of batch, {@code -1} if it is not known
+     */
+    @Setter
+    private long endOffset = -1;
+
+    /**
+     * File key of input file of lines, see {@link java.nio.file.attribute.BasicFileAttributes#fileKey()},
+     * {@code null} if it is not known. End offset belongs to this file, also when path of input points to
+     * another file after rotation.
+     */
+    @Setter
+    private Object fileKey;
+
+    /**
+     * Messages of lines which could not be parsed
+     */
+    private final List<String> parseErrors = new ArrayList<>(0);
+
+    /**
+     * @param capacity maximum number of lines in batch
+     */
+    public LogLineBatch(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Batch capacity must be positive");
+        epochMillis = new long[capacity];
+        statusCodes = new int[capacity];
+        responseTimes = new double[capacity];
+    }
+
+    public int getCapacity() {
+        return epochMillis.length;
+    }
+
+    public boolean isFull() {
+        return size == epochMillis.length;
+    }
+
+    /**
+     * Adds line to the end of batch.
+     * @exception IllegalStateException if batch is full
+     */
+    public void add(long epochMillis, int statusCode, double responseTime) {
+        if (isFull()) throw new IllegalStateException("Batch is full");
+        this.epochMillis[size] = epochMillis;
+        this.statusCodes[size] = statusCode;
+        this.responseTimes[size] = responseTime;
+        size++;
+    }
+
+    /**
+     * Adds line which was just parsed by {@code parser}.
+     */
+    public void add(ByteLogLineParser parser) {
+        if (zoneOffset == null) zoneOffset = parser.getZoneOffset();
+        add(parser.getEpochMillis(), parser.getStatusCode(), parser.getResponseTime());
+    }
+
+    public void addParseError(String message) {
+        parseErrors.add(message);
+    }
+
+    /**
+     * Removes lines whose time is not in {@code [fromMillis...toMillis]}, keeping order of the rest.
+     */
+    public void retainTimeRange(long fromMillis, long toMillis) {
+        int retained = 0;
+        for (int i = 0; i < size; i++) {
+            if (epochMillis[i] < fromMillis || epochMillis[i] > toMillis) continue;
+            epochMillis[retained] = epochMillis[i];
+            statusCodes[retained] = statusCodes[i];
+            responseTimes[retained] = responseTimes[i];
+            retained++;
+        }
+        size = retained;
+    }
+
+    /**
+     * Removes all lines and errors, so batch can be reused.
+     */
+    public void clear() {
+        size = 0;
+        zoneOffset = null;
+        endOffset = -1;
+        fileKey = null;
+        parseErrors.clear();
+    }
+}
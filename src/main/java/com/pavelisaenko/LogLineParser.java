@@ -1,11 +1,107 @@
 package com.pavelisaenko;
 
+import java.time.Instant;
+
 public class LogLineParser {
 
+    private static final int TIMESTAMP_FIELD = 3;
+    private static final int STATUS_FIELD = 8;
+    private static final int RESPONSE_TIME_FIELD = 10;
+
+    /**
+     * Length of {@code [dd/MM/yyyy:HH:mm:ss}
+     */
+    private static final int TIMESTAMP_LENGTH = 20;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Parses line of at least 11 space-separated fields like {@link ByteLogLineParser}: scan stops at the end of
+     * response time, so fields after it, e.g. quoted user agent with spaces, are not counted. Fields are decoded
+     * in place, so only the returned {@link LogLine} and its timestamp are allocated. Offset of timestamp is ignored.
+     * @exception IllegalArgumentException if line has less than 11 fields or they are malformed
+     */
     public static LogLine parseLogLine(String line){
-        String[] params = line.split(" ");
-        if (params.length != 14) throw new IllegalArgumentException("log string must contain 14 fields");
+        int field = 0;
+        int position = 0;
+        int timestampStart = -1;
+        int statusStart = -1;
+        int statusEnd = -1;
+
+        while (field < RESPONSE_TIME_FIELD) {
+            while (position < line.length() && line.charAt(position) != ' ') position++;
+            if (position >= line.length()) throw new IllegalArgumentException("log string must contain at least 11 fields");
+            position++;
+            field++;
+            if (field == TIMESTAMP_FIELD) timestampStart = position;
+            else if (field == STATUS_FIELD) statusStart = position;
+            else if (field == STATUS_FIELD + 1) statusEnd = position - 1;
+        }
+        int responseTimeEnd = position;
+        while (responseTimeEnd < line.length() && line.charAt(responseTimeEnd) != ' ') responseTimeEnd++;
+
+        return new LogLine(parseTimestamp(line, timestampStart), Integer.parseInt(line, statusStart, statusEnd, 10),
+                parseResponseTime(line, position, responseTimeEnd));
+    }
+
+    /**
+     * Parses {@code [dd/MM/yyyy:HH:mm:ss} starting at {@code start} as UTC time.
+     */
+    private static Instant parseTimestamp(String line, int start) {
+        if (start + TIMESTAMP_LENGTH > line.length() || line.charAt(start + TIMESTAMP_LENGTH) != ' ' ||
+                line.charAt(start + 3) != '/' || line.charAt(start + 6) != '/' || line.charAt(start + 11) != ':' ||
+                line.charAt(start + 14) != ':' || line.charAt(start + 17) != ':')
+            throw new IllegalArgumentException("timestamp must be in dd/MM/yyyy:HH:mm:ss format");
+
+        int day = parseDigits(line, start + 1, 2);
+        int month = parseDigits(line, start + 4, 2);
+        int year = parseDigits(line, start + 7, 4);
+        int hour = parseDigits(line, start + 12, 2);
+        int minute = parseDigits(line, start + 15, 2);
+        int second = parseDigits(line, start + 18, 2);
+        if (month < 1 || month > 12 || day < 1 || day > ByteLogLineParser.lengthOfMonth(year, month) ||
+                hour > 23 || minute > 59 || second > 59)
+            throw new IllegalArgumentException("timestamp fields are out of range");
+
+        return Instant.ofEpochSecond(ByteLogLineParser.daysFromCivil(year, month, day) * 86400 +
+                hour * 3600L + minute * 60L + second);
+    }
+
+    private static int parseDigits(String line, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) throw new IllegalArgumentException("timestamp must contain digits only");
+            value = value * 10 + digit;
+        }
+        return value;
+    }
 
-        return new LogLine(params[3].substring(1), Integer.parseInt(params[8]), Double.parseDouble(params[10]));
+    /**
+     * Decodes plain decimal {@code digits[.digits]} exactly like {@link ByteLogLineParser},
+     * other forms fall back to {@link Double#parseDouble(String)}.
+     */
+    private static double parseResponseTime(String line, int start, int end) {
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean isFraction = false;
+        for (int i = start; i < end; i++) {
+            char symbol = line.charAt(i);
+            if (symbol == '.' && !isFraction) {
+                isFraction = true;
+                continue;
+            }
+            int digit = symbol - '0';
+            if (digit < 0 || digit > 9 || digits >= 15) return Double.parseDouble(line.substring(start, end));
+            mantissa = mantissa * 10 + digit;
+            digits++;
+            if (isFraction) fractionDigits++;
+        }
+        if (digits == 0) return Double.parseDouble(line.substring(start, end));
+        return mantissa / POWERS_OF_TEN[fractionDigits];
     }
 }
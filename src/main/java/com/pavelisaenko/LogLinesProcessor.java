@@ -1,54 +1,86 @@
 package com.pavelisaenko;
 
 import lombok.Getter;
-import lombok.NoArgsConstructor;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayDeque;
-import java.util.Iterator;
 import java.util.Optional;
-import java.util.function.Predicate;
 
 /**
  * Processes log lines. Checks them for errors. Alters counters (total and errors).
- * Enters {@link LogLine} into {@link #window}.
+ * Enters lines into {@link #window}.
  * Deletes expired records.
  */
-@NoArgsConstructor
 @Getter
 public class LogLinesProcessor {
 
     /**
      * Maximum size of window. Divides by 100 because of system limitations
      * @see IllegalStateException
-     * @implNote Internally {@link ArrayDeque} class calls its
-     * private {@code newCapacity(int, int)} method which will
-     * throw {@link IllegalStateException} if the requested
-     * capacity is more than {@link Integer#MAX_VALUE}
+     * @implNote Exact window presizes its circular arrays
+     * and bucketed window allocates an array slot per second of window,
+     * so both are limited to keep array sizes below {@link Integer#MAX_VALUE}
      */
     private final int MAX_WINDOW_SIZE_IN_SECONDS = Integer.MAX_VALUE / 100;
 
     private double responseThreshold = 45;
     private double availabilityThreshold = 99.9;
     private Duration windowSize = Duration.ofMinutes(1);
+    private WindowMode windowMode = WindowMode.EXACT;
 
-    private int totalLinesNumber = 0;
-    private int errorLinesNumber = 0;
+    /**
+     * Percentile of response times in window which must not be bigger than {@link #percentileThreshold}.
+     * 0 if percentile SLO is not set.
+     */
+    private double percentile = 0;
+    private double percentileThreshold = 0;
+
+    private final LogWindow window;
+
+    /**
+     * Compiled {@link ErrorRules}, by default {@code 5xx} statuses and {@link #responseThreshold}
+     */
+    private ErrorClassifier errorClassifier;
+
+    /**
+     * Number of lines which left window or were too old to enter it
+     */
+    private long evictedLinesNumber = 0;
+
+    /**
+     * Response times of window, {@code null} if percentile SLO is not set
+     */
+    private LatencyWindow latencyWindow;
 
-    private final ArrayDeque<LogLine> window = new ArrayDeque<>((int) windowSize.getSeconds() * 80);
+    public LogLinesProcessor(){
+        window = windowMode.createWindow(windowSize);
+        errorClassifier = new ErrorRules(responseThreshold).compile();
+    }
+
+    /**
+     * Creates processor with {@link WindowMode#EXACT} window.
+     * @see #LogLinesProcessor(double, double, Duration, WindowMode)
+     */
+    public LogLinesProcessor(double responseThreshold, double availabilityThreshold, Duration windowSize){
+        this(responseThreshold, availabilityThreshold, windowSize, WindowMode.EXACT);
+    }
 
     /**
      * @param windowSize expiration value of lines. Max value is {@link LogLinesProcessor#MAX_WINDOW_SIZE_IN_SECONDS}.
      * @param responseThreshold the delay threshold at which a record is considered to contain an error. Must be positive.
      * @param availabilityThreshold minimum acceptable availability level.
      *                              If current availability is lower of this level – window fails.
+     * @param windowMode storage engine of window
      * @exception IllegalArgumentException if {@link #windowSize} is bigger than
      * {@link LogLinesProcessor#MAX_WINDOW_SIZE_IN_SECONDS}.
      * @exception IllegalArgumentException if {@link  #responseThreshold} is not positive
      * @exception IllegalArgumentException if {@link  #availabilityThreshold} is not in [0.1...100]
      */
-    public LogLinesProcessor(double responseThreshold, double availabilityThreshold, Duration windowSize){
+    public LogLinesProcessor(double responseThreshold, double availabilityThreshold, Duration windowSize,
+                             WindowMode windowMode){
         if (windowSize.getSeconds() > MAX_WINDOW_SIZE_IN_SECONDS)
             throw new IllegalArgumentException("Maximum window size in seconds is " + MAX_WINDOW_SIZE_IN_SECONDS);
 
@@ -61,52 +93,113 @@ public class LogLinesProcessor {
         this.responseThreshold = responseThreshold;
         this.availabilityThreshold = availabilityThreshold;
         this.windowSize = windowSize;
+        this.windowMode = windowMode;
+        this.window = windowMode.createWindow(windowSize);
+        this.errorClassifier = new ErrorRules(responseThreshold).compile();
+    }
+
+    /**
+     * Replaces default rules of error lines, e.g. to treat 429 as error. Response threshold of rules replaces
+     * {@link #responseThreshold}. Must be set before lines are processed.
+     */
+    public void setErrorRules(ErrorRules errorRules){
+        this.responseThreshold = errorRules.getResponseThreshold();
+        this.errorClassifier = errorRules.compile();
+    }
+
+    /**
+     * Makes window fail also if {@code percentile} of response times in window is bigger than
+     * {@code percentileThreshold}, e.g. p99 is bigger than 45 ms. Must be set before lines are processed.
+     * @param percentile percentile in (0...100]
+     * @param percentileThreshold maximum response time at {@code percentile}. Must be positive.
+     * @exception IllegalArgumentException if {@code percentile} is not in (0...100]
+     * @exception IllegalArgumentException if {@code percentileThreshold} is not positive
+     */
+    public void setPercentileSlo(double percentile, double percentileThreshold){
+        if (percentile <= 0 || percentile > 100)
+            throw new IllegalArgumentException("Percentile must be in (0...100]");
+
+        if (percentileThreshold <= 0)
+            throw new IllegalArgumentException("Percentile threshold must be positive");
+
+        this.percentile = percentile;
+        this.percentileThreshold = percentileThreshold;
+        this.latencyWindow = new LatencyWindow(windowSize, percentileThreshold);
     }
 
     /**
-     * Verifies 5xx errors. Returns {@code true} if {@code statusCode} in [500...599].
+     * @return {@code true} if line is considered as error by {@link #errorClassifier}
      */
-    private final Predicate<Integer> is5xxError = (statusCode) -> 500 <= statusCode && statusCode < 600;
+    public boolean isLineError(LogLine logLine){
+        return isLineError(logLine.getStatusCode(), logLine.getResponseTime());
+    }
 
     /**
-     * Verifies if LogLine object has any errors.
+     * Primitive form of {@link #isLineError(LogLine)}. Rules of paths and agents are not applied.
+     * @return {@code true} if line with such status code and response time is considered as error
      */
-    private final Predicate<LogLine> hasLineErrors = (logLine) ->
-            is5xxError.test(logLine.getStatusCode()) || logLine.getResponseTime() > responseThreshold;
+    public boolean isLineError(int statusCode, double responseTime){
+        return errorClassifier.isError(statusCode, responseTime);
+    }
+
+    public long getTotalLinesNumber(){
+        return window.getTotalLinesNumber();
+    }
+
+    public long getErrorLinesNumber(){
+        return window.getErrorLinesNumber();
+    }
 
     /**
      * @return availability of current {@link #window}.
      */
     private double getCurrentAvailability(){
+        long totalLinesNumber = window.getTotalLinesNumber();
         if (totalLinesNumber == 0) return 100.0;
-        return 100 * (totalLinesNumber - errorLinesNumber) / (double) totalLinesNumber;
+        return 100 * (totalLinesNumber - window.getErrorLinesNumber()) / (double) totalLinesNumber;
     }
 
     /**
      * @return true if {@link #window} fails.
      */
     public boolean isWindowFails(){
-        return getCurrentAvailability() < availabilityThreshold;
+        return getCurrentAvailability() < availabilityThreshold || isLatencyFails();
+    }
+
+    /**
+     * @return true if percentile SLO is set and {@link #percentile} of response times in window
+     * is bigger than {@link #percentileThreshold}
+     */
+    public boolean isLatencyFails(){
+        return latencyWindow != null && latencyWindow.isPercentileAbove(percentile);
+    }
+
+    /**
+     * @return {@code true} if {@code other} processor keeps the same lines in window,
+     * so it behaves exactly like this processor for any following lines
+     * @see LogWindow#hasSameContent(LogWindow)
+     */
+    public boolean hasSameContent(LogLinesProcessor other){
+        if (!window.hasSameContent(other.window)) return false;
+        if (latencyWindow == null || other.latencyWindow == null) return latencyWindow == other.latencyWindow;
+        return percentile == other.percentile && latencyWindow.hasSameContent(other.latencyWindow);
     }
 
 
     public Optional<Instant> findFirstErrorTimestampInWindow(){
-        for (LogLine logLine : window) {
-            if (hasLineErrors.test(logLine)) return Optional.of(logLine.getTimestamp());
-        }
-        return Optional.empty();
+        return window.findFirstErrorTimestamp();
     }
 
 
     public Optional<Instant> findLastErrorTimestampInWindow(){
-        Iterator<LogLine> logLineIterator = window.descendingIterator();
-        LogLine logLine;
-        while (logLineIterator.hasNext()){
-            logLine = logLineIterator.next();
-            if (hasLineErrors.test(logLine))
-                return Optional.of(logLine.getTimestamp());
-        }
-        return Optional.empty();
+        return window.findLastErrorTimestamp();
+    }
+
+    /**
+     * @return timestamp of the oldest line in {@link #window}
+     */
+    public Optional<Instant> findFirstTimestampInWindow(){
+        return window.findFirstTimestamp();
     }
 
     /**
@@ -115,18 +208,67 @@ public class LogLinesProcessor {
     public void processNewLogLine(LogLine logLine){
         if (logLine == null) throw new IllegalArgumentException("Log line must not be null");
 
-        Instant current = logLine.getTimestamp();
+        processNewLogLine(logLine.getTimestamp().toEpochMilli(), logLine.getStatusCode(), logLine.getResponseTime());
+    }
 
-        window.addLast(logLine);
-        if (hasLineErrors.test(logLine)) errorLinesNumber++;
+    /**
+     * Primitive form of {@link #processNewLogLine(LogLine)}.
+     * @param epochMillis timestamp of line
+     * @param statusCode status code of line
+     * @param responseTime response time of line
+     */
+    public void processNewLogLine(long epochMillis, int statusCode, double responseTime){
+        processClassifiedLogLine(epochMillis, isLineError(statusCode, responseTime), responseTime);
+    }
 
-        Instant cutoff = current.minus(windowSize);
+    /**
+     * Form of {@link #processNewLogLine(long, int, double)} for line which is already classified, e.g. by
+     * {@link ErrorClassifier#classify(byte[], int, int, int, double)}. Classification is kept in window with line,
+     * so it is not repeated when line leaves window.
+     * @param isError {@code true} if line is error
+     */
+    public void processClassifiedLogLine(long epochMillis, boolean isError, double responseTime){
+        long linesBefore = window.getTotalLinesNumber();
+        window.add(epochMillis, isError, responseTime);
+        window.evictBefore(epochMillis - windowSize.toMillis());
+        evictedLinesNumber += linesBefore + 1 - window.getTotalLinesNumber();
 
-        while (!window.isEmpty() && window.getFirst().getTimestamp().isBefore(cutoff)) {
-            LogLine expired = window.removeFirst();
-            if (hasLineErrors.test(expired)) errorLinesNumber--;
+        if (latencyWindow != null) {
+            latencyWindow.add(epochMillis, responseTime);
+            latencyWindow.evictBefore(epochMillis - windowSize.toMillis());
         }
+    }
+
+    /**
+     * Writes settings, windows and counters, e.g. into checkpoint.
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeDouble(responseThreshold);
+        output.writeDouble(availabilityThreshold);
+        output.writeLong(windowSize.toMillis());
+        output.writeUTF(windowMode.name());
+        output.writeDouble(percentile);
+        output.writeDouble(percentileThreshold);
+        output.writeUTF(errorClassifier.getRules().toString());
+
+        window.writeTo(output);
+        output.writeLong(evictedLinesNumber);
+        if (latencyWindow != null) latencyWindow.writeTo(output);
+    }
+
+    /**
+     * Replaces windows and counters by ones written by {@link #writeTo(DataOutput)}.
+     * @exception IllegalArgumentException if they were written by processor with other settings
+     */
+    public void readFrom(DataInput input) throws IOException {
+        if (input.readDouble() != responseThreshold || input.readDouble() != availabilityThreshold ||
+                input.readLong() != windowSize.toMillis() || !input.readUTF().equals(windowMode.name()) ||
+                input.readDouble() != percentile || input.readDouble() != percentileThreshold ||
+                !input.readUTF().equals(errorClassifier.getRules().toString()))
+            throw new IllegalArgumentException("State was written with other thresholds, window, percentile SLO or error rules");
 
-        totalLinesNumber = window.size();
+        window.readFrom(input);
+        evictedLinesNumber = input.readLong();
+        if (latencyWindow != null) latencyWindow.readFrom(input);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,236 @@
+package com.pavelisaenko;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Merges several log files by time of lines, so rotated and gzipped logs of many hosts can be analyzed
+ * without external sort. Every file must be ordered by time itself.
+ * <p>
+ * Every file is decompressed, split and parsed on its own thread into {@link LogLineBatch}es, which are passed
+ * to the calling thread through {@link SpscRingBuffer}s like in {@link LogPipeline}. The calling thread merges
+ * heads of files with a binary heap (k-way merge) and passes merged batches to consumer. Lines with equal time
+ * are taken in order of files.
+ */
+public class LogMerger {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final List<Path> files;
+    private final int batchSize;
+    private final int batchesInFlight;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private Source[] sources;
+
+    private LogFormat logFormat;
+
+    public LogMerger(List<Path> files) {
+        this(files, LogPipeline.DEFAULT_BATCH_SIZE, LogPipeline.DEFAULT_BATCHES_IN_FLIGHT);
+    }
+
+    /**
+     * @param files log files, gzipped if name ends with {@code .gz}
+     * @param batchSize maximum number of lines in batch
+     * @param batchesInFlight number of batches of every file
+     */
+    public LogMerger(List<Path> files, int batchSize, int batchesInFlight) {
+        if (files.isEmpty()) throw new IllegalArgumentException("Files must not be empty");
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive");
+        if (batchesInFlight <= 0) throw new IllegalArgumentException("Number of batches in flight must be positive");
+        this.files = List.copyOf(files);
+        this.batchSize = batchSize;
+        this.batchesInFlight = batchesInFlight;
+    }
+
+    /**
+     * @param logFormat format of lines of all files, {@code null} for the bundled logs format
+     */
+    public void setLogFormat(LogFormat logFormat) {
+        this.logFormat = logFormat;
+    }
+
+    /**
+     * Reads all files. Consumer is called on the calling thread; batch must not be used after consumer returns.
+     * Messages of parse errors start with file name.
+     * @exception IOException if a file can not be read
+     */
+    public void run(Consumer<LogLineBatch> consumer) throws IOException {
+        sources = new Source[files.size()];
+        for (int i = 0; i < sources.length; i++) sources[i] = new Source(i, files.get(i));
+        for (Source source : sources) source.thread.start();
+
+        try {
+            merge(consumer);
+        } catch (RuntimeException | Error e) {
+            fail(e);
+        }
+
+        for (Source source : sources) {
+            try {
+                source.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+
+        Throwable cause = failure.get();
+        if (cause instanceof UncheckedIOException e) throw e.getCause();
+        if (cause instanceof RuntimeException e) throw e;
+        if (cause instanceof Error e) throw e;
+    }
+
+    /**
+     * Opens log file, decompressing it if name ends with {@code .gz}.
+     */
+    public static InputStream open(Path file) throws IOException {
+        InputStream inputStream = Files.newInputStream(file);
+        if (file.getFileName().toString().endsWith(".gz")) return new GZIPInputStream(inputStream, BUFFER_SIZE);
+        return new BufferedInputStream(inputStream, BUFFER_SIZE);
+    }
+
+    private void merge(Consumer<LogLineBatch> consumer) {
+        PriorityQueue<Source> heap = new PriorityQueue<>(sources.length,
+                Comparator.comparingLong(Source::head).thenComparingInt(source -> source.index));
+        LogLineBatch merged = new LogLineBatch(batchSize);
+
+        for (Source source : sources) {
+            if (source.advance(merged)) heap.add(source);
+        }
+
+        while (!heap.isEmpty()) {
+            Source source = heap.poll();
+            Source next = heap.peek();
+            // copies lines while source stays the first, so files which do not overlap are merged without heap operations
+            boolean hasLines;
+            do {
+                LogLineBatch batch = source.batch;
+                int i = source.position++;
+                if (merged.getZoneOffset() == null) merged.setZoneOffset(batch.getZoneOffset());
+                merged.add(batch.getEpochMillis()[i], batch.getStatusCodes()[i], batch.getResponseTimes()[i]);
+                if (merged.isFull()) {
+                    consumer.accept(merged);
+                    merged.clear();
+                }
+                hasLines = source.advance(merged);
+            } while (hasLines && (next == null || source.isBefore(next)));
+
+            if (hasLines) heap.add(source);
+        }
+
+        if (merged.getSize() > 0 || !merged.getParseErrors().isEmpty()) consumer.accept(merged);
+    }
+
+    /**
+     * Keeps the first failure and stops all files.
+     */
+    private void fail(Throwable cause) {
+        failure.compareAndSet(null, cause instanceof InterruptedException ? new IllegalStateException(cause) : cause);
+        for (Source source : sources) {
+            source.batches.close();
+            source.freeBatches.close();
+        }
+    }
+
+    /**
+     * Parsed lines of one file.
+     */
+    private final class Source {
+        private final int index;
+        private final Path file;
+        private final Thread thread;
+        private final SpscRingBuffer<LogLineBatch> batches;
+        private final SpscRingBuffer<LogLineBatch> freeBatches;
+
+        /**
+         * Batch which is merged now and index of its next line, used by the calling thread only
+         */
+        private LogLineBatch batch;
+        private int position = 0;
+
+        private Source(int index, Path file) {
+            this.index = index;
+            this.file = file;
+            batches = new SpscRingBuffer<>(batchesInFlight);
+            freeBatches = new SpscRingBuffer<>(batchesInFlight);
+            for (int i = 0; i < batchesInFlight; i++) freeBatches.put(new LogLineBatch(batchSize));
+
+            thread = new Thread(() -> {
+                try {
+                    read();
+                } catch (RuntimeException | Error e) {
+                    fail(e);
+                }
+            }, "log-merger-" + index);
+            thread.setDaemon(true);
+        }
+
+        private long head() {
+            return batch.getEpochMillis()[position];
+        }
+
+        /**
+         * @return {@code true} if the next line of this file is merged before the next line of {@code other}
+         */
+        private boolean isBefore(Source other) {
+            long head = head();
+            long otherHead = other.head();
+            return head < otherHead || head == otherHead && index < other.index;
+        }
+
+        /**
+         * Moves to the next line, taking the next batch if current one is over. Parse errors of taken batches
+         * are moved to {@code merged}.
+         * @return {@code false} if file is over
+         */
+        private boolean advance(LogLineBatch merged) {
+            while (batch == null || position == batch.getSize()) {
+                if (batch != null) {
+                    batch.clear();
+                    freeBatches.put(batch);
+                }
+                batch = batches.take();
+                position = 0;
+                if (batch == null) return false;
+                batch.getParseErrors().forEach(merged::addParseError);
+            }
+            return true;
+        }
+
+        private void read() {
+            ByteLogLineParser parser = new ByteLogLineParser(logFormat);
+            try (ByteLineReader lineReader = new ByteLineReader(open(file))) {
+                LogLineBatch batch = freeBatches.take();
+                while (batch != null && lineReader.nextLine()) {
+                    if (lineReader.isLineBlank()) continue;
+                    try {
+                        parser.parse(lineReader.getBuffer(), lineReader.getLineStart(), lineReader.getLineEnd());
+                        batch.add(parser);
+                    } catch (IllegalArgumentException e) {
+                        batch.addParseError(file + ": " + e);
+                    }
+                    if (batch.isFull()) {
+                        batches.put(batch);
+                        batch = freeBatches.take();
+                    }
+                }
+                if (batch != null && (batch.getSize() > 0 || !batch.getParseErrors().isEmpty())) batches.put(batch);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                batches.close();
+            }
+        }
+    }
+}
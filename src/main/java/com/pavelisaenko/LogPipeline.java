@@ -0,0 +1,190 @@
+package com.pavelisaenko;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Three-stage ingestion: reader thread splits input into {@link RawLineBatch}es, parser thread turns them into
+ * {@link LogLineBatch}es and the calling thread passes them to consumer in order of input.
+ * <p>
+ * Stages exchange whole batches through {@link SpscRingBuffer}s. Every link has a fixed set of batches which
+ * circulate between a ring of filled batches and a ring of free ones, so a fast stage waits for a free batch
+ * (backpressure) and nothing is allocated per batch in steady state.
+ */
+public class LogPipeline {
+
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    public static final int DEFAULT_BATCHES_IN_FLIGHT = 4;
+
+    private final InputStream inputStream;
+
+    private final SpscRingBuffer<RawLineBatch> rawBatches;
+    private final SpscRingBuffer<RawLineBatch> freeRawBatches;
+    private final SpscRingBuffer<LogLineBatch> parsedBatches;
+    private final SpscRingBuffer<LogLineBatch> freeParsedBatches;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private LogFormat logFormat;
+
+    /**
+     * Batch being filled by reader thread, {@code null} if pipeline is stopped
+     */
+    private RawLineBatch readBatch;
+
+    public LogPipeline(InputStream inputStream) {
+        this(inputStream, DEFAULT_BATCH_SIZE, DEFAULT_BATCHES_IN_FLIGHT);
+    }
+
+    /**
+     * @param inputStream source of log lines
+     * @param batchSize maximum number of lines in batch
+     * @param batchesInFlight number of batches of every link
+     */
+    public LogPipeline(InputStream inputStream, int batchSize, int batchesInFlight) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive");
+        if (batchesInFlight <= 0) throw new IllegalArgumentException("Number of batches in flight must be positive");
+        this.inputStream = inputStream;
+
+        rawBatches = new SpscRingBuffer<>(batchesInFlight);
+        freeRawBatches = new SpscRingBuffer<>(batchesInFlight);
+        parsedBatches = new SpscRingBuffer<>(batchesInFlight);
+        freeParsedBatches = new SpscRingBuffer<>(batchesInFlight);
+        for (int i = 0; i < batchesInFlight; i++) {
+            freeRawBatches.put(new RawLineBatch(batchSize));
+            freeParsedBatches.put(new LogLineBatch(batchSize));
+        }
+    }
+
+    /**
+     * @param logFormat format of lines, {@code null} for the bundled logs format
+     */
+    public void setLogFormat(LogFormat logFormat) {
+        this.logFormat = logFormat;
+    }
+
+    /**
+     * Reads whole input. Consumer is called on the calling thread; batch must not be used after consumer returns.
+     * If consumer throws, its exception is rethrown without waiting for reader, which may be blocked in reading
+     * of input, e.g. of {@code System.in}; the daemon reader stops at its next batch or with JVM.
+     * @exception IOException if input can not be read
+     */
+    public void run(Consumer<LogLineBatch> consumer) throws IOException {
+        Thread reader = startStage("log-reader", this::read);
+        Thread parser = startStage("log-parser", this::parse);
+
+        boolean isConsumerFailed = false;
+        try {
+            LogLineBatch batch;
+            while ((batch = parsedBatches.take()) != null) {
+                consumer.accept(batch);
+                batch.clear();
+                freeParsedBatches.put(batch);
+            }
+        } catch (RuntimeException | Error e) {
+            isConsumerFailed = true;
+            fail(e);
+        }
+
+        // parser waits only for closed buffers, reader may wait for input forever
+        if (!isConsumerFailed) joinStage(reader);
+        joinStage(parser);
+
+        Throwable cause = failure.get();
+        if (cause instanceof UncheckedIOException e) throw e.getCause();
+        if (cause instanceof RuntimeException e) throw e;
+        if (cause instanceof Error e) throw e;
+    }
+
+    private void read() {
+        try (ByteLineReader lineReader = new ByteLineReader(inputStream)) {
+            readBatch = freeRawBatches.take();
+            // lines of slow input, e.g. of a terminal, are passed on before reader blocks instead of waiting in batch
+            lineReader.setBeforeRead(this::passReadBatch);
+            while (readBatch != null && lineReader.nextLine()) {
+                readBatch.add(lineReader.getBuffer(), lineReader.getLineStart(), lineReader.getLineEnd());
+                if (readBatch.isFull()) passReadBatch();
+            }
+            if (readBatch != null && readBatch.getSize() > 0) rawBatches.put(readBatch);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            rawBatches.close();
+        }
+    }
+
+    /**
+     * Passes batch being read to parser if it is not empty and takes a free one.
+     */
+    private void passReadBatch() {
+        if (readBatch == null || readBatch.getSize() == 0) return;
+        rawBatches.put(readBatch);
+        readBatch = freeRawBatches.take();
+    }
+
+    private void parse() {
+        ByteLogLineParser parser = new ByteLogLineParser(logFormat);
+        try {
+            RawLineBatch rawBatch;
+            while ((rawBatch = rawBatches.take()) != null) {
+                LogLineBatch batch = freeParsedBatches.take();
+                if (batch == null) return;
+
+                byte[] data = rawBatch.getData();
+                for (int i = 0; i < rawBatch.getSize(); i++) {
+                    int lineStart = rawBatch.getLineStarts()[i];
+                    int lineEnd = rawBatch.getLineEnds()[i];
+                    if (ByteLogLineParser.isBlank(data, lineStart, lineEnd)) continue;
+                    try {
+                        parser.parse(data, lineStart, lineEnd);
+                        batch.add(parser);
+                    } catch (IllegalArgumentException e) {
+                        batch.addParseError(e.toString());
+                    }
+                }
+
+                rawBatch.clear();
+                freeRawBatches.put(rawBatch);
+                parsedBatches.put(batch);
+            }
+        } finally {
+            parsedBatches.close();
+        }
+    }
+
+    private Thread startStage(String name, Runnable stage) {
+        Thread thread = new Thread(() -> {
+            try {
+                stage.run();
+            } catch (RuntimeException | Error e) {
+                fail(e);
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void joinStage(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        }
+    }
+
+    /**
+     * Keeps the first failure and stops all stages. Failures of other stages caused by closed buffers are ignored.
+     */
+    private void fail(Throwable cause) {
+        failure.compareAndSet(null, cause instanceof InterruptedException ? new IllegalStateException(cause) : cause);
+        rawBatches.close();
+        freeRawBatches.close();
+        parsedBatches.close();
+        freeParsedBatches.close();
+    }
+}
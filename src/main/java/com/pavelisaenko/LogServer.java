@@ -0,0 +1,302 @@
+package com.pavelisaenko;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receives log lines over network, e.g. from nginx of many hosts, and passes them to {@link LogAggregator}.
+ * <p>
+ * TCP senders write lines terminated by {@code \n} over a connection. Every connection is served by its own
+ * virtual thread with blocking NIO: a thread costs a few kilobytes instead of a platform thread stack, so thousands
+ * of senders are served by a few carrier threads. Lines are parsed by {@link ByteLogLineParser} straight from
+ * the receive buffer of connection, without copying them or creating strings, into a batch which is passed to
+ * aggregator after every read.
+ * <p>
+ * Optional UDP socket receives syslog datagrams like nginx {@code access_log syslog:server=...} sends:
+ * {@code <190>Jun 14 16:47:02 host nginx: <log line>}. Syslog header is dropped; a datagram without header
+ * may hold several lines.
+ * <p>
+ * Host of lines is the address of sender.
+ */
+public class LogServer implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    /**
+     * Maximum number of connections waiting to be accepted, thousands of senders may connect at once
+     */
+    private static final int ACCEPT_BACKLOG = 4096;
+    /**
+     * Maximum size of UDP datagram payload
+     */
+    private static final int MAX_DATAGRAM_SIZE = 65_507;
+
+    private final LogAggregator aggregator;
+    private final int bufferSize;
+
+    private final ServerSocketChannel serverChannel;
+    private final DatagramChannel datagramChannel;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    private final AtomicLong acceptedConnectionsNumber = new AtomicLong();
+    private final AtomicLong parseErrorsNumber = new AtomicLong();
+
+    /**
+     * Starts listening.
+     * @param tcpAddress address of TCP socket, port 0 for any free port
+     * @param udpAddress address of UDP syslog socket, {@code null} if syslog is not received
+     * @param bufferSize receive buffer of connection in bytes, longer lines are skipped and counted as parse errors
+     */
+    public LogServer(LogAggregator aggregator, InetSocketAddress tcpAddress, InetSocketAddress udpAddress,
+                     int bufferSize) throws IOException {
+        if (bufferSize <= 0) throw new IllegalArgumentException("Buffer size must be positive");
+        this.aggregator = aggregator;
+        this.bufferSize = bufferSize;
+
+        serverChannel = ServerSocketChannel.open().bind(tcpAddress, ACCEPT_BACKLOG);
+        try {
+            datagramChannel = udpAddress == null ? null : DatagramChannel.open().bind(udpAddress);
+        } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+        }
+
+        start("log-server-tcp", this::acceptConnections);
+        if (datagramChannel != null) start("log-server-udp", this::receiveDatagrams);
+    }
+
+    /**
+     * @return port of TCP socket
+     */
+    public int getTcpPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * @return port of UDP socket, {@code -1} if syslog is not received
+     */
+    public int getUdpPort() throws IOException {
+        return datagramChannel == null ? -1 : ((InetSocketAddress) datagramChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * @return number of open TCP connections
+     */
+    public int getConnectionsNumber() {
+        return connections.size();
+    }
+
+    public long getAcceptedConnectionsNumber() {
+        return acceptedConnectionsNumber.get();
+    }
+
+    /**
+     * @return number of received lines which could not be parsed or were too long
+     */
+    public long getParseErrorsNumber() {
+        return parseErrorsNumber.get();
+    }
+
+    /**
+     * Blocks until server is closed.
+     */
+    public void awaitClose() throws InterruptedException {
+        closed.await();
+    }
+
+    /**
+     * Stops listening and closes connections. Lines which were not received yet are lost.
+     * Waits for threads of connections to end.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            serverChannel.close();
+            if (datagramChannel != null) datagramChannel.close();
+            for (SocketChannel connection : connections) connection.close();
+            for (Thread thread : threads) thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closed.countDown();
+        }
+    }
+
+    private void start(String name, Runnable task) {
+        Thread thread = Thread.ofVirtual().name(name).unstarted(() -> {
+            try {
+                task.run();
+            } finally {
+                threads.remove(Thread.currentThread());
+            }
+        });
+        threads.add(thread);
+        thread.start();
+    }
+
+    private void acceptConnections() {
+        while (serverChannel.isOpen()) {
+            SocketChannel connection;
+            try {
+                connection = serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.printf("Connection accepting error: %s%n", e.getMessage());
+                continue;
+            }
+            connections.add(connection);
+            if (!serverChannel.isOpen()) {
+                closeQuietly(connection);
+                return;
+            }
+            long number = acceptedConnectionsNumber.incrementAndGet();
+            start("log-connection-" + number, () -> serveConnection(connection));
+        }
+    }
+
+    private void serveConnection(SocketChannel connection) {
+        try (connection) {
+            String host = ((InetSocketAddress) connection.getRemoteAddress()).getAddress().getHostAddress();
+            ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+            LineBatcher lineBatcher = new LineBatcher(host);
+
+            while (connection.read(buffer) >= 0) {
+                int end = buffer.position();
+                int rest = lineBatcher.processLines(buffer.array(), 0, end, false);
+                if (rest == 0 && end == buffer.capacity()) {
+                    // line does not fit in buffer
+                    lineBatcher.skipLine();
+                    buffer.clear();
+                    continue;
+                }
+                buffer.position(rest).limit(end);
+                buffer.compact();
+            }
+            lineBatcher.processLines(buffer.array(), 0, buffer.position(), true);
+        } catch (ClosedChannelException e) {
+            // server is closed
+        } catch (IOException e) {
+            System.err.printf("Connection reading error: %s%n", e.getMessage());
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    private void receiveDatagrams() {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_DATAGRAM_SIZE);
+        LineBatcher lineBatcher = new LineBatcher(null);
+        while (datagramChannel.isOpen()) {
+            buffer.clear();
+            SocketAddress sender;
+            try {
+                sender = datagramChannel.receive(buffer);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.printf("Datagram receiving error: %s%n", e.getMessage());
+                continue;
+            }
+            lineBatcher.host = ((InetSocketAddress) sender).getAddress().getHostAddress();
+            byte[] datagram = buffer.array();
+            lineBatcher.processLines(datagram, skipSyslogHeader(datagram, buffer.position()), buffer.position(), true);
+        }
+    }
+
+    /**
+     * @return index of message of syslog datagram, after {@code <PRI>TIMESTAMP HOSTNAME TAG: }, or {@code 0}
+     * if datagram has no header
+     */
+    static int skipSyslogHeader(byte[] datagram, int length) {
+        if (length == 0 || datagram[0] != '<') return 0;
+        for (int i = 1; i + 1 < length; i++) {
+            if (datagram[i] == ':' && datagram[i + 1] == ' ') return i + 2;
+        }
+        return 0;
+    }
+
+    /**
+     * Splits received bytes into lines, parses them into batch of one host and passes it to aggregator.
+     */
+    private class LineBatcher {
+        private final ByteLogLineParser parser = new ByteLogLineParser();
+        private final LogLineBatch batch = new LogLineBatch(DEFAULT_BATCH_SIZE);
+        private String host;
+        /**
+         * If {@code true}, bytes are skipped until the end of too long line
+         */
+        private boolean isSkippingLine = false;
+
+        private LineBatcher(String host) {
+            this.host = host;
+        }
+
+        /**
+         * Parses whole lines of {@code buffer[from...to)} and passes them to aggregator.
+         * @param isLastLineWhole if {@code true}, the last line may have no line terminator
+         * @return index after the last whole line
+         */
+        private int processLines(byte[] buffer, int from, int to, boolean isLastLineWhole) {
+            int lineStart = from;
+            for (int i = from; i < to; i++) {
+                if (buffer[i] != '\n') continue;
+                processLine(buffer, lineStart, i);
+                lineStart = i + 1;
+            }
+            if (isLastLineWhole && lineStart < to) {
+                processLine(buffer, lineStart, to);
+                lineStart = to;
+            }
+            if (batch.getSize() > 0) deliver();
+            return lineStart;
+        }
+
+        private void skipLine() {
+            isSkippingLine = true;
+        }
+
+        private void processLine(byte[] buffer, int from, int to) {
+            if (isSkippingLine) {
+                isSkippingLine = false;
+                parseErrorsNumber.incrementAndGet();
+                return;
+            }
+            int end = to > from && buffer[to - 1] == '\r' ? to - 1 : to;
+            if (ByteLogLineParser.isBlank(buffer, from, end)) return;
+            try {
+                parser.parse(buffer, from, end);
+            } catch (IllegalArgumentException e) {
+                parseErrorsNumber.incrementAndGet();
+                return;
+            }
+            batch.add(parser);
+            if (batch.isFull()) deliver();
+        }
+
+        private void deliver() {
+            aggregator.accept(host, batch);
+            batch.clear();
+        }
+    }
+
+    private static void closeQuietly(SocketChannel connection) {
+        try {
+            connection.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
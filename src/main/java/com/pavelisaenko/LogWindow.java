@@ -0,0 +1,56 @@
+package com.pavelisaenko;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Sliding window of already classified log lines used by {@link LogLinesProcessor}.
+ */
+public interface LogWindow {
+
+    /**
+     * Enters line into window.
+     * @param epochMillis timestamp of line
+     * @param isError {@code true} if line is considered as error
+     * @param responseTime response time of line
+     */
+    void add(long epochMillis, boolean isError, double responseTime);
+
+    /**
+     * Deletes records which are older than {@code cutoffMillis}.
+     */
+    void evictBefore(long cutoffMillis);
+
+    long getTotalLinesNumber();
+
+    long getErrorLinesNumber();
+
+    Optional<Instant> findFirstErrorTimestamp();
+
+    Optional<Instant> findLastErrorTimestamp();
+
+    /**
+     * @return timestamp of the oldest record in window
+     */
+    Optional<Instant> findFirstTimestamp();
+
+    /**
+     * @return {@code true} if {@code other} window keeps the same records,
+     * so it behaves exactly like this window for any following lines
+     */
+    boolean hasSameContent(LogWindow other);
+
+    /**
+     * Writes records of window, e.g. into checkpoint.
+     */
+    void writeTo(DataOutput output) throws IOException;
+
+    /**
+     * Replaces records of window by records written by {@link #writeTo(DataOutput)} of window of the same size.
+     * @exception IllegalArgumentException if records were written by window of another size
+     */
+    void readFrom(DataInput input) throws IOException;
+}
@@ -4,76 +4,633 @@ import picocli.CommandLine;
 import picocli.CommandLine.*;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
-@Command(name = "analyze", mixinStandardHelpOptions = true)
+@Command(name = "analyze", mixinStandardHelpOptions = true, subcommands = {ConvertCommand.class, IndexCommand.class, ServeCommand.class, LoadCommand.class,
+        AggregateCommand.class, MergeCommand.class})
 public class Main implements Runnable {
-    @Option(names = {"-t", "--response-time"}, required = true, description = "Maximum response time ms")
-    double responseThreshold;
-    @Option(names = {"-u", "--availability"}, required = true, description = "Minimum availability %")
-    double availabilityThreshold;
+    // required for analysis only, so they are checked in run() and not by picocli, which requires them for subcommands too
+    @Option(names = {"-t", "--response-time"}, description = "Maximum response time ms. Required")
+    Double responseThreshold;
+    @Option(names = {"-u", "--availability"}, description = "Minimum availability %%. Required")
+    Double availabilityThreshold;
+    @Option(names = {"-z", "--zone"}, description = "Zone of printed time-points. Default: offset of the first log line")
+    ZoneId zone;
+    @Option(names = {"-w", "--window"}, description = "Window size in seconds. Default: ${DEFAULT-VALUE}")
+    long windowSeconds = 1;
+    @Option(names = {"--window-mode"}, description = "Window storage: ${COMPLETION-CANDIDATES}. Default: ${DEFAULT-VALUE}")
+    WindowMode windowMode = WindowMode.BUCKETED;
+    @Option(names = {"-f", "--file"}, description = "Log file to memory-map and parse in parallel instead of reading stdin, or columnar file of convert")
+    Path file;
+    @Option(names = {"--parallel"}, description = "Analyze segments of --file in parallel and stitch intervals")
+    boolean isParallel;
+    @Option(names = {"--segment-lines"}, description = "Lines per segment of --parallel analysis. Default: ${DEFAULT-VALUE}")
+    int segmentLines = ParallelLogAnalyzer.DEFAULT_SEGMENT_LINES;
+    @Option(names = {"--pipeline"}, description = "Read, parse and analyze stdin on separate threads")
+    boolean isPipeline;
+    @Option(names = {"--batch-size"}, description = "Lines per batch of --pipeline stages and of merged FILEs. Default: ${DEFAULT-VALUE}")
+    int batchSize = LogPipeline.DEFAULT_BATCH_SIZE;
+    @Option(names = {"--percentile"}, description = "Percentile of response times in window for SLO, e.g. 99. Requires --percentile-time")
+    Double percentile;
+    @Option(names = {"--percentile-time"}, description = "Maximum response time ms at --percentile, window fails if it is bigger")
+    Double percentileThreshold;
+    @Option(names = {"--percentiles"}, description = "Print p50, p95, p99 and max response time of every interval")
+    boolean isPercentilesReported;
+    @Option(names = {"--sweep"}, description = "Print number of intervals and downtime for every combination of swept thresholds instead of intervals")
+    boolean isSweep;
+    @Option(names = {"--sweep-response-times"}, split = ",", description = "Response thresholds ms of --sweep. Default: -t")
+    double[] sweptResponseThresholds;
+    @Option(names = {"--sweep-availabilities"}, split = ",", description = "Availability thresholds %% of --sweep. Default: -u")
+    double[] sweptAvailabilityThresholds;
+    @Option(names = {"--sweep-windows"}, split = ",", description = "Window sizes in seconds of --sweep. Default: -w")
+    long[] sweptWindowSeconds;
+    @Option(names = {"--follow"}, description = "Log file to follow like 'tail -F', surviving rotation and truncation")
+    Path followedFile;
+    @Option(names = {"--group-by"}, description = "Detect intervals separately for every ${COMPLETION-CANDIDATES} of stdin lines")
+    GroupKey groupKey;
+    @Option(names = {"--group-workers"}, description = "Threads of --group-by analysis. Default: number of processors")
+    int groupWorkers = Runtime.getRuntime().availableProcessors();
+    @Option(names = {"--group-idle"}, description = "Seconds without lines after which a key of --group-by is forgotten. Default: ${DEFAULT-VALUE}")
+    long groupIdleSeconds = GroupedLogAnalyzer.DEFAULT_IDLE_TIMEOUT.getSeconds();
+    @Option(names = {"--group-max-keys"}, description = "Maximum number of keys of --group-by kept at once. Default: ${DEFAULT-VALUE}")
+    int groupMaxKeys = GroupedLogAnalyzer.DEFAULT_MAX_KEYS;
+    @Option(names = {"--lateness"}, description = "Maximum delay ms of out-of-order lines. Lines are reordered by time, later lines are dropped and counted")
+    Long latenessMillis;
+    @Option(names = {"--from"}, description = "Analyze lines of --file from this time, e.g. 2017-06-14T16:47:00+10:00. Window is warmed up by lines of one window before")
+    OffsetDateTime from;
+    @Option(names = {"--to"}, description = "Analyze lines of --file until this time inclusive")
+    OffsetDateTime to;
+    @Option(names = {"--metrics"}, description = "Expose runtime metrics through JMX as " + AnalyzerMetrics.OBJECT_NAME)
+    boolean isMetricsEnabled;
+    @Option(names = {"--metrics-port"}, description = "Also serve metrics in Prometheus text format on http://localhost:PORT" + MetricsHttpServer.PATH)
+    Integer metricsPort;
+    @Option(names = {"--output-format"}, description = "Format of printed intervals: ${COMPLETION-CANDIDATES}. Default: ${DEFAULT-VALUE}")
+    OutputFormat outputFormat = OutputFormat.TEXT;
+    @Option(names = {"--full-dates"}, description = "Print time-points of TEXT intervals as date-times with offset instead of HH:mm:ss")
+    boolean isFullDates;
+    @Option(names = {"--top"}, description = "Print N most frequent paths and client IPs of error lines of every interval of stdin")
+    Integer topOffendersNumber;
+    @Option(names = {"--error-status"}, split = ",", description = "Statuses of error lines: codes, ranges like 500-504 or classes like 5xx. Default: 5xx")
+    List<String> errorStatuses;
+    @Option(names = {"--path-response-time"}, description = "Maximum response time ms of paths starting with prefix, e.g. /search=200. Requires stdin")
+    Map<String, Double> pathResponseThresholds = Map.of();
+    @Option(names = {"--ignore-agent"}, description = "Ignore lines whose user agent contains it, e.g. kube-probe. Requires stdin")
+    List<String> ignoredAgents = List.of();
+    @Option(names = {"--log-format"}, description = "nginx log_format of lines, e.g. '$remote_addr [$time_local] \"$request\" $status $request_time'. Default: format of the bundled logs")
+    String logFormatTemplate;
+    @Option(names = {"--checkpoint"}, description = "Periodically save position in --file or --follow and state of analysis into this file")
+    Path checkpointFile;
+    @Option(names = {"--checkpoint-interval"}, description = "Seconds between checkpoints. Default: ${DEFAULT-VALUE}")
+    long checkpointIntervalSeconds = 10;
+    @Option(names = {"--resume"}, description = "Restore state of analysis from --checkpoint and continue from its position")
+    boolean isResume;
+    @Parameters(paramLabel = "FILE", description = "Log files, plain or .gz, to merge by time instead of reading stdin. Every file must be ordered by time")
+    List<Path> mergedFiles = List.of();
+
+    /**
+     * Runtime metrics, {@code null} if they are not enabled
+     */
+    private AnalyzerMetrics metrics;
+
+    /**
+     * Buffered output of intervals of all analyzers, flushed after every batch and before blocking reads of input
+     */
+    private IntervalSink intervalSink;
+
+    /**
+     * Rules of error lines of all analyzers
+     */
+    private ErrorRules errorRules;
+
+    /**
+     * Format of lines of all inputs, {@code null} for the bundled logs format
+     */
+    private LogFormat logFormat;
+
+    /**
+     * Writer of checkpoints, {@code null} if they are not enabled
+     */
+    private CheckpointWriter checkpointWriter;
+
+    /**
+     * Offset of input from which analysis starts, not 0 if it is resumed
+     */
+    private long startOffset = 0;
 
     public static void main(String[] args) {
-        int exitCode = new CommandLine(new Main()).execute(args);
+        int exitCode = new CommandLine(new Main())
+                .setCaseInsensitiveEnumValuesAllowed(true)
+                .execute(args);
         System.exit(exitCode);
     }
 
     @Override
     public void run() {
-        runAnalysis(responseThreshold, availabilityThreshold);
+        if (responseThreshold == null || availabilityThreshold == null)
+            throw new ParameterException(new CommandLine(this), "Missing required options: '--response-time', '--availability'");
+
+        if ((percentile == null) != (percentileThreshold == null))
+            throw new ParameterException(new CommandLine(this), "--percentile and --percentile-time must be set together");
+
+        if (topOffendersNumber != null && topOffendersNumber <= 0)
+            throw new ParameterException(new CommandLine(this), "--top must be positive");
+
+        if (latenessMillis != null && latenessMillis < 0)
+            throw new ParameterException(new CommandLine(this), "--lateness must not be negative");
+
+        errorRules = createErrorRules();
+        if (logFormatTemplate != null) {
+            try {
+                logFormat = LogFormat.compile(logFormatTemplate);
+            } catch (IllegalArgumentException e) {
+                throw new ParameterException(new CommandLine(this), e.getMessage());
+            }
+            if (groupKey != null || topOffendersNumber != null || errorRules.hasLineRules())
+                throw new ParameterException(new CommandLine(this), "--log-format can not be used with --group-by, --top, --path-response-time or --ignore-agent, which find fields of the bundled logs format");
+        }
+        boolean isLineByLine = file == null && followedFile == null && !isPipeline && mergedFiles.isEmpty() &&
+                groupKey == null && !isSweep;
+        if (errorRules.hasLineRules() && !isLineByLine)
+            throw new ParameterException(new CommandLine(this), "--path-response-time and --ignore-agent read stdin line by line and can not be used with --file, --follow, --pipeline, FILE, --group-by or --sweep");
+        if (errorStatuses != null && isSweep)
+            throw new ParameterException(new CommandLine(this), "--error-status can not be used with --sweep");
+
+        if ((isMetricsEnabled || metricsPort != null) && (isParallel || isSweep))
+            throw new ParameterException(new CommandLine(this), "--metrics and --metrics-port can not be used with --parallel or --sweep");
+        MetricsHttpServer metricsHttpServer = startMetrics();
+        intervalSink = outputFormat.createSink(System.out, BufferedIntervalSink.DEFAULT_BUFFER_SIZE, isFullDates);
+
+        LogAnalyzer logAnalyzer = createLogAnalyzer(responseThreshold, availabilityThreshold);
+
+        if (isParallel && file == null)
+            throw new ParameterException(new CommandLine(this), "--parallel requires --file");
+
+        if (isPipeline && file != null)
+            throw new ParameterException(new CommandLine(this), "--pipeline reads stdin and can not be used with --file");
+
+        if (followedFile != null && (file != null || isPipeline))
+            throw new ParameterException(new CommandLine(this), "--follow can not be used with --file or --pipeline");
+
+        if (isSweep && (followedFile != null || isParallel))
+            throw new ParameterException(new CommandLine(this), "--sweep can not be used with --follow or --parallel");
+
+        if (!mergedFiles.isEmpty() && (file != null || followedFile != null || isPipeline || groupKey != null))
+            throw new ParameterException(new CommandLine(this), "FILE can not be used with --file, --follow, --pipeline or --group-by");
+
+        if (groupKey != null && (file != null || followedFile != null || isPipeline || isSweep))
+            throw new ParameterException(new CommandLine(this), "--group-by reads stdin and can not be used with --file, --follow, --pipeline or --sweep");
+
+        if (latenessMillis != null && (isParallel || isSweep || groupKey != null))
+            throw new ParameterException(new CommandLine(this), "--lateness can not be used with --parallel, --sweep or --group-by");
+
+        if ((from != null || to != null) && (file == null || isSweep))
+            throw new ParameterException(new CommandLine(this), "--from and --to require --file and can not be used with --sweep");
+        if (from != null) logAnalyzer.getIntervalProcessor().setPrintedFrom(from.toInstant());
+
+        if (topOffendersNumber != null && (file != null || followedFile != null || isPipeline || !mergedFiles.isEmpty() ||
+                groupKey != null || isSweep || latenessMillis != null))
+            throw new ParameterException(new CommandLine(this), "--top reads stdin line by line and can not be used with --file, --follow, --pipeline, FILE, --group-by, --sweep or --lateness");
+
+        if (checkpointFile != null && (file == null) == (followedFile == null))
+            throw new ParameterException(new CommandLine(this), "--checkpoint requires --file or --follow");
+        if (checkpointFile != null && (isParallel || isSweep || from != null || to != null))
+            throw new ParameterException(new CommandLine(this), "--checkpoint can not be used with --parallel, --sweep, --from or --to");
+        if (isResume && checkpointFile == null)
+            throw new ParameterException(new CommandLine(this), "--resume requires --checkpoint");
+        if (checkpointFile != null && !startCheckpoints(logAnalyzer, file != null ? file : followedFile)) return;
+
+        if (isSweep) runSweep();
+        else if (groupKey != null) runGroupedAnalysis();
+        else if (followedFile != null) runFollowAnalysis(logAnalyzer, followedFile);
+        else if (!mergedFiles.isEmpty()) runMergedAnalysis(logAnalyzer);
+        else if (isParallel) runParallelFileAnalysis(logAnalyzer.getIntervalProcessor(), file);
+        else if (file != null) runFileAnalysis(logAnalyzer, file);
+        else if (isPipeline) runPipelineAnalysis(logAnalyzer);
+        else runAnalysis(logAnalyzer);
+
+        if (logAnalyzer instanceof ReorderingLogAnalyzer reorderingLogAnalyzer) {
+            reorderingLogAnalyzer.flush();
+            if (reorderingLogAnalyzer.getLateLinesNumber() > 0)
+                System.err.printf("Late log lines dropped: %d%n", reorderingLogAnalyzer.getLateLinesNumber());
+        }
+        intervalSink.flush();
+        if (checkpointWriter != null) checkpointWriter.close();
+        logAnalyzer.publishMetrics();
+        if (metricsHttpServer != null) metricsHttpServer.close();
+    }
+
+    /**
+     * Creates {@link #metrics} and exposes them if metrics are enabled.
+     * @return started HTTP server or {@code null} if {@link #metricsPort} is not set
+     */
+    private MetricsHttpServer startMetrics(){
+        if (!isMetricsEnabled && metricsPort == null) return null;
+        metrics = new AnalyzerMetrics();
+        metrics.registerMBean();
+        if (metricsPort == null) return null;
+
+        try {
+            return new MetricsHttpServer(metrics, metricsPort);
+        } catch (IOException e) {
+            System.err.printf("Metrics server error: %s", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Creates {@link #checkpointWriter} and restores {@code logAnalyzer} from checkpoint if analysis is resumed.
+     * @return {@code false} if checkpoint can not be used
+     */
+    private boolean startCheckpoints(LogAnalyzer logAnalyzer, Path input){
+        try {
+            if (file != null && ColumnarLogReader.isColumnarLog(file)) {
+                System.err.printf("Checkpoint error: %s%n", "columnar log has no line offsets");
+                return false;
+            }
+            if (isResume) {
+                Optional<Checkpoint> checkpoint = Checkpoint.read(checkpointFile);
+                if (checkpoint.isEmpty()) {
+                    System.err.printf("No checkpoint %s, analysis starts from the beginning%n", checkpointFile);
+                } else if (Files.exists(input) && !checkpoint.get().getInputKey().equals(Checkpoint.inputKeyOf(input))) {
+                    System.err.printf("Checkpoint %s is of another file, analysis starts from the beginning%n", checkpointFile);
+                } else {
+                    checkpoint.get().restore(logAnalyzer);
+                    startOffset = checkpoint.get().getOffset();
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.printf("Checkpoint reading error: %s%n", e.getMessage());
+            return false;
+        }
+        checkpointWriter = new CheckpointWriter(checkpointFile);
+        return true;
     }
 
-    private void runAnalysis(
+    /**
+     * @exception ParameterException if a rule is malformed
+     */
+    private ErrorRules createErrorRules(){
+        try {
+            ErrorRules errorRules = new ErrorRules(responseThreshold);
+            if (errorStatuses != null) errorRules.setErrorStatuses(errorStatuses);
+            pathResponseThresholds.forEach(errorRules::setPathResponseThreshold);
+            ignoredAgents.forEach(errorRules::addIgnoredAgent);
+            return errorRules;
+        } catch (IllegalArgumentException e) {
+            throw new ParameterException(new CommandLine(this), e.getMessage());
+        }
+    }
+
+    private LogAnalyzer createLogAnalyzer(
             double responseThreshold,
             double availabilityThreshold){
 
         LogLinesProcessor logLinesProcessor = new LogLinesProcessor(
                 responseThreshold,
                 availabilityThreshold,
-                Duration.ofSeconds(1)
+                Duration.ofSeconds(windowSeconds),
+                windowMode
         );
+        if (percentile != null) logLinesProcessor.setPercentileSlo(percentile, percentileThreshold);
+        logLinesProcessor.setErrorRules(errorRules);
+
         IntervalProcessor intervalProcessor = new IntervalProcessor();
+        if (zone != null) intervalProcessor.setZone(zone);
+        intervalProcessor.setPercentilesReported(isPercentilesReported);
+        intervalProcessor.setSink(intervalSink);
+        if (topOffendersNumber != null) intervalProcessor.setTopOffenders(new TopOffenders(topOffendersNumber));
 
-        try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(System.in))) {
+        if (latenessMillis != null) {
+            LogAnalyzer logAnalyzer = new ReorderingLogAnalyzer(logLinesProcessor, intervalProcessor, Duration.ofMillis(latenessMillis));
+            logAnalyzer.setMetrics(metrics);
+            return logAnalyzer;
+        }
+        LogAnalyzer logAnalyzer = new LogAnalyzer(logLinesProcessor, intervalProcessor);
+        logAnalyzer.setMetrics(metrics);
+        return logAnalyzer;
+    }
 
-            boolean isWindowFailedBefore;
-            String inputLine;
-            LogLine logLine = new LogLine();
+    /**
+     * Reads lines from {@link System#in} one by one.
+     */
+    private void runAnalysis(LogAnalyzer logAnalyzer){
+        ByteLogLineParser logLineParser = new ByteLogLineParser(logFormat);
 
-            while ((inputLine = bufferedReader.readLine()) != null) {
-                if (inputLine.isBlank()) continue;
+        try (ByteLineReader lineReader = new ByteLineReader(System.in)) {
+            lineReader.setBeforeRead(intervalSink::flush);
 
-                isWindowFailedBefore = logLinesProcessor.isWindowFails();
+            boolean isZoneSet = zone != null;
+
+            while (lineReader.nextLine()) {
+                if (lineReader.isLineBlank()) continue;
 
                 try {
-                    logLine = LogLineParser.parseLogLine(inputLine);
+                    logLineParser.parse(lineReader.getBuffer(), lineReader.getLineStart(), lineReader.getLineEnd());
                 } catch (IllegalArgumentException e) {
                     System.err.printf("Wrong argument for parsing input line: %s", e);
+                    if (metrics != null) metrics.addParseErrors(1);
+                    continue;
                 }
 
+                if (!isZoneSet) {
+                    logAnalyzer.getIntervalProcessor().setZone(logLineParser.getZoneOffset());
+                    isZoneSet = true;
+                }
+
+                logAnalyzer.processLogLine(logLineParser, lineReader.getBuffer(), lineReader.getLineStart(), lineReader.getLineEnd());
+            }
+        } catch (IOException e) {
+            System.err.printf("Logs reading error: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Reads lines from {@link System#in} and analyzes every key of {@link #groupKey} separately.
+     * Intervals are printed with their key.
+     */
+    private void runGroupedAnalysis(){
+        GroupedLogAnalyzer groupedLogAnalyzer = new GroupedLogAnalyzer(
+                groupWorkers,
+                key -> {
+                    LogAnalyzer logAnalyzer = createLogAnalyzer(responseThreshold, availabilityThreshold);
+                    logAnalyzer.getIntervalProcessor().setLabel(key);
+                    return logAnalyzer;
+                },
+                Duration.ofSeconds(groupIdleSeconds),
+                groupMaxKeys
+        );
+        // workers print intervals, so they flush output when they have no more lines to analyze
+        groupedLogAnalyzer.setBeforeWait(intervalSink::flush);
+        ByteLogLineParser logLineParser = new ByteLogLineParser();
+
+        try (ByteLineReader lineReader = new ByteLineReader(System.in)) {
+            lineReader.setBeforeRead(() -> {
+                groupedLogAnalyzer.handOffBatches();
+                intervalSink.flush();
+            });
+            while (lineReader.nextLine()) {
+                if (lineReader.isLineBlank()) continue;
+
+                String key;
                 try {
-                    logLinesProcessor.processNewLogLine(logLine);
-                } catch (RuntimeException e) {
-                    System.err.printf("Processing log line error: %s", e);
+                    logLineParser.parse(lineReader.getBuffer(), lineReader.getLineStart(), lineReader.getLineEnd());
+                    key = groupKey.extract(lineReader.getBuffer(), lineReader.getLineStart(), lineReader.getLineEnd());
+                } catch (IllegalArgumentException e) {
+                    System.err.printf("Wrong argument for parsing input line: %s", e);
+                    if (metrics != null) metrics.addParseErrors(1);
                     continue;
                 }
 
-                if (logLinesProcessor.getHasLineErrors().test(logLine)) {
+                // analyzers of keys are created after the first line, so they take its zone
+                if (zone == null) zone = logLineParser.getZoneOffset();
 
-                    if (logLinesProcessor.isWindowFails() && !isWindowFailedBefore)
-                        intervalProcessor.beginNewInterval(logLinesProcessor.findFirstErrorTimestampInWindow()
-                                .orElseThrow(() -> new IllegalStateException("No error element found in window")));
-                    intervalProcessor.considerFailedLogLine();
-                } else {
+                groupedLogAnalyzer.processLogLine(
+                        key,
+                        logLineParser.getEpochMillis(),
+                        logLineParser.getStatusCode(),
+                        logLineParser.getResponseTime()
+                );
+            }
+        } catch (IOException e) {
+            System.err.printf("Logs reading error: %s", e.getMessage());
+        }
+        groupedLogAnalyzer.finish();
+    }
 
-                    intervalProcessor.considerCorrectLogLine();
-                    if (!logLinesProcessor.isWindowFails() && isWindowFailedBefore)
-                        intervalProcessor.endInterval(logLinesProcessor.findLastErrorTimestampInWindow()
-                                .orElse(logLinesProcessor.getWindow().getFirst().getTimestamp()));
-                }
+    /**
+     * Reads, parses and analyzes {@link System#in} on separate threads.
+     */
+    private void runPipelineAnalysis(LogAnalyzer logAnalyzer){
+        try {
+            LogPipeline logPipeline = new LogPipeline(System.in, batchSize, LogPipeline.DEFAULT_BATCHES_IN_FLIGHT);
+            logPipeline.setLogFormat(logFormat);
+            logPipeline.run(reportingBatches(logAnalyzer.getIntervalProcessor(), logAnalyzer::processBatch));
+        } catch (IOException e) {
+            System.err.printf("Logs reading error: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Merges lines of {@link #mergedFiles} by time, decompressing and parsing every file on its own thread.
+     */
+    private void runMergedAnalysis(LogAnalyzer logAnalyzer){
+        try {
+            LogMerger logMerger = new LogMerger(mergedFiles, batchSize, LogPipeline.DEFAULT_BATCHES_IN_FLIGHT);
+            logMerger.setLogFormat(logFormat);
+            logMerger.run(reportingBatches(logAnalyzer.getIntervalProcessor(), logAnalyzer::processBatch));
+        } catch (IOException e) {
+            System.err.printf("Logs reading error: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Reads input once and prints results of all swept combinations of thresholds.
+     */
+    private void runSweep(){
+        ThresholdSweep thresholdSweep = new ThresholdSweep(
+                sweptResponseThresholds != null ? sweptResponseThresholds : new double[]{responseThreshold},
+                sweptAvailabilityThresholds != null ? sweptAvailabilityThresholds : new double[]{availabilityThreshold},
+                Arrays.stream(sweptWindowSeconds != null ? sweptWindowSeconds : new long[]{windowSeconds})
+                        .mapToObj(Duration::ofSeconds)
+                        .toArray(Duration[]::new)
+        );
+
+        IntervalProcessor intervalProcessor = new IntervalProcessor();
+        if (file != null) {
+            if (!parseFile(file, intervalProcessor, thresholdSweep::processBatch)) return;
+        } else if (!mergedFiles.isEmpty()) {
+            try {
+                LogMerger logMerger = new LogMerger(mergedFiles, batchSize, LogPipeline.DEFAULT_BATCHES_IN_FLIGHT);
+                logMerger.setLogFormat(logFormat);
+                logMerger.run(reportingBatches(intervalProcessor, thresholdSweep::processBatch));
+            } catch (IOException e) {
+                System.err.printf("Logs reading error: %s", e.getMessage());
+                return;
             }
+        } else {
+            try {
+                LogPipeline logPipeline = new LogPipeline(System.in, batchSize, LogPipeline.DEFAULT_BATCHES_IN_FLIGHT);
+                logPipeline.setLogFormat(logFormat);
+                logPipeline.run(reportingBatches(intervalProcessor, thresholdSweep::processBatch));
+            } catch (IOException e) {
+                System.err.printf("Logs reading error: %s", e.getMessage());
+                return;
+            }
+        }
+
+        System.out.printf("%8s %12s %18s %10s %12s %14s%n",
+                "window_s", "response_ms", "availability_slo_%", "intervals", "downtime_s", "availability_%");
+        for (ThresholdSweep.Result result : thresholdSweep.evaluate(ForkJoinPool.commonPool())) {
+            System.out.printf("%8d %12s %18s %10d %12s %14s%n",
+                    result.windowSize().getSeconds(),
+                    result.responseThreshold(),
+                    result.availabilityThreshold(),
+                    result.intervalsNumber(),
+                    result.downtime().toMillis() / 1000.0,
+                    result.availability());
+        }
+    }
+
+    /**
+     * Follows {@code file} until the process is stopped, prints intervals as soon as they end.
+     */
+    private void runFollowAnalysis(LogAnalyzer logAnalyzer, Path file){
+        try (LogFollower logFollower = new LogFollower(file)) {
+            logFollower.setStartOffset(startOffset);
+            logFollower.setLogFormat(logFormat);
+            logFollower.run(reportingBatches(logAnalyzer.getIntervalProcessor(), checkpointing(logAnalyzer, file)));
         } catch (IOException e) {
             System.err.printf("Logs reading error: %s", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Parses memory-mapped {@code file} in parallel, analyzes batches in order of file.
+     */
+    private void runFileAnalysis(LogAnalyzer logAnalyzer, Path file){
+        parseFile(file, logAnalyzer.getIntervalProcessor(), checkpointing(logAnalyzer, file));
+    }
+
+    /**
+     * Parses memory-mapped {@code file} in parallel, analyzes segments of file in parallel.
+     */
+    private void runParallelFileAnalysis(IntervalProcessor intervalProcessor, Path file){
+        ParallelLogAnalyzer parallelLogAnalyzer = new ParallelLogAnalyzer(
+                responseThreshold,
+                availabilityThreshold,
+                Duration.ofSeconds(windowSeconds),
+                windowMode,
+                intervalProcessor,
+                ForkJoinPool.commonPool(),
+                segmentLines
+        );
+        if (percentile != null) parallelLogAnalyzer.setPercentileSlo(percentile, percentileThreshold);
+        parallelLogAnalyzer.setErrorRules(errorRules);
+
+        if (parseFile(file, intervalProcessor, parallelLogAnalyzer::processBatch)) parallelLogAnalyzer.finish();
+    }
+
+    /**
+     * @return {@code false} if file could not be read
+     */
+    private boolean parseFile(Path file, IntervalProcessor intervalProcessor, Consumer<LogLineBatch> consumer){
+        try {
+            Consumer<LogLineBatch> reportingConsumer = reportingBatches(intervalProcessor, consumer);
+            if (ColumnarLogReader.isColumnarLog(file)) {
+                new ColumnarLogReader(file).read(inTimeRange(reportingConsumer));
+                return true;
+            }
+
+            MappedLogFileParser mappedLogFileParser = new MappedLogFileParser(file);
+            mappedLogFileParser.setLogFormat(logFormat);
+            if (from == null && to == null) {
+                mappedLogFileParser.parse(reportingConsumer, startOffset, Long.MAX_VALUE);
+            } else {
+                long fromMillis = getWarmUpFromMillis();
+                long toMillis = getToMillis();
+                Optional<TimeIndex> timeIndex = TimeIndex.load(file);
+                long start = timeIndex.isPresent() ? timeIndex.get().findStart(fromMillis)
+                        : TimeIndex.findStart(file, fromMillis, logFormat);
+                long end = toMillis == Long.MAX_VALUE ? Long.MAX_VALUE
+                        : timeIndex.isPresent() ? timeIndex.get().findEnd(toMillis + 1)
+                        : TimeIndex.findEnd(file, toMillis + 1, logFormat);
+                mappedLogFileParser.parse(inTimeRange(reportingConsumer), start, end);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.printf("Logs reading error: %s", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Analyzes batches by {@code logAnalyzer} and submits checkpoint after batch if {@link #checkpointIntervalSeconds}
+     * passed since the previous one. The last batch of {@code --file} is always checkpointed.
+     * Intervals closed by batch are flushed before its checkpoint is submitted, so a durable checkpoint never
+     * skips intervals which are not printed yet.
+     */
+    private Consumer<LogLineBatch> checkpointing(LogAnalyzer logAnalyzer, Path input){
+        if (checkpointWriter == null) return logAnalyzer::processBatch;
+        long intervalNanos = Duration.ofSeconds(checkpointIntervalSeconds).toNanos();
+        long[] nextCheckpointNanos = {System.nanoTime() + intervalNanos};
+
+        return batch -> {
+            logAnalyzer.processBatch(batch);
+            if (batch.getEndOffset() < 0) return;
+
+            boolean isLastBatch = input.equals(file) && batch.getEndOffset() >= fileSize(input);
+            if (!isLastBatch && System.nanoTime() - nextCheckpointNanos[0] < 0) return;
+            nextCheckpointNanos[0] = System.nanoTime() + intervalNanos;
+            intervalSink.flush();
+            try {
+                // path of followed file may already point to the next file, which end offset does not belong to
+                String inputKey = batch.getFileKey() != null ? Checkpoint.inputKeyOf(input, batch.getFileKey())
+                        : Checkpoint.inputKeyOf(input);
+                checkpointWriter.submit(Checkpoint.of(logAnalyzer, inputKey, batch.getEndOffset()));
+            } catch (IOException | IllegalStateException e) {
+                System.err.printf("Checkpoint error: %s%n", e);
+            }
+        };
+    }
+
+    private static long fileSize(Path path){
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Wraps {@code consumer}: removes lines out of {@link #from} warmed up by one window and {@link #to}.
+     */
+    private Consumer<LogLineBatch> inTimeRange(Consumer<LogLineBatch> consumer){
+        if (from == null && to == null) return consumer;
+        long fromMillis = getWarmUpFromMillis();
+        long toMillis = getToMillis();
+        return batch -> {
+            batch.retainTimeRange(fromMillis, toMillis);
+            consumer.accept(batch);
+        };
+    }
+
+    private long getWarmUpFromMillis(){
+        return from == null ? Long.MIN_VALUE : from.toInstant().minusSeconds(windowSeconds).toEpochMilli();
+    }
+
+    private long getToMillis(){
+        return to == null ? Long.MAX_VALUE : to.toInstant().toEpochMilli();
+    }
+
+    /**
+     * Wraps {@code consumer}: reports parse errors of batches, sets zone of {@code intervalProcessor}
+     * from the first line and flushes intervals printed by batch.
+     */
+    private Consumer<LogLineBatch> reportingBatches(IntervalProcessor intervalProcessor, Consumer<LogLineBatch> consumer){
+        boolean[] isZoneSet = {zone != null};
+
+        return batch -> {
+            batch.getParseErrors().forEach(error ->
+                    System.err.printf("Wrong argument for parsing input line: %s", error));
+            if (metrics != null && !batch.getParseErrors().isEmpty()) metrics.addParseErrors(batch.getParseErrors().size());
+
+            if (!isZoneSet[0] && batch.getZoneOffset() != null) {
+                intervalProcessor.setZone(batch.getZoneOffset());
+                isZoneSet[0] = true;
+            }
+
+            consumer.accept(batch);
+            intervalSink.flush();
+        };
+    }
+}
@@ -0,0 +1,196 @@
+package com.pavelisaenko;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Parses log file in parallel. File is memory-mapped with {@link FileChannel#map} by regions,
+ * every region is split into newline-aligned chunks, chunks are parsed on {@link ForkJoinPool}
+ * into {@link LogLineBatch}es and batches are passed to consumer in order of file.
+ */
+public class MappedLogFileParser {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 22;
+
+    /**
+     * Maximum size of one mapping. {@link MappedByteBuffer} is limited by {@link Integer#MAX_VALUE}.
+     */
+    private static final int MAX_REGION_SIZE = 1 << 30;
+
+    /**
+     * Number of chunks per pool thread which are parsed ahead of consumer
+     */
+    private static final int CHUNKS_AHEAD_PER_THREAD = 2;
+
+    private final Path path;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final int maxRegionSize;
+    private LogFormat logFormat;
+
+    public MappedLogFileParser(Path path) {
+        this(path, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param path log file
+     * @param pool pool which parses chunks
+     * @param chunkSize approximate number of bytes in one chunk. Chunk always ends with a whole line.
+     */
+    public MappedLogFileParser(Path path, ForkJoinPool pool, int chunkSize) {
+        this(path, pool, chunkSize, MAX_REGION_SIZE);
+    }
+
+    MappedLogFileParser(Path path, ForkJoinPool pool, int chunkSize, int maxRegionSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size must be positive");
+        if (maxRegionSize < chunkSize) throw new IllegalArgumentException("Region size must not be less than chunk size");
+        this.path = path;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.maxRegionSize = maxRegionSize;
+    }
+
+    /**
+     * @param logFormat format of lines, {@code null} for the bundled logs format
+     */
+    public void setLogFormat(LogFormat logFormat) {
+        this.logFormat = logFormat;
+    }
+
+    /**
+     * Parses whole file.
+     * @param consumer receives batches in order of file, on the calling thread
+     * @exception IOException if file can not be read
+     * @exception IllegalStateException if file contains a line longer than mapping region
+     */
+    public void parse(Consumer<LogLineBatch> consumer) throws IOException {
+        parse(consumer, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Parses bytes {@code [from...to)} of file, e.g. a time range found by {@link TimeIndex}.
+     * @param from index of the first byte of a line
+     * @param to index after the last byte of a line, clipped to size of file
+     * @see #parse(Consumer)
+     */
+    public void parse(Consumer<LogLineBatch> consumer, long from, long to) throws IOException {
+        if (from < 0 || to < from) throw new IllegalArgumentException("Wrong range of file: " + from + "..." + to);
+        int maxChunksAhead = Math.max(1, pool.getParallelism() * CHUNKS_AHEAD_PER_THREAD);
+        ArrayDeque<ForkJoinTask<LogLineBatch>> chunksAhead = new ArrayDeque<>(maxChunksAhead);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long rangeEnd = Math.min(channel.size(), to);
+            long regionStart = from;
+
+            while (regionStart < rangeEnd) {
+                int regionSize = (int) Math.min(maxRegionSize, rangeEnd - regionStart);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionSize);
+                boolean isLastRegion = regionStart + regionSize == rangeEnd;
+                if (!isLastRegion) {
+                    regionSize = lastLineEnd(region, 0, regionSize);
+                    if (regionSize == 0)
+                        throw new IllegalStateException("Line at byte " + regionStart + " is longer than " + maxRegionSize);
+                }
+
+                int chunkStart = 0;
+                while (chunkStart < regionSize) {
+                    int chunkEnd = chunkStart + chunkSize >= regionSize
+                            ? regionSize
+                            : lastLineEnd(region, chunkStart, chunkStart + chunkSize);
+                    if (chunkEnd == chunkStart) chunkEnd = nextLineEnd(region, chunkStart + chunkSize, regionSize);
+
+                    if (chunksAhead.size() == maxChunksAhead) consumer.accept(chunksAhead.removeFirst().join());
+                    chunksAhead.addLast(pool.submit(new ChunkParsingTask(region, chunkStart, chunkEnd, regionStart + chunkEnd, logFormat)));
+                    chunkStart = chunkEnd;
+                }
+                regionStart += regionSize;
+            }
+
+            while (!chunksAhead.isEmpty()) consumer.accept(chunksAhead.removeFirst().join());
+        } finally {
+            chunksAhead.forEach(task -> task.cancel(false));
+        }
+    }
+
+    /**
+     * @return index after the last {@code \n} in {@code [from...to)} or {@code from} if there is none
+     */
+    private static int lastLineEnd(MappedByteBuffer buffer, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (buffer.get(i) == '\n') return i + 1;
+        }
+        return from;
+    }
+
+    /**
+     * @return index after the first {@code \n} in {@code [from...to)} or {@code to} if there is none
+     */
+    private static int nextLineEnd(MappedByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\n') return i + 1;
+        }
+        return to;
+    }
+
+    /**
+     * Parses lines of {@code [start...end)} of region into one batch.
+     */
+    private static class ChunkParsingTask implements Callable<LogLineBatch> {
+        private final MappedByteBuffer region;
+        private final int start;
+        private final int end;
+        /**
+         * Offset of {@code end} in file
+         */
+        private final long endOffset;
+        private final LogFormat logFormat;
+
+        private ChunkParsingTask(MappedByteBuffer region, int start, int end, long endOffset, LogFormat logFormat) {
+            this.region = region;
+            this.start = start;
+            this.end = end;
+            this.endOffset = endOffset;
+            this.logFormat = logFormat;
+        }
+
+        @Override
+        public LogLineBatch call() {
+            ByteLogLineParser parser = new ByteLogLineParser(logFormat);
+            LogLineBatch batch = new LogLineBatch(countLines());
+
+            int lineStart = start;
+            for (int i = start; i <= end; i++) {
+                if (i < end && region.get(i) != '\n') continue;
+
+                int lineEnd = i > lineStart && region.get(i - 1) == '\r' ? i - 1 : i;
+                if (!ByteLogLineParser.isBlank(region, lineStart, lineEnd)) {
+                    try {
+                        parser.parse(region, lineStart, lineEnd);
+                        batch.add(parser);
+                    } catch (IllegalArgumentException e) {
+                        batch.addParseError(e.toString());
+                    }
+                }
+                lineStart = i + 1;
+            }
+            batch.setEndOffset(endOffset);
+            return batch;
+        }
+
+        private int countLines() {
+            int lines = 1;
+            for (int i = start; i < end; i++) {
+                if (region.get(i) == '\n') lines++;
+            }
+            return lines;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.pavelisaenko;
+
+import picocli.CommandLine.*;
+import picocli.CommandLine.Model.CommandSpec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Combines per-second aggregates of many nodes, written by {@code aggregate}, and prints failing intervals
+ * of the whole cluster.
+ */
+@Command(name = "merge", mixinStandardHelpOptions = true,
+        description = "Merge per-second aggregates of many nodes and print failing intervals of the cluster")
+public class MergeCommand implements Runnable {
+    @Spec
+    CommandSpec spec;
+    @Option(names = {"-u", "--availability"}, required = true, description = "Minimum availability %%")
+    double availabilityThreshold;
+    @Option(names = {"-z", "--zone"}, description = "Zone of printed time-points. Default: offset of the first aggregate")
+    ZoneId zone;
+    @Option(names = {"-w", "--window"}, description = "Window size in seconds. Default: ${DEFAULT-VALUE}")
+    long windowSeconds = 1;
+    @Option(names = {"--window-mode"}, description = "Window storage: ${COMPLETION-CANDIDATES}. Default: ${DEFAULT-VALUE}")
+    WindowMode windowMode = WindowMode.BUCKETED;
+    @Option(names = {"--output-format"}, description = "Format of printed intervals: ${COMPLETION-CANDIDATES}. Default: ${DEFAULT-VALUE}")
+    OutputFormat outputFormat = OutputFormat.TEXT;
+    @Option(names = {"--full-dates"}, description = "Print time-points of TEXT intervals as date-times with offset instead of HH:mm:ss")
+    boolean isFullDates;
+    @Parameters(paramLabel = "FILE", arity = "1..*", description = "Files or named pipes of aggregates of nodes, - for stdin")
+    List<Path> files;
+
+    @Override
+    public void run() {
+        IntervalSink intervalSink = outputFormat.createSink(System.out, BufferedIntervalSink.DEFAULT_BUFFER_SIZE, isFullDates);
+        IntervalProcessor intervalProcessor = new IntervalProcessor();
+        intervalProcessor.setSink(intervalSink);
+        LogAnalyzer logAnalyzer;
+        try {
+            // response threshold is applied by nodes, so any valid value
+            logAnalyzer = new LogAnalyzer(new LogLinesProcessor(Double.MAX_VALUE, availabilityThreshold,
+                    Duration.ofSeconds(windowSeconds), windowMode), intervalProcessor);
+        } catch (IllegalArgumentException e) {
+            throw new ParameterException(spec.commandLine(), e.getMessage());
+        }
+        if (zone != null) intervalProcessor.setZone(zone);
+
+        List<InputStream> inputs = new ArrayList<>(files.size());
+        try {
+            for (Path file : files) inputs.add(file.toString().equals("-") ? System.in : Files.newInputStream(file));
+
+            AggregateMerger merger = new AggregateMerger(inputs);
+            boolean[] isZoneSet = {zone != null};
+            merger.run(aggregate -> {
+                if (!isZoneSet[0]) {
+                    intervalProcessor.setZone(ZoneOffset.ofTotalSeconds(aggregate.offsetSeconds()));
+                    isZoneSet[0] = true;
+                }
+                logAnalyzer.processAggregate(aggregate);
+            });
+            System.err.printf("Merged aggregates: %d of %d inputs%n", merger.getAggregatesNumber(), inputs.size());
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.printf("Aggregates reading error: %s%n", e.getMessage());
+        } finally {
+            intervalSink.flush();
+            for (InputStream input : inputs) {
+                try {
+                    input.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.pavelisaenko;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Exact window for windows of millions of lines. Keeps every line in order of arrival in primitive columns
+ * (epoch millis, response time and error flag) of direct {@link ByteBuffer} segments, so lines are neither
+ * objects nor parts of heap arrays which collector copies, and heap use does not depend on window size.
+ * <p>
+ * Lines are numbered by sequence number since creation of window. Line {@code s} is in slot
+ * {@code s % segmentLines} of segment {@code s / segmentLines}, and segments are a ring: a segment is reused
+ * as soon as all its lines are evicted, and a full ring is doubled by moving segment references, never lines.
+ * Sequence numbers of error lines are kept in their own ring, so the first and the last errors are found
+ * in constant time instead of by a scan of window.
+ * <p>
+ * Segments are sized by window size, from {@link #MIN_SEGMENT_LINES} lines of a window of a second to
+ * {@link #MAX_SEGMENT_LINES} lines of windows of minutes, so thousands of small windows, e.g. of keys of
+ * {@link GroupedLogAnalyzer} or segments of {@link ParallelLogAnalyzer}, take a few hundred bytes each and
+ * a huge window grows by number of segments. Direct memory is released by collector when window becomes
+ * unreachable, its maximum is set by {@code -XX:MaxDirectMemorySize}.
+ */
+public class OffHeapLogWindow implements LogWindow {
+
+    static final int MIN_SEGMENT_LINES = 16;
+    static final int MAX_SEGMENT_LINES = 1 << 13;
+
+    /**
+     * Records per second the first segment is sized for, an eighth of them fits into it
+     */
+    private static final int EXPECTED_LINES_PER_SECOND = 80;
+
+    /**
+     * Bytes of a line in columns of segment: epoch millis, response time and error flag
+     */
+    private static final int LINE_BYTES = Long.BYTES + Double.BYTES + 1;
+
+    private final int segmentShift;
+    private final int segmentMask;
+
+    private ByteBuffer[] segments = new ByteBuffer[1];
+
+    // lines of window are [head...tail) in order of sequence numbers
+    private long head = 0;
+    private long tail = 0;
+
+    // sequence numbers of error lines of window, error i counted from the oldest one is at
+    // index (errorHead + i) & (errorSequences.length - 1)
+    private long[] errorSequences = new long[16];
+    private int errorHead = 0;
+    private int errorLinesNumber = 0;
+
+    public OffHeapLogWindow(Duration windowSize) {
+        this(segmentLinesOf(windowSize));
+    }
+
+    /**
+     * @param segmentLines number of lines of segment, power of two
+     */
+    OffHeapLogWindow(int segmentLines) {
+        if (segmentLines <= 0 || Integer.bitCount(segmentLines) != 1)
+            throw new IllegalArgumentException("Lines of segment must be a power of two");
+        segmentShift = Integer.numberOfTrailingZeros(segmentLines);
+        segmentMask = segmentLines - 1;
+    }
+
+    @Override
+    public void add(long epochMillis, boolean isError, double responseTime) {
+        int slot = (int) tail & segmentMask;
+        if (slot == 0 && (tail >>> segmentShift) - (head >>> segmentShift) == segments.length) grow();
+        ByteBuffer segment = segmentOf(tail);
+        if (segment == null) segment = allocateSegment(tail);
+
+        int lines = segmentMask + 1;
+        segment.putLong(slot * Long.BYTES, epochMillis);
+        segment.putDouble(lines * Long.BYTES + slot * Double.BYTES, responseTime);
+        segment.put(lines * (Long.BYTES + Double.BYTES) + slot, isError ? (byte) 1 : 0);
+
+        if (isError) {
+            if (errorLinesNumber == errorSequences.length) growErrorSequences();
+            errorSequences[(errorHead + errorLinesNumber) & (errorSequences.length - 1)] = tail;
+            errorLinesNumber++;
+        }
+        tail++;
+    }
+
+    @Override
+    public void evictBefore(long cutoffMillis) {
+        while (head < tail && epochMillisOf(head) < cutoffMillis) {
+            if (errorLinesNumber > 0 && errorSequences[errorHead] == head) {
+                errorHead = (errorHead + 1) & (errorSequences.length - 1);
+                errorLinesNumber--;
+            }
+            head++;
+        }
+    }
+
+    @Override
+    public long getTotalLinesNumber() {
+        return tail - head;
+    }
+
+    @Override
+    public long getErrorLinesNumber() {
+        return errorLinesNumber;
+    }
+
+    @Override
+    public Optional<Instant> findFirstErrorTimestamp() {
+        if (errorLinesNumber == 0) return Optional.empty();
+        return Optional.of(Instant.ofEpochMilli(epochMillisOf(errorSequences[errorHead])));
+    }
+
+    @Override
+    public Optional<Instant> findLastErrorTimestamp() {
+        if (errorLinesNumber == 0) return Optional.empty();
+        long sequence = errorSequences[(errorHead + errorLinesNumber - 1) & (errorSequences.length - 1)];
+        return Optional.of(Instant.ofEpochMilli(epochMillisOf(sequence)));
+    }
+
+    @Override
+    public Optional<Instant> findFirstTimestamp() {
+        if (head == tail) return Optional.empty();
+        return Optional.of(Instant.ofEpochMilli(epochMillisOf(head)));
+    }
+
+    @Override
+    public boolean hasSameContent(LogWindow other) {
+        if (!(other instanceof OffHeapLogWindow otherWindow)) return false;
+        if (getTotalLinesNumber() != otherWindow.getTotalLinesNumber() || errorLinesNumber != otherWindow.errorLinesNumber)
+            return false;
+
+        for (long i = 0; i < getTotalLinesNumber(); i++) {
+            if (epochMillisOf(head + i) != otherWindow.epochMillisOf(otherWindow.head + i) ||
+                    isErrorOf(head + i) != otherWindow.isErrorOf(otherWindow.head + i))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeLong(getTotalLinesNumber());
+        for (long sequence = head; sequence < tail; sequence++) {
+            output.writeLong(epochMillisOf(sequence));
+            output.writeBoolean(isErrorOf(sequence));
+            output.writeDouble(responseTimeOf(sequence));
+        }
+    }
+
+    @Override
+    public void readFrom(DataInput input) throws IOException {
+        head = 0;
+        tail = 0;
+        errorHead = 0;
+        errorLinesNumber = 0;
+        long size = input.readLong();
+        for (long i = 0; i < size; i++) add(input.readLong(), input.readBoolean(), input.readDouble());
+    }
+
+    /**
+     * @return power of two between {@link #MIN_SEGMENT_LINES} and {@link #MAX_SEGMENT_LINES} near an eighth
+     * of expected lines of window
+     */
+    static int segmentLinesOf(Duration windowSize) {
+        long expectedLines = Math.max(windowSize.getSeconds(), 1) * EXPECTED_LINES_PER_SECOND / 8;
+        int segmentLines = Integer.highestOneBit((int) Math.min(expectedLines, MAX_SEGMENT_LINES));
+        return Math.max(segmentLines, MIN_SEGMENT_LINES);
+    }
+
+    private ByteBuffer segmentOf(long sequence) {
+        return segments[(int) (sequence >>> segmentShift) & (segments.length - 1)];
+    }
+
+    private ByteBuffer allocateSegment(long sequence) {
+        ByteBuffer segment = ByteBuffer.allocateDirect((segmentMask + 1) * LINE_BYTES).order(ByteOrder.nativeOrder());
+        segments[(int) (sequence >>> segmentShift) & (segments.length - 1)] = segment;
+        return segment;
+    }
+
+    private long epochMillisOf(long sequence) {
+        return segmentOf(sequence).getLong(((int) sequence & segmentMask) * Long.BYTES);
+    }
+
+    private double responseTimeOf(long sequence) {
+        return segmentOf(sequence).getDouble((segmentMask + 1) * Long.BYTES + ((int) sequence & segmentMask) * Double.BYTES);
+    }
+
+    private boolean isErrorOf(long sequence) {
+        return segmentOf(sequence).get((segmentMask + 1) * (Long.BYTES + Double.BYTES) + ((int) sequence & segmentMask)) != 0;
+    }
+
+    /**
+     * Doubles ring of segments. All segments are in use, they are moved to their slots in the new ring.
+     */
+    private void grow() {
+        if (segments.length == 1 << 30) throw new IllegalStateException("Off-heap window can not keep more lines");
+        ByteBuffer[] grownSegments = new ByteBuffer[segments.length * 2];
+        for (long segment = head >>> segmentShift; segment < tail >>> segmentShift; segment++) {
+            grownSegments[(int) segment & (grownSegments.length - 1)] = segments[(int) segment & (segments.length - 1)];
+        }
+        segments = grownSegments;
+    }
+
+    /**
+     * Doubles ring of error sequence numbers and moves them to its beginning.
+     */
+    private void growErrorSequences() {
+        if (errorSequences.length == 1 << 30) throw new IllegalStateException("Off-heap window can not keep more errors");
+        long[] grownErrorSequences = new long[errorSequences.length * 2];
+        int firstPart = errorSequences.length - errorHead;
+        System.arraycopy(errorSequences, errorHead, grownErrorSequences, 0, firstPart);
+        System.arraycopy(errorSequences, 0, grownErrorSequences, firstPart, errorHead);
+        errorSequences = grownErrorSequences;
+        errorHead = 0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.pavelisaenko;
+
+import java.io.OutputStream;
+
+/**
+ * Formats of printed intervals.
+ */
+public enum OutputFormat {
+    /**
+     * {@code 16:47:02 16:47:05 50.0}, see {@link TextIntervalSink}
+     */
+    TEXT {
+        @Override
+        public IntervalSink createSink(OutputStream outputStream, int bufferSize, boolean fullDates) {
+            return new TextIntervalSink(outputStream, bufferSize, fullDates);
+        }
+    },
+    /**
+     * JSON Lines with full dates and epoch millis, see {@link JsonIntervalSink}
+     */
+    JSON {
+        @Override
+        public IntervalSink createSink(OutputStream outputStream, int bufferSize, boolean fullDates) {
+            return new JsonIntervalSink(outputStream, bufferSize);
+        }
+    },
+    /**
+     * CSV with header, full dates and epoch millis, see {@link CsvIntervalSink}
+     */
+    CSV {
+        @Override
+        public IntervalSink createSink(OutputStream outputStream, int bufferSize, boolean fullDates) {
+            return new CsvIntervalSink(outputStream, bufferSize);
+        }
+    };
+
+    /**
+     * @param fullDates print date-times instead of times of day; JSON and CSV always print them
+     */
+    public abstract IntervalSink createSink(OutputStream outputStream, int bufferSize, boolean fullDates);
+}
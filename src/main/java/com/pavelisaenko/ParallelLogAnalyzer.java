@@ -0,0 +1,255 @@
+package com.pavelisaenko;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Divide-and-conquer version of {@link LogAnalyzer} for time-ordered input.
+ * <p>
+ * Input is split into segments of about {@link #segmentLines} lines. Every segment is analyzed on
+ * {@link ForkJoinPool} by its own {@link LogAnalyzer}: the window is warmed with the lines of the previous
+ * segments which still belong to the window, and calls to {@link IntervalProcessor} are recorded by
+ * {@link RecordingIntervalProcessor}. Recorded calls are replayed to the target {@link IntervalProcessor}
+ * in order of segments, so intervals crossing segment borders are merged and their counters are summed
+ * exactly like in a sequential run.
+ * <p>
+ * Before replay the warmed window of every segment is compared with the final window of the previous one.
+ * If they differ (lines are out of order near the border), the segment is analyzed again sequentially,
+ * so output always matches {@link LogAnalyzer}.
+ */
+public class ParallelLogAnalyzer {
+
+    public static final int DEFAULT_SEGMENT_LINES = 1 << 18;
+
+    /**
+     * Number of segments per pool thread which are analyzed ahead of replay
+     */
+    private static final int SEGMENTS_AHEAD_PER_THREAD = 2;
+
+    private final double responseThreshold;
+    private final double availabilityThreshold;
+    private final Duration windowSize;
+    private final WindowMode windowMode;
+    private final IntervalProcessor intervalProcessor;
+    private final ForkJoinPool pool;
+    private final int segmentLines;
+    private final int maxSegmentsAhead;
+
+    private double percentile = 0;
+    private double percentileThreshold = 0;
+    private ErrorRules errorRules;
+
+    /**
+     * Batches of the current segment
+     */
+    private List<LogLineBatch> segmentBatches = new ArrayList<>();
+    private int segmentSize = 0;
+
+    /**
+     * Tail of already submitted batches which may be needed to warm the window of the next segment
+     */
+    private final ArrayDeque<LogLineBatch> history = new ArrayDeque<>();
+
+    private final ArrayDeque<ForkJoinTask<Segment>> segmentsAhead = new ArrayDeque<>();
+
+    /**
+     * Final processor of the last replayed segment
+     */
+    private LogLinesProcessor lastProcessor;
+
+    private int resegmentedNumber = 0;
+
+    /**
+     * @param intervalProcessor receives the same calls as from sequential {@link LogAnalyzer}
+     * @param pool pool which analyzes segments
+     * @param segmentLines minimum number of lines in segment. Should be much bigger than number of lines in window.
+     * @see LogLinesProcessor#LogLinesProcessor(double, double, Duration, WindowMode)
+     */
+    public ParallelLogAnalyzer(double responseThreshold, double availabilityThreshold, Duration windowSize,
+                               WindowMode windowMode, IntervalProcessor intervalProcessor,
+                               ForkJoinPool pool, int segmentLines) {
+        if (segmentLines <= 0) throw new IllegalArgumentException("Segment size must be positive");
+        // validates parameters before any segment is submitted
+        new LogLinesProcessor(responseThreshold, availabilityThreshold, windowSize, windowMode);
+
+        this.responseThreshold = responseThreshold;
+        this.availabilityThreshold = availabilityThreshold;
+        this.windowSize = windowSize;
+        this.windowMode = windowMode;
+        this.intervalProcessor = intervalProcessor;
+        this.pool = pool;
+        this.segmentLines = segmentLines;
+        this.maxSegmentsAhead = Math.max(1, pool.getParallelism() * SEGMENTS_AHEAD_PER_THREAD);
+    }
+
+    /**
+     * Sets rules of error lines of all segments. Must be set before batches are processed.
+     * Rules of paths and agents can not be applied to batches.
+     * @see LogLinesProcessor#setErrorRules(ErrorRules)
+     */
+    public void setErrorRules(ErrorRules errorRules) {
+        if (errorRules.hasLineRules()) throw new IllegalArgumentException("Rules of paths and agents need lines, not batches");
+        this.errorRules = errorRules;
+    }
+
+    /**
+     * Sets percentile SLO of all segments. Must be set before batches are processed.
+     * @see LogLinesProcessor#setPercentileSlo(double, double)
+     */
+    public void setPercentileSlo(double percentile, double percentileThreshold) {
+        // validates parameters before any segment is submitted
+        createLogLinesProcessor().setPercentileSlo(percentile, percentileThreshold);
+
+        this.percentile = percentile;
+        this.percentileThreshold = percentileThreshold;
+    }
+
+    /**
+     * Adds batch to the current segment. Batches must be passed in order of input and must not be changed later.
+     */
+    public void processBatch(LogLineBatch batch) {
+        if (batch.getSize() == 0) return;
+        segmentBatches.add(batch);
+        segmentSize += batch.getSize();
+        if (segmentSize >= segmentLines) submitSegment();
+    }
+
+    /**
+     * Analyzes the rest of input and replays all segments.
+     */
+    public void finish() {
+        if (segmentSize > 0) submitSegment();
+        while (!segmentsAhead.isEmpty()) replay(segmentsAhead.removeFirst().join());
+    }
+
+    /**
+     * @return number of segments which were analyzed sequentially because their warmed window was not exact
+     */
+    public int getResegmentedNumber() {
+        return resegmentedNumber;
+    }
+
+    private void submitSegment() {
+        Segment segment = new Segment(segmentBatches, collectWarmUp());
+        history.addAll(segmentBatches);
+        segmentBatches = new ArrayList<>();
+        segmentSize = 0;
+
+        if (segmentsAhead.size() == maxSegmentsAhead) replay(segmentsAhead.removeFirst().join());
+        segmentsAhead.addLast(pool.submit(segment::analyze, segment));
+    }
+
+    /**
+     * Copies the longest tail of {@link #history} where all lines belong to the window of its last line.
+     * Batches before this tail are not needed any more and are removed from history.
+     * @return lines of tail, {@code null} for the first segment
+     */
+    private LogLineBatch collectWarmUp() {
+        if (history.isEmpty()) return null;
+
+        LogLineBatch lastBatch = history.getLast();
+        long lastMillis = lastBatch.getEpochMillis()[lastBatch.getSize() - 1];
+        // bucketed window keeps whole seconds, extra lines are evicted by exact window during warm-up
+        long cutoffMillis = Math.floorDiv(lastMillis - windowSize.toMillis(), 1000) * 1000;
+
+        int warmUpSize = 0;
+        int firstBatchStart = 0;
+        int batchesInTail = 0;
+        Iterator<LogLineBatch> iterator = history.descendingIterator();
+        tail:
+        while (iterator.hasNext()) {
+            LogLineBatch batch = iterator.next();
+            batchesInTail++;
+            long[] epochMillis = batch.getEpochMillis();
+            for (int i = batch.getSize() - 1; i >= 0; i--) {
+                if (epochMillis[i] < cutoffMillis) {
+                    firstBatchStart = i + 1;
+                    break tail;
+                }
+                warmUpSize++;
+            }
+        }
+        while (history.size() > batchesInTail) history.removeFirst();
+
+        LogLineBatch warmUp = new LogLineBatch(Math.max(warmUpSize, 1));
+        int start = firstBatchStart;
+        for (LogLineBatch batch : history) {
+            for (int i = start; i < batch.getSize(); i++) {
+                warmUp.add(batch.getEpochMillis()[i], batch.getStatusCodes()[i], batch.getResponseTimes()[i]);
+            }
+            start = 0;
+        }
+        return warmUp;
+    }
+
+    private void replay(Segment segment) {
+        if (lastProcessor != null && !lastProcessor.hasSameContent(segment.warmedProcessor)) {
+            segment.analyzeFrom(lastProcessor);
+            resegmentedNumber++;
+        }
+        segment.recorder.replayTo(intervalProcessor);
+        lastProcessor = segment.processor;
+    }
+
+    private LogLinesProcessor createLogLinesProcessor() {
+        LogLinesProcessor processor =
+                new LogLinesProcessor(responseThreshold, availabilityThreshold, windowSize, windowMode);
+        if (percentile > 0) processor.setPercentileSlo(percentile, percentileThreshold);
+        if (errorRules != null) processor.setErrorRules(errorRules);
+        return processor;
+    }
+
+    /**
+     * Lines of segment and results of their analysis.
+     */
+    private class Segment {
+        private final List<LogLineBatch> batches;
+        private final LogLineBatch warmUp;
+
+        private LogLinesProcessor processor;
+        private RecordingIntervalProcessor recorder;
+        /**
+         * Copy of processor right after warm-up
+         */
+        private LogLinesProcessor warmedProcessor;
+
+        private Segment(List<LogLineBatch> batches, LogLineBatch warmUp) {
+            this.batches = batches;
+            this.warmUp = warmUp;
+        }
+
+        private void analyze() {
+            LogLinesProcessor processor = createLogLinesProcessor();
+            if (warmUp != null) {
+                LogLinesProcessor warmedCopy = createLogLinesProcessor();
+                warm(processor);
+                warm(warmedCopy);
+                warmedProcessor = warmedCopy;
+            }
+            analyzeFrom(processor);
+        }
+
+        private void analyzeFrom(LogLinesProcessor processor) {
+            this.processor = processor;
+            this.recorder = new RecordingIntervalProcessor();
+            recorder.setPercentilesReported(intervalProcessor.isPercentilesReported());
+            LogAnalyzer logAnalyzer = new LogAnalyzer(processor, recorder);
+            for (LogLineBatch batch : batches) logAnalyzer.processBatch(batch);
+        }
+
+        private void warm(LogLinesProcessor processor) {
+            for (int i = 0; i < warmUp.getSize(); i++) {
+                processor.processNewLogLine(
+                        warmUp.getEpochMillis()[i],
+                        warmUp.getStatusCodes()[i],
+                        warmUp.getResponseTimes()[i]
+                );
+            }
+        }
+    }
+}
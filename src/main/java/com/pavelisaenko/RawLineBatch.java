@@ -0,0 +1,63 @@
+package com.pavelisaenko;
+
+import lombok.Getter;
+
+/**
+ * Batch of raw lines copied into one byte buffer. Line {@code i} is {@code data[lineStarts[i]...lineEnds[i])}.
+ */
+@Getter
+public class RawLineBatch {
+
+    private static final int EXPECTED_LINE_LENGTH = 160;
+
+    private byte[] data;
+    private final int[] lineStarts;
+    private final int[] lineEnds;
+    private int size = 0;
+    private int dataSize = 0;
+
+    /**
+     * @param capacity maximum number of lines in batch
+     */
+    public RawLineBatch(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Batch capacity must be positive");
+        data = new byte[capacity * EXPECTED_LINE_LENGTH];
+        lineStarts = new int[capacity];
+        lineEnds = new int[capacity];
+    }
+
+    public int getCapacity() {
+        return lineStarts.length;
+    }
+
+    public boolean isFull() {
+        return size == lineStarts.length;
+    }
+
+    /**
+     * Copies {@code source[from...to)} as the next line.
+     * @exception IllegalStateException if batch is full
+     */
+    public void add(byte[] source, int from, int to) {
+        if (isFull()) throw new IllegalStateException("Batch is full");
+        int length = to - from;
+        if (dataSize + length > data.length) {
+            byte[] grown = new byte[Math.max(data.length * 2, dataSize + length)];
+            System.arraycopy(data, 0, grown, 0, dataSize);
+            data = grown;
+        }
+        System.arraycopy(source, from, data, dataSize, length);
+        lineStarts[size] = dataSize;
+        lineEnds[size] = dataSize + length;
+        dataSize += length;
+        size++;
+    }
+
+    /**
+     * Removes all lines, so batch can be reused.
+     */
+    public void clear() {
+        size = 0;
+        dataSize = 0;
+    }
+}
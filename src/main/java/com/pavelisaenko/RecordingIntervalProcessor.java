@@ -0,0 +1,101 @@
+package com.pavelisaenko;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records calls instead of processing them, so they can be replayed later to another {@link IntervalProcessor}.
+ * Consecutive {@code consider...} calls are stored as one event with counters.
+ */
+public class RecordingIntervalProcessor extends IntervalProcessor {
+
+    /**
+     * Recorded call. {@code time} is set for {@link Type#BEGIN} and {@link Type#END},
+     * {@code correctLines} and {@code failedLines} are set for {@link Type#CONSIDER}.
+     * {@code responseTimes} of {@link Type#CONSIDER} is set if percentiles are reported.
+     */
+    public record Event(Type type, Instant time, int correctLines, int failedLines, LatencyHistogram responseTimes) {
+        public enum Type {BEGIN, END, CONSIDER}
+    }
+
+    private final List<Event> events = new ArrayList<>();
+    private int pendingCorrectLines = 0;
+    private int pendingFailedLines = 0;
+    private LatencyHistogram pendingResponseTimes;
+
+    @Override
+    public void beginNewInterval(Instant beginTime) {
+        flushPendingLines();
+        events.add(new Event(Event.Type.BEGIN, beginTime, 0, 0, null));
+    }
+
+    @Override
+    public void endInterval(Instant endTime) {
+        flushPendingLines();
+        events.add(new Event(Event.Type.END, endTime, 0, 0, null));
+    }
+
+    @Override
+    public void considerCorrectLogLine() {
+        pendingCorrectLines++;
+    }
+
+    @Override
+    public void considerFailedLogLine() {
+        pendingFailedLines++;
+    }
+
+    @Override
+    public void considerLogLines(int correctLines, int failedLines) {
+        pendingCorrectLines += correctLines;
+        pendingFailedLines += failedLines;
+    }
+
+    @Override
+    public void considerResponseTime(double responseTime) {
+        if (!isPercentilesReported()) return;
+        if (pendingResponseTimes == null) pendingResponseTimes = new LatencyHistogram();
+        pendingResponseTimes.record(responseTime);
+    }
+
+    @Override
+    public void considerResponseTimes(LatencyHistogram histogram) {
+        if (!isPercentilesReported()) return;
+        if (pendingResponseTimes == null) pendingResponseTimes = new LatencyHistogram();
+        pendingResponseTimes.add(histogram);
+    }
+
+    /**
+     * @return all calls recorded so far
+     */
+    public List<Event> getEvents() {
+        flushPendingLines();
+        return events;
+    }
+
+    /**
+     * Repeats recorded calls on {@code target} in the same order.
+     */
+    public void replayTo(IntervalProcessor target) {
+        for (Event event : getEvents()) {
+            switch (event.type()) {
+                case BEGIN -> target.beginNewInterval(event.time());
+                case END -> target.endInterval(event.time());
+                case CONSIDER -> {
+                    target.considerLogLines(event.correctLines(), event.failedLines());
+                    if (event.responseTimes() != null) target.considerResponseTimes(event.responseTimes());
+                }
+            }
+        }
+    }
+
+    private void flushPendingLines() {
+        if (pendingCorrectLines == 0 && pendingFailedLines == 0 && pendingResponseTimes == null) return;
+        events.add(new Event(Event.Type.CONSIDER, null, pendingCorrectLines, pendingFailedLines,
+                pendingResponseTimes));
+        pendingCorrectLines = 0;
+        pendingFailedLines = 0;
+        pendingResponseTimes = null;
+    }
+}
@@ -0,0 +1,202 @@
+package com.pavelisaenko;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * {@link LogAnalyzer} for input which is ordered by time only approximately, e.g. nginx writes lines at request
+ * completion. Lines are kept in a binary heap ordered by time and passed to analysis when watermark passes them.
+ * <p>
+ * Watermark is the newest time of input minus lateness, so the heap keeps only lines of the last lateness
+ * interval: memory is bounded by rate of lines multiplied by lateness, every line costs O(log n).
+ * Lines older than watermark can not be analyzed in order any more; they are dropped and counted as late.
+ * Lines with equal time are analyzed in order of input.
+ */
+public class ReorderingLogAnalyzer extends LogAnalyzer {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final long latenessMillis;
+
+    /**
+     * Heap of buffered lines: element {@code i} has children {@code 2 * i + 1} and {@code 2 * i + 2}
+     */
+    private long[] epochMillis = new long[64];
+    private long[] sequenceNumbers = new long[64];
+    private boolean[] errors = new boolean[64];
+    private double[] responseTimes = new double[64];
+    private int size = 0;
+
+    private long nextSequenceNumber = 0;
+    private long watermark = EMPTY;
+    private long lateLinesNumber = 0;
+
+    /**
+     * @param lateness maximum delay of line after newer lines
+     */
+    public ReorderingLogAnalyzer(LogLinesProcessor logLinesProcessor, IntervalProcessor intervalProcessor,
+                                 Duration lateness) {
+        super(logLinesProcessor, intervalProcessor);
+        if (lateness.isNegative()) throw new IllegalArgumentException("Lateness must not be negative");
+        this.latenessMillis = lateness.toMillis();
+    }
+
+    /**
+     * Buffers line with its class and analyzes buffered lines which are not newer than watermark.
+     */
+    @Override
+    public void processClassifiedLogLine(long epochMillis, boolean isError, double responseTime) {
+        if (watermark != EMPTY && epochMillis < watermark) {
+            lateLinesNumber++;
+            return;
+        }
+
+        push(epochMillis, isError, responseTime);
+        long newWatermark = epochMillis - latenessMillis;
+        if (newWatermark > watermark) {
+            watermark = newWatermark;
+            releaseUntil(watermark);
+        }
+    }
+
+    /**
+     * Analyzes all buffered lines, e.g. at the end of input.
+     */
+    public void flush() {
+        releaseUntil(Long.MAX_VALUE);
+    }
+
+    /**
+     * @return number of dropped lines which came after watermark
+     */
+    public long getLateLinesNumber() {
+        return lateLinesNumber;
+    }
+
+    /**
+     * @return number of buffered lines
+     */
+    public int getBufferedLinesNumber() {
+        return size;
+    }
+
+    /**
+     * Writes state of analysis followed by lateness, buffered lines in order of heap, watermark and counters.
+     */
+    @Override
+    public void writeTo(DataOutput output) throws IOException {
+        super.writeTo(output);
+        output.writeLong(latenessMillis);
+        output.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            output.writeLong(epochMillis[i]);
+            output.writeLong(sequenceNumbers[i]);
+            output.writeBoolean(errors[i]);
+            output.writeDouble(responseTimes[i]);
+        }
+        output.writeLong(nextSequenceNumber);
+        output.writeLong(watermark);
+        output.writeLong(lateLinesNumber);
+    }
+
+    /**
+     * @exception IllegalArgumentException if state was written by analyzer with other settings or lateness
+     */
+    @Override
+    public void readFrom(DataInput input) throws IOException {
+        super.readFrom(input);
+        if (input.readLong() != latenessMillis)
+            throw new IllegalArgumentException("State was written by analyzer with other lateness");
+
+        int size = input.readInt();
+        if (size < 0) throw new IllegalArgumentException("Number of buffered lines must not be negative");
+        int capacity = Math.max(64, Integer.highestOneBit(Math.max(size, 1) - 1) << 1);
+        epochMillis = new long[capacity];
+        sequenceNumbers = new long[capacity];
+        errors = new boolean[capacity];
+        responseTimes = new double[capacity];
+        for (int i = 0; i < size; i++) {
+            set(i, input.readLong(), input.readLong(), input.readBoolean(), input.readDouble());
+        }
+        this.size = size;
+        nextSequenceNumber = input.readLong();
+        watermark = input.readLong();
+        lateLinesNumber = input.readLong();
+    }
+
+    private void releaseUntil(long untilMillis) {
+        while (size > 0 && epochMillis[0] <= untilMillis) {
+            long lineMillis = epochMillis[0];
+            boolean isError = errors[0];
+            double responseTime = responseTimes[0];
+            removeFirst();
+            super.processClassifiedLogLine(lineMillis, isError, responseTime);
+        }
+    }
+
+    private void push(long lineMillis, boolean isError, double responseTime) {
+        if (size == epochMillis.length) {
+            epochMillis = Arrays.copyOf(epochMillis, size * 2);
+            sequenceNumbers = Arrays.copyOf(sequenceNumbers, size * 2);
+            errors = Arrays.copyOf(errors, size * 2);
+            responseTimes = Arrays.copyOf(responseTimes, size * 2);
+        }
+        long sequenceNumber = nextSequenceNumber++;
+
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!isBefore(lineMillis, sequenceNumber, parent)) break;
+            move(parent, i);
+            i = parent;
+        }
+        set(i, lineMillis, sequenceNumber, isError, responseTime);
+    }
+
+    private void removeFirst() {
+        size--;
+        if (size == 0) return;
+
+        long lineMillis = epochMillis[size];
+        long sequenceNumber = sequenceNumbers[size];
+        boolean isError = errors[size];
+        double responseTime = responseTimes[size];
+
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && isBefore(epochMillis[child + 1], sequenceNumbers[child + 1], child)) child++;
+            if (!isBefore(epochMillis[child], sequenceNumbers[child], lineMillis, sequenceNumber)) break;
+            move(child, i);
+            i = child;
+        }
+        set(i, lineMillis, sequenceNumber, isError, responseTime);
+    }
+
+    /**
+     * @return {@code true} if line with {@code lineMillis} and {@code sequenceNumber} is analyzed before
+     * element {@code index} of heap
+     */
+    private boolean isBefore(long lineMillis, long sequenceNumber, int index) {
+        return isBefore(lineMillis, sequenceNumber, epochMillis[index], sequenceNumbers[index]);
+    }
+
+    private static boolean isBefore(long lineMillis, long sequenceNumber, long otherMillis, long otherSequenceNumber) {
+        return lineMillis < otherMillis || lineMillis == otherMillis && sequenceNumber < otherSequenceNumber;
+    }
+
+    private void move(int from, int to) {
+        set(to, epochMillis[from], sequenceNumbers[from], errors[from], responseTimes[from]);
+    }
+
+    private void set(int index, long lineMillis, long sequenceNumber, boolean isError, double responseTime) {
+        epochMillis[index] = lineMillis;
+        sequenceNumbers[index] = sequenceNumber;
+        errors[index] = isError;
+        responseTimes[index] = responseTime;
+    }
+}
@@ -0,0 +1,103 @@
+package com.pavelisaenko;
+
+import java.util.Arrays;
+
+/**
+ * Partial aggregate of classified lines of one second, e.g. of one node of cluster. Aggregates of many nodes
+ * are combined by {@link AggregateMerger} and replayed by {@link LogAnalyzer#processAggregate(SecondAggregate)}.
+ * <p>
+ * Timestamps of log lines have second precision, so all lines of a second have the same timestamp and the first
+ * and the last errors of a second are at the second itself. Only order of errors among lines of a second is kept:
+ * {@code runs} are lengths of alternating runs of correct and error lines in order of arrival, starting with
+ * correct lines, e.g. {@code 40,1,59} is 40 correct lines, an error and 59 correct lines. Replayed runs make
+ * the same window transitions as the lines themselves, so intervals are exactly the ones of raw lines.
+ * <p>
+ * Text form is {@code <epoch second> <offset seconds> <total lines> <error lines> <runs>}.
+ *
+ * @param epochSecond second of lines
+ * @param offsetSeconds offset of the first line of second
+ * @param runs lengths of runs, odd ones are errors
+ */
+public record SecondAggregate(long epochSecond, int offsetSeconds, int[] runs) {
+
+    public SecondAggregate {
+        if (runs.length == 0) throw new IllegalArgumentException("Aggregate must have runs");
+        for (int run : runs) {
+            if (run < 0) throw new IllegalArgumentException("Run length must not be negative");
+        }
+    }
+
+    public long getTotalLinesNumber() {
+        long total = 0;
+        for (int run : runs) total += run;
+        return total;
+    }
+
+    public long getErrorLinesNumber() {
+        long errors = 0;
+        for (int i = 1; i < runs.length; i += 2) errors += runs[i];
+        return errors;
+    }
+
+    /**
+     * @return aggregate of lines of this aggregate followed by lines of {@code other} of the same second
+     */
+    public SecondAggregate concat(SecondAggregate other) {
+        if (other.epochSecond != epochSecond) throw new IllegalArgumentException("Aggregates are of different seconds");
+
+        int[] concatenated = Arrays.copyOf(runs, runs.length + other.runs.length);
+        int size = runs.length;
+        for (int i = 0; i < other.runs.length; i++) {
+            // run i of other is of errors if i is odd, the last run of result is of errors if size is even
+            if ((i % 2 == 1) == (size % 2 == 0)) concatenated[size - 1] += other.runs[i];
+            else if (i > 0 || other.runs[i] > 0) concatenated[size++] = other.runs[i];
+        }
+        return new SecondAggregate(epochSecond, offsetSeconds, Arrays.copyOf(concatenated, size));
+    }
+
+    /**
+     * @return text form, see {@link SecondAggregate}
+     */
+    public String format() {
+        StringBuilder builder = new StringBuilder(32 + runs.length * 4)
+                .append(epochSecond).append(' ').append(offsetSeconds).append(' ')
+                .append(getTotalLinesNumber()).append(' ').append(getErrorLinesNumber()).append(' ');
+        for (int i = 0; i < runs.length; i++) {
+            if (i > 0) builder.append(',');
+            builder.append(runs[i]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Parses text form of {@link #format()}.
+     * @exception IllegalArgumentException if text is malformed or its counters do not match runs
+     */
+    public static SecondAggregate parse(String text) {
+        String[] fields = text.trim().split(" ");
+        if (fields.length != 5) throw new IllegalArgumentException("aggregate must contain 5 fields");
+
+        SecondAggregate aggregate = new SecondAggregate(Long.parseLong(fields[0]), Integer.parseInt(fields[1]),
+                Arrays.stream(fields[4].split(",")).mapToInt(Integer::parseInt).toArray());
+        if (aggregate.getTotalLinesNumber() != Long.parseLong(fields[2]) ||
+                aggregate.getErrorLinesNumber() != Long.parseLong(fields[3]))
+            throw new IllegalArgumentException("counters of aggregate do not match its runs");
+        return aggregate;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        return object instanceof SecondAggregate other && epochSecond == other.epochSecond &&
+                offsetSeconds == other.offsetSeconds && Arrays.equals(runs, other.runs);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Long.hashCode(epochSecond) + offsetSeconds) + Arrays.hashCode(runs);
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
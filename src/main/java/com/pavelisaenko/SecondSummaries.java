@@ -0,0 +1,179 @@
+package com.pavelisaenko;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact per-second summaries of log lines for {@link ThresholdSweep}. Every line is reduced to its class:
+ * 5xx error or bucket of response time histogram whose edges are the swept response thresholds.
+ * For every second the summary keeps classes and millisecond offsets of its lines in order of arrival,
+ * 3 bytes per line, so the histogram of a second and exact order of errors for any swept threshold are known
+ * without keeping lines.
+ */
+public class SecondSummaries {
+
+    /**
+     * Maximum number of swept response thresholds, classes are kept in bytes
+     */
+    public static final int MAX_THRESHOLDS_NUMBER = 126;
+
+    /**
+     * Sorted distinct response thresholds, edges of histogram buckets
+     */
+    private final double[] responseThresholds;
+    /**
+     * Class of 5xx lines. Class {@code j} of other lines is the number of thresholds which are less than
+     * response time, so line with class {@code j} is an error for thresholds {@code [0...j)}.
+     */
+    private final byte serverErrorClass;
+
+    private final Map<Long, Summary> summaries = new HashMap<>();
+
+    private long[] seconds;
+    private Summary[] sortedSummaries;
+
+    /**
+     * Lines of one second in order of arrival.
+     */
+    private static final class Summary {
+        private byte[] classes = new byte[8];
+        private short[] offsets = new short[8];
+        private int size = 0;
+
+        private void add(byte lineClass, short offset) {
+            if (size == classes.length) {
+                classes = Arrays.copyOf(classes, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            classes[size] = lineClass;
+            offsets[size] = offset;
+            size++;
+        }
+    }
+
+    /**
+     * @param responseThresholds swept response thresholds
+     */
+    public SecondSummaries(double[] responseThresholds) {
+        this.responseThresholds = Arrays.stream(responseThresholds).sorted().distinct().toArray();
+        if (this.responseThresholds.length == 0)
+            throw new IllegalArgumentException("Response thresholds must not be empty");
+        if (this.responseThresholds.length > MAX_THRESHOLDS_NUMBER)
+            throw new IllegalArgumentException("Maximum number of response thresholds is " + MAX_THRESHOLDS_NUMBER);
+        serverErrorClass = (byte) (this.responseThresholds.length + 1);
+    }
+
+    /**
+     * Adds line to summary of its second. Seconds may come in any order.
+     */
+    public void add(long epochMillis, int statusCode, double responseTime) {
+        if (seconds != null) throw new IllegalStateException("Summaries are already finished");
+
+        Summary summary = summaries.computeIfAbsent(Math.floorDiv(epochMillis, 1000), second -> new Summary());
+        byte lineClass = 500 <= statusCode && statusCode < 600 ? serverErrorClass : (byte) classOf(responseTime);
+        summary.add(lineClass, (short) Math.floorMod(epochMillis, 1000));
+    }
+
+    public void addBatch(LogLineBatch batch) {
+        for (int i = 0; i < batch.getSize(); i++) {
+            add(batch.getEpochMillis()[i], batch.getStatusCodes()[i], batch.getResponseTimes()[i]);
+        }
+    }
+
+    /**
+     * Sorts seconds. No lines can be added after.
+     */
+    public void finish() {
+        if (seconds != null) return;
+
+        seconds = summaries.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        sortedSummaries = new Summary[seconds.length];
+        for (int i = 0; i < seconds.length; i++) sortedSummaries[i] = summaries.get(seconds[i]);
+        summaries.clear();
+    }
+
+    /**
+     * @return number of seconds with lines
+     */
+    public int getSecondsNumber() {
+        checkFinished();
+        return seconds.length;
+    }
+
+    public long getSecond(int index) {
+        checkFinished();
+        return seconds[index];
+    }
+
+    public int getLinesNumber(int index) {
+        checkFinished();
+        return sortedSummaries[index].size;
+    }
+
+    /**
+     * @return timestamp of line {@code line} of second with index {@code index}
+     */
+    public long getEpochMillis(int index, int line) {
+        checkFinished();
+        return seconds[index] * 1000 + sortedSummaries[index].offsets[line];
+    }
+
+    /**
+     * @return {@code true} if line {@code line} of second with index {@code index} has 5xx status code
+     */
+    public boolean isServerError(int index, int line) {
+        checkFinished();
+        return sortedSummaries[index].classes[line] == serverErrorClass;
+    }
+
+    /**
+     * @return {@code true} if line {@code line} of second with index {@code index} is an error for
+     * threshold with index {@code thresholdIndex}: has 5xx status code or response time bigger than threshold
+     */
+    public boolean isError(int index, int line, int thresholdIndex) {
+        checkFinished();
+        return sortedSummaries[index].classes[line] > thresholdIndex;
+    }
+
+    /**
+     * @return number of lines of second which are errors for threshold with index {@code thresholdIndex}
+     */
+    public int getErrors(int index, int thresholdIndex) {
+        checkFinished();
+        Summary summary = sortedSummaries[index];
+        int errors = 0;
+        for (int line = 0; line < summary.size; line++) {
+            if (summary.classes[line] > thresholdIndex) errors++;
+        }
+        return errors;
+    }
+
+    /**
+     * @param responseThreshold one of swept response thresholds
+     * @return index of threshold for {@link #isError(int, int, int)}
+     */
+    public int thresholdIndexOf(double responseThreshold) {
+        int index = Arrays.binarySearch(responseThresholds, responseThreshold);
+        if (index < 0) throw new IllegalArgumentException("Response threshold " + responseThreshold + " is not swept");
+        return index;
+    }
+
+    /**
+     * @return number of thresholds which are less than {@code responseTime}
+     */
+    private int classOf(double responseTime) {
+        int low = 0;
+        int high = responseThresholds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (responseThresholds[middle] < responseTime) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private void checkFinished() {
+        if (seconds == null) throw new IllegalStateException("Summaries are not finished");
+    }
+}
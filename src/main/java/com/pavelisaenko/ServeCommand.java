@@ -0,0 +1,112 @@
+package com.pavelisaenko;
+
+import picocli.CommandLine.*;
+import picocli.CommandLine.Model.CommandSpec;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.ZoneId;
+
+/**
+ * Analyzes lines which {@link LogServer} receives from many senders, until process is stopped.
+ */
+@Command(name = "serve", mixinStandardHelpOptions = true,
+        description = "Receive log lines over TCP and optionally UDP syslog and print failing intervals of all senders or of every host")
+public class ServeCommand implements Runnable {
+
+    /**
+     * Lateness of shared analyzer if it is not set: batches of different connections interleave, so lines of
+     * all senders are reordered by default
+     */
+    public static final long DEFAULT_SHARED_LATENESS_MILLIS = 1000;
+
+    @Spec
+    CommandSpec spec;
+    @Option(names = {"-t", "--response-time"}, required = true, description = "Maximum response time ms")
+    double responseThreshold;
+    @Option(names = {"-u", "--availability"}, required = true, description = "Minimum availability %%")
+    double availabilityThreshold;
+    @Option(names = {"-z", "--zone"}, description = "Zone of printed time-points. Default: offset of the first line of analyzer")
+    ZoneId zone;
+    @Option(names = {"-w", "--window"}, description = "Window size in seconds. Default: ${DEFAULT-VALUE}")
+    long windowSeconds = 1;
+    @Option(names = {"--window-mode"}, description = "Window storage: ${COMPLETION-CANDIDATES}. Default: ${DEFAULT-VALUE}")
+    WindowMode windowMode = WindowMode.BUCKETED;
+    @Option(names = {"--percentiles"}, description = "Print p50, p95, p99 and max response time of every interval")
+    boolean isPercentilesReported;
+    @Option(names = {"--lateness"}, description = "Maximum delay ms of out-of-order lines of different connections. Lines are reordered by time, later lines are dropped. Default: " + DEFAULT_SHARED_LATENESS_MILLIS + ", no reordering with --per-host")
+    Long latenessMillis;
+    @Option(names = {"--per-host"}, description = "Detect intervals separately for every sender host and print them with its address")
+    boolean isPerHost;
+    @Option(names = {"--bind"}, description = "Address to listen on. Default: ${DEFAULT-VALUE}")
+    InetAddress bindAddress = InetAddress.getLoopbackAddress();
+    @Option(names = {"-p", "--port"}, description = "TCP port of lines. Default: ${DEFAULT-VALUE}")
+    int port = 5140;
+    @Option(names = {"--udp-port"}, description = "Also receive syslog datagrams on this UDP port")
+    Integer udpPort;
+    @Option(names = {"--buffer-size"}, description = "Receive buffer of connection in bytes, longer lines are skipped. Default: ${DEFAULT-VALUE}")
+    int bufferSize = LogServer.DEFAULT_BUFFER_SIZE;
+    @Option(names = {"--output-format"}, description = "Format of printed intervals: ${COMPLETION-CANDIDATES}. Default: ${DEFAULT-VALUE}")
+    OutputFormat outputFormat = OutputFormat.TEXT;
+    @Option(names = {"--full-dates"}, description = "Print time-points of TEXT intervals as date-times with offset instead of HH:mm:ss")
+    boolean isFullDates;
+
+    @Override
+    public void run() {
+        if (latenessMillis != null && latenessMillis < 0)
+            throw new ParameterException(spec.commandLine(), "--lateness must not be negative");
+        if (latenessMillis == null && !isPerHost) latenessMillis = DEFAULT_SHARED_LATENESS_MILLIS;
+
+        // intervals are rare and come at any time, so every interval is printed at once
+        IntervalSink intervalSink = outputFormat.createSink(System.out, 0, isFullDates);
+        LogAggregator aggregator = new LogAggregator(host -> createLogAnalyzer(host, intervalSink), isPerHost);
+        aggregator.setZoneTakenFromInput(zone == null);
+
+        LogServer logServer;
+        try {
+            logServer = new LogServer(aggregator, new InetSocketAddress(bindAddress, port),
+                    udpPort == null ? null : new InetSocketAddress(bindAddress, udpPort), bufferSize);
+        } catch (IOException e) {
+            System.err.printf("Server starting error: %s%n", e.getMessage());
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> stop(logServer, aggregator, intervalSink), "log-server-stop"));
+        System.err.printf("Listening on %s:%d%n", bindAddress.getHostAddress(), port);
+
+        try {
+            logServer.awaitClose();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private LogAnalyzer createLogAnalyzer(String host, IntervalSink intervalSink) {
+        LogLinesProcessor logLinesProcessor = new LogLinesProcessor(responseThreshold, availabilityThreshold,
+                Duration.ofSeconds(windowSeconds), windowMode);
+
+        IntervalProcessor intervalProcessor = new IntervalProcessor();
+        if (zone != null) intervalProcessor.setZone(zone);
+        intervalProcessor.setPercentilesReported(isPercentilesReported);
+        intervalProcessor.setSink(intervalSink);
+        intervalProcessor.setLabel(host);
+
+        if (latenessMillis != null)
+            return new ReorderingLogAnalyzer(logLinesProcessor, intervalProcessor, Duration.ofMillis(latenessMillis));
+        return new LogAnalyzer(logLinesProcessor, intervalProcessor);
+    }
+
+    private static void stop(LogServer logServer, LogAggregator aggregator, IntervalSink intervalSink) {
+        try {
+            logServer.close();
+        } catch (IOException e) {
+            System.err.printf("Server stopping error: %s%n", e.getMessage());
+        }
+        long lateLinesNumber = aggregator.finish();
+        intervalSink.flush();
+        System.err.printf("Received log lines: %d from %d connections, not parsed: %d, late: %d%n",
+                aggregator.getLinesNumber(), logServer.getAcceptedConnectionsNumber(),
+                logServer.getParseErrorsNumber(), lateLinesNumber);
+    }
+}
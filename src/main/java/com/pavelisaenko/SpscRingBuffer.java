@@ -0,0 +1,127 @@
+package com.pavelisaenko;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free ring buffer for exactly one producer thread and one consumer thread.
+ * {@link #put(Object)} blocks while buffer is full and {@link #take()} blocks while it is empty;
+ * a blocked side spins shortly and then parks until the other side wakes it up.
+ * <p>
+ * Either side may {@link #close()} the buffer. After that {@link #put(Object)} fails
+ * and {@link #take()} returns remaining elements and then {@code null}.
+ */
+public class SpscRingBuffer<T> {
+
+    private static final int SPINS_BEFORE_PARK = 100;
+
+    private final Object[] elements;
+    private final int mask;
+
+    /**
+     * Index of the next element to take, written by consumer only
+     */
+    private final AtomicLong head = new AtomicLong();
+    /**
+     * Index of the next element to put, written by producer only
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    private volatile boolean isClosed = false;
+    private volatile Thread parkedProducer;
+    private volatile Thread parkedConsumer;
+
+    /**
+     * @param capacity maximum number of elements, rounded up to a power of two
+     */
+    public SpscRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) throw new IllegalArgumentException("Capacity must be in [1...2^30]");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        elements = new Object[size];
+        mask = size - 1;
+    }
+
+    public int getCapacity() {
+        return elements.length;
+    }
+
+    /**
+     * Puts element, waits for free space if buffer is full.
+     * @exception IllegalStateException if buffer is closed
+     */
+    public void put(T element) {
+        if (element == null) throw new IllegalArgumentException("Element must not be null");
+        long currentTail = tail.get();
+        int spins = 0;
+        while (currentTail - head.get() == elements.length) {
+            if (isClosed) throw new IllegalStateException("Ring buffer is closed");
+            if (spins++ < SPINS_BEFORE_PARK) {
+                Thread.onSpinWait();
+                continue;
+            }
+            parkedProducer = Thread.currentThread();
+            if (currentTail - head.get() == elements.length && !isClosed) LockSupport.park(this);
+            parkedProducer = null;
+        }
+        if (isClosed) throw new IllegalStateException("Ring buffer is closed");
+
+        elements[(int) currentTail & mask] = element;
+        tail.set(currentTail + 1);
+        wakeUp(parkedConsumer);
+    }
+
+    /**
+     * Takes element, waits for it if buffer is empty.
+     * @return element or {@code null} if buffer is closed and empty
+     */
+    @SuppressWarnings("unchecked")
+    public T take() {
+        long currentHead = head.get();
+        int spins = 0;
+        while (currentHead == tail.get()) {
+            if (isClosed) {
+                if (currentHead == tail.get()) return null;
+                break;
+            }
+            if (spins++ < SPINS_BEFORE_PARK) {
+                Thread.onSpinWait();
+                continue;
+            }
+            parkedConsumer = Thread.currentThread();
+            if (currentHead == tail.get() && !isClosed) LockSupport.park(this);
+            parkedConsumer = null;
+        }
+
+        int index = (int) currentHead & mask;
+        T element = (T) elements[index];
+        elements[index] = null;
+        head.set(currentHead + 1);
+        wakeUp(parkedProducer);
+        return element;
+    }
+
+    /**
+     * Closes buffer and wakes up both sides.
+     */
+    public void close() {
+        isClosed = true;
+        wakeUp(parkedProducer);
+        wakeUp(parkedConsumer);
+    }
+
+    /**
+     * @return {@code true} if buffer has no elements now
+     */
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    private static void wakeUp(Thread thread) {
+        if (thread != null) LockSupport.unpark(thread);
+    }
+}
@@ -0,0 +1,49 @@
+package com.pavelisaenko;
+
+import java.io.OutputStream;
+import java.time.ZoneId;
+
+/**
+ * Prints intervals like {@link IntervalProcessor#getInfo()}: {@code 16:47:02 16:47:05 50.0}, optionally with
+ * full dates: {@code 2017-06-14T16:47:02+10:00 2017-06-14T16:47:05+10:00 50.0}, percentiles and top offenders.
+ */
+public class TextIntervalSink extends BufferedIntervalSink {
+
+    /**
+     * If {@code true}, time-points are printed as ISO-8601 date-times with offset instead of {@code HH:mm:ss}
+     */
+    private final boolean fullDates;
+
+    public TextIntervalSink(OutputStream outputStream, int bufferSize, boolean fullDates) {
+        super(outputStream, bufferSize);
+        this.fullDates = fullDates;
+    }
+
+    @Override
+    protected void appendInterval(StringBuilder buffer, String label, long beginEpochMillis, long endEpochMillis,
+                                  ZoneId zone, double availability, LatencyHistogram responseTimes,
+                                  TopOffenders topOffenders) {
+        if (label != null) buffer.append(label).append(' ');
+        appendTimePoint(buffer, beginEpochMillis, zone);
+        buffer.append(' ');
+        appendTimePoint(buffer, endEpochMillis, zone);
+        buffer.append(' ').append(availability);
+
+        if (responseTimes != null) {
+            buffer.append(" p50=");
+            appendResponseTime(buffer, responseTimes.getValueAtPercentile(50));
+            buffer.append(" p95=");
+            appendResponseTime(buffer, responseTimes.getValueAtPercentile(95));
+            buffer.append(" p99=");
+            appendResponseTime(buffer, responseTimes.getValueAtPercentile(99));
+            buffer.append(" max=");
+            appendResponseTime(buffer, responseTimes.getMaxValue());
+        }
+        if (topOffenders != null) topOffenders.appendTo(buffer);
+    }
+
+    private void appendTimePoint(StringBuilder buffer, long epochMillis, ZoneId zone) {
+        if (fullDates) appendDateTime(buffer, epochMillis, zone);
+        else appendTime(buffer, epochMillis, zone);
+    }
+}
@@ -0,0 +1,175 @@
+package com.pavelisaenko;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * What-if analysis of a grid of thresholds in one pass over input. Lines are reduced to {@link SecondSummaries},
+ * then every combination of response threshold, availability threshold and window size is evaluated
+ * in parallel over the summaries.
+ * <p>
+ * Every combination replays summaries through its own {@link LogAnalyzer} with {@link WindowMode#BUCKETED}
+ * window, so intervals are exactly the ones printed by {@code analyze -t -u -w} for time-ordered input.
+ * Seconds are replayed in order of time, lines of a second in order of arrival.
+ */
+public class ThresholdSweep {
+
+    /**
+     * Result of one combination of thresholds.
+     * @param intervalsNumber number of ended failing intervals
+     * @param downtime total duration of union of ended failing intervals
+     * @param availability availability of all lines of intervals in percents like {@link IntervalProcessor#getInfo()},
+     *                     100 if there are no intervals
+     */
+    public record Result(double responseThreshold, double availabilityThreshold, Duration windowSize,
+                         int intervalsNumber, Duration downtime, double availability) {
+    }
+
+    private record Combination(double responseThreshold, double availabilityThreshold, Duration windowSize) {
+    }
+
+    private final List<Combination> combinations = new ArrayList<>();
+    private final SecondSummaries summaries;
+
+    /**
+     * Grid is ordered by window size, then by response threshold, then by availability threshold.
+     * Repeated thresholds and window sizes are evaluated once, in order of their first occurrence.
+     * @see LogLinesProcessor#LogLinesProcessor(double, double, Duration, WindowMode)
+     * @exception IllegalArgumentException if any combination is not valid for {@link LogLinesProcessor}
+     */
+    public ThresholdSweep(double[] responseThresholds, double[] availabilityThresholds, Duration[] windowSizes) {
+        if (availabilityThresholds.length == 0) throw new IllegalArgumentException("Availability thresholds must not be empty");
+        if (windowSizes.length == 0) throw new IllegalArgumentException("Window sizes must not be empty");
+        double[] distinctResponseThresholds = Arrays.stream(responseThresholds).distinct().toArray();
+        summaries = new SecondSummaries(distinctResponseThresholds);
+
+        for (Duration windowSize : Arrays.stream(windowSizes).distinct().toArray(Duration[]::new)) {
+            for (double responseThreshold : distinctResponseThresholds) {
+                for (double availabilityThreshold : Arrays.stream(availabilityThresholds).distinct().toArray()) {
+                    // validates parameters like the line-by-line analysis does
+                    new LogLinesProcessor(responseThreshold, availabilityThreshold, windowSize, WindowMode.BUCKETED);
+                    combinations.add(new Combination(responseThreshold, availabilityThreshold, windowSize));
+                }
+            }
+        }
+    }
+
+    public void processLogLine(long epochMillis, int statusCode, double responseTime) {
+        summaries.add(epochMillis, statusCode, responseTime);
+    }
+
+    public void processBatch(LogLineBatch batch) {
+        summaries.addBatch(batch);
+    }
+
+    /**
+     * Evaluates all combinations on {@code pool}. No lines can be processed after.
+     * @return results in order of grid
+     */
+    public List<Result> evaluate(ForkJoinPool pool) {
+        summaries.finish();
+        return pool.submit(() -> combinations.parallelStream().map(this::evaluate).toList()).join();
+    }
+
+    private Result evaluate(Combination combination) {
+        int thresholdIndex = summaries.thresholdIndexOf(combination.responseThreshold());
+        SummingIntervalProcessor intervalProcessor = new SummingIntervalProcessor();
+        LogAnalyzer logAnalyzer = new LogAnalyzer(new LogLinesProcessor(combination.responseThreshold(),
+                combination.availabilityThreshold(), combination.windowSize(), WindowMode.BUCKETED), intervalProcessor);
+
+        for (int i = 0; i < summaries.getSecondsNumber(); i++) {
+            for (int line = 0; line < summaries.getLinesNumber(i); line++) {
+                boolean isError = summaries.isError(i, line, thresholdIndex);
+                logAnalyzer.processLogLine(
+                        summaries.getEpochMillis(i, line),
+                        summaries.isServerError(i, line) ? 500 : 200,
+                        isError ? Double.POSITIVE_INFINITY : 0
+                );
+            }
+        }
+
+        return new Result(combination.responseThreshold(), combination.availabilityThreshold(),
+                combination.windowSize(), intervalProcessor.intervalsNumber, intervalProcessor.getDowntime(),
+                intervalProcessor.getAvailability());
+    }
+
+    /**
+     * Sums ended intervals instead of printing them.
+     */
+    private static class SummingIntervalProcessor extends IntervalProcessor {
+        private Instant beginTime;
+        private long totalCounter = 0;
+        private long errorsCounter = 0;
+
+        private int intervalsNumber = 0;
+        private long intervalsTotal = 0;
+        private long intervalsErrors = 0;
+        /**
+         * Begins and ends of ended intervals in millis, {@code 2 * i} and {@code 2 * i + 1}
+         */
+        private long[] bounds = new long[16];
+
+        @Override
+        public void beginNewInterval(Instant beginTime) {
+            this.beginTime = beginTime;
+            totalCounter = 0;
+            errorsCounter = 0;
+        }
+
+        @Override
+        public void endInterval(Instant endTime) {
+            if (beginTime == null) return;
+            if (bounds.length == intervalsNumber * 2) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            bounds[intervalsNumber * 2] = beginTime.toEpochMilli();
+            bounds[intervalsNumber * 2 + 1] = Math.max(beginTime.toEpochMilli(), endTime.toEpochMilli());
+            intervalsNumber++;
+            intervalsTotal += totalCounter;
+            intervalsErrors += errorsCounter;
+        }
+
+        @Override
+        public void considerCorrectLogLine() {
+            totalCounter++;
+        }
+
+        @Override
+        public void considerFailedLogLine() {
+            errorsCounter++;
+            totalCounter++;
+        }
+
+        @Override
+        public void considerLogLines(int correctLines, int failedLines) {
+            errorsCounter += failedLines;
+            totalCounter += correctLines + failedLines;
+        }
+
+        private double getAvailability() {
+            if (intervalsTotal == 0) return 100;
+            return Math.round(100 * (intervalsTotal - intervalsErrors) / (double) intervalsTotal * 10) / 10.0;
+        }
+
+        /**
+         * @return duration of union of intervals, overlapping intervals are counted once
+         */
+        private Duration getDowntime() {
+            Integer[] order = new Integer[intervalsNumber];
+            for (int i = 0; i < intervalsNumber; i++) order[i] = i;
+            Arrays.sort(order, (first, second) -> Long.compare(bounds[first * 2], bounds[second * 2]));
+
+            long downtimeMillis = 0;
+            long coveredUntil = Long.MIN_VALUE;
+            for (int i : order) {
+                long begin = Math.max(bounds[i * 2], coveredUntil);
+                long end = bounds[i * 2 + 1];
+                if (end > begin) downtimeMillis += end - begin;
+                coveredUntil = Math.max(coveredUntil, end);
+            }
+            return Duration.ofMillis(downtimeMillis);
+        }
+    }
+}
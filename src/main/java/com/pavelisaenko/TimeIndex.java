@@ -0,0 +1,327 @@
+package com.pavelisaenko;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Sparse index of text log file by time: byte offset of the first line of every {@link #intervalSeconds},
+ * so a time range of a huge file is found without reading it from the start.
+ * <p>
+ * Index is kept in sidecar file {@code <log>.idx} together with size and modification time of log;
+ * it is ignored if log changed. Without index, {@link #findStart(Path, long)} and {@link #findEnd(Path, long)}
+ * binary search memory-mapped log itself, probing timestamps of lines.
+ * <p>
+ * Both ways assume that log is ordered by time; lines which are slightly out of order near bounds of range
+ * may be missed.
+ */
+@Getter
+public class TimeIndex {
+
+    public static final String SUFFIX = ".idx";
+    public static final long DEFAULT_INTERVAL_SECONDS = 60;
+
+    private static final int MAGIC = 0x58444941;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + 3 * Long.BYTES + Integer.BYTES;
+
+    /**
+     * Number of bytes read by one probe of binary search. Search stops when range is not longer.
+     */
+    private static final int PROBE_SIZE = 1 << 16;
+    private static final int MAX_REGION_SIZE = 1 << 30;
+
+    private final long logSize;
+    private final long logModifiedMillis;
+    private final long intervalSeconds;
+    /**
+     * Ascending epoch seconds of indexed lines
+     */
+    @Getter(AccessLevel.NONE)
+    private final long[] epochSeconds;
+    /**
+     * Byte offsets of indexed lines
+     */
+    @Getter(AccessLevel.NONE)
+    private final long[] offsets;
+
+    private TimeIndex(long logSize, long logModifiedMillis, long intervalSeconds, long[] epochSeconds, long[] offsets) {
+        this.logSize = logSize;
+        this.logModifiedMillis = logModifiedMillis;
+        this.intervalSeconds = intervalSeconds;
+        this.epochSeconds = epochSeconds;
+        this.offsets = offsets;
+    }
+
+    /**
+     * @return number of indexed lines
+     */
+    public int getEntriesNumber() {
+        return offsets.length;
+    }
+
+    public static Path indexPathOf(Path log) {
+        return log.resolveSibling(log.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Reads whole log and indexes the first line of every {@code intervalSeconds}. Lines which can not be parsed
+     * are skipped.
+     * @exception IOException if log can not be read
+     */
+    public static TimeIndex build(Path log, long intervalSeconds) throws IOException {
+        return build(log, intervalSeconds, null);
+    }
+
+    /**
+     * @param logFormat format of lines, {@code null} for the bundled logs format
+     * @see #build(Path, long)
+     */
+    public static TimeIndex build(Path log, long intervalSeconds, LogFormat logFormat) throws IOException {
+        if (intervalSeconds <= 0) throw new IllegalArgumentException("Index interval must be positive");
+
+        long logModifiedMillis = Files.getLastModifiedTime(log).toMillis();
+        long[] epochSeconds = new long[64];
+        long[] offsets = new long[64];
+        int size = 0;
+        long nextSecond = Long.MIN_VALUE;
+
+        ByteLogLineParser parser = new ByteLogLineParser(logFormat);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            long logSize = channel.size();
+            long regionStart = 0;
+            while (regionStart < logSize) {
+                int regionSize = (int) Math.min(MAX_REGION_SIZE, logSize - regionStart);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionSize);
+                boolean isLastRegion = regionStart + regionSize == logSize;
+
+                int lineStart = 0;
+                for (int i = 0; i <= regionSize; i++) {
+                    // the last line of log may have no line terminator
+                    boolean isLineEnd = i < regionSize ? region.get(i) == '\n' : isLastRegion && lineStart < regionSize;
+                    if (!isLineEnd) continue;
+                    if (tryParse(parser, region, lineStart, i) && parser.getEpochSecond() >= nextSecond) {
+                        if (size == epochSeconds.length) {
+                            epochSeconds = Arrays.copyOf(epochSeconds, size * 2);
+                            offsets = Arrays.copyOf(offsets, size * 2);
+                        }
+                        epochSeconds[size] = parser.getEpochSecond();
+                        offsets[size] = regionStart + lineStart;
+                        size++;
+                        nextSecond = parser.getEpochSecond() + intervalSeconds;
+                    }
+                    lineStart = i + 1;
+                }
+
+                if (!isLastRegion && lineStart == 0)
+                    throw new IllegalStateException("Line at byte " + regionStart + " is longer than " + MAX_REGION_SIZE);
+                regionStart += isLastRegion ? regionSize : lineStart;
+            }
+
+            return new TimeIndex(logSize, logModifiedMillis, intervalSeconds,
+                    Arrays.copyOf(epochSeconds, size), Arrays.copyOf(offsets, size));
+        }
+    }
+
+    /**
+     * Writes index into sidecar file of {@code log}.
+     */
+    public void write(Path log) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + epochSeconds.length * 2 * Long.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(logSize);
+        buffer.putLong(logModifiedMillis);
+        buffer.putLong(intervalSeconds);
+        buffer.putInt(epochSeconds.length);
+        for (int i = 0; i < epochSeconds.length; i++) {
+            buffer.putLong(epochSeconds[i]);
+            buffer.putLong(offsets[i]);
+        }
+        Files.write(indexPathOf(log), buffer.array());
+    }
+
+    /**
+     * @return index of sidecar file of {@code log} or empty if there is no sidecar file or log changed after indexing
+     * @exception IOException if sidecar file can not be read
+     */
+    public static Optional<TimeIndex> load(Path log) throws IOException {
+        Path indexPath = indexPathOf(log);
+        if (!Files.isRegularFile(indexPath)) return Optional.empty();
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexPath)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            return Optional.empty();
+
+        long logSize = buffer.getLong();
+        long logModifiedMillis = buffer.getLong();
+        if (logSize != Files.size(log) || logModifiedMillis != Files.getLastModifiedTime(log).toMillis())
+            return Optional.empty();
+
+        long intervalSeconds = buffer.getLong();
+        int size = buffer.getInt();
+        if (buffer.remaining() != size * 2L * Long.BYTES) return Optional.empty();
+        long[] epochSeconds = new long[size];
+        long[] offsets = new long[size];
+        for (int i = 0; i < size; i++) {
+            epochSeconds[i] = buffer.getLong();
+            offsets[i] = buffer.getLong();
+        }
+        return Optional.of(new TimeIndex(logSize, logModifiedMillis, intervalSeconds, epochSeconds, offsets));
+    }
+
+    /**
+     * @return offset of a line before which all lines are older than {@code epochMillis}
+     */
+    public long findStart(long epochMillis) {
+        long second = Math.floorDiv(epochMillis, 1000);
+        int index = upperBound(second) - 1;
+        return index < 0 ? 0 : offsets[index];
+    }
+
+    /**
+     * @return offset of a line after which all lines are not older than {@code epochMillis}
+     */
+    public long findEnd(long epochMillis) {
+        long second = Math.floorDiv(epochMillis - 1, 1000) + 1;
+        int index = lowerBound(second);
+        return index == offsets.length ? logSize : offsets[index];
+    }
+
+    /**
+     * Binary search of {@code log} without index.
+     * @return offset of a line before which all lines are older than {@code epochMillis}
+     */
+    public static long findStart(Path log, long epochMillis) throws IOException {
+        return findStart(log, epochMillis, null);
+    }
+
+    /**
+     * @param logFormat format of lines, {@code null} for the bundled logs format
+     * @see #findStart(Path, long)
+     */
+    public static long findStart(Path log, long epochMillis, LogFormat logFormat) throws IOException {
+        return search(log, epochMillis, logFormat)[0];
+    }
+
+    /**
+     * Binary search of {@code log} without index.
+     * @return offset of a line after which all lines are not older than {@code epochMillis}
+     */
+    public static long findEnd(Path log, long epochMillis) throws IOException {
+        return findEnd(log, epochMillis, null);
+    }
+
+    /**
+     * @param logFormat format of lines, {@code null} for the bundled logs format
+     * @see #findEnd(Path, long)
+     */
+    public static long findEnd(Path log, long epochMillis, LogFormat logFormat) throws IOException {
+        return search(log, epochMillis, logFormat)[1];
+    }
+
+    /**
+     * @return line offsets {@code low} and {@code high}: line at {@code low} is older than {@code epochMillis}
+     * or is the first line, line at {@code high} is not older or is the end of log
+     */
+    private static long[] search(Path log, long epochMillis, LogFormat logFormat) throws IOException {
+        ByteLogLineParser parser = new ByteLogLineParser(logFormat);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            long low = 0;
+            long high = channel.size();
+            while (high - low > PROBE_SIZE) {
+                long middle = (low + high) >>> 1;
+                if (probe(channel, parser, middle) < epochMillis) low = middle;
+                else high = middle;
+            }
+            return new long[]{lineStartAfter(channel, low), lineStartAfter(channel, high)};
+        }
+    }
+
+    /**
+     * @return time of the first parsed line which starts after {@code position}, {@link Long#MAX_VALUE} if
+     * there is no such line within {@link #PROBE_SIZE} bytes
+     */
+    private static long probe(FileChannel channel, ByteLogLineParser parser, long position) throws IOException {
+        int size = (int) Math.min(PROBE_SIZE, channel.size() - position + 1);
+        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position - 1, size);
+
+        int lineStart = -1;
+        for (int i = 0; i < size; i++) {
+            if (region.get(i) != '\n') continue;
+            if (lineStart >= 0 && tryParse(parser, region, lineStart, i)) return parser.getEpochMillis();
+            lineStart = i + 1;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * @return offset of the first line which starts at or after {@code position}
+     */
+    private static long lineStartAfter(FileChannel channel, long position) throws IOException {
+        long logSize = channel.size();
+        if (position == 0 || position >= logSize) return Math.min(position, logSize);
+
+        ByteBuffer buffer = ByteBuffer.allocate(PROBE_SIZE);
+        long offset = position - 1;
+        while (offset < logSize) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') return offset + i + 1;
+            }
+            offset += read;
+        }
+        return logSize;
+    }
+
+    private static boolean tryParse(ByteLogLineParser parser, ByteBuffer region, int from, int to) {
+        int end = to > from && region.get(to - 1) == '\r' ? to - 1 : to;
+        try {
+            parser.parse(region, from, end);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return index of the first entry with second bigger than {@code second}
+     */
+    private int upperBound(long second) {
+        int low = 0;
+        int high = epochSeconds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochSeconds[middle] <= second) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * @return index of the first entry with second not less than {@code second}
+     */
+    private int lowerBound(long second) {
+        int low = 0;
+        int high = epochSeconds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochSeconds[middle] < second) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+}
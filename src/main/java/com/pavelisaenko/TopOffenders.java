@@ -0,0 +1,150 @@
+package com.pavelisaenko;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The most frequent request paths and client IPs of error lines of failing interval, counted by two
+ * {@link HeavyHitters} sketches, so memory and cost of line do not depend on number of distinct keys.
+ * <p>
+ * Paths are normalized: query string is dropped and identifier segments, numbers and long hex strings
+ * like UUIDs, are replaced by {@code {id}}, so {@code /users/42/orders?x=1} is counted as
+ * {@code /users/{id}/orders}.
+ */
+@Getter
+public class TopOffenders {
+
+    /**
+     * Minimum number of counters of every sketch. Counts of reported keys are exact while interval
+     * has fewer distinct keys.
+     */
+    public static final int MIN_CAPACITY = 64;
+    public static final int MAX_KEY_LENGTH = 128;
+
+    private static final int PATH_FIELD = 6;
+    private static final byte[] IDENTIFIER = {'{', 'i', 'd', '}'};
+    private static final int MIN_HEX_IDENTIFIER_LENGTH = 8;
+
+    /**
+     * Number of reported paths and IPs
+     */
+    private final int reportedNumber;
+    private final HeavyHitters paths;
+    private final HeavyHitters clientIps;
+
+    @Getter(AccessLevel.NONE)
+    private final byte[] normalizedPath = new byte[MAX_KEY_LENGTH];
+
+    /**
+     * @param reportedNumber number of reported paths and IPs
+     */
+    public TopOffenders(int reportedNumber) {
+        if (reportedNumber <= 0) throw new IllegalArgumentException("Number of reported offenders must be positive");
+        this.reportedNumber = reportedNumber;
+        int capacity = Math.max(MIN_CAPACITY, 4 * reportedNumber);
+        paths = new HeavyHitters(capacity, MAX_KEY_LENGTH);
+        clientIps = new HeavyHitters(capacity, MAX_KEY_LENGTH);
+    }
+
+    /**
+     * Counts path and client IP of log line stored in {@code line[from...to)}.
+     * Line which has no path is not counted.
+     */
+    public void record(byte[] line, int from, int to) {
+        int ipEnd = from;
+        while (ipEnd < to && line[ipEnd] != ' ') ipEnd++;
+
+        int pathStart = ipEnd;
+        for (int field = 1; field < PATH_FIELD; field++) {
+            pathStart++;
+            while (pathStart < to && line[pathStart] != ' ') pathStart++;
+        }
+        pathStart++;
+        if (pathStart >= to) return;
+
+        clientIps.record(line, from, ipEnd);
+        paths.record(normalizedPath, 0, normalizePath(line, pathStart, to));
+    }
+
+    /**
+     * Forgets all keys, e.g. when new interval begins.
+     */
+    public void clear() {
+        paths.clear();
+        clientIps.clear();
+    }
+
+    public List<HeavyHitters.Entry> getTopPaths() {
+        return paths.top(reportedNumber);
+    }
+
+    public List<HeavyHitters.Entry> getTopClientIps() {
+        return clientIps.top(reportedNumber);
+    }
+
+    /**
+     * Appends reported keys like {@code top_paths=/users/{id}:12,/login:3 top_ips=192.168.32.181:15}.
+     */
+    public void appendTo(StringBuilder buffer) {
+        appendEntries(buffer.append(" top_paths="), getTopPaths());
+        appendEntries(buffer.append(" top_ips="), getTopClientIps());
+    }
+
+    private static void appendEntries(StringBuilder buffer, List<HeavyHitters.Entry> entries) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (i > 0) buffer.append(',');
+            buffer.append(entries.get(i).key()).append(':').append(entries.get(i).count());
+        }
+    }
+
+    /**
+     * Copies normalized path which starts at {@code line[start]} into {@link #normalizedPath}.
+     * @return length of normalized path
+     */
+    private int normalizePath(byte[] line, int start, int to) {
+        int end = start;
+        while (end < to && line[end] != ' ' && line[end] != '?' && line[end] != '#') end++;
+
+        int length = 0;
+        int segmentStart = start;
+        while (segmentStart < end && length < MAX_KEY_LENGTH) {
+            int segmentEnd = segmentStart;
+            while (segmentEnd < end && line[segmentEnd] != '/') segmentEnd++;
+
+            if (isIdentifier(line, segmentStart, segmentEnd)) {
+                length = append(IDENTIFIER, 0, IDENTIFIER.length, length);
+            } else {
+                length = append(line, segmentStart, segmentEnd, length);
+            }
+            if (segmentEnd < end) length = append(line, segmentEnd, segmentEnd + 1, length);
+            segmentStart = segmentEnd + 1;
+        }
+        return length;
+    }
+
+    private int append(byte[] source, int from, int to, int length) {
+        int copied = Math.min(to - from, MAX_KEY_LENGTH - length);
+        System.arraycopy(source, from, normalizedPath, length, copied);
+        return length + copied;
+    }
+
+    /**
+     * @return {@code true} if segment is a decimal number or a hex string with digits, e.g. UUID
+     */
+    private static boolean isIdentifier(byte[] line, int start, int end) {
+        if (start == end) return false;
+        boolean isNumber = true;
+        boolean isHex = end - start >= MIN_HEX_IDENTIFIER_LENGTH;
+        boolean hasDigits = false;
+        for (int i = start; i < end && (isNumber || isHex); i++) {
+            byte symbol = line[i];
+            boolean isDigit = symbol >= '0' && symbol <= '9';
+            hasDigits |= isDigit;
+            isNumber &= isDigit;
+            isHex &= isDigit || symbol >= 'a' && symbol <= 'f' || symbol >= 'A' && symbol <= 'F' || symbol == '-';
+        }
+        return isNumber || isHex && hasDigits;
+    }
+}
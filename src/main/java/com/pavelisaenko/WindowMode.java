@@ -0,0 +1,38 @@
+package com.pavelisaenko;
+
+import java.time.Duration;
+
+/**
+ * Storage engines of {@link LogLinesProcessor} window.
+ */
+public enum WindowMode {
+    /**
+     * Keeps every line of window. Timestamps of first and last errors are exact to a line.
+     */
+    EXACT {
+        @Override
+        public LogWindow createWindow(Duration windowSize) {
+            return new DequeLogWindow(windowSize);
+        }
+    },
+    /**
+     * Keeps per-second counters in circular array. Memory depends on window size only.
+     */
+    BUCKETED {
+        @Override
+        public LogWindow createWindow(Duration windowSize) {
+            return new BucketedLogWindow(windowSize);
+        }
+    },
+    /**
+     * Keeps every line like {@link #EXACT} in columns of direct memory, for huge windows without heap growth.
+     */
+    OFF_HEAP {
+        @Override
+        public LogWindow createWindow(Duration windowSize) {
+            return new OffHeapLogWindow(windowSize);
+        }
+    };
+
+    public abstract LogWindow createWindow(Duration windowSize);
+}
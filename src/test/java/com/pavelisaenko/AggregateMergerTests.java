@@ -0,0 +1,126 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AggregateMergerTests {
+
+    private static final String LINE = "192.168.32.181 - - [14/06/2017:16:47:0%d +1000] PUT /rest/v1.4/documents HTTP/1.1 %d 2 %s - @list-item-updater prio:0";
+
+    private static LogAnalyzer createAnalyzer(ByteArrayOutputStream output, double availabilityThreshold,
+                                              long windowSeconds, WindowMode windowMode) {
+        IntervalProcessor intervalProcessor = new IntervalProcessor();
+        intervalProcessor.setSink(new TextIntervalSink(output, 0, false));
+        return new LogAnalyzer(new LogLinesProcessor(45, availabilityThreshold, Duration.ofSeconds(windowSeconds),
+                windowMode), intervalProcessor);
+    }
+
+    private static byte[] aggregate(List<Path> files, ErrorRules errorRules) throws IOException {
+        ByteArrayOutputStream aggregates = new ByteArrayOutputStream();
+        try (AggregateWriter writer = new AggregateWriter(aggregates, errorRules)) {
+            new LogMerger(files).run(batch -> {
+                try {
+                    writer.addBatch(batch);
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            });
+        }
+        return aggregates.toByteArray();
+    }
+
+    private static List<SecondAggregate> merge(byte[]... streams) throws IOException {
+        List<InputStream> inputs = new ArrayList<>();
+        for (byte[] stream : streams) inputs.add(new ByteArrayInputStream(stream));
+        List<SecondAggregate> merged = new ArrayList<>();
+        new AggregateMerger(inputs).run(merged::add);
+        return merged;
+    }
+
+    @ParameterizedTest
+    @CsvSource({"access.log, 99.9, 1, BUCKETED", "access.log, 95, 3, EXACT", "access.modified4.log, 90, 1, EXACT",
+            "access.modified4.log, 50, 10, BUCKETED"})
+    void matchAnalysisOfMergedRawLogs(String log, double availabilityThreshold, long windowSeconds,
+                                      WindowMode windowMode, @TempDir Path directory) throws IOException {
+        List<String> lines = Files.readAllLines(Path.of(log)).stream().filter(line -> !line.isBlank()).toList();
+        // every third line goes to the same node, so nodes overlap in time
+        List<Path> nodes = List.of(directory.resolve("a.log"), directory.resolve("b.log"), directory.resolve("c.log"));
+        for (int node = 0; node < nodes.size(); node++) {
+            List<String> nodeLines = new ArrayList<>();
+            for (int i = node; i < lines.size(); i += nodes.size()) nodeLines.add(lines.get(i));
+            Files.write(nodes.get(node), nodeLines);
+        }
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        LogAnalyzer rawAnalyzer = createAnalyzer(expected, availabilityThreshold, windowSeconds, windowMode);
+        new LogMerger(nodes).run(rawAnalyzer::processBatch);
+
+        ErrorRules errorRules = new ErrorRules(45);
+        List<byte[]> streams = new ArrayList<>();
+        long rawSize = 0;
+        for (Path node : nodes) {
+            streams.add(aggregate(List.of(node), errorRules));
+            rawSize += Files.size(node);
+        }
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        LogAnalyzer mergedAnalyzer = createAnalyzer(actual, availabilityThreshold, windowSeconds, windowMode);
+        merge(streams.toArray(byte[][]::new)).forEach(mergedAnalyzer::processAggregate);
+
+        if (availabilityThreshold < 99) assertNotEquals("", expected.toString(StandardCharsets.UTF_8));
+        assertEquals(expected.toString(StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8));
+        assertEquals(rawAnalyzer.getLogLinesProcessor().getEvictedLinesNumber() + rawAnalyzer.getLogLinesProcessor().getTotalLinesNumber(),
+                mergedAnalyzer.getLogLinesProcessor().getEvictedLinesNumber() + mergedAnalyzer.getLogLinesProcessor().getTotalLinesNumber());
+        assertTrue(streams.stream().mapToLong(stream -> stream.length).sum() * 50 < rawSize);
+    }
+
+    @Test
+    void concatSecondsInOrderOfStreams() throws IOException {
+        byte[] first = (AggregateWriter.HEADER + "rules\n1 0 2 1 1,1\n3 0 1 0 1\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] second = (AggregateWriter.HEADER + "rules\n\n1 0 1 1 0,1\n2 0 1 0 1\n3 0 2 0 2\n").getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals(List.of(SecondAggregate.parse("1 0 3 2 1,2"), SecondAggregate.parse("2 0 1 0 1"),
+                SecondAggregate.parse("3 0 3 0 3")), merge(first, second));
+    }
+
+    @Test
+    void writeRunsOfSecond() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (AggregateWriter writer = new AggregateWriter(output, new ErrorRules(45).setErrorStatuses(List.of("429")))) {
+            writer.add(2000, 3600, 429, 10);
+            writer.add(2999, 3600, 200, 10);
+            writer.add(2500, 3600, 200, 46);
+            writer.add(2000, 3600, 500, 10);
+            writer.add(4000, 3600, 200, 10);
+            assertEquals(1, writer.getSecondsNumber());
+        }
+        assertEquals(List.of(SecondAggregate.parse("2 3600 4 2 0,1,1,1,1"), SecondAggregate.parse("4 3600 1 0 1")),
+                merge(output.toByteArray()));
+    }
+
+    @Test
+    void rejectStreamsOfOtherRules() {
+        byte[] first = (AggregateWriter.HEADER + new ErrorRules(45) + "\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] second = (AggregateWriter.HEADER + new ErrorRules(100) + "\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] malformed = (AggregateWriter.HEADER + new ErrorRules(45) + "\n1 0 2\n").getBytes(StandardCharsets.US_ASCII);
+
+        assertThrows(IllegalArgumentException.class, () -> merge(first, second));
+        assertThrows(IllegalArgumentException.class, () -> merge(first, String.format(LINE, 2, 200, "1.5").getBytes(StandardCharsets.US_ASCII)));
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> merge(first, malformed));
+        assertTrue(exception.getMessage().startsWith("Input 2 line 2"));
+    }
+}
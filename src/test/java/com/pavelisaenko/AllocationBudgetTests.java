@@ -0,0 +1,200 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import picocli.CommandLine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Guards per-line hot path against allocations: every component processes a million synthetic lines and bytes
+ * allocated by the test thread per line must stay within budget of component.
+ * <p>
+ * Lines are steady-state: one error of 100 lines, so window never fails and no interval is open.
+ * Fixed costs, e.g. of buffers and of command line parsing, are cancelled by measuring runs of
+ * {@link #LINES} and {@code 2 * LINES} lines and dividing their difference by {@link #LINES}.
+ */
+public class AllocationBudgetTests {
+
+    private static final int LINES = 1_000_000;
+    private static final int LINES_PER_SECOND = 50;
+    /**
+     * 2017-06-14T00:00:00Z
+     */
+    private static final long START_EPOCH_SECOND = 1497398400L;
+
+    /**
+     * {@link LogLine} and its {@link Instant}, nothing else
+     */
+    private static final double LOG_LINE_PARSER_BUDGET = 64;
+    private static final double LOG_LINES_PROCESSOR_BUDGET = 0.5;
+    private static final double MAIN_LOOP_BUDGET = 0.5;
+
+    private static com.sun.management.ThreadMXBean threadMXBean;
+
+    @BeforeAll
+    static void enableAllocationCounting() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "JVM does not count allocated bytes");
+        threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported(), "JVM does not count allocated bytes");
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    void logLineParser() {
+        String[] lines = new String[1000];
+        for (int i = 0; i < lines.length; i++) lines[i] = new String(SyntheticLog.line(i), StandardCharsets.US_ASCII);
+        LogLine logLine = LogLineParser.parseLogLine(lines[99].strip());
+        assertEquals(new LogLine(Instant.ofEpochMilli(SyntheticLog.epochMillis(99)), 503, 19.5), logLine);
+
+        assertWithinBudget("LogLineParser", LOG_LINE_PARSER_BUDGET, lineCount -> {
+            long sum = 0;
+            for (int i = 0; i < lineCount; i++) sum += LogLineParser.parseLogLine(lines[i % lines.length]).getStatusCode();
+            return sum;
+        });
+    }
+
+    @ParameterizedTest
+    @EnumSource(WindowMode.class)
+    void logLinesProcessor(WindowMode windowMode) {
+        assertWithinBudget("LogLinesProcessor " + windowMode, LOG_LINES_PROCESSOR_BUDGET, lineCount -> {
+            LogLinesProcessor processor = new LogLinesProcessor(45, 90, Duration.ofSeconds(1), windowMode);
+            for (int i = 0; i < lineCount; i++) {
+                processor.processNewLogLine(SyntheticLog.epochMillis(i), SyntheticLog.statusCode(i),
+                        SyntheticLog.responseTime(i));
+            }
+            return processor.getTotalLinesNumber();
+        });
+    }
+
+    @Test
+    void mainLoop() {
+        InputStream standardInput = System.in;
+        PrintStream standardOutput = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+            assertWithinBudget("Main", MAIN_LOOP_BUDGET, lineCount -> {
+                System.setIn(new SyntheticLog(lineCount));
+                return new CommandLine(new Main()).execute("-t", "45", "-u", "90");
+            });
+        } finally {
+            System.setIn(standardInput);
+            System.setOut(standardOutput);
+        }
+        assertEquals(0, output.size(), "no interval must be open");
+    }
+
+    private interface Run {
+        /**
+         * @return result which keeps run from being optimized away
+         */
+        long run(int lineCount);
+    }
+
+    private static void assertWithinBudget(String component, double budget, Run run) {
+        run.run(LINES / 10);
+        long small = measure(run, LINES);
+        long large = measure(run, 2 * LINES);
+        double bytesPerLine = (large - small) / (double) LINES;
+        assertTrue(bytesPerLine <= budget,
+                String.format("%s allocates %.2f bytes per line, budget is %.2f", component, bytesPerLine, budget));
+    }
+
+    private static long measure(Run run, int lineCount) {
+        long before = threadMXBean.getCurrentThreadAllocatedBytes();
+        run.run(lineCount);
+        return threadMXBean.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    /**
+     * Stream of {@code lineCount} log lines generated on the fly without allocations:
+     * {@link #LINES_PER_SECOND} lines per second from {@link #START_EPOCH_SECOND}, every 100th line is 5xx error.
+     */
+    private static final class SyntheticLog extends InputStream {
+        private static final byte[] TEMPLATE = ("192.168.32.181 - - [14/06/2017:00:00:00 +0000] " +
+                "\"PUT /rest/v1.4/documents?zone=default HTTP/1.1\" 200 2 12.5 \"-\" \"@list-item-updater\" prio:0\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        private static final int TIME_START = 31;
+        private static final int STATUS_START = TEMPLATE.length - 43;
+        private static final int RESPONSE_TIME_START = STATUS_START + 6;
+
+        private final int lineCount;
+        private final byte[] line = TEMPLATE.clone();
+        private int lineNumber = -1;
+        private int position = TEMPLATE.length;
+
+        private SyntheticLog(int lineCount) {
+            this.lineCount = lineCount;
+        }
+
+        private static long epochMillis(int lineNumber) {
+            return (START_EPOCH_SECOND + lineNumber / LINES_PER_SECOND) * 1000;
+        }
+
+        private static int statusCode(int lineNumber) {
+            return lineNumber % 100 == 99 ? 503 : 200;
+        }
+
+        private static double responseTime(int lineNumber) {
+            return 10 + lineNumber % 10 + 0.5;
+        }
+
+        private static byte[] line(int lineNumber) {
+            byte[] line = TEMPLATE.clone();
+            fill(line, lineNumber);
+            return line;
+        }
+
+        private static void fill(byte[] line, int lineNumber) {
+            int secondOfDay = lineNumber / LINES_PER_SECOND;
+            writeDigits(line, TIME_START, secondOfDay / 3600);
+            writeDigits(line, TIME_START + 3, secondOfDay / 60 % 60);
+            writeDigits(line, TIME_START + 6, secondOfDay % 60);
+            writeDigits(line, STATUS_START, statusCode(lineNumber) / 10);
+            line[STATUS_START + 2] = (byte) ('0' + statusCode(lineNumber) % 10);
+            line[RESPONSE_TIME_START + 1] = (byte) ('0' + lineNumber % 10);
+        }
+
+        private static void writeDigits(byte[] line, int start, int value) {
+            line[start] = (byte) ('0' + value / 10 % 10);
+            line[start + 1] = (byte) ('0' + value % 10);
+        }
+
+        @Override
+        public int read() {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0];
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) return 0;
+            int read = 0;
+            while (read < length) {
+                if (position == line.length) {
+                    if (lineNumber + 1 == lineCount) break;
+                    fill(line, ++lineNumber);
+                    position = 0;
+                }
+                int count = Math.min(length - read, line.length - position);
+                System.arraycopy(line, position, buffer, offset + read, count);
+                position += count;
+                read += count;
+            }
+            return read == 0 ? -1 : read;
+        }
+    }
+}
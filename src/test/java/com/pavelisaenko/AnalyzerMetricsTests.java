@@ -0,0 +1,71 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalyzerMetricsTests {
+
+    @Test
+    void publishCountersOfAnalysis() throws IOException {
+        AnalyzerMetrics metrics = new AnalyzerMetrics();
+        RecordingIntervalProcessor intervalProcessor = new RecordingIntervalProcessor();
+        LogLinesProcessor logLinesProcessor = new LogLinesProcessor(45, 99, Duration.ofSeconds(5), WindowMode.BUCKETED);
+        LogAnalyzer logAnalyzer = new LogAnalyzer(logLinesProcessor, intervalProcessor);
+        logAnalyzer.setMetrics(metrics);
+
+        long[] lines = {0};
+        new MappedLogFileParser(Path.of("access.log")).parse(batch -> {
+            lines[0] += batch.getSize();
+            logAnalyzer.processBatch(batch);
+        });
+
+        long begins = intervalProcessor.getEvents().stream()
+                .filter(event -> event.type() == RecordingIntervalProcessor.Event.Type.BEGIN).count();
+        long ends = intervalProcessor.getEvents().stream()
+                .filter(event -> event.type() == RecordingIntervalProcessor.Event.Type.END).count();
+        assertEquals(lines[0], metrics.getLinesTotal());
+        assertEquals(begins, metrics.getIntervalsOpenedTotal());
+        assertEquals(ends, metrics.getIntervalsClosedTotal());
+        assertEquals(logLinesProcessor.getTotalLinesNumber(), metrics.getWindowLines());
+        assertEquals(lines[0] - logLinesProcessor.getTotalLinesNumber(), metrics.getEvictedLinesTotal());
+        assertTrue(metrics.getIngestionLagMillis() > 0);
+    }
+
+    @Test
+    void publishLineByLineAnalysis() {
+        AnalyzerMetrics metrics = new AnalyzerMetrics();
+        LogLinesProcessor logLinesProcessor = new LogLinesProcessor(45, 50, Duration.ofSeconds(1), WindowMode.EXACT);
+        LogAnalyzer logAnalyzer = new LogAnalyzer(logLinesProcessor, new RecordingIntervalProcessor());
+        logAnalyzer.setMetrics(metrics);
+
+        for (int i = 0; i < 10_000; i++) logAnalyzer.processLogLine(i * 10L, i % 4 == 0 ? 500 : 200, 1);
+        assertTrue(metrics.getLinesTotal() > 0 && metrics.getLinesTotal() < 10_000);
+
+        logAnalyzer.publishMetrics();
+        assertEquals(10_000, metrics.getLinesTotal());
+        assertEquals(logLinesProcessor.getTotalLinesNumber(), metrics.getWindowLines());
+        long windowLines = logLinesProcessor.getTotalLinesNumber();
+        assertEquals(100.0 * (windowLines - logLinesProcessor.getErrorLinesNumber()) / windowLines,
+                metrics.getWindowAvailability(), 1e-9);
+        assertEquals(10_000 - logLinesProcessor.getTotalLinesNumber(), metrics.getEvictedLinesTotal());
+    }
+
+    @Test
+    void formatPrometheusText() {
+        AnalyzerMetrics metrics = new AnalyzerMetrics();
+        metrics.publish(10, 2, 1, 0, 8, 2, Long.MIN_VALUE);
+        metrics.addParseErrors(3);
+
+        String text = metrics.toPrometheusText();
+        assertTrue(text.contains("# TYPE analyze_lines_total counter\nanalyze_lines_total 10\n"));
+        assertTrue(text.contains("analyze_parse_errors_total 3\n"));
+        assertTrue(text.contains("analyze_window_availability_percent 75\n"));
+        assertTrue(text.contains("analyze_ingestion_lag_seconds 0\n"));
+        assertEquals(100, new AnalyzerMetrics().getWindowAvailability());
+    }
+}
@@ -0,0 +1,106 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BucketedLogWindowTests {
+
+    private static final long START = Instant.parse("2017-06-14T06:47:02Z").toEpochMilli();
+
+    private static void addAndEvict(LogWindow window, Duration windowSize, long epochMillis, boolean isError) {
+        window.add(epochMillis, isError, 0);
+        window.evictBefore(epochMillis - windowSize.toMillis());
+    }
+
+    @Test
+    void countLinesInWindow() {
+        Duration windowSize = Duration.ofSeconds(2);
+        BucketedLogWindow window = new BucketedLogWindow(windowSize);
+        addAndEvict(window, windowSize, START, true);
+        addAndEvict(window, windowSize, START, false);
+        addAndEvict(window, windowSize, START + 1000, false);
+        addAndEvict(window, windowSize, START + 2000, true);
+
+        assertEquals(4, window.getTotalLinesNumber());
+        assertEquals(2, window.getErrorLinesNumber());
+
+        addAndEvict(window, windowSize, START + 3000, false);
+
+        assertEquals(3, window.getTotalLinesNumber());
+        assertEquals(1, window.getErrorLinesNumber());
+        assertEquals(Optional.of(Instant.ofEpochMilli(START + 1000)), window.findFirstTimestamp());
+        assertEquals(Optional.of(Instant.ofEpochMilli(START + 2000)), window.findFirstErrorTimestamp());
+    }
+
+    @Test
+    void clearWindowAfterLongGap() {
+        Duration windowSize = Duration.ofSeconds(5);
+        BucketedLogWindow window = new BucketedLogWindow(windowSize);
+        for (int i = 0; i < 5; i++) addAndEvict(window, windowSize, START + i * 1000L, true);
+        addAndEvict(window, windowSize, START + 1_000_000, false);
+
+        assertEquals(1, window.getTotalLinesNumber());
+        assertEquals(0, window.getErrorLinesNumber());
+        assertEquals(Optional.empty(), window.findLastErrorTimestamp());
+    }
+
+    @Test
+    void keepMillisOfFirstAndLastErrors() {
+        Duration windowSize = Duration.ofSeconds(10);
+        BucketedLogWindow window = new BucketedLogWindow(windowSize);
+        addAndEvict(window, windowSize, START + 100, false);
+        addAndEvict(window, windowSize, START + 700, true);
+        addAndEvict(window, windowSize, START + 300, true);
+        addAndEvict(window, windowSize, START + 5900, true);
+        addAndEvict(window, windowSize, START + 5200, true);
+
+        assertEquals(Optional.of(Instant.ofEpochMilli(START + 100)), window.findFirstTimestamp());
+        assertEquals(Optional.of(Instant.ofEpochMilli(START + 300)), window.findFirstErrorTimestamp());
+        assertEquals(Optional.of(Instant.ofEpochMilli(START + 5900)), window.findLastErrorTimestamp());
+    }
+
+    @Test
+    void ignoreLinesOlderThanWindow() {
+        Duration windowSize = Duration.ofSeconds(1);
+        BucketedLogWindow window = new BucketedLogWindow(windowSize);
+        addAndEvict(window, windowSize, START + 10_000, false);
+        window.add(START, true, 0);
+
+        assertEquals(1, window.getTotalLinesNumber());
+        assertEquals(0, window.getErrorLinesNumber());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 10, 60})
+    void matchDequeWindowOnBundledLogs(int windowSeconds) throws IOException {
+        Duration windowSize = Duration.ofSeconds(windowSeconds);
+        for (String file : List.of("access.log", "access.modified4.log")) {
+            LogLinesProcessor exact = new LogLinesProcessor(45, 99.9, windowSize, WindowMode.EXACT);
+            LogLinesProcessor bucketed = new LogLinesProcessor(45, 99.9, windowSize, WindowMode.BUCKETED);
+            for (String line : Files.readAllLines(Path.of(file))) {
+                if (line.isBlank()) continue;
+                LogLine logLine = LogLineParser.parseLogLine(line);
+                exact.processNewLogLine(logLine);
+                bucketed.processNewLogLine(logLine);
+
+                assertEquals(exact.getTotalLinesNumber(), bucketed.getTotalLinesNumber());
+                assertEquals(exact.getErrorLinesNumber(), bucketed.getErrorLinesNumber());
+                assertEquals(exact.isWindowFails(), bucketed.isWindowFails());
+                assertEquals(exact.findFirstErrorTimestampInWindow(), bucketed.findFirstErrorTimestampInWindow());
+                assertEquals(exact.findLastErrorTimestampInWindow(), bucketed.findLastErrorTimestampInWindow());
+                assertEquals(exact.findFirstTimestampInWindow(), bucketed.findFirstTimestampInWindow());
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteLineReaderTests {
+
+    private static List<String> readAll(String input, int bufferSize) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (ByteLineReader reader = new ByteLineReader(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)), bufferSize)) {
+            while (reader.nextLine()) {
+                lines.add(new String(reader.getBuffer(), reader.getLineStart(),
+                        reader.getLineEnd() - reader.getLineStart(), StandardCharsets.US_ASCII));
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    void readLinesWithDifferentTerminators() throws IOException {
+        assertEquals(List.of("first", "second", "", "third"), readAll("first\nsecond\r\n\nthird", 64));
+    }
+
+    @Test
+    void readLinesLongerThanBuffer() throws IOException {
+        String longLine = "x".repeat(100);
+        assertEquals(List.of(longLine, "a", longLine), readAll(longLine + "\na\n" + longLine + "\n", 3));
+    }
+
+    @Test
+    void readEmptyInput() throws IOException {
+        assertEquals(List.of(), readAll("", 8));
+    }
+
+    @Test
+    void blankLineTest() throws IOException {
+        try (ByteLineReader reader = new ByteLineReader(
+                new ByteArrayInputStream(" \t\nx\n".getBytes(StandardCharsets.US_ASCII)))) {
+            assertTrue(reader.nextLine());
+            assertTrue(reader.isLineBlank());
+            assertTrue(reader.nextLine());
+            assertFalse(reader.isLineBlank());
+            assertFalse(reader.nextLine());
+        }
+    }
+
+    @Test
+    void wrongBufferSizeTest() {
+        assertThrows(IllegalArgumentException.class, () -> new ByteLineReader(new ByteArrayInputStream(new byte[0]), 0));
+    }
+
+    @Test
+    void callBeforeEveryRead() throws IOException {
+        int[] reads = {0};
+        try (ByteLineReader reader = new ByteLineReader(
+                new ByteArrayInputStream("first\nsecond\n".getBytes(StandardCharsets.US_ASCII)), 8)) {
+            reader.setBeforeRead(() -> reads[0]++);
+            while (reader.nextLine()) {
+            }
+        }
+        // "first\nse", "cond\n", end of stream
+        assertEquals(3, reads[0]);
+    }
+}
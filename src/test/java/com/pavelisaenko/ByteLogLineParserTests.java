@@ -0,0 +1,145 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteLogLineParserTests {
+
+    private static final String EXAMPLE = "92.168.32.181 - - [14/06/2017:16:47:02 +1000] \"PUT /rest/v1.4/documents?zone=default&_rid=39b3d39 HTTP/1.1\" 200 2 97.679409 \"-\" \"@list-item-updater\" prio:0";
+
+    private static ByteLogLineParser parse(String line) {
+        ByteLogLineParser parser = new ByteLogLineParser();
+        byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+        parser.parse(bytes, 0, bytes.length);
+        return parser;
+    }
+
+    @Test
+    void readCorrectLine() {
+        ByteLogLineParser parser = parse(EXAMPLE);
+
+        assertEquals(Instant.parse("2017-06-14T06:47:02Z").getEpochSecond(), parser.getEpochSecond());
+        assertEquals(200, parser.getStatusCode());
+        assertEquals(97.679409, parser.getResponseTime());
+        assertEquals(ZoneOffset.ofHours(10), parser.getZoneOffset());
+    }
+
+    @Test
+    void honorNegativeOffset() {
+        ByteLogLineParser parser = parse(EXAMPLE.replace("+1000", "-0530"));
+
+        assertEquals(Instant.parse("2017-06-14T22:17:02Z").getEpochSecond(), parser.getEpochSecond());
+        assertEquals(ZoneOffset.ofHoursMinutes(-5, -30), parser.getZoneOffset());
+    }
+
+    @Test
+    void toLogLineTest() {
+        LogLine expected = new LogLine(Instant.parse("2017-06-14T06:47:02Z"), 200, 97.679409);
+
+        assertEquals(expected, parse(EXAMPLE).toLogLine());
+    }
+
+    @Test
+    void parseSliceOfBuffer() {
+        byte[] bytes = ("garbage\n" + EXAMPLE + "\ngarbage").getBytes(StandardCharsets.US_ASCII);
+        ByteLogLineParser parser = new ByteLogLineParser();
+        parser.parse(bytes, 8, 8 + EXAMPLE.length());
+
+        assertEquals(200, parser.getStatusCode());
+        assertEquals(97.679409, parser.getResponseTime());
+    }
+
+    @Test
+    void parseDirectByteBuffer() {
+        byte[] bytes = EXAMPLE.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 10);
+        buffer.position(10);
+        buffer.put(bytes);
+        ByteLogLineParser parser = new ByteLogLineParser();
+        parser.parse(buffer, 10, 10 + bytes.length);
+
+        assertEquals(parse(EXAMPLE).toLogLine(), parser.toLogLine());
+        assertEquals(10 + bytes.length, buffer.position());
+    }
+
+    @Test
+    void cachedTimestampIsReplacedOnChange() {
+        ByteLogLineParser parser = new ByteLogLineParser();
+        byte[] first = EXAMPLE.getBytes(StandardCharsets.US_ASCII);
+        byte[] second = EXAMPLE.replace(":16:47:02 ", ":16:47:03 ").getBytes(StandardCharsets.US_ASCII);
+
+        parser.parse(first, 0, first.length);
+        long firstEpochSecond = parser.getEpochSecond();
+        parser.parse(first, 0, first.length);
+        assertEquals(firstEpochSecond, parser.getEpochSecond());
+        parser.parse(second, 0, second.length);
+        assertEquals(firstEpochSecond + 1, parser.getEpochSecond());
+    }
+
+    @Test
+    void matchesDateTimeFormatterOnRandomDates() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy:HH:mm:ss Z");
+        Random random = new Random(42);
+        ByteLogLineParser parser = new ByteLogLineParser();
+        for (int i = 0; i < 10_000; i++) {
+            OffsetDateTime dateTime = OffsetDateTime.ofInstant(
+                    Instant.ofEpochSecond(random.nextInt(Integer.MAX_VALUE) * 2L),
+                    ZoneOffset.ofTotalSeconds((random.nextInt(36 * 4) - 18 * 4) * 15 * 60)
+            );
+            byte[] line = EXAMPLE.replace("14/06/2017:16:47:02 +1000", dateTime.format(formatter))
+                    .getBytes(StandardCharsets.US_ASCII);
+            parser.parse(line, 0, line.length);
+
+            assertEquals(dateTime.toEpochSecond(), parser.getEpochSecond(), dateTime::toString);
+        }
+    }
+
+    @Test
+    void matchesLegacyParserOnBundledLogs() throws IOException {
+        ByteLogLineParser parser = new ByteLogLineParser();
+        for (String file : List.of("access.log", "access.modified4.log")) {
+            for (String line : Files.readAllLines(Path.of(file))) {
+                if (line.isBlank()) continue;
+                byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+                parser.parse(bytes, 0, bytes.length);
+                LogLine legacy = LogLineParser.parseLogLine(line);
+
+                assertEquals(legacy.getTimestamp().minusSeconds(parser.getOffsetSeconds()), parser.toLogLine().getTimestamp());
+                assertEquals(legacy.getStatusCode(), parser.getStatusCode());
+                assertEquals(legacy.getResponseTime(), parser.getResponseTime());
+            }
+        }
+    }
+
+    @Test
+    void parseResponseTimeForms() {
+        assertEquals(45.0, parse(EXAMPLE.replace("97.679409", "45")).getResponseTime());
+        assertEquals(0.5, parse(EXAMPLE.replace("97.679409", ".5")).getResponseTime());
+        assertEquals(1e3, parse(EXAMPLE.replace("97.679409", "1e3")).getResponseTime());
+        assertEquals(0.12345678901234568, parse(EXAMPLE.replace("97.679409", "0.12345678901234567890")).getResponseTime());
+    }
+
+    @Test
+    void rejectMalformedLines() {
+        assertThrows(IllegalArgumentException.class, () -> parse(""));
+        assertThrows(IllegalArgumentException.class, () -> parse("a b c d e f g h i j"));
+        assertThrows(IllegalArgumentException.class, () -> parse(EXAMPLE.replace("14/06/2017", "31/02/2017")));
+        assertThrows(IllegalArgumentException.class, () -> parse(EXAMPLE.replace("16:47:02", "16:47:0x")));
+        assertThrows(IllegalArgumentException.class, () -> parse(EXAMPLE.replace("+1000", "1000 ")));
+        assertThrows(IllegalArgumentException.class, () -> parse(EXAMPLE.replace(" 200 ", " 2x0 ")));
+        assertThrows(IllegalArgumentException.class, () -> parse(EXAMPLE.replace("97.679409", "fast")));
+    }
+}
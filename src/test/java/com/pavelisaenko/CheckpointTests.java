@@ -0,0 +1,160 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheckpointTests {
+
+    @TempDir
+    Path directory;
+
+    private static LogAnalyzer createLogAnalyzer(WindowMode windowMode, ByteArrayOutputStream output) {
+        LogLinesProcessor logLinesProcessor = new LogLinesProcessor(45, 90, Duration.ofSeconds(3), windowMode);
+        logLinesProcessor.setPercentileSlo(99, 200);
+        IntervalProcessor intervalProcessor = new IntervalProcessor();
+        intervalProcessor.setPercentilesReported(true);
+        intervalProcessor.setSink(new TextIntervalSink(output, 0, true));
+        return new LogAnalyzer(logLinesProcessor, intervalProcessor);
+    }
+
+    private static List<LogLine> readLogLines() throws IOException {
+        List<LogLine> logLines = new ArrayList<>();
+        new MappedLogFileParser(Path.of("access.modified4.log")).parse(batch -> {
+            for (int i = 0; i < batch.getSize(); i++) {
+                logLines.add(new LogLine(Instant.ofEpochMilli(batch.getEpochMillis()[i]),
+                        batch.getStatusCodes()[i], batch.getResponseTimes()[i]));
+            }
+        });
+        return logLines;
+    }
+
+    @ParameterizedTest
+    @EnumSource(WindowMode.class)
+    void resumeAnalysis(WindowMode windowMode) throws IOException {
+        List<LogLine> logLines = readLogLines();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        LogAnalyzer uninterrupted = createLogAnalyzer(windowMode, expected);
+        logLines.forEach(uninterrupted::processLogLine);
+
+        for (int cut : new int[]{0, 1, 1500, 3001, 6000, logLines.size()}) {
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            LogAnalyzer interrupted = createLogAnalyzer(windowMode, actual);
+            logLines.subList(0, cut).forEach(interrupted::processLogLine);
+
+            Path path = directory.resolve("checkpoint");
+            new CheckpointWriter(path).write(Checkpoint.of(interrupted, "access.log", cut));
+            Checkpoint checkpoint = Checkpoint.read(path).orElseThrow();
+            assertEquals("access.log", checkpoint.getInputKey());
+            assertEquals(cut, checkpoint.getOffset());
+
+            LogAnalyzer resumed = createLogAnalyzer(windowMode, actual);
+            checkpoint.restore(resumed);
+            assertTrue(resumed.getLogLinesProcessor().hasSameContent(interrupted.getLogLinesProcessor()));
+            logLines.subList(cut, logLines.size()).forEach(resumed::processLogLine);
+
+            assertEquals(expected.toString(StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8), "cut at " + cut);
+        }
+    }
+
+    @Test
+    void resumeReorderingAnalysis() throws IOException {
+        List<LogLine> logLines = readLogLines();
+        Random random = new Random(5);
+        for (int i = 0; i < 300; i++) {
+            int index = random.nextInt(logLines.size() - 20);
+            Collections.swap(logLines, index, index + 1 + random.nextInt(19));
+        }
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ReorderingLogAnalyzer uninterrupted = createReorderingLogAnalyzer(expected);
+        logLines.forEach(uninterrupted::processLogLine);
+        uninterrupted.flush();
+
+        for (int cut : new int[]{0, 1, 1500, 3001, logLines.size()}) {
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            ReorderingLogAnalyzer interrupted = createReorderingLogAnalyzer(actual);
+            logLines.subList(0, cut).forEach(interrupted::processLogLine);
+
+            ReorderingLogAnalyzer resumed = createReorderingLogAnalyzer(actual);
+            Checkpoint.of(interrupted, "access.log", cut).restore(resumed);
+            assertEquals(interrupted.getBufferedLinesNumber(), resumed.getBufferedLinesNumber());
+            logLines.subList(cut, logLines.size()).forEach(resumed::processLogLine);
+            resumed.flush();
+
+            assertEquals(expected.toString(StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8), "cut at " + cut);
+            assertEquals(uninterrupted.getLateLinesNumber(), resumed.getLateLinesNumber());
+        }
+
+        Checkpoint checkpoint = Checkpoint.of(createReorderingLogAnalyzer(new ByteArrayOutputStream()), "access.log", 0);
+        assertThrows(IllegalArgumentException.class, () -> checkpoint.restore(createLogAnalyzer(WindowMode.EXACT, new ByteArrayOutputStream())));
+    }
+
+    private static ReorderingLogAnalyzer createReorderingLogAnalyzer(ByteArrayOutputStream output) {
+        IntervalProcessor intervalProcessor = new IntervalProcessor();
+        intervalProcessor.setSink(new TextIntervalSink(output, 0, true));
+        return new ReorderingLogAnalyzer(new LogLinesProcessor(45, 90, Duration.ofSeconds(3), WindowMode.EXACT),
+                intervalProcessor, Duration.ofSeconds(2));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = WindowMode.class, names = {"EXACT", "OFF_HEAP"})
+    void rejectTooBigLineWindow(WindowMode windowMode) {
+        LogAnalyzer logAnalyzer = new LogAnalyzer(new LogLinesProcessor(45, 90, Duration.ofHours(1), windowMode),
+                new IntervalProcessor());
+        for (long i = 0; i < Checkpoint.MAX_LINE_WINDOW_LINES; i++) logAnalyzer.processLogLine(i, 200, 1);
+        assertDoesNotThrow(() -> Checkpoint.of(logAnalyzer, "access.log", 0));
+
+        logAnalyzer.processLogLine(Checkpoint.MAX_LINE_WINDOW_LINES, 200, 1);
+        assertThrows(IllegalStateException.class, () -> Checkpoint.of(logAnalyzer, "access.log", 0));
+    }
+
+    @Test
+    void rejectOtherSettings() {
+        Checkpoint checkpoint = Checkpoint.of(createLogAnalyzer(WindowMode.BUCKETED, new ByteArrayOutputStream()), "access.log", 0);
+        LogAnalyzer other = new LogAnalyzer(new LogLinesProcessor(45, 99, Duration.ofSeconds(3), WindowMode.BUCKETED),
+                new IntervalProcessor());
+        assertThrows(IllegalArgumentException.class, () -> checkpoint.restore(other));
+    }
+
+    @Test
+    void readMissingAndBrokenCheckpoints() throws IOException {
+        Path path = directory.resolve("checkpoint");
+        assertTrue(Checkpoint.read(path).isEmpty());
+
+        Files.write(path, new byte[]{1, 2, 3, 4, 5});
+        assertThrows(IllegalArgumentException.class, () -> Checkpoint.read(path));
+
+        byte[] bytes = Checkpoint.of(createLogAnalyzer(WindowMode.EXACT, new ByteArrayOutputStream()), "access.log", 0).toBytes();
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IllegalArgumentException.class, () -> Checkpoint.read(path));
+    }
+
+    @Test
+    void replaceCheckpointInBackground() throws IOException {
+        Path path = directory.resolve("checkpoint");
+        LogAnalyzer logAnalyzer = createLogAnalyzer(WindowMode.BUCKETED, new ByteArrayOutputStream());
+        try (CheckpointWriter checkpointWriter = new CheckpointWriter(path)) {
+            for (int offset = 1; offset <= 100; offset++) checkpointWriter.submit(Checkpoint.of(logAnalyzer, "access.log", offset));
+        }
+        assertEquals(100, Checkpoint.read(path).orElseThrow().getOffset());
+        assertFalse(Files.exists(directory.resolve("checkpoint.tmp")));
+    }
+}
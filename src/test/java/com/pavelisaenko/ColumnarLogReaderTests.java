@@ -0,0 +1,160 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarLogReaderTests {
+
+    private static List<LogLine> parse(Path file) throws IOException {
+        List<LogLine> logLines = new ArrayList<>();
+        new MappedLogFileParser(file).parse(batch -> addAll(logLines, batch));
+        return logLines;
+    }
+
+    private static void addAll(List<LogLine> logLines, LogLineBatch batch) {
+        for (int i = 0; i < batch.getSize(); i++) {
+            logLines.add(new LogLine(Instant.ofEpochMilli(batch.getEpochMillis()[i]),
+                    batch.getStatusCodes()[i], batch.getResponseTimes()[i]));
+        }
+    }
+
+    private static void convert(Path file, Path columnarFile, int blockSize) throws IOException {
+        try (ColumnarLogWriter writer = new ColumnarLogWriter(columnarFile, blockSize)) {
+            new MappedLogFileParser(file).parse(batch -> {
+                try {
+                    writer.write(batch);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    @Test
+    void readConvertedLog(@TempDir Path directory) throws IOException {
+        Path columnarFile = directory.resolve("access.alog");
+        convert(Path.of("access.modified4.log"), columnarFile, 1000);
+
+        List<LogLine> expected = parse(Path.of("access.modified4.log"));
+        ColumnarLogReader reader = new ColumnarLogReader(columnarFile);
+        List<LogLine> actual = new ArrayList<>();
+        reader.read(batch -> {
+            assertEquals(ZoneOffset.ofHours(10), batch.getZoneOffset());
+            addAll(actual, batch);
+        });
+
+        assertEquals(expected.size(), reader.getLinesNumber());
+        assertEquals((expected.size() + 999) / 1000, reader.getBlocksNumber());
+        assertEquals(expected.get(0).getTimestamp().getEpochSecond(), reader.getOldestEpochSecond());
+        assertEquals(expected.get(expected.size() - 1).getTimestamp().getEpochSecond(), reader.getNewestEpochSecond());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+            assertEquals(expected.get(i).getStatusCode(), actual.get(i).getStatusCode());
+            assertEquals(expected.get(i).getResponseTime(), actual.get(i).getResponseTime(),
+                    expected.get(i).getResponseTime() * 1e-7);
+        }
+        assertTrue(Files.size(columnarFile) < expected.size() * 8L + 1000);
+    }
+
+    @Test
+    void matchAnalysisOfText(@TempDir Path directory) throws IOException {
+        Path columnarFile = directory.resolve("access.alog");
+        convert(Path.of("access.log"), columnarFile, ColumnarLogWriter.DEFAULT_BLOCK_SIZE);
+
+        RecordingIntervalProcessor expected = new RecordingIntervalProcessor();
+        LogAnalyzer textAnalyzer = new LogAnalyzer(new LogLinesProcessor(45, 99, Duration.ofSeconds(5), WindowMode.BUCKETED), expected);
+        new MappedLogFileParser(Path.of("access.log")).parse(textAnalyzer::processBatch);
+
+        RecordingIntervalProcessor actual = new RecordingIntervalProcessor();
+        LogAnalyzer columnarAnalyzer = new LogAnalyzer(new LogLinesProcessor(45, 99, Duration.ofSeconds(5), WindowMode.BUCKETED), actual);
+        new ColumnarLogReader(columnarFile).read(columnarAnalyzer::processBatch);
+
+        assertEquals(expected.getEvents(), actual.getEvents());
+    }
+
+    @Test
+    void matchParallelAnalysisOfText(@TempDir Path directory) throws IOException {
+        Path columnarFile = directory.resolve("access.alog");
+        convert(Path.of("access.log"), columnarFile, 1000);
+
+        for (String segmentLines : List.of("1500", String.valueOf(ParallelLogAnalyzer.DEFAULT_SEGMENT_LINES))) {
+            String expected = runMain("-t", "60", "-u", "80", "-w", "5", "-f", "access.log",
+                    "--parallel", "--segment-lines", segmentLines);
+            String actual = runMain("-t", "60", "-u", "80", "-w", "5", "-f", columnarFile.toString(),
+                    "--parallel", "--segment-lines", segmentLines);
+
+            assertEquals(9, expected.lines().count());
+            assertEquals(expected, actual);
+        }
+    }
+
+    private static String runMain(String... args) {
+        PrintStream standardOutput = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+            assertEquals(0, new CommandLine(new Main()).execute(args));
+        } finally {
+            System.setOut(standardOutput);
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void keepOutOfOrderSeconds(@TempDir Path directory) throws IOException {
+        Path columnarFile = directory.resolve("shuffled.alog");
+        long[] seconds = {1_497_422_822, 1_497_422_820, 1_497_422_900, 1_497_422_000, 1_497_422_000};
+        try (ColumnarLogWriter writer = new ColumnarLogWriter(columnarFile, 2)) {
+            for (long second : seconds) writer.write(second * 1000, 503, 1.5);
+        }
+
+        List<LogLine> actual = new ArrayList<>();
+        new ColumnarLogReader(columnarFile).read(batch -> addAll(actual, batch));
+
+        assertEquals(seconds.length, actual.size());
+        for (int i = 0; i < seconds.length; i++) {
+            assertEquals(new LogLine(Instant.ofEpochSecond(seconds[i]), 503, 1.5), actual.get(i));
+        }
+    }
+
+    @Test
+    void readEmptyLog(@TempDir Path directory) throws IOException {
+        Path columnarFile = directory.resolve("empty.alog");
+        new ColumnarLogWriter(columnarFile).close();
+
+        assertTrue(ColumnarLogReader.isColumnarLog(columnarFile));
+        ColumnarLogReader reader = new ColumnarLogReader(columnarFile);
+        assertEquals(0, reader.getLinesNumber());
+        reader.read(batch -> fail("Empty log has no batches"));
+    }
+
+    @Test
+    void rejectTextLog() throws IOException {
+        assertFalse(ColumnarLogReader.isColumnarLog(Path.of("access.log")));
+        assertThrows(IllegalArgumentException.class, () -> new ColumnarLogReader(Path.of("access.log")));
+    }
+
+    @Test
+    void rejectSubsecondTime(@TempDir Path directory) throws IOException {
+        try (ColumnarLogWriter writer = new ColumnarLogWriter(directory.resolve("wrong.alog"))) {
+            assertThrows(IllegalArgumentException.class, () -> writer.write(1500, 200, 1));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DequeLogWindowTests {
+
+    private static final long START = Instant.parse("2017-06-14T06:47:02Z").toEpochMilli();
+
+    private static void addAndEvict(LogWindow window, Duration windowSize, long epochMillis, boolean isError) {
+        window.add(epochMillis, isError, 0);
+        window.evictBefore(epochMillis - windowSize.toMillis());
+    }
+
+    @Test
+    void growAcrossEndOfArrays() throws IOException {
+        Duration windowSize = Duration.ofSeconds(1);
+        DequeLogWindow window = new DequeLogWindow(windowSize);
+        // 100 lines per second wrap around 128 initial slots, then 1000 lines per second grow arrays
+        for (int i = 0; i < 300; i++) addAndEvict(window, windowSize, START + i * 10L, i % 50 == 7);
+        long second = START + 10_000;
+        for (int i = 300; i < 1000; i++) addAndEvict(window, windowSize, second + i - 300, i % 50 == 7);
+
+        long last = second + 699;
+        assertEquals(700, window.getTotalLinesNumber());
+        assertEquals(14, window.getErrorLinesNumber());
+        assertEquals(Optional.of(Instant.ofEpochMilli(second)), window.findFirstTimestamp());
+        assertEquals(Optional.of(Instant.ofEpochMilli(second + 7)), window.findFirstErrorTimestamp());
+        assertEquals(Optional.of(Instant.ofEpochMilli(second + 657)), window.findLastErrorTimestamp());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        window.writeTo(new DataOutputStream(bytes));
+        DequeLogWindow restored = new DequeLogWindow(windowSize);
+        restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertTrue(restored.hasSameContent(window));
+
+        addAndEvict(window, windowSize, last + 2000, false);
+        assertEquals(1, window.getTotalLinesNumber());
+        assertEquals(0, window.getErrorLinesNumber());
+        assertFalse(restored.hasSameContent(window));
+    }
+}
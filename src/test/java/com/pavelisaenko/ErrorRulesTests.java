@@ -0,0 +1,98 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ErrorRulesTests {
+
+    private static int classify(ErrorClassifier classifier, String path, int statusCode, double responseTime,
+                                String agent) {
+        String line = "192.168.32.181 - - [14/06/2017:16:47:02 +1000] \"PUT " + path + " HTTP/1.1\" " + statusCode +
+                " 2 " + responseTime + " \"-\" \"" + agent + "\" prio:0";
+        byte[] bytes = ("xx" + line + "yy").getBytes(StandardCharsets.UTF_8);
+        return classifier.classify(bytes, 2, bytes.length - 2, statusCode, responseTime);
+    }
+
+    @Test
+    void defaultRules() {
+        ErrorClassifier classifier = new ErrorRules(45).compile();
+        assertFalse(classifier.hasLineRules());
+        assertTrue(classifier.isError(500, 10));
+        assertTrue(classifier.isError(599, 10));
+        assertTrue(classifier.isError(200, 45.1));
+        assertFalse(classifier.isError(200, 45));
+        assertFalse(classifier.isError(499, 10));
+        assertFalse(classifier.isError(600, 10));
+        assertFalse(classifier.isError(1000, 10));
+        assertFalse(classifier.isError(-1, 10));
+    }
+
+    @Test
+    void errorStatuses() {
+        ErrorClassifier classifier = new ErrorRules(45)
+                .setErrorStatuses(List.of("429", "500-504", "4xx", "0", "999"))
+                .compile();
+        assertTrue(classifier.isError(429, 10));
+        assertTrue(classifier.isError(404, 10));
+        assertTrue(classifier.isError(503, 10));
+        assertTrue(classifier.isError(504, 10));
+        assertTrue(classifier.isError(0, 10));
+        assertTrue(classifier.isError(999, 10));
+        assertFalse(classifier.isError(505, 10));
+        assertFalse(classifier.isError(200, 10));
+    }
+
+    @Test
+    void rejectWrongRules() {
+        ErrorRules rules = new ErrorRules(45);
+        assertThrows(IllegalArgumentException.class, () -> new ErrorRules(0));
+        assertThrows(IllegalArgumentException.class, () -> rules.setErrorStatuses(List.of("abc")));
+        assertThrows(IllegalArgumentException.class, () -> rules.setErrorStatuses(List.of("504-500")));
+        assertThrows(IllegalArgumentException.class, () -> rules.setErrorStatuses(List.of("1000")));
+        assertThrows(IllegalArgumentException.class, () -> rules.setErrorStatuses(List.of("500", "-1")));
+        assertThrows(IllegalArgumentException.class, () -> rules.setPathResponseThreshold("search", 200));
+        assertThrows(IllegalArgumentException.class, () -> rules.setPathResponseThreshold("/search", 0));
+        assertThrows(IllegalArgumentException.class, () -> rules.addIgnoredAgent(""));
+        // rules are unchanged by rejected statuses
+        assertTrue(rules.compile().isError(500, 10));
+    }
+
+    @Test
+    void pathResponseThresholds() {
+        ErrorClassifier classifier = new ErrorRules(45)
+                .setPathResponseThreshold("/search", 200)
+                .setPathResponseThreshold("/search/slow", 1000)
+                .compile();
+        assertTrue(classifier.hasLineRules());
+        assertEquals(ErrorClassifier.CORRECT, classify(classifier, "/search?q=a", 200, 150, "-"));
+        assertEquals(ErrorClassifier.ERROR, classify(classifier, "/search?q=a", 200, 250, "-"));
+        assertEquals(ErrorClassifier.CORRECT, classify(classifier, "/search/slow/1", 200, 900, "-"));
+        assertEquals(ErrorClassifier.ERROR, classify(classifier, "/documents", 200, 50, "-"));
+        assertEquals(ErrorClassifier.ERROR, classify(classifier, "/search", 503, 10, "-"));
+    }
+
+    @Test
+    void ignoredAgents() {
+        ErrorClassifier classifier = new ErrorRules(45).addIgnoredAgent("kube-probe").compile();
+        assertEquals(ErrorClassifier.IGNORED, classify(classifier, "/health", 503, 10, "kube-probe/1.27"));
+        assertEquals(ErrorClassifier.IGNORED, classify(classifier, "/health", 200, 10, "Go kube-probe"));
+        assertEquals(ErrorClassifier.ERROR, classify(classifier, "/health", 503, 10, "Mozilla/5.0 (X11)"));
+        assertEquals(ErrorClassifier.CORRECT, classify(classifier, "/health", 200, 10, "kube"));
+
+        byte[] line = "192.168.32.181 - - [14/06/2017:16:47:02 +1000] PUT /a HTTP/1.1 200 2 44.5 - kube-probe prio:0"
+                .getBytes(StandardCharsets.UTF_8);
+        assertEquals(ErrorClassifier.IGNORED, classifier.classify(line, 0, line.length, 200, 44.5));
+    }
+
+    @Test
+    void canonicalForm() {
+        assertEquals(new ErrorRules(45).setErrorStatuses(List.of("500-599")).toString(),
+                new ErrorRules(45).toString());
+        assertNotEquals(new ErrorRules(45).setErrorStatuses(List.of("500-598")).toString(),
+                new ErrorRules(45).toString());
+    }
+}
@@ -0,0 +1,36 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroupKeyTests {
+
+    private static final String LINE = "192.168.32.181 - - [14/06/2017:16:47:02 +1000] \"PUT /rest/v1.4/documents?zone=default&_rid=6076537c HTTP/1.1\" 200 2 44.510983 \"-\" \"@list-item-updater\" prio:0";
+
+    private static String extract(GroupKey groupKey, String line) {
+        byte[] bytes = ("xx" + line + "yy").getBytes(StandardCharsets.UTF_8);
+        return groupKey.extract(bytes, 2, bytes.length - 2);
+    }
+
+    @Test
+    void extractKeys() {
+        assertEquals("/rest/v1.4/documents", extract(GroupKey.PATH, LINE));
+        assertEquals("192.168.32.181", extract(GroupKey.IP, LINE));
+        assertEquals("@list-item-updater", extract(GroupKey.AGENT, LINE));
+    }
+
+    @Test
+    void extractPathWithoutQuery() {
+        String line = LINE.replace("/rest/v1.4/documents?zone=default&_rid=6076537c", "/rest/v1.4/documents");
+        assertEquals("/rest/v1.4/documents", extract(GroupKey.PATH, line));
+    }
+
+    @Test
+    void wrongLineTest() {
+        assertThrows(IllegalArgumentException.class, () -> extract(GroupKey.PATH, "192.168.32.181 - -"));
+        assertThrows(IllegalArgumentException.class, () -> extract(GroupKey.AGENT, LINE.substring(0, 120)));
+    }
+}
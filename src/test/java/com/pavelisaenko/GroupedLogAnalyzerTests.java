@@ -0,0 +1,160 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroupedLogAnalyzerTests {
+
+    private static LogAnalyzer createLogAnalyzer() {
+        return new LogAnalyzer(new LogLinesProcessor(45, 99, Duration.ofSeconds(10), WindowMode.BUCKETED),
+                new RecordingIntervalProcessor());
+    }
+
+    @Test
+    void matchSeparateAnalysisOfKeys() throws IOException {
+        Map<String, LogAnalyzer> expected = new HashMap<>();
+        Map<String, LogAnalyzer> actual = new ConcurrentHashMap<>();
+        GroupedLogAnalyzer groupedLogAnalyzer = new GroupedLogAnalyzer(3, key -> {
+            LogAnalyzer logAnalyzer = createLogAnalyzer();
+            assertNull(actual.put(key, logAnalyzer));
+            return logAnalyzer;
+        }, Duration.ofDays(1), 1000);
+
+        ByteLogLineParser parser = new ByteLogLineParser();
+        for (String line : Files.readAllLines(Path.of("access.log"))) {
+            if (line.isBlank()) continue;
+            byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+            parser.parse(bytes, 0, bytes.length);
+            String key = GroupKey.IP.extract(bytes, 0, bytes.length);
+
+            expected.computeIfAbsent(key, k -> createLogAnalyzer())
+                    .processLogLine(parser.getEpochMillis(), parser.getStatusCode(), parser.getResponseTime());
+            groupedLogAnalyzer.processLogLine(key, parser.getEpochMillis(), parser.getStatusCode(), parser.getResponseTime());
+        }
+        groupedLogAnalyzer.finish();
+
+        assertEquals(expected.keySet(), actual.keySet());
+        assertEquals(expected.size(), groupedLogAnalyzer.getKeysNumber());
+        assertEquals(0, groupedLogAnalyzer.getEvictedKeysNumber());
+        expected.forEach((key, logAnalyzer) -> assertEquals(
+                ((RecordingIntervalProcessor) logAnalyzer.getIntervalProcessor()).getEvents(),
+                ((RecordingIntervalProcessor) actual.get(key).getIntervalProcessor()).getEvents(),
+                key));
+    }
+
+    @Test
+    void evictIdleKeys() {
+        List<String> created = new ArrayList<>();
+        GroupedLogAnalyzer groupedLogAnalyzer = new GroupedLogAnalyzer(1, key -> {
+            created.add(key);
+            return createLogAnalyzer();
+        }, Duration.ofSeconds(60), 1000);
+
+        groupedLogAnalyzer.processLogLine("a", 0, 200, 1);
+        groupedLogAnalyzer.processLogLine("b", 0, 200, 1);
+        for (int i = 0; i < 2000; i++) groupedLogAnalyzer.processLogLine("b", i * 100L, 200, 1);
+        groupedLogAnalyzer.processLogLine("a", 200_000, 200, 1);
+        groupedLogAnalyzer.finish();
+
+        assertEquals(List.of("a", "b", "a"), created);
+        assertEquals(1, groupedLogAnalyzer.getEvictedKeysNumber());
+        assertEquals(2, groupedLogAnalyzer.getKeysNumber());
+    }
+
+    @Test
+    void evictLeastRecentlyUsedKeys() {
+        GroupedLogAnalyzer groupedLogAnalyzer = new GroupedLogAnalyzer(1, key -> createLogAnalyzer(),
+                Duration.ofDays(1), 10);
+
+        for (int i = 0; i < 25; i++) groupedLogAnalyzer.processLogLine("key" + i, i, 200, 1);
+        groupedLogAnalyzer.finish();
+
+        assertEquals(10, groupedLogAnalyzer.getKeysNumber());
+        assertEquals(15, groupedLogAnalyzer.getEvictedKeysNumber());
+    }
+
+    @Test
+    void publishMetricsOfAllKeys() {
+        AnalyzerMetrics metrics = new AnalyzerMetrics();
+        List<RecordingIntervalProcessor> intervalProcessors = new ArrayList<>();
+        GroupedLogAnalyzer groupedLogAnalyzer = new GroupedLogAnalyzer(1, key -> {
+            LogAnalyzer logAnalyzer = createLogAnalyzer();
+            logAnalyzer.setMetrics(metrics);
+            intervalProcessors.add((RecordingIntervalProcessor) logAnalyzer.getIntervalProcessor());
+            return logAnalyzer;
+        }, Duration.ofDays(1), 10);
+
+        // 25 keys with a few lines each and failing windows, 15 of them are evicted
+        for (int i = 0; i < 25; i++) {
+            for (int line = 0; line < 5; line++) groupedLogAnalyzer.processLogLine("key" + i, i * 1000L + line, 500, 1);
+            groupedLogAnalyzer.processLogLine("key" + i, i * 1000L + 5, 200, 1);
+        }
+        groupedLogAnalyzer.finish();
+
+        assertEquals(25 * 6, metrics.getLinesTotal());
+        assertEquals(25, metrics.getIntervalsOpenedTotal());
+        assertEquals(intervalProcessors.stream().mapToLong(intervalProcessor -> intervalProcessor.getEvents().stream()
+                .filter(event -> event.type() == RecordingIntervalProcessor.Event.Type.BEGIN).count()).sum(),
+                metrics.getIntervalsOpenedTotal());
+        // gauges are sums of windows of kept keys only
+        assertEquals(10 * 6, metrics.getWindowLines());
+        assertEquals(100.0 / 6, metrics.getWindowAvailability(), 1e-9);
+    }
+
+    @Test
+    void analyzeHandedOffLinesBeforeFullBatch() throws InterruptedException {
+        CountDownLatch keysCreated = new CountDownLatch(2);
+        CountDownLatch workersWaiting = new CountDownLatch(2);
+        GroupedLogAnalyzer groupedLogAnalyzer = new GroupedLogAnalyzer(2, key -> {
+            keysCreated.countDown();
+            return createLogAnalyzer();
+        }, Duration.ofDays(1), 10);
+        groupedLogAnalyzer.setBeforeWait(workersWaiting::countDown);
+
+        // keys of different workers
+        groupedLogAnalyzer.processLogLine("a", 0, 200, 1);
+        groupedLogAnalyzer.processLogLine("b", 0, 200, 1);
+        groupedLogAnalyzer.handOffBatches();
+
+        assertTrue(keysCreated.await(10, TimeUnit.SECONDS));
+        assertTrue(workersWaiting.await(10, TimeUnit.SECONDS));
+        groupedLogAnalyzer.finish();
+        assertEquals(2, groupedLogAnalyzer.getKeysNumber());
+    }
+
+    @Test
+    void rethrowWorkerFailure() {
+        GroupedLogAnalyzer groupedLogAnalyzer = new GroupedLogAnalyzer(2, key -> {
+            throw new IllegalStateException("broken " + key);
+        }, Duration.ofDays(1), 10);
+
+        assertThrows(IllegalStateException.class, () -> {
+            for (int i = 0; i < 100_000; i++) groupedLogAnalyzer.processLogLine("key", i, 200, 1);
+            groupedLogAnalyzer.finish();
+        });
+    }
+
+    @Test
+    void wrongArgumentsTest() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new GroupedLogAnalyzer(0, key -> createLogAnalyzer(), Duration.ofSeconds(1), 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GroupedLogAnalyzer(1, key -> createLogAnalyzer(), Duration.ZERO, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GroupedLogAnalyzer(4, key -> createLogAnalyzer(), Duration.ofSeconds(1), 3));
+    }
+}
@@ -0,0 +1,82 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeavyHittersTests {
+
+    @Test
+    void countExactlyBelowCapacity() {
+        HeavyHitters heavyHitters = new HeavyHitters(4, 16);
+        for (String key : new String[]{"/a", "/b", "/a", "/c", "/a", "/b"}) heavyHitters.record(key);
+
+        assertEquals(List.of(new HeavyHitters.Entry("/a", 3, 0), new HeavyHitters.Entry("/b", 2, 0)),
+                heavyHitters.top(2));
+        assertEquals(3, heavyHitters.getSize());
+        assertEquals(6, heavyHitters.getTotal());
+    }
+
+    @Test
+    void replaceLeastCountedKey() {
+        HeavyHitters heavyHitters = new HeavyHitters(2, 16);
+        for (String key : new String[]{"/a", "/a", "/b", "/c"}) heavyHitters.record(key);
+
+        assertEquals(List.of(new HeavyHitters.Entry("/a", 2, 0), new HeavyHitters.Entry("/c", 2, 1)),
+                heavyHitters.top(5));
+    }
+
+    @Test
+    void keepHeavyHittersOfManyDistinctKeys() {
+        HeavyHitters heavyHitters = new HeavyHitters(32, 16);
+        Map<String, Long> exactCounts = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            // every 4th key is one of 3 heavy keys, the rest are mostly unique
+            String key = i % 4 == 0 ? "/heavy/" + random.nextInt(3) : "/rare/" + random.nextInt(50_000);
+            heavyHitters.record(key);
+            exactCounts.merge(key, 1L, Long::sum);
+        }
+
+        List<HeavyHitters.Entry> top = heavyHitters.top(3);
+        assertEquals(3, top.size());
+        for (HeavyHitters.Entry entry : top) {
+            assertTrue(entry.key().startsWith("/heavy/"), entry.key());
+            long exactCount = exactCounts.get(entry.key());
+            assertTrue(entry.count() >= exactCount);
+            assertTrue(entry.count() - entry.error() <= exactCount);
+        }
+        assertEquals(32, heavyHitters.getSize());
+    }
+
+    @Test
+    void truncateLongKeys() {
+        HeavyHitters heavyHitters = new HeavyHitters(4, 4);
+        heavyHitters.record("/abcdef");
+        heavyHitters.record("/abcxyz");
+
+        assertEquals(List.of(new HeavyHitters.Entry("/abc", 2, 0)), heavyHitters.top(4));
+    }
+
+    @Test
+    void clear() {
+        HeavyHitters heavyHitters = new HeavyHitters(2, 16);
+        for (String key : new String[]{"/a", "/b", "/c"}) heavyHitters.record(key);
+        heavyHitters.clear();
+        heavyHitters.record("/d");
+
+        assertEquals(List.of(new HeavyHitters.Entry("/d", 1, 0)), heavyHitters.top(2));
+        assertEquals(1, heavyHitters.getTotal());
+    }
+
+    @Test
+    void rejectWrongSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new HeavyHitters(0, 16));
+        assertThrows(IllegalArgumentException.class, () -> new HeavyHitters(16, 0));
+    }
+}
@@ -2,6 +2,110 @@ package com.pavelisaenko;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 public class IntervalProcessorTests {
 
+    @Test
+    public void getInfoWithPercentilesTest(){
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IntervalProcessor intervalProcessor = new IntervalProcessor();
+        intervalProcessor.setSink(new TextIntervalSink(output, 0, false));
+        intervalProcessor.beginNewInterval(Instant.parse("2017-06-14T06:47:02Z"));
+        intervalProcessor.considerFailedLogLine();
+        intervalProcessor.considerResponseTime(20);
+        intervalProcessor.considerCorrectLogLine();
+        intervalProcessor.considerResponseTime(40);
+        intervalProcessor.endInterval(Instant.parse("2017-06-14T06:47:05Z"));
+        assertEquals("06:47:02 06:47:05 50.0", intervalProcessor.getInfo());
+
+        intervalProcessor.setPercentilesReported(true);
+        intervalProcessor.beginNewInterval(Instant.parse("2017-06-14T06:47:02Z"));
+        intervalProcessor.considerCorrectLogLine();
+        intervalProcessor.considerResponseTime(20);
+        intervalProcessor.considerCorrectLogLine();
+        intervalProcessor.considerResponseTime(40);
+        intervalProcessor.endInterval(Instant.parse("2017-06-14T06:47:05Z"));
+        assertEquals("06:47:02 06:47:05 100.0 p50=20.5 p95=41.0 p99=41.0 max=40.0", intervalProcessor.getInfo());
+        assertEquals("06:47:02 06:47:05 50.0\n" + intervalProcessor.getInfo() + "\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void closingLineInPercentilesTest(){
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IntervalProcessor intervalProcessor = new IntervalProcessor();
+        intervalProcessor.setSink(new TextIntervalSink(output, 0, false));
+        intervalProcessor.setPercentilesReported(true);
+        LogAnalyzer logAnalyzer = new LogAnalyzer(
+                new LogLinesProcessor(45, 90, Duration.ofSeconds(60), WindowMode.EXACT), intervalProcessor);
+        long epochMillis = Instant.parse("2017-06-14T06:47:02Z").toEpochMilli();
+
+        logAnalyzer.processLogLine(epochMillis, 500, 10);
+        for (int i = 1; i < 9; i++) logAnalyzer.processLogLine(epochMillis + i * 1000L, 200, 10);
+        assertEquals(0, output.size());
+        // availability of window becomes 90% with the slowest line of interval
+        logAnalyzer.processLogLine(epochMillis + 9000, 200, 40);
+
+        assertEquals("06:47:02 06:47:02 90.0 p50=10.2 p95=41.0 p99=41.0 max=40.0", intervalProcessor.getInfo());
+        assertEquals(intervalProcessor.getInfo() + "\n", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void endIntervalWritesToSinkTest(){
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IntervalProcessor intervalProcessor = new IntervalProcessor();
+        intervalProcessor.setSink(new TextIntervalSink(output, 0, false));
+        intervalProcessor.setZone(ZoneOffset.ofHours(10));
+        intervalProcessor.setLabel("/api");
+        intervalProcessor.setPrintedFrom(Instant.parse("2017-06-14T06:47:04Z"));
+
+        intervalProcessor.beginNewInterval(Instant.parse("2017-06-14T06:47:00Z"));
+        intervalProcessor.considerFailedLogLine();
+        intervalProcessor.endInterval(Instant.parse("2017-06-14T06:47:01Z"));
+        intervalProcessor.beginNewInterval(Instant.parse("2017-06-14T06:47:02Z"));
+        intervalProcessor.considerFailedLogLine();
+        intervalProcessor.considerCorrectLogLine();
+        intervalProcessor.endInterval(Instant.parse("2017-06-14T06:47:05Z"));
+
+        assertEquals("/api 16:47:02 16:47:05 50.0\n", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void topOffendersOfIntervalTest(){
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IntervalProcessor intervalProcessor = new IntervalProcessor();
+        intervalProcessor.setSink(new TextIntervalSink(output, 0, false));
+        intervalProcessor.setTopOffenders(new TopOffenders(1));
+        byte[] before = line("10.0.0.1", "/before");
+        byte[] failed = line("10.0.0.2", "/users/42?x=1");
+
+        intervalProcessor.considerErrorLine(before, 0, before.length);
+        intervalProcessor.beginNewInterval(Instant.parse("2017-06-14T06:47:02Z"));
+        intervalProcessor.considerFailedLogLine();
+        intervalProcessor.considerErrorLine(failed, 0, failed.length);
+        intervalProcessor.considerFailedLogLine();
+        intervalProcessor.considerErrorLine(failed, 0, failed.length);
+        intervalProcessor.endInterval(Instant.parse("2017-06-14T06:47:05Z"));
+        intervalProcessor.considerErrorLine(before, 0, before.length);
+
+        assertEquals("06:47:02 06:47:05 0.0 top_paths=/users/{id}:2 top_ips=10.0.0.2:2", intervalProcessor.getInfo());
+        assertEquals(intervalProcessor.getInfo() + "\n", output.toString(StandardCharsets.UTF_8));
+
+        intervalProcessor.beginNewInterval(Instant.parse("2017-06-14T06:47:06Z"));
+        intervalProcessor.considerFailedLogLine();
+        intervalProcessor.endInterval(Instant.parse("2017-06-14T06:47:06Z"));
+        assertEquals("06:47:06 06:47:06 0.0 top_paths= top_ips=", intervalProcessor.getInfo());
+    }
+
+    private static byte[] line(String ip, String path){
+        return (ip + " - - [14/06/2017:16:47:02 +1000] PUT " + path + " HTTP/1.1 500 2 44.5 - @agent prio:0")
+                .getBytes(StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,117 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntervalSinkTests {
+
+    private static final long BEGIN = Instant.parse("2017-06-14T06:47:02Z").toEpochMilli();
+    private static final long END = Instant.parse("2017-06-14T06:47:05Z").toEpochMilli();
+    private static final ZoneOffset ZONE = ZoneOffset.ofHours(10);
+
+    private static LatencyHistogram histogramOf(double... responseTimes) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (double responseTime : responseTimes) histogram.record(responseTime);
+        return histogram;
+    }
+
+    @Test
+    void writeTextLikeIntervalProcessor() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IntervalSink sink = new TextIntervalSink(output, BufferedIntervalSink.DEFAULT_BUFFER_SIZE, false);
+        sink.write(null, BEGIN, END, ZONE, 50.0, null);
+        sink.write("/api", BEGIN, END, ZONE, 100.0, histogramOf(20, 40));
+        sink.flush();
+
+        assertEquals("16:47:02 16:47:05 50.0\n/api 16:47:02 16:47:05 100.0 p50=20.5 p95=41.0 p99=41.0 max=40.0\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writeTextWithFullDates() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IntervalSink sink = new TextIntervalSink(output, 0, true);
+        sink.write(null, BEGIN, END, ZONE, 50.0, null);
+        // day and offset change between time-points
+        sink.write(null, Instant.parse("2017-03-25T23:59:59Z").toEpochMilli(),
+                Instant.parse("2017-03-26T01:00:00Z").toEpochMilli(), ZoneId.of("Europe/Berlin"), 99.5, null);
+        sink.write(null, BEGIN, END, ZoneOffset.UTC, 50.0, null);
+
+        assertEquals("""
+                2017-06-14T16:47:02+10:00 2017-06-14T16:47:05+10:00 50.0
+                2017-03-26T00:59:59+01:00 2017-03-26T03:00:00+02:00 99.5
+                2017-06-14T06:47:02Z 2017-06-14T06:47:05Z 50.0
+                """, output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writeJsonLines() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IntervalSink sink = new JsonIntervalSink(output, 0);
+        sink.write(null, BEGIN, END, ZONE, 50.0, null);
+        sink.write("Mozilla \"5.0\"\\\t", BEGIN, END, ZONE, 100.0, histogramOf(20, 40));
+
+        assertEquals("""
+                {"begin":"2017-06-14T16:47:02+10:00","begin_millis":1497422822000,"end":"2017-06-14T16:47:05+10:00","end_millis":1497422825000,"availability":50.0}
+                {"label":"Mozilla \\"5.0\\"\\\\\\t","begin":"2017-06-14T16:47:02+10:00","begin_millis":1497422822000,"end":"2017-06-14T16:47:05+10:00","end_millis":1497422825000,"availability":100.0,"p50":20.5,"p95":41.0,"p99":41.0,"max":40.0}
+                """, output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writeCsvWithHeader() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IntervalSink sink = new CsvIntervalSink(output, 0);
+        sink.write(null, BEGIN, END, ZONE, 50.0, null);
+        sink.write("a,\"b\"", BEGIN, END, ZONE, 100.0, histogramOf(20, 40));
+
+        assertEquals(CsvIntervalSink.HEADER + "\n" + """
+                ,2017-06-14T16:47:02+10:00,1497422822000,2017-06-14T16:47:05+10:00,1497422825000,50.0,,,,
+                "a,""b\""",2017-06-14T16:47:02+10:00,1497422822000,2017-06-14T16:47:05+10:00,1497422825000,100.0,20.5,41.0,41.0,40.0
+                """, output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void bufferUntilFlushOrBufferSize() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IntervalSink sink = new TextIntervalSink(output, 100, false);
+        sink.write(null, BEGIN, END, ZONE, 50.0, null);
+        assertEquals(0, output.size());
+
+        sink.flush();
+        assertEquals(23, output.size());
+
+        for (int i = 0; i < 5; i++) sink.write(null, BEGIN, END, ZONE, 50.0, null);
+        assertEquals(23 + 5 * 23, output.size());
+        sink.write(null, BEGIN, END, ZONE, 50.0, null);
+        assertEquals(23 + 5 * 23, output.size());
+    }
+
+    @Test
+    void shareSinkBetweenVirtualThreads() throws InterruptedException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IntervalSink sink = new TextIntervalSink(output, 100, false);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String label = "/host" + i;
+            threads.add(Thread.ofVirtual().start(() -> {
+                for (int j = 0; j < 100; j++) sink.write(label, BEGIN, END, ZONE, 50.0, null);
+            }));
+        }
+        for (Thread thread : threads) thread.join();
+        sink.flush();
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(50 * 100, lines.length);
+        assertTrue(Arrays.stream(lines).allMatch(line -> line.matches("/host\\d+ 16:47:02 16:47:05 50.0")));
+    }
+}
@@ -0,0 +1,103 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTests {
+
+    @Test
+    void keepSmallValuesExactly() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0.001);
+        histogram.record(0.05);
+        histogram.record(0.063);
+
+        assertEquals(3, histogram.getTotalCount());
+        assertEquals(0.001, histogram.getValueAtPercentile(10));
+        assertEquals(0.05, histogram.getValueAtPercentile(50));
+        assertEquals(0.063, histogram.getMaxValue());
+    }
+
+    @Test
+    void findPercentilesWithRelativePrecision() {
+        Random random = new Random(3);
+        double[] values = new double[100_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian() * 2 + 3);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : new double[]{1, 50, 90, 95, 99, 99.9, 100}) {
+            double exact = values[(int) LatencyHistogram.getRank(percentile, values.length) - 1];
+            double found = histogram.getValueAtPercentile(percentile);
+            assertTrue(found >= exact - 0.001, percentile + ": " + found + " < " + exact);
+            assertTrue(found <= exact * (1 + 1 / 32.0) + 0.001, percentile + ": " + found + " > " + exact);
+        }
+    }
+
+    @Test
+    void keepMaxValueExactly() {
+        LatencyHistogram first = new LatencyHistogram();
+        first.record(40);
+        first.record(20);
+        assertEquals(40, first.getMaxValue());
+        assertEquals(41, first.getValueAtPercentile(100), 0.1);
+
+        LatencyHistogram second = new LatencyHistogram();
+        second.record(1000.25);
+        LatencyHistogram sum = new LatencyHistogram();
+        sum.add(first);
+        sum.add(second);
+        assertEquals(1000.25, sum.getMaxValue());
+
+        // the maximum is not known exactly after its bucket is subtracted
+        sum.subtract(second);
+        assertEquals(first.getValueAtPercentile(100), sum.getMaxValue());
+        sum.subtract(first);
+        assertEquals(0, sum.getMaxValue());
+    }
+
+    @Test
+    void addAndSubtractHistograms() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) first.record(i);
+        for (int i = 1; i <= 100; i++) second.record(1000 + i);
+
+        LatencyHistogram sum = new LatencyHistogram();
+        sum.add(first);
+        sum.add(second);
+        assertEquals(200, sum.getTotalCount());
+        assertEquals(first.getValueAtPercentile(100), sum.getValueAtPercentile(50));
+        assertEquals(second.getMaxValue(), sum.getMaxValue());
+
+        sum.subtract(first);
+        assertEquals(second, sum);
+        sum.clear();
+        assertEquals(new LatencyHistogram(), sum);
+        assertEquals(0, sum.getValueAtPercentile(99));
+    }
+
+    @Test
+    void clampValuesOutOfRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(1e12);
+
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(LatencyHistogram.MAX_VALUE / 1000.0, histogram.getMaxValue());
+    }
+
+    @Test
+    void wrongPercentileTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(0));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(100.1));
+    }
+}
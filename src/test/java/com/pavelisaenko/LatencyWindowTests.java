@@ -0,0 +1,81 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyWindowTests {
+
+    @Test
+    void evictWholeSeconds() {
+        LatencyWindow latencyWindow = new LatencyWindow(Duration.ofSeconds(2), 45);
+        latencyWindow.add(1_000, 100);
+        latencyWindow.add(1_500, 10);
+        latencyWindow.add(2_000, 20);
+        latencyWindow.add(3_999, 30);
+        assertEquals(4, latencyWindow.getHistogram().getTotalCount());
+
+        latencyWindow.evictBefore(2_000);
+        assertEquals(2, latencyWindow.getHistogram().getTotalCount());
+        assertEquals(30, latencyWindow.getHistogram().getMaxValue(), 30 / 32.0);
+
+        latencyWindow.add(10_000, 40);
+        assertEquals(1, latencyWindow.getHistogram().getTotalCount());
+
+        latencyWindow.add(7_000, 500);
+        assertEquals(1, latencyWindow.getHistogram().getTotalCount());
+    }
+
+    @Test
+    void matchExactPercentile() {
+        Random random = new Random(5);
+        LatencyWindow latencyWindow = new LatencyWindow(Duration.ofSeconds(5), 45);
+        // times and response times of lines of live seconds
+        ArrayDeque<double[]> live = new ArrayDeque<>();
+        for (int i = 0; i < 20_000; i++) {
+            long epochMillis = i * 37L;
+            double responseTime = random.nextDouble() * 50;
+            latencyWindow.add(epochMillis, responseTime);
+            latencyWindow.evictBefore(epochMillis - 5_000);
+
+            while (!live.isEmpty() && live.peekFirst()[0] < Math.floorDiv(epochMillis - 5_000, 1000) * 1000) live.removeFirst();
+            live.addLast(new double[]{epochMillis, responseTime});
+            double[] sorted = live.stream().mapToDouble(line -> line[1]).sorted().toArray();
+            for (double percentile : new double[]{50, 90, 99}) {
+                assertEquals(sorted[(int) LatencyHistogram.getRank(percentile, sorted.length) - 1] > 45,
+                        latencyWindow.isPercentileAbove(percentile));
+            }
+        }
+    }
+
+    @Test
+    void countSlowLinesExactly() {
+        LatencyWindow latencyWindow = new LatencyWindow(Duration.ofSeconds(2), 45);
+        // bucket of 44.99 ms reaches 45.055 ms
+        latencyWindow.add(1_000, 44.99);
+        assertFalse(latencyWindow.isPercentileAbove(100));
+
+        latencyWindow.add(1_000, 45.01);
+        assertTrue(latencyWindow.isPercentileAbove(100));
+    }
+
+    @Test
+    void compareContent() {
+        LatencyWindow first = new LatencyWindow(Duration.ofSeconds(3), 45);
+        LatencyWindow second = new LatencyWindow(Duration.ofSeconds(3), 45);
+        first.add(1_000, 500);
+        first.add(5_000, 10);
+        second.add(5_000, 10);
+        first.evictBefore(2_000);
+        assertTrue(first.hasSameContent(second));
+
+        second.add(5_100, 10);
+        assertFalse(first.hasSameContent(second));
+        assertFalse(new LatencyWindow(Duration.ofSeconds(3), 45)
+                .hasSameContent(new LatencyWindow(Duration.ofSeconds(3), 30)));
+    }
+}
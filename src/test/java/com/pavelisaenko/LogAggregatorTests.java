@@ -0,0 +1,67 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogAggregatorTests {
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    private LogAggregator createAggregator(boolean perHost, Duration lateness) {
+        IntervalSink sink = new TextIntervalSink(output, 0, false);
+        return new LogAggregator(host -> {
+            IntervalProcessor intervalProcessor = new IntervalProcessor();
+            intervalProcessor.setSink(sink);
+            intervalProcessor.setLabel(host);
+            LogLinesProcessor logLinesProcessor = new LogLinesProcessor(45, 90, Duration.ofSeconds(1));
+            if (lateness != null) return new ReorderingLogAnalyzer(logLinesProcessor, intervalProcessor, lateness);
+            return new LogAnalyzer(logLinesProcessor, intervalProcessor);
+        }, perHost);
+    }
+
+    private static LogLineBatch batchOf(int... statusCodes) {
+        LogLineBatch batch = new LogLineBatch(statusCodes.length);
+        batch.setZoneOffset(ZoneOffset.ofHours(10));
+        long epochMillis = Instant.parse("2017-06-14T06:47:02Z").toEpochMilli();
+        for (int i = 0; i < statusCodes.length; i++) batch.add(epochMillis + i * 1000L, statusCodes[i], 10);
+        return batch;
+    }
+
+    @Test
+    void analyzeEveryHostSeparately() {
+        LogAggregator aggregator = createAggregator(true, null);
+        aggregator.accept("10.0.0.1", batchOf(200, 500, 200, 200));
+        aggregator.accept("10.0.0.2", batchOf(200, 200, 200, 200));
+
+        assertEquals("10.0.0.1 16:47:03 16:47:04 66.7\n", output.toString(StandardCharsets.UTF_8));
+        assertEquals(2, aggregator.getAnalyzersNumber());
+        assertEquals(8, aggregator.getLinesNumber());
+    }
+
+    @Test
+    void analyzeAllHostsTogether() {
+        LogAggregator aggregator = createAggregator(false, null);
+        aggregator.accept("10.0.0.1", batchOf(200, 500));
+        aggregator.accept("10.0.0.2", batchOf(200, 200, 200, 200));
+
+        assertEquals(1, aggregator.getAnalyzersNumber());
+        assertEquals(6, aggregator.getLinesNumber());
+    }
+
+    @Test
+    void flushReorderedLinesAtFinish() {
+        LogAggregator aggregator = createAggregator(false, Duration.ofSeconds(10));
+        aggregator.accept("10.0.0.1", batchOf(200, 500, 200, 200));
+        assertEquals("", output.toString(StandardCharsets.UTF_8));
+
+        assertEquals(0, aggregator.finish());
+        assertEquals("16:47:03 16:47:04 66.7\n", output.toString(StandardCharsets.UTF_8));
+    }
+}
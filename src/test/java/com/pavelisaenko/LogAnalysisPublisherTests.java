@@ -0,0 +1,154 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogAnalysisPublisherTests {
+
+    private static LogLinesProcessor createLogLinesProcessor() {
+        return new LogLinesProcessor(45, 90, Duration.ofSeconds(3), WindowMode.BUCKETED);
+    }
+
+    /**
+     * Requests events one by one and collects them.
+     */
+    private static class CollectingSubscriber implements Flow.Subscriber<IntervalEvent> {
+        final List<IntervalEvent> events = new CopyOnWriteArrayList<>();
+        final CompletableFuture<List<IntervalEvent>> completion = new CompletableFuture<>();
+        final long initialRequest;
+        Flow.Subscription subscription;
+
+        CollectingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(IntervalEvent event) {
+            events.add(event);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            completion.completeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete() {
+            completion.complete(events);
+        }
+    }
+
+    @Test
+    void publishIntervalsOfLog() throws Exception {
+        RecordingIntervalProcessor expected = new RecordingIntervalProcessor();
+        LogAnalyzer logAnalyzer = new LogAnalyzer(createLogLinesProcessor(), expected);
+        new MappedLogFileParser(Path.of("access.log")).parse(logAnalyzer::processBatch);
+        List<RecordingIntervalProcessor.Event> expectedEvents = expected.getEvents().stream()
+                .filter(event -> event.type() != RecordingIntervalProcessor.Event.Type.CONSIDER)
+                .toList();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CollectingSubscriber subscriber = new CollectingSubscriber(1);
+        try (LogAnalysisPublisher publisher = new LogAnalysisPublisher(createLogLinesProcessor(), executor, 4)) {
+            publisher.subscribe(subscriber);
+            byte[] bytes = Files.readAllBytes(Path.of("access.log"));
+            publisher.processLines(bytes, 0, bytes.length);
+            assertEquals(0, publisher.getParseErrorsNumber());
+        }
+        List<IntervalEvent> events = subscriber.completion.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(expectedEvents.size(), events.size());
+        for (int i = 0; i < events.size(); i++) {
+            IntervalEvent event = events.get(i);
+            RecordingIntervalProcessor.Event expectedEvent = expectedEvents.get(i);
+            if (expectedEvent.type() == RecordingIntervalProcessor.Event.Type.BEGIN) {
+                assertEquals(IntervalEvent.Type.OPENED, event.type());
+                assertEquals(expectedEvent.time(), event.begin());
+            } else {
+                assertEquals(IntervalEvent.Type.CLOSED, event.type());
+                assertEquals(expectedEvent.time(), event.end());
+                assertEquals(events.get(i - 1).begin(), event.begin());
+                assertFalse(Double.isNaN(event.availability()));
+            }
+        }
+    }
+
+    @Test
+    void deliverNoMoreThanRequested() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CollectingSubscriber subscriber = new CollectingSubscriber(0);
+        LogAnalysisPublisher publisher = new LogAnalysisPublisher(createLogLinesProcessor(), executor, 16);
+        publisher.subscribe(subscriber);
+
+        // error opens interval, correct lines close it
+        publisher.processLogLine(1000, 500, 10);
+        publisher.processLogLine(5000, 200, 10);
+        publisher.processLogLine(5000, 200, 10);
+        Thread.sleep(100);
+        assertTrue(subscriber.events.isEmpty());
+        assertEquals(2, publisher.getLag());
+
+        subscriber.subscription.request(1);
+        publisher.close();
+        List<IntervalEvent> events = subscriber.completion.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertEquals(2, events.size());
+        assertEquals(IntervalEvent.Type.OPENED, events.get(0).type());
+        assertEquals(IntervalEvent.Type.CLOSED, events.get(1).type());
+        assertEquals(50.0, events.get(1).availability());
+    }
+
+    @Test
+    void skipWrongAndBlankLines() {
+        try (LogAnalysisPublisher publisher = new LogAnalysisPublisher(createLogLinesProcessor(), Runnable::run, 4)) {
+            byte[] bytes = "wrong line\r\n\n  \n192.168.32.181 - - [14/06/2017:16:47:02 +1000] \"PUT /rest/v1.4/documents?zone=default&_rid=6076537c HTTP/1.1\" 200 2 44.510983 \"-\" \"@list-item-updater\" prio:0"
+                    .getBytes(StandardCharsets.US_ASCII);
+            publisher.processLines(bytes, 0, bytes.length);
+            assertEquals(1, publisher.getParseErrorsNumber());
+            assertThrows(IllegalArgumentException.class, () -> publisher.processLines(bytes, 1, 0));
+        }
+    }
+
+    @Test
+    void skipLinesOfIgnoredAgent() throws Exception {
+        LogLinesProcessor logLinesProcessor = createLogLinesProcessor();
+        logLinesProcessor.setErrorRules(new ErrorRules(45).addIgnoredAgent("kube-probe"));
+        CollectingSubscriber subscriber = new CollectingSubscriber(1);
+        try (LogAnalysisPublisher publisher = new LogAnalysisPublisher(logLinesProcessor, Runnable::run, 4)) {
+            publisher.subscribe(subscriber);
+            byte[] bytes = ("192.168.32.181 - - [14/06/2017:16:47:02 +1000] \"GET /health HTTP/1.1\" 500 2 44.510983 \"-\" \"kube-probe/1.27\" prio:0\n" +
+                    "192.168.32.181 - - [14/06/2017:16:47:09 +1000] \"PUT /rest/v1.4/documents HTTP/1.1\" 200 2 44.510983 \"-\" \"@list-item-updater\" prio:0\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            publisher.processLines(bytes, 0, bytes.length);
+        }
+
+        assertTrue(subscriber.completion.get(10, TimeUnit.SECONDS).isEmpty());
+    }
+
+    @Test
+    void failSubscribers() {
+        CollectingSubscriber subscriber = new CollectingSubscriber(1);
+        LogAnalysisPublisher publisher = new LogAnalysisPublisher(createLogLinesProcessor(), Runnable::run, 4);
+        publisher.subscribe(subscriber);
+        publisher.closeExceptionally(new IOException("Connection reset"));
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> subscriber.completion.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, exception.getCause());
+    }
+}
@@ -0,0 +1,237 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogFollowerTests {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    Path directory;
+
+    private LogFollower logFollower;
+    private Thread followingThread;
+    private final List<Long> followedMillis = new ArrayList<>();
+    private final List<String> parseErrors = new ArrayList<>();
+    private final List<Long> endOffsets = new ArrayList<>();
+    private final List<Object> fileKeys = new ArrayList<>();
+    private volatile Throwable failure;
+
+    /**
+     * @return line with timestamp {@code second} seconds after 14/06/2017:16:47:00 UTC
+     */
+    private static String line(int second) {
+        return String.format("192.168.32.181 - - [14/06/2017:16:47:%02d +0000] \"PUT /rest/v1.4/documents HTTP/1.1\" 200 2 44.510983 \"-\" \"@list-item-updater\" prio:0", second);
+    }
+
+    private static long millis(int second) {
+        return 1497458820_000L + second * 1000L;
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.writeString(file, text, StandardCharsets.US_ASCII, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void startFollowing(Path file) throws IOException {
+        startFollowing(file, 0);
+    }
+
+    private void startFollowing(Path file, long startOffset) throws IOException {
+        logFollower = new LogFollower(file, 64, 2);
+        logFollower.setStartOffset(startOffset);
+        followingThread = new Thread(() -> {
+            try {
+                logFollower.run(batch -> {
+                    synchronized (followedMillis) {
+                        for (int i = 0; i < batch.getSize(); i++) followedMillis.add(batch.getEpochMillis()[i]);
+                        parseErrors.addAll(batch.getParseErrors());
+                        endOffsets.add(batch.getEndOffset());
+                        fileKeys.add(batch.getFileKey());
+                    }
+                });
+            } catch (Throwable e) {
+                failure = e;
+            }
+        });
+        followingThread.start();
+    }
+
+    private void awaitLines(int linesNumber) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (followedMillis) {
+                if (followedMillis.size() >= linesNumber) return;
+            }
+            Thread.sleep(10);
+        }
+        fail("Lines were not followed in time: " + followedMillis);
+    }
+
+    @AfterEach
+    void stopFollowing() throws IOException, InterruptedException {
+        if (logFollower == null) return;
+        logFollower.close();
+        followingThread.join(TIMEOUT_MILLIS);
+        assertFalse(followingThread.isAlive());
+        assertNull(failure);
+    }
+
+    @Test
+    void followAppendedLines() throws IOException, InterruptedException {
+        Path file = directory.resolve("access.log");
+        append(file, line(0) + "\n" + line(1) + "\n");
+        startFollowing(file);
+        awaitLines(2);
+
+        String thirdLine = line(2) + "\r\n";
+        append(file, thirdLine.substring(0, 40));
+        append(file, thirdLine.substring(40) + "\n" + line(3) + "\n" + "broken\n");
+        awaitLines(4);
+
+        synchronized (followedMillis) {
+            assertEquals(List.of(millis(0), millis(1), millis(2), millis(3)), followedMillis);
+        }
+        Thread.sleep(100);
+        synchronized (followedMillis) {
+            assertEquals(1, parseErrors.size());
+        }
+    }
+
+    @Test
+    void followFromStartOffset() throws IOException, InterruptedException {
+        Path file = directory.resolve("access.log");
+        append(file, line(0) + "\n" + line(1) + "\n" + line(2) + "\n");
+        startFollowing(file, line(0).length() + 1);
+        awaitLines(2);
+
+        synchronized (followedMillis) {
+            assertEquals(List.of(millis(1), millis(2)), followedMillis);
+            assertEquals(Files.size(file), endOffsets.get(endOffsets.size() - 1));
+        }
+    }
+
+    @Test
+    void followFromStartOffsetOfTruncatedFile() throws IOException, InterruptedException {
+        Path file = directory.resolve("access.log");
+        append(file, line(0) + "\n");
+        startFollowing(file, 10_000);
+        awaitLines(1);
+
+        synchronized (followedMillis) {
+            assertEquals(List.of(millis(0)), followedMillis);
+        }
+    }
+
+    @Test
+    void followRotatedFile() throws IOException, InterruptedException {
+        Path file = directory.resolve("access.log");
+        append(file, line(0) + "\n");
+        startFollowing(file);
+        awaitLines(1);
+
+        append(file, line(1) + "\n" + line(2));
+        Files.move(file, directory.resolve("access.log.1"));
+        append(file, line(3) + "\n");
+        awaitLines(4);
+
+        synchronized (followedMillis) {
+            assertEquals(List.of(millis(0), millis(1), millis(2), millis(3)), followedMillis);
+        }
+        assertEquals(1, logFollower.getSwitchedFilesNumber());
+    }
+
+    @Test
+    void followRenamedFileUntilNewFileAppears() throws IOException, InterruptedException {
+        Path file = directory.resolve("access.log");
+        Path rotatedFile = directory.resolve("access.log.1");
+        append(file, line(0) + "\n");
+        startFollowing(file);
+        awaitLines(1);
+
+        // like nginx, which writes to the renamed log until it is told to reopen it
+        Files.move(file, rotatedFile);
+        Thread.sleep(100);
+        append(rotatedFile, line(1) + "\n");
+        awaitLines(2);
+        append(rotatedFile, line(2) + "\n");
+        append(file, line(3) + "\n");
+        awaitLines(4);
+
+        synchronized (followedMillis) {
+            assertEquals(List.of(millis(0), millis(1), millis(2), millis(3)), followedMillis);
+        }
+        assertEquals(1, logFollower.getSwitchedFilesNumber());
+    }
+
+    @Test
+    void reportFileKeyOfRotatedLines() throws IOException, InterruptedException {
+        Path file = directory.resolve("access.log");
+        append(file, line(0) + "\n");
+        Object oldFileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+        startFollowing(file);
+        awaitLines(1);
+
+        append(file, line(1) + "\n");
+        Files.move(file, directory.resolve("access.log.1"));
+        append(file, line(2) + "\n");
+        Object newFileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+        awaitLines(3);
+
+        synchronized (followedMillis) {
+            // the second line is drained from the old file after path already points to the new one
+            assertEquals(List.of(oldFileKey, oldFileKey, newFileKey), fileKeys);
+            assertEquals(List.of((long) line(0).length() + 1, 2L * (line(0).length() + 1), (long) line(2).length() + 1),
+                    endOffsets);
+        }
+    }
+
+    @Test
+    void followTruncatedFile() throws IOException, InterruptedException {
+        Path file = directory.resolve("access.log");
+        append(file, line(0) + "\n" + line(1) + "\n");
+        startFollowing(file);
+        awaitLines(2);
+
+        Files.writeString(file, line(2) + "\n", StandardCharsets.US_ASCII, StandardOpenOption.TRUNCATE_EXISTING);
+        awaitLines(3);
+
+        synchronized (followedMillis) {
+            assertEquals(List.of(millis(0), millis(1), millis(2)), followedMillis);
+        }
+        assertEquals(1, logFollower.getSwitchedFilesNumber());
+    }
+
+    @Test
+    void waitForFileCreation() throws IOException, InterruptedException {
+        Path file = directory.resolve("access.log");
+        startFollowing(file);
+        Thread.sleep(100);
+
+        append(file, line(5) + "\n");
+        awaitLines(1);
+
+        synchronized (followedMillis) {
+            assertEquals(List.of(millis(5)), followedMillis);
+        }
+    }
+
+    @Test
+    void wrongArgumentsTest() {
+        Path file = directory.resolve("access.log");
+        assertThrows(IllegalArgumentException.class, () -> new LogFollower(file, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new LogFollower(file, 1, 0));
+    }
+}
@@ -0,0 +1,109 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogFormatTests {
+
+    private static final String COMBINED = "$remote_addr - $remote_user [$time_local] \"$request\" $status " +
+            "$body_bytes_sent \"$http_referer\" \"$http_user_agent\" $request_time";
+
+    /**
+     * Format of {@code access.modified4.log}, which is the bundled format without quotes
+     */
+    private static final String UNQUOTED = "$remote_addr - $remote_user [$time_local] $request_method $request_uri " +
+            "$server_protocol $status $body_bytes_sent $response_time $http_referer $http_user_agent prio:$priority";
+
+    private static ByteLogLineParser parse(String template, String line) {
+        ByteLogLineParser parser = new ByteLogLineParser(LogFormat.compile(template));
+        byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+        parser.parse(bytes, 0, bytes.length);
+        return parser;
+    }
+
+    @Test
+    void bundledFormatsMatchBuiltInParserOnBundledLogs() throws IOException {
+        ByteLogLineParser builtIn = new ByteLogLineParser();
+        for (String file : List.of("access.log", "access.modified4.log")) {
+            ByteLogLineParser formatted = new ByteLogLineParser(LogFormat.compile(
+                    file.equals("access.log") ? LogFormat.BUNDLED : UNQUOTED));
+            for (String line : Files.readAllLines(Path.of(file))) {
+                if (line.isBlank()) continue;
+                byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+                builtIn.parse(bytes, 0, bytes.length);
+                formatted.parse(bytes, 0, bytes.length);
+
+                assertEquals(builtIn.getEpochSecond(), formatted.getEpochSecond(), line);
+                assertEquals(builtIn.getOffsetSeconds(), formatted.getOffsetSeconds(), line);
+                assertEquals(builtIn.getStatusCode(), formatted.getStatusCode(), line);
+                assertEquals(builtIn.getResponseTime(), formatted.getResponseTime(), line);
+            }
+        }
+    }
+
+    @Test
+    void parseCombinedFormatWithSpacesInQuotedFields() {
+        ByteLogLineParser parser = parse(COMBINED, "10.0.0.1 - alice [14/06/2017:16:47:02 +1000] " +
+                "\"GET /search?q=a b HTTP/1.1\" 503 512 \"https://example.com/\" \"Mozilla/5.0 (X11; Linux x86_64)\" 0.125");
+
+        assertEquals(Instant.parse("2017-06-14T06:47:02Z").getEpochSecond(), parser.getEpochSecond());
+        assertEquals(ZoneOffset.ofHours(10), parser.getZoneOffset());
+        assertEquals(503, parser.getStatusCode());
+        assertEquals(125.0, parser.getResponseTime());
+    }
+
+    @Test
+    void convertSecondsToMillisExactly() {
+        assertEquals(1.0, parse(COMBINED, "1 - - [14/06/2017:16:47:02 +1000] \"-\" 200 0 \"-\" \"-\" 0.001").getResponseTime());
+        assertEquals(45.6, parse(COMBINED, "1 - - [14/06/2017:16:47:02 +1000] \"-\" 200 0 \"-\" \"-\" 0.0456").getResponseTime());
+        assertEquals(2000.0, parse(COMBINED, "1 - - [14/06/2017:16:47:02 +1000] \"-\" 200 0 \"-\" \"-\" 2").getResponseTime());
+    }
+
+    @Test
+    void parseIso8601AndBracedVariables() {
+        ByteLogLineParser parser = parse("${time_iso8601}|${status}|${upstream_response_time}|$host",
+                "2017-06-14T16:47:02-05:30|404|0.250|example.com");
+
+        assertEquals(Instant.parse("2017-06-14T22:17:02Z").getEpochSecond(), parser.getEpochSecond());
+        assertEquals(ZoneOffset.ofHoursMinutes(-5, -30), parser.getZoneOffset());
+        assertEquals(404, parser.getStatusCode());
+        assertEquals(250.0, parser.getResponseTime());
+    }
+
+    @Test
+    void planEndsWithLastNeededVariable() {
+        LogFormat logFormat = LogFormat.compile("[$time_local] $status $response_time \"$http_user_agent\" extra");
+
+        // [, time, "] ", status, " ", response time
+        assertEquals(6, logFormat.getStepsNumber());
+        assertEquals(7.5, parse(logFormat.toString(), "[14/06/2017:16:47:02 +1000] 200 7.5 anything after").getResponseTime());
+    }
+
+    @Test
+    void rejectBadTemplates() {
+        assertThrows(IllegalArgumentException.class, () -> LogFormat.compile("$time_local $status"));
+        assertThrows(IllegalArgumentException.class, () -> LogFormat.compile("[$time_local] $status $request_time $response_time"));
+        assertThrows(IllegalArgumentException.class, () -> LogFormat.compile("[$time_local] $status$request_time"));
+        assertThrows(IllegalArgumentException.class, () -> LogFormat.compile("[$time_local] $status ${request_time"));
+        assertThrows(IllegalArgumentException.class, () -> LogFormat.compile("[$time_local] $status $ $request_time"));
+    }
+
+    @Test
+    void rejectLinesNotMatchingFormat() {
+        String line = "1 - - [14/06/2017:16:47:02 +1000] \"-\" 200 0 \"-\" \"-\" 0.001";
+
+        assertThrows(IllegalArgumentException.class, () -> parse(COMBINED, line.replace("[", "(")));
+        assertThrows(IllegalArgumentException.class, () -> parse(COMBINED, line.replace("\"-\" \"-\"", "\"-\"")));
+        assertThrows(IllegalArgumentException.class, () -> parse(COMBINED, line.replace("0.001", "-")));
+        assertThrows(IllegalArgumentException.class, () -> parse(COMBINED, line.substring(0, 30)));
+    }
+}
@@ -3,6 +3,7 @@ package com.pavelisaenko;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class LogLineParserJavaTests {
     @Test
@@ -18,4 +19,36 @@ public class LogLineParserJavaTests {
 
         assertEquals(expected, LogLineParser.parseLogLine(example));
     }
+
+    @Test
+    void readOtherNumbersAndTrailingSpaces(){
+        String example = "92.168.32.181 - - [29/02/2016:23:59:59 +1000] PUT /rest/v1.4/documents HTTP/1.1 503 2 1e2 - @list-item-updater prio:0   ";
+
+        assertEquals(new LogLine("29/02/2016:23:59:59", 503, 100), LogLineParser.parseLogLine(example));
+    }
+
+    @Test
+    void readLinesOfOtherFieldsAfterResponseTime(){
+        String prefix = "92.168.32.181 - - [14/06/2017:16:47:02 +1000] PUT /rest/v1.4/documents HTTP/1.1 200 2 44.5";
+        LogLine expected = new LogLine("14/06/2017:16:47:02", 200, 44.5);
+
+        assertEquals(expected, LogLineParser.parseLogLine(prefix));
+        assertEquals(expected, LogLineParser.parseLogLine(prefix + " - @updater"));
+        assertEquals(expected, LogLineParser.parseLogLine(prefix + " \"-\" \"Mozilla/5.0 (X11; Linux x86_64)\" prio:0 x"));
+    }
+
+    @Test
+    void rejectWrongLines(){
+        String prefix = "92.168.32.181 - - [14/06/2017:16:47:02 +1000] PUT /rest/v1.4/documents HTTP/1.1 ";
+
+        assertThrows(IllegalArgumentException.class, () -> LogLineParser.parseLogLine(prefix + "200 2"));
+        assertThrows(IllegalArgumentException.class, () -> LogLineParser.parseLogLine(prefix + "200 2 "));
+        assertThrows(IllegalArgumentException.class, () -> LogLineParser.parseLogLine(prefix + "OK 2 44.5 - @updater prio:0"));
+        assertThrows(IllegalArgumentException.class, () -> LogLineParser.parseLogLine(prefix + "200 2 fast - @updater prio:0"));
+        assertThrows(IllegalArgumentException.class, () -> LogLineParser.parseLogLine(
+                prefix.replace("14/06", "31/06") + "200 2 44.5 - @updater prio:0"));
+        assertThrows(IllegalArgumentException.class, () -> LogLineParser.parseLogLine(
+                prefix.replace("2017:", "2017-") + "200 2 44.5 - @updater prio:0"));
+        assertThrows(IllegalArgumentException.class, () -> LogLineParser.parseLogLine(""));
+    }
 }
@@ -31,6 +31,19 @@ public class LogLinesProcessorTests {
         assertEquals(Duration.ofSeconds(20), logLinesProcessor.getWindowSize());
     }
 
+    @Test
+    public void windowModeConstructorTest(){
+        LogLinesProcessor logLinesProcessor = new LogLinesProcessor(
+                49,
+                95.2,
+                Duration.ofHours(24),
+                WindowMode.BUCKETED
+        );
+        assertEquals(WindowMode.BUCKETED, logLinesProcessor.getWindowMode());
+        assertInstanceOf(BucketedLogWindow.class, logLinesProcessor.getWindow());
+        assertEquals(WindowMode.EXACT, new LogLinesProcessor().getWindowMode());
+    }
+
     @Test
     public void tooBigWindowSizeConstructorTest(){
         assertThrows(IllegalArgumentException.class, () -> new LogLinesProcessor(
@@ -71,9 +84,9 @@ public class LogLinesProcessorTests {
                 95.2,
                 Duration.ofSeconds(20)
         );
-        assertTrue(logLinesProcessor.getIs5xxError().test(500));
-        assertFalse(logLinesProcessor.getIs5xxError().test(400));
-        assertFalse(logLinesProcessor.getIs5xxError().test(600));
+        assertTrue(logLinesProcessor.isLineError(500, 0));
+        assertFalse(logLinesProcessor.isLineError(400, 0));
+        assertFalse(logLinesProcessor.isLineError(600, 0));
     }
 
     @Test
@@ -83,7 +96,7 @@ public class LogLinesProcessorTests {
                 95.2,
                 Duration.ofSeconds(20)
         );
-        assertFalse(logLinesProcessor.getHasLineErrors().test(
+        assertFalse(logLinesProcessor.isLineError(
                 new LogLine(
                         "14/06/2017:16:47:02",
                         200,
@@ -99,14 +112,14 @@ public class LogLinesProcessorTests {
                 95.2,
                 Duration.ofSeconds(20)
         );
-        assertTrue(logLinesProcessor.getHasLineErrors().test(
+        assertTrue(logLinesProcessor.isLineError(
                 new LogLine(
                         "14/06/2017:16:47:02",
                         501,
                         40
                 )
         ));
-        assertTrue(logLinesProcessor.getHasLineErrors().test(
+        assertTrue(logLinesProcessor.isLineError(
                 new LogLine(
                         "14/06/2017:16:47:02",
                         200,
@@ -115,6 +128,37 @@ public class LogLinesProcessorTests {
         ));
     }
 
+    @Test
+    public void percentileSloTest(){
+        LogLinesProcessor logLinesProcessor = new LogLinesProcessor(
+                100,
+                50,
+                Duration.ofSeconds(10)
+        );
+        logLinesProcessor.setPercentileSlo(90, 45);
+
+        for (int i = 0; i < 95; i++) logLinesProcessor.processNewLogLine(1_000, 200, 10);
+        for (int i = 0; i < 5; i++) logLinesProcessor.processNewLogLine(1_000, 200, 60);
+        assertEquals(0, logLinesProcessor.getErrorLinesNumber());
+        assertFalse(logLinesProcessor.isWindowFails());
+
+        for (int i = 0; i < 10; i++) logLinesProcessor.processNewLogLine(2_000, 200, 60);
+        assertTrue(logLinesProcessor.isLatencyFails());
+        assertTrue(logLinesProcessor.isWindowFails());
+
+        logLinesProcessor.processNewLogLine(13_000, 200, 10);
+        assertFalse(logLinesProcessor.isWindowFails());
+    }
+
+    @Test
+    public void incorrectPercentileSloTest(){
+        LogLinesProcessor logLinesProcessor = new LogLinesProcessor();
+        assertThrows(IllegalArgumentException.class, () -> logLinesProcessor.setPercentileSlo(0, 45));
+        assertThrows(IllegalArgumentException.class, () -> logLinesProcessor.setPercentileSlo(101, 45));
+        assertThrows(IllegalArgumentException.class, () -> logLinesProcessor.setPercentileSlo(99, 0));
+        assertFalse(logLinesProcessor.isLatencyFails());
+    }
+
 //    @Test
 //    public void getCurrentAvailabilitySuccessTest() throws IllegalAccessException, InvocationTargetException {
 //        LogLinesProcessor logLinesProcessor = new LogLinesProcessor(
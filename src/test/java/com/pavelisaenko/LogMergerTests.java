@@ -0,0 +1,122 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogMergerTests {
+
+    private static final String LINE = "192.168.32.181 - - [14/06/2017:16:47:02 +1000] \"PUT /rest/v1.4/documents?zone=default&_rid=6076537c HTTP/1.1\" 200 2 44.510983 \"-\" \"@list-item-updater\" prio:0";
+
+    private static List<LogLine> collect(LogMerger merger, List<String> errors) throws IOException {
+        List<LogLine> logLines = new ArrayList<>();
+        merger.run(batch -> {
+            errors.addAll(batch.getParseErrors());
+            for (int i = 0; i < batch.getSize(); i++) {
+                logLines.add(new LogLine(Instant.ofEpochMilli(batch.getEpochMillis()[i]),
+                        batch.getStatusCodes()[i], batch.getResponseTimes()[i]));
+            }
+        });
+        return logLines;
+    }
+
+    private static void write(Path file, List<String> lines) throws IOException {
+        try (OutputStream outputStream = file.toString().endsWith(".gz")
+                ? new GZIPOutputStream(Files.newOutputStream(file))
+                : Files.newOutputStream(file)) {
+            outputStream.write(String.join("\n", lines).concat("\n").getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    void matchSortedLines(@TempDir Path directory) throws IOException {
+        List<String> lines = Files.readAllLines(Path.of("access.modified4.log")).stream()
+                .filter(line -> !line.isBlank())
+                .toList();
+        List<Path> files = List.of(directory.resolve("a.log"), directory.resolve("b.log.gz"), directory.resolve("c.log.gz"));
+
+        // every third line goes to the same file, so files overlap in time
+        List<List<String>> parts = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        List<long[]> expectedOrder = new ArrayList<>();
+        List<LogLine> parsed = new ArrayList<>();
+        ByteLogLineParser parser = new ByteLogLineParser();
+        for (int i = 0; i < lines.size(); i++) {
+            parts.get(i % 3).add(lines.get(i));
+            byte[] bytes = lines.get(i).getBytes(StandardCharsets.US_ASCII);
+            parser.parse(bytes, 0, bytes.length);
+            parsed.add(parser.toLogLine());
+            expectedOrder.add(new long[]{parser.getEpochMillis(), i % 3, i});
+        }
+        for (int i = 0; i < files.size(); i++) write(files.get(i), parts.get(i));
+
+        expectedOrder.sort(Comparator.<long[]>comparingLong(key -> key[0]).thenComparingLong(key -> key[1])
+                .thenComparingLong(key -> key[2]));
+        List<LogLine> expected = expectedOrder.stream().map(key -> parsed.get((int) key[2])).toList();
+
+        List<String> errors = new ArrayList<>();
+        assertEquals(expected, collect(new LogMerger(files, 7, 2), errors));
+        assertEquals(List.of(), errors);
+    }
+
+    @Test
+    void mergeFilesWithoutOverlap(@TempDir Path directory) throws IOException {
+        List<String> lines = Files.readAllLines(Path.of("access.log")).stream()
+                .filter(line -> !line.isBlank())
+                .toList();
+        Path first = directory.resolve("access.log.1.gz");
+        Path second = directory.resolve("access.log");
+        write(first, lines.subList(0, lines.size() / 2));
+        write(second, lines.subList(lines.size() / 2, lines.size()));
+
+        List<LogLine> expected = new ArrayList<>();
+        ByteLogLineParser parser = new ByteLogLineParser();
+        for (String line : lines) {
+            byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+            parser.parse(bytes, 0, bytes.length);
+            expected.add(parser.toLogLine());
+        }
+
+        assertEquals(expected, collect(new LogMerger(List.of(second, first)), new ArrayList<>()));
+    }
+
+    @Test
+    void reportParseErrorsWithFileName(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("broken.log");
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            writer.write(LINE + "\nbroken\n\n" + LINE + "\n");
+        }
+
+        List<String> errors = new ArrayList<>();
+        assertEquals(2, collect(new LogMerger(List.of(file)), errors).size());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).startsWith(file.toString()));
+    }
+
+    @Test
+    void propagateReadingError(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("access.log");
+        write(file, List.of(LINE));
+
+        assertThrows(IOException.class,
+                () -> collect(new LogMerger(List.of(file, directory.resolve("missing.log"))), new ArrayList<>()));
+    }
+
+    @Test
+    void wrongArgumentsTest() {
+        assertThrows(IllegalArgumentException.class, () -> new LogMerger(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new LogMerger(List.of(Path.of("access.log")), 0, 1));
+    }
+}
@@ -0,0 +1,159 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogPipelineTests {
+
+    private static final String LINE = "192.168.32.181 - - [14/06/2017:16:47:02 +1000] \"PUT /rest/v1.4/documents?zone=default&_rid=6076537c HTTP/1.1\" 200 2 44.510983 \"-\" \"@list-item-updater\" prio:0";
+
+    private static List<LogLine> collect(LogPipeline pipeline) throws IOException {
+        List<LogLine> logLines = new ArrayList<>();
+        pipeline.run(batch -> {
+            for (int i = 0; i < batch.getSize(); i++) {
+                logLines.add(new LogLine(Instant.ofEpochMilli(batch.getEpochMillis()[i]),
+                        batch.getStatusCodes()[i], batch.getResponseTimes()[i]));
+            }
+        });
+        return logLines;
+    }
+
+    @Test
+    void matchSequentialParsing() throws IOException {
+        byte[] bytes = Files.readAllBytes(Path.of("access.modified4.log"));
+        List<LogLine> expected = new ArrayList<>();
+        ByteLogLineParser parser = new ByteLogLineParser();
+        for (String line : Files.readAllLines(Path.of("access.modified4.log"))) {
+            if (line.isBlank()) continue;
+            byte[] lineBytes = line.getBytes(StandardCharsets.US_ASCII);
+            parser.parse(lineBytes, 0, lineBytes.length);
+            expected.add(parser.toLogLine());
+        }
+
+        assertEquals(expected, collect(new LogPipeline(new ByteArrayInputStream(bytes), 13, 2)));
+    }
+
+    @Test
+    void reportParseErrorsInBatch() throws IOException {
+        byte[] bytes = (LINE + "\nbroken\n\n" + LINE + "\n").getBytes(StandardCharsets.US_ASCII);
+        List<String> errors = new ArrayList<>();
+        int[] lines = {0};
+        new LogPipeline(new ByteArrayInputStream(bytes), 100, 1).run(batch -> {
+            errors.addAll(batch.getParseErrors());
+            lines[0] += batch.getSize();
+        });
+
+        assertEquals(2, lines[0]);
+        assertEquals(1, errors.size());
+    }
+
+    @Test
+    void propagateReadingError() {
+        InputStream failingStream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("disk is gone");
+            }
+        };
+
+        IOException exception = assertThrows(IOException.class, () -> collect(new LogPipeline(failingStream)));
+        assertEquals("disk is gone", exception.getMessage());
+    }
+
+    @Test
+    void stopStagesOnConsumerError() throws IOException {
+        byte[] bytes = Files.readAllBytes(Path.of("access.log"));
+        LogPipeline pipeline = new LogPipeline(new ByteArrayInputStream(bytes), 10, 2);
+
+        assertThrows(IllegalStateException.class, () -> pipeline.run(batch -> {
+            throw new IllegalStateException("analyzer failed");
+        }));
+    }
+
+    @Test
+    void notWaitForBlockedReaderOnConsumerError() throws InterruptedException {
+        byte[] bytes = (LINE + "\n").repeat(10).getBytes(StandardCharsets.US_ASCII);
+        CountDownLatch inputClosed = new CountDownLatch(1);
+        // like System.in of a terminal: gives a batch of lines, then waits for more
+        InputStream blockingStream = new InputStream() {
+            private int position = 0;
+
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) < 0 ? -1 : single[0];
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (position == bytes.length) {
+                    try {
+                        inputClosed.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    return -1;
+                }
+                int read = Math.min(length, bytes.length - position);
+                System.arraycopy(bytes, position, buffer, offset, read);
+                position += read;
+                return read;
+            }
+        };
+        LogPipeline pipeline = new LogPipeline(blockingStream, 10, 2);
+
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IllegalStateException.class,
+                    () -> pipeline.run(batch -> {
+                        throw new IllegalStateException("analyzer failed");
+                    })));
+        } finally {
+            inputClosed.countDown();
+        }
+    }
+
+    @Test
+    void passLinesOfSlowInputBeforeItEnds() throws IOException, InterruptedException {
+        PipedOutputStream outputStream = new PipedOutputStream();
+        LogPipeline pipeline = new LogPipeline(new PipedInputStream(outputStream), 100, 2);
+        CountDownLatch linesReceived = new CountDownLatch(3);
+        Thread consumer = new Thread(() -> {
+            try {
+                pipeline.run(batch -> {
+                    for (int i = 0; i < batch.getSize(); i++) linesReceived.countDown();
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        consumer.start();
+
+        try {
+            // input stays open like System.in of a terminal
+            outputStream.write((LINE + "\n").repeat(3).getBytes(StandardCharsets.US_ASCII));
+            outputStream.flush();
+
+            assertTrue(linesReceived.await(10, TimeUnit.SECONDS));
+        } finally {
+            outputStream.close();
+            consumer.join();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogServerTests {
+
+    private static final String LINE = "192.168.32.181 - - [14/06/2017:16:47:02 +1000] PUT /rest/v1.4/documents HTTP/1.1 200 2 44.5 - @list-item-updater prio:0";
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private LogServer logServer;
+
+    private LogAggregator startServer(boolean perHost, boolean udp, int bufferSize) throws IOException {
+        IntervalSink sink = new TextIntervalSink(output, 0, false);
+        LogAggregator aggregator = new LogAggregator(host -> {
+            IntervalProcessor intervalProcessor = new IntervalProcessor();
+            intervalProcessor.setSink(sink);
+            intervalProcessor.setLabel(host);
+            return new LogAnalyzer(new LogLinesProcessor(45, 90, Duration.ofSeconds(1)), intervalProcessor);
+        }, perHost);
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        logServer = new LogServer(aggregator, new InetSocketAddress(loopback, 0),
+                udp ? new InetSocketAddress(loopback, 0) : null, bufferSize);
+        return aggregator;
+    }
+
+    private InetSocketAddress tcpAddress() throws IOException {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), logServer.getTcpPort());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition is not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        if (logServer != null) logServer.close();
+    }
+
+    @Test
+    void analyzeLinesOfConnectionLikeFile() throws IOException, InterruptedException {
+        byte[] log = Files.readAllBytes(Path.of("access.modified4.log"));
+        long linesNumber = log.length == 0 ? 0 : new String(log, StandardCharsets.US_ASCII).lines().count();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        IntervalProcessor intervalProcessor = new IntervalProcessor();
+        intervalProcessor.setSink(new TextIntervalSink(expected, 0, false));
+        LogAnalyzer logAnalyzer = new LogAnalyzer(new LogLinesProcessor(45, 90, Duration.ofSeconds(1)), intervalProcessor);
+        boolean[] isZoneSet = {false};
+        new MappedLogFileParser(Path.of("access.modified4.log")).parse(batch -> {
+            if (!isZoneSet[0] && batch.getZoneOffset() != null) {
+                intervalProcessor.setZone(batch.getZoneOffset());
+                isZoneSet[0] = true;
+            }
+            logAnalyzer.processBatch(batch);
+        });
+
+        LogAggregator aggregator = startServer(false, false, 1024);
+        try (SocketChannel channel = SocketChannel.open(tcpAddress())) {
+            // odd chunks split lines between reads
+            for (int from = 0; from < log.length; from += 777) {
+                ByteBuffer chunk = ByteBuffer.wrap(log, from, Math.min(777, log.length - from));
+                while (chunk.hasRemaining()) channel.write(chunk);
+            }
+        }
+        await(() -> aggregator.getLinesNumber() == linesNumber && logServer.getConnectionsNumber() == 0);
+
+        assertEquals(expected.toString(StandardCharsets.UTF_8), output.toString(StandardCharsets.UTF_8));
+        assertEquals(0, logServer.getParseErrorsNumber());
+    }
+
+    @Test
+    void serveManyConnections() throws IOException, InterruptedException {
+        LogAggregator aggregator = startServer(true, false, LogServer.DEFAULT_BUFFER_SIZE);
+        LoadGenerator loadGenerator = new LoadGenerator(tcpAddress(), 500, 200);
+        loadGenerator.setErrorPercent(50);
+
+        assertEquals(100_000, loadGenerator.run());
+        await(() -> aggregator.getLinesNumber() == 100_000);
+
+        assertEquals(500, logServer.getAcceptedConnectionsNumber());
+        assertEquals(1, aggregator.getAnalyzersNumber());
+        assertEquals(0, logServer.getParseErrorsNumber());
+    }
+
+    @Test
+    void countWrongAndTooLongLines() throws IOException, InterruptedException {
+        LogAggregator aggregator = startServer(false, false, 256);
+        try (SocketChannel channel = SocketChannel.open(tcpAddress())) {
+            String lines = LINE + "\r\n" + "x".repeat(1000) + "\n\n" + "wrong line\n" + LINE;
+            ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.US_ASCII));
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+        await(() -> logServer.getConnectionsNumber() == 0 && aggregator.getLinesNumber() == 2);
+
+        assertEquals(2, logServer.getParseErrorsNumber());
+    }
+
+    @Test
+    void receiveSyslogDatagrams() throws IOException, InterruptedException {
+        LogAggregator aggregator = startServer(true, true, LogServer.DEFAULT_BUFFER_SIZE);
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), logServer.getUdpPort());
+            channel.send(ByteBuffer.wrap(("<190>Jun 14 16:47:02 web-1 nginx: " + LINE).getBytes(StandardCharsets.US_ASCII)), address);
+            channel.send(ByteBuffer.wrap((LINE + "\n" + LINE + "\n").getBytes(StandardCharsets.US_ASCII)), address);
+        }
+        await(() -> aggregator.getLinesNumber() == 3);
+
+        assertEquals(1, aggregator.getAnalyzersNumber());
+        assertEquals(0, logServer.getParseErrorsNumber());
+    }
+
+    @Test
+    void skipSyslogHeader() {
+        byte[] datagram = ("<190>Jun 14 16:47:02 web-1 nginx: " + LINE).getBytes(StandardCharsets.US_ASCII);
+        assertEquals(LINE, new String(datagram, LogServer.skipSyslogHeader(datagram, datagram.length),
+                datagram.length - LogServer.skipSyslogHeader(datagram, datagram.length), StandardCharsets.US_ASCII));
+
+        byte[] line = LINE.getBytes(StandardCharsets.US_ASCII);
+        assertEquals(0, LogServer.skipSyslogHeader(line, line.length));
+    }
+
+    @Test
+    void closeOpenConnections() throws IOException, InterruptedException {
+        startServer(false, false, LogServer.DEFAULT_BUFFER_SIZE);
+        try (SocketChannel client = SocketChannel.open(tcpAddress())) {
+            await(() -> logServer.getConnectionsNumber() == 1);
+            logServer.close();
+            assertEquals(0, logServer.getConnectionsNumber());
+            logServer.awaitClose();
+            assertEquals(-1, client.read(ByteBuffer.allocate(1)));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedLogFileParserTests {
+
+    private static final String LINE = "192.168.32.181 - - [14/06/2017:16:47:02 +1000] \"PUT /rest/v1.4/documents?zone=default&_rid=6076537c HTTP/1.1\" 200 2 44.510983 \"-\" \"@list-item-updater\" prio:0";
+
+    private static List<LogLine> parseSequentially(Path path) throws IOException {
+        List<LogLine> logLines = new ArrayList<>();
+        ByteLogLineParser parser = new ByteLogLineParser();
+        try (ByteLineReader reader = new ByteLineReader(Files.newInputStream(path))) {
+            while (reader.nextLine()) {
+                if (reader.isLineBlank()) continue;
+                try {
+                    parser.parse(reader.getBuffer(), reader.getLineStart(), reader.getLineEnd());
+                    logLines.add(parser.toLogLine());
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+        }
+        return logLines;
+    }
+
+    private static List<LogLine> parseInParallel(MappedLogFileParser parser) throws IOException {
+        List<LogLine> logLines = new ArrayList<>();
+        parser.parse(batch -> {
+            for (int i = 0; i < batch.getSize(); i++) {
+                logLines.add(new LogLine(
+                        Instant.ofEpochMilli(batch.getEpochMillis()[i]),
+                        batch.getStatusCodes()[i],
+                        batch.getResponseTimes()[i]
+                ));
+            }
+        });
+        return logLines;
+    }
+
+    @ParameterizedTest
+    @CsvSource({"access.log,100,1000", "access.log,4096,65536", "access.modified4.log,1000000,1000000"})
+    void matchSequentialParsing(String file, int chunkSize, int regionSize) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            MappedLogFileParser parser = new MappedLogFileParser(Path.of(file), pool, chunkSize, regionSize);
+
+            assertEquals(parseSequentially(Path.of(file)), parseInParallel(parser));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void collectParseErrors(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("access.log");
+        Files.writeString(path, LINE + "\r\nbroken line\n\n" + LINE);
+        List<String> errors = new ArrayList<>();
+        int[] lines = {0};
+
+        new MappedLogFileParser(path).parse(batch -> {
+            errors.addAll(batch.getParseErrors());
+            lines[0] += batch.getSize();
+        });
+
+        assertEquals(2, lines[0]);
+        assertEquals(1, errors.size());
+    }
+
+    @Test
+    void parseLogFormat(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("custom.log");
+        Files.writeString(path, "[14/06/2017:16:47:02 +1000] 200 1.5\n[14/06/2017:16:47:03 +1000] 503 45.5\n");
+        MappedLogFileParser parser = new MappedLogFileParser(path);
+        parser.setLogFormat(LogFormat.compile("[$time_local] $status $response_time"));
+
+        assertEquals(List.of(new LogLine(Instant.parse("2017-06-14T06:47:02Z"), 200, 1.5),
+                new LogLine(Instant.parse("2017-06-14T06:47:03Z"), 503, 45.5)), parseInParallel(parser));
+    }
+
+    @Test
+    void parseEmptyFile(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("empty.log");
+        Files.createFile(path);
+
+        assertEquals(List.of(), parseInParallel(new MappedLogFileParser(path)));
+    }
+
+    @Test
+    void rejectTooLongLine(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("long.log");
+        Files.writeString(path, LINE + "\n" + LINE + "\n");
+
+        assertThrows(IllegalStateException.class, () ->
+                parseInParallel(new MappedLogFileParser(path, ForkJoinPool.commonPool(), 16, 64)));
+    }
+
+    @Test
+    void parseRangeOfFile(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("access.log");
+        String secondLine = LINE.replace("16:47:02", "16:47:03");
+        Files.writeString(path, LINE + "\n" + secondLine + "\n" + LINE + "\n");
+        int lineSize = LINE.length() + 1;
+        List<Long> times = new ArrayList<>();
+
+        new MappedLogFileParser(path, ForkJoinPool.commonPool(), 100, 1000).parse(batch -> {
+            for (int i = 0; i < batch.getSize(); i++) times.add(batch.getEpochMillis()[i]);
+        }, lineSize, 2L * lineSize);
+
+        assertEquals(1, times.size());
+        assertEquals(Instant.parse("2017-06-14T06:47:03Z").toEpochMilli(), times.get(0));
+        assertThrows(IllegalArgumentException.class, () -> new MappedLogFileParser(path).parse(batch -> {}, 10, 5));
+    }
+}
@@ -0,0 +1,118 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapLogWindowTests {
+
+    private static final long START = Instant.parse("2017-06-14T06:47:02Z").toEpochMilli();
+
+    private static void addAndEvict(LogWindow window, Duration windowSize, long epochMillis, boolean isError) {
+        window.add(epochMillis, isError, 0);
+        window.evictBefore(epochMillis - windowSize.toMillis());
+    }
+
+    @Test
+    void matchDequeWindowWhileSegmentsAreReusedAndGrown() {
+        Duration windowSize = Duration.ofSeconds(2);
+        // segments of 4 lines wrap and grow many times while rate of lines and errors changes
+        OffHeapLogWindow window = new OffHeapLogWindow(4);
+        DequeLogWindow expected = new DequeLogWindow(windowSize);
+        Random random = new Random(11);
+        long epochMillis = START;
+        for (int i = 0; i < 20_000; i++) {
+            epochMillis += random.nextInt(i / 2_000 % 2 == 0 ? 50 : 2);
+            boolean isError = random.nextInt(i / 5_000 % 2 == 0 ? 20 : 2) == 0;
+            addAndEvict(window, windowSize, epochMillis, isError);
+            addAndEvict(expected, windowSize, epochMillis, isError);
+
+            assertEquals(expected.getTotalLinesNumber(), window.getTotalLinesNumber());
+            assertEquals(expected.getErrorLinesNumber(), window.getErrorLinesNumber());
+            assertEquals(expected.findFirstTimestamp(), window.findFirstTimestamp());
+            assertEquals(expected.findFirstErrorTimestamp(), window.findFirstErrorTimestamp());
+            assertEquals(expected.findLastErrorTimestamp(), window.findLastErrorTimestamp());
+        }
+    }
+
+    @Test
+    void findErrorsAfterEvictionOfAllLines() {
+        Duration windowSize = Duration.ofSeconds(1);
+        OffHeapLogWindow window = new OffHeapLogWindow(2);
+        for (int i = 0; i < 5; i++) addAndEvict(window, windowSize, START + i, i == 3);
+        assertEquals(Optional.of(Instant.ofEpochMilli(START + 3)), window.findFirstErrorTimestamp());
+
+        addAndEvict(window, windowSize, START + 5000, false);
+        assertEquals(1, window.getTotalLinesNumber());
+        assertEquals(0, window.getErrorLinesNumber());
+        assertEquals(Optional.empty(), window.findFirstErrorTimestamp());
+        assertEquals(Optional.empty(), window.findLastErrorTimestamp());
+
+        addAndEvict(window, windowSize, START + 5001, true);
+        assertEquals(Optional.of(Instant.ofEpochMilli(START + 5001)), window.findLastErrorTimestamp());
+    }
+
+    @Test
+    void restoreWrittenWindow() throws IOException {
+        Duration windowSize = Duration.ofSeconds(1);
+        OffHeapLogWindow window = new OffHeapLogWindow(8);
+        for (int i = 0; i < 300; i++) addAndEvict(window, windowSize, START + i * 10L, i % 50 == 7);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        window.writeTo(new DataOutputStream(bytes));
+        OffHeapLogWindow restored = new OffHeapLogWindow(windowSize);
+        restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertTrue(restored.hasSameContent(window));
+        assertEquals(window.findLastErrorTimestamp(), restored.findLastErrorTimestamp());
+
+        addAndEvict(window, windowSize, START + 10_000, false);
+        assertFalse(restored.hasSameContent(window));
+    }
+
+    @Test
+    void sizeSegmentsByWindowSize() {
+        assertEquals(OffHeapLogWindow.MIN_SEGMENT_LINES, OffHeapLogWindow.segmentLinesOf(Duration.ofSeconds(1)));
+        assertEquals(512, OffHeapLogWindow.segmentLinesOf(Duration.ofSeconds(60)));
+        assertEquals(OffHeapLogWindow.MAX_SEGMENT_LINES, OffHeapLogWindow.segmentLinesOf(Duration.ofHours(1)));
+    }
+
+    @Test
+    void keepManySmallWindowsInLittleDirectMemory() {
+        BufferPoolMXBean directPool = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct")).findFirst().orElseThrow();
+        Duration windowSize = Duration.ofSeconds(1);
+        long usedBefore = directPool.getMemoryUsed();
+
+        // like keys of --group-by: every window keeps a few lines
+        List<OffHeapLogWindow> windows = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            OffHeapLogWindow window = new OffHeapLogWindow(windowSize);
+            for (int line = 0; line < 5; line++) addAndEvict(window, windowSize, START + line * 100L, line == 2);
+            windows.add(window);
+        }
+
+        long usedPerWindow = (directPool.getMemoryUsed() - usedBefore) / windows.size();
+        assertTrue(usedPerWindow <= 1024, "direct bytes per window: " + usedPerWindow);
+        assertTrue(windows.stream().allMatch(window -> window.getTotalLinesNumber() == 5 && window.getErrorLinesNumber() == 1));
+    }
+
+    @Test
+    void rejectSegmentsOfOtherSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapLogWindow(0));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapLogWindow(12));
+    }
+}
@@ -0,0 +1,152 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelLogAnalyzerTests {
+
+    private static List<LogLine> readLogLines(String file) throws IOException {
+        List<LogLine> logLines = new ArrayList<>();
+        for (String line : Files.readAllLines(Path.of(file))) {
+            if (!line.isBlank()) logLines.add(LogLineParser.parseLogLine(line));
+        }
+        return logLines;
+    }
+
+    private static List<RecordingIntervalProcessor.Event> analyzeSequentially(
+            List<LogLine> logLines, double responseThreshold, double availabilityThreshold,
+            Duration windowSize, WindowMode windowMode) {
+        RecordingIntervalProcessor recorder = new RecordingIntervalProcessor();
+        LogAnalyzer logAnalyzer = new LogAnalyzer(
+                new LogLinesProcessor(responseThreshold, availabilityThreshold, windowSize, windowMode), recorder);
+        logLines.forEach(logAnalyzer::processLogLine);
+        return recorder.getEvents();
+    }
+
+    private static ParallelLogAnalyzer analyzeInParallel(
+            List<LogLine> logLines, RecordingIntervalProcessor recorder, ForkJoinPool pool, int batchSize,
+            int segmentLines, double responseThreshold, double availabilityThreshold,
+            Duration windowSize, WindowMode windowMode) {
+        ParallelLogAnalyzer parallelLogAnalyzer = new ParallelLogAnalyzer(responseThreshold, availabilityThreshold,
+                windowSize, windowMode, recorder, pool, segmentLines);
+        LogLineBatch batch = new LogLineBatch(batchSize);
+        for (LogLine logLine : logLines) {
+            batch.add(logLine.getTimestamp().toEpochMilli(), logLine.getStatusCode(), logLine.getResponseTime());
+            if (batch.isFull()) {
+                parallelLogAnalyzer.processBatch(batch);
+                batch = new LogLineBatch(batchSize);
+            }
+        }
+        parallelLogAnalyzer.processBatch(batch);
+        parallelLogAnalyzer.finish();
+        return parallelLogAnalyzer;
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "access.log,45,99.9,1,EXACT,7,100",
+            "access.log,30,95,1,BUCKETED,50,200",
+            "access.modified4.log,45,90,3,EXACT,64,64",
+            "access.modified4.log,45,90,3,BUCKETED,33,500",
+            "access.modified4.log,30,99,20,BUCKETED,100,100",
+            "access.modified4.log,30,99,20,EXACT,1000,3000"
+    })
+    void matchSequentialAnalysis(String file, double responseThreshold, double availabilityThreshold,
+                                 long windowSeconds, WindowMode windowMode, int batchSize, int segmentLines)
+            throws IOException {
+        List<LogLine> logLines = readLogLines(file);
+        Duration windowSize = Duration.ofSeconds(windowSeconds);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            RecordingIntervalProcessor recorder = new RecordingIntervalProcessor();
+            ParallelLogAnalyzer parallelLogAnalyzer = analyzeInParallel(logLines, recorder, pool, batchSize,
+                    segmentLines, responseThreshold, availabilityThreshold, windowSize, windowMode);
+
+            assertEquals(
+                    analyzeSequentially(logLines, responseThreshold, availabilityThreshold, windowSize, windowMode),
+                    recorder.getEvents()
+            );
+            assertEquals(0, parallelLogAnalyzer.getResegmentedNumber());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void matchSequentialAnalysisOfUnorderedInput() throws IOException {
+        List<LogLine> logLines = readLogLines("access.modified4.log");
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            int index = random.nextInt(logLines.size() - 50);
+            Collections.swap(logLines, index, index + 1 + random.nextInt(40));
+        }
+        Duration windowSize = Duration.ofSeconds(2);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (WindowMode windowMode : WindowMode.values()) {
+                RecordingIntervalProcessor recorder = new RecordingIntervalProcessor();
+                ParallelLogAnalyzer parallelLogAnalyzer = analyzeInParallel(logLines, recorder, pool, 50,
+                        100, 45, 90, windowSize, windowMode);
+
+                assertEquals(analyzeSequentially(logLines, 45, 90, windowSize, windowMode), recorder.getEvents());
+                assertTrue(parallelLogAnalyzer.getResegmentedNumber() > 0);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void matchSequentialAnalysisWithPercentiles() throws IOException {
+        List<LogLine> logLines = readLogLines("access.modified4.log");
+        Duration windowSize = Duration.ofSeconds(3);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (WindowMode windowMode : WindowMode.values()) {
+                RecordingIntervalProcessor sequentialRecorder = new RecordingIntervalProcessor();
+                sequentialRecorder.setPercentilesReported(true);
+                LogLinesProcessor logLinesProcessor = new LogLinesProcessor(100, 50, windowSize, windowMode);
+                logLinesProcessor.setPercentileSlo(90, 45);
+                LogAnalyzer logAnalyzer = new LogAnalyzer(logLinesProcessor, sequentialRecorder);
+                logLines.forEach(logAnalyzer::processLogLine);
+
+                RecordingIntervalProcessor recorder = new RecordingIntervalProcessor();
+                recorder.setPercentilesReported(true);
+                ParallelLogAnalyzer parallelLogAnalyzer = new ParallelLogAnalyzer(100, 50, windowSize, windowMode,
+                        recorder, pool, 200);
+                parallelLogAnalyzer.setPercentileSlo(90, 45);
+                LogLineBatch batch = new LogLineBatch(logLines.size());
+                for (LogLine logLine : logLines) {
+                    batch.add(logLine.getTimestamp().toEpochMilli(), logLine.getStatusCode(), logLine.getResponseTime());
+                }
+                parallelLogAnalyzer.processBatch(batch);
+                parallelLogAnalyzer.finish();
+
+                assertTrue(sequentialRecorder.getEvents().stream()
+                        .anyMatch(event -> event.type() == RecordingIntervalProcessor.Event.Type.BEGIN));
+                assertEquals(sequentialRecorder.getEvents(), recorder.getEvents());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void wrongSegmentSizeTest() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelLogAnalyzer(45, 99.9,
+                Duration.ofSeconds(1), WindowMode.EXACT, new IntervalProcessor(), ForkJoinPool.commonPool(), 0));
+    }
+}
@@ -0,0 +1,104 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReorderingLogAnalyzerTests {
+
+    private static LogLinesProcessor createLogLinesProcessor() {
+        return new LogLinesProcessor(45, 99, Duration.ofSeconds(5), WindowMode.BUCKETED);
+    }
+
+    private static List<LogLine> readLogLines(String file) throws IOException {
+        List<LogLine> logLines = new ArrayList<>();
+        ByteLogLineParser parser = new ByteLogLineParser();
+        for (String line : Files.readAllLines(Path.of(file))) {
+            if (line.isBlank()) continue;
+            byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+            parser.parse(bytes, 0, bytes.length);
+            logLines.add(parser.toLogLine());
+        }
+        return logLines;
+    }
+
+    @Test
+    void matchAnalysisOfSortedLines() throws IOException {
+        List<LogLine> logLines = readLogLines("access.log");
+        // every line is shifted by up to 3 seconds, like lines written at request completion
+        Random random = new Random(7);
+        List<LogLine> shuffled = new ArrayList<>();
+        for (LogLine logLine : logLines) {
+            shuffled.add(new LogLine(logLine.getTimestamp().minusMillis(random.nextInt(3000)),
+                    logLine.getStatusCode(), logLine.getResponseTime()));
+        }
+        List<LogLine> sorted = new ArrayList<>(shuffled);
+        sorted.sort(Comparator.comparing(LogLine::getTimestamp));
+
+        RecordingIntervalProcessor expected = new RecordingIntervalProcessor();
+        LogAnalyzer logAnalyzer = new LogAnalyzer(createLogLinesProcessor(), expected);
+        sorted.forEach(logAnalyzer::processLogLine);
+
+        RecordingIntervalProcessor actual = new RecordingIntervalProcessor();
+        ReorderingLogAnalyzer reorderingLogAnalyzer = new ReorderingLogAnalyzer(createLogLinesProcessor(), actual,
+                Duration.ofSeconds(3));
+        shuffled.forEach(reorderingLogAnalyzer::processLogLine);
+        reorderingLogAnalyzer.flush();
+
+        assertEquals(0, reorderingLogAnalyzer.getLateLinesNumber());
+        assertEquals(0, reorderingLogAnalyzer.getBufferedLinesNumber());
+        assertEquals(expected.getEvents(), actual.getEvents());
+    }
+
+    @Test
+    void keepOrderOfEqualTimes() {
+        RecordingIntervalProcessor actual = new RecordingIntervalProcessor();
+        ReorderingLogAnalyzer reorderingLogAnalyzer = new ReorderingLogAnalyzer(
+                new LogLinesProcessor(45, 50, Duration.ofSeconds(1), WindowMode.EXACT), actual, Duration.ofSeconds(1));
+        RecordingIntervalProcessor expected = new RecordingIntervalProcessor();
+        LogAnalyzer logAnalyzer = new LogAnalyzer(
+                new LogLinesProcessor(45, 50, Duration.ofSeconds(1), WindowMode.EXACT), expected);
+
+        int[] statusCodes = {200, 500, 500, 200, 200, 200, 500};
+        for (int statusCode : statusCodes) {
+            reorderingLogAnalyzer.processLogLine(1000, statusCode, 1);
+            logAnalyzer.processLogLine(1000, statusCode, 1);
+        }
+        assertEquals(statusCodes.length, reorderingLogAnalyzer.getBufferedLinesNumber());
+        reorderingLogAnalyzer.flush();
+
+        assertEquals(expected.getEvents(), actual.getEvents());
+    }
+
+    @Test
+    void dropLateLines() {
+        RecordingIntervalProcessor intervalProcessor = new RecordingIntervalProcessor();
+        ReorderingLogAnalyzer reorderingLogAnalyzer = new ReorderingLogAnalyzer(createLogLinesProcessor(),
+                intervalProcessor, Duration.ofMillis(500));
+
+        reorderingLogAnalyzer.processLogLine(10_000, 200, 1);
+        reorderingLogAnalyzer.processLogLine(9_600, 200, 1);
+        reorderingLogAnalyzer.processLogLine(9_400, 200, 1);
+        reorderingLogAnalyzer.processLogLine(11_000, 200, 1);
+        reorderingLogAnalyzer.processLogLine(10_400, 200, 1);
+
+        assertEquals(2, reorderingLogAnalyzer.getLateLinesNumber());
+        assertEquals(1, reorderingLogAnalyzer.getBufferedLinesNumber());
+    }
+
+    @Test
+    void wrongArgumentsTest() {
+        assertThrows(IllegalArgumentException.class, () -> new ReorderingLogAnalyzer(createLogLinesProcessor(),
+                new IntervalProcessor(), Duration.ofMillis(-1)));
+    }
+}
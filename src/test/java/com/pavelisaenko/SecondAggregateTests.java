@@ -0,0 +1,38 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SecondAggregateTests {
+
+    @Test
+    void formatAndParse() {
+        SecondAggregate aggregate = new SecondAggregate(1497422822, 36000, new int[]{40, 1, 59});
+
+        assertEquals(100, aggregate.getTotalLinesNumber());
+        assertEquals(1, aggregate.getErrorLinesNumber());
+        assertEquals("1497422822 36000 100 1 40,1,59", aggregate.format());
+        assertEquals(aggregate, SecondAggregate.parse(aggregate.format()));
+    }
+
+    @Test
+    void rejectMalformedAggregates() {
+        assertThrows(IllegalArgumentException.class, () -> SecondAggregate.parse("1497422822 36000 100 1"));
+        assertThrows(IllegalArgumentException.class, () -> SecondAggregate.parse("1497422822 36000 100 2 40,1,59"));
+        assertThrows(IllegalArgumentException.class, () -> SecondAggregate.parse("1497422822 36000 100 1 40,1,x"));
+        assertThrows(IllegalArgumentException.class, () -> SecondAggregate.parse("1497422822 36000 -1 0 -1"));
+        assertThrows(IllegalArgumentException.class, () -> new SecondAggregate(1497422822, 0, new int[0]));
+    }
+
+    @Test
+    void concatRuns() {
+        SecondAggregate endsWithError = new SecondAggregate(10, 0, new int[]{0, 2});
+        SecondAggregate endsWithCorrect = new SecondAggregate(10, 0, new int[]{3, 1, 4});
+
+        assertArrayEquals(new int[]{0, 2, 3, 1, 4}, endsWithError.concat(endsWithCorrect).runs());
+        assertArrayEquals(new int[]{3, 1, 4, 2}, endsWithCorrect.concat(endsWithError).runs());
+        assertArrayEquals(new int[]{7, 1, 4}, new SecondAggregate(10, 0, new int[]{4}).concat(endsWithCorrect).runs());
+        assertThrows(IllegalArgumentException.class, () -> endsWithError.concat(new SecondAggregate(11, 0, new int[]{1})));
+    }
+}
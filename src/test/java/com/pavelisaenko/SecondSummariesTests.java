@@ -0,0 +1,42 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SecondSummariesTests {
+
+    @Test
+    void classifyLinesForEveryThreshold() {
+        SecondSummaries summaries = new SecondSummaries(new double[]{45, 30, 45});
+        summaries.add(2_500, 200, 50);
+        summaries.add(1_000, 200, 30);
+        summaries.add(2_001, 503, 1);
+        summaries.add(2_999, 200, 31);
+        summaries.finish();
+
+        assertEquals(2, summaries.getSecondsNumber());
+        assertEquals(1, summaries.getSecond(0));
+        assertEquals(1, summaries.getLinesNumber(0));
+        assertEquals(0, summaries.getErrors(0, summaries.thresholdIndexOf(30)));
+
+        assertEquals(3, summaries.getLinesNumber(1));
+        assertEquals(2_500, summaries.getEpochMillis(1, 0));
+        assertEquals(2_001, summaries.getEpochMillis(1, 1));
+        assertTrue(summaries.isServerError(1, 1));
+        assertFalse(summaries.isServerError(1, 0));
+        assertEquals(3, summaries.getErrors(1, summaries.thresholdIndexOf(30)));
+        assertEquals(2, summaries.getErrors(1, summaries.thresholdIndexOf(45)));
+        assertFalse(summaries.isError(1, 2, summaries.thresholdIndexOf(45)));
+    }
+
+    @Test
+    void wrongUsageTest() {
+        assertThrows(IllegalArgumentException.class, () -> new SecondSummaries(new double[]{}));
+        SecondSummaries summaries = new SecondSummaries(new double[]{45});
+        assertThrows(IllegalStateException.class, summaries::getSecondsNumber);
+        assertThrows(IllegalArgumentException.class, () -> summaries.thresholdIndexOf(30));
+        summaries.finish();
+        assertThrows(IllegalStateException.class, () -> summaries.add(0, 200, 1));
+    }
+}
@@ -0,0 +1,71 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpscRingBufferTests {
+
+    @Test
+    void roundCapacityToPowerOfTwo() {
+        assertEquals(1, new SpscRingBuffer<>(1).getCapacity());
+        assertEquals(8, new SpscRingBuffer<>(5).getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> new SpscRingBuffer<>(0));
+    }
+
+    @Test
+    void keepOrderBetweenThreads() throws InterruptedException {
+        SpscRingBuffer<Integer> ringBuffer = new SpscRingBuffer<>(2);
+        int count = 100_000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++) ringBuffer.put(i);
+            ringBuffer.close();
+        });
+        producer.start();
+
+        List<Integer> taken = new ArrayList<>();
+        Integer element;
+        while ((element = ringBuffer.take()) != null) taken.add(element);
+        producer.join();
+
+        assertEquals(count, taken.size());
+        for (int i = 0; i < count; i++) assertEquals(i, taken.get(i));
+    }
+
+    @Test
+    void takeRemainingElementsAfterClose() {
+        SpscRingBuffer<String> ringBuffer = new SpscRingBuffer<>(4);
+        ringBuffer.put("a");
+        ringBuffer.put("b");
+        ringBuffer.close();
+
+        assertThrows(IllegalStateException.class, () -> ringBuffer.put("c"));
+        assertEquals("a", ringBuffer.take());
+        assertEquals("b", ringBuffer.take());
+        assertNull(ringBuffer.take());
+    }
+
+    @Test
+    void wakeUpBlockedProducerOnClose() throws InterruptedException {
+        SpscRingBuffer<String> ringBuffer = new SpscRingBuffer<>(1);
+        ringBuffer.put("a");
+        Throwable[] failure = new Throwable[1];
+        Thread producer = new Thread(() -> {
+            try {
+                ringBuffer.put("b");
+            } catch (IllegalStateException e) {
+                failure[0] = e;
+            }
+        });
+        producer.start();
+        Thread.sleep(50);
+        ringBuffer.close();
+        producer.join(5_000);
+
+        assertFalse(producer.isAlive());
+        assertInstanceOf(IllegalStateException.class, failure[0]);
+    }
+}
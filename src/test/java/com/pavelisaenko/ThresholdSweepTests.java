@@ -0,0 +1,94 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThresholdSweepTests {
+
+    private static final double[] RESPONSE_THRESHOLDS = {30, 45, 100};
+    private static final double[] AVAILABILITY_THRESHOLDS = {50, 90, 99.9};
+    private static final Duration[] WINDOW_SIZES = {Duration.ofSeconds(1), Duration.ofSeconds(3)};
+
+    @ParameterizedTest
+    @ValueSource(strings = {"access.log", "access.modified4.log"})
+    void matchLineByLineAnalysis(String file) throws IOException {
+        List<LogLine> logLines = new ArrayList<>();
+        for (String line : Files.readAllLines(Path.of(file))) {
+            if (!line.isBlank()) logLines.add(LogLineParser.parseLogLine(line));
+        }
+
+        ThresholdSweep thresholdSweep = new ThresholdSweep(RESPONSE_THRESHOLDS, AVAILABILITY_THRESHOLDS, WINDOW_SIZES);
+        for (LogLine logLine : logLines) {
+            thresholdSweep.processLogLine(logLine.getTimestamp().toEpochMilli(), logLine.getStatusCode(),
+                    logLine.getResponseTime());
+        }
+        List<ThresholdSweep.Result> results = thresholdSweep.evaluate(ForkJoinPool.commonPool());
+        assertEquals(RESPONSE_THRESHOLDS.length * AVAILABILITY_THRESHOLDS.length * WINDOW_SIZES.length, results.size());
+
+        for (ThresholdSweep.Result result : results) {
+            RecordingIntervalProcessor recorder = new RecordingIntervalProcessor();
+            LogAnalyzer logAnalyzer = new LogAnalyzer(new LogLinesProcessor(result.responseThreshold(),
+                    result.availabilityThreshold(), result.windowSize(), WindowMode.BUCKETED), recorder);
+            logLines.forEach(logAnalyzer::processLogLine);
+
+            long intervalsNumber = recorder.getEvents().stream()
+                    .filter(event -> event.type() == RecordingIntervalProcessor.Event.Type.END)
+                    .count();
+            assertEquals(intervalsNumber, result.intervalsNumber(), result.toString());
+        }
+    }
+
+    @Test
+    void sumIntervals() {
+        ThresholdSweep thresholdSweep = new ThresholdSweep(new double[]{45}, new double[]{60}, WINDOW_SIZES);
+        long second = 1_000_000;
+        for (int i = 0; i < 10; i++) thresholdSweep.processLogLine(second * 1000, 200, 10);
+        thresholdSweep.processLogLine((second + 1) * 1000, 500, 10);
+        thresholdSweep.processLogLine((second + 2) * 1000, 200, 50);
+        thresholdSweep.processLogLine((second + 2) * 1000, 200, 60);
+        thresholdSweep.processLogLine((second + 3) * 1000, 200, 10);
+        thresholdSweep.processLogLine((second + 3) * 1000, 200, 10);
+        thresholdSweep.processLogLine((second + 3) * 1000, 200, 10);
+
+        List<ThresholdSweep.Result> results = thresholdSweep.evaluate(ForkJoinPool.commonPool());
+
+        ThresholdSweep.Result result = results.get(0);
+        assertEquals(1, result.intervalsNumber());
+        assertEquals(Duration.ofSeconds(1), result.downtime());
+        assertEquals(60.0, result.availability());
+        assertEquals(0, results.get(1).intervalsNumber());
+        assertEquals(100.0, results.get(1).availability());
+    }
+
+    @Test
+    void evaluateRepeatedThresholdsOnce() {
+        ThresholdSweep thresholdSweep = new ThresholdSweep(new double[]{45, 30, 45}, new double[]{90, 90},
+                new Duration[]{Duration.ofSeconds(3), Duration.ofSeconds(1), Duration.ofSeconds(3)});
+        thresholdSweep.processLogLine(1_000_000_000, 500, 10);
+
+        List<ThresholdSweep.Result> results = thresholdSweep.evaluate(ForkJoinPool.commonPool());
+        assertEquals(List.of(3L, 3L, 1L, 1L), results.stream().map(result -> result.windowSize().getSeconds()).toList());
+        assertEquals(List.of(45.0, 30.0, 45.0, 30.0), results.stream().map(ThresholdSweep.Result::responseThreshold).toList());
+    }
+
+    @Test
+    void wrongArgumentsTest() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ThresholdSweep(new double[]{}, AVAILABILITY_THRESHOLDS, WINDOW_SIZES));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ThresholdSweep(RESPONSE_THRESHOLDS, new double[]{101}, WINDOW_SIZES));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ThresholdSweep(RESPONSE_THRESHOLDS, AVAILABILITY_THRESHOLDS, new Duration[]{}));
+    }
+}
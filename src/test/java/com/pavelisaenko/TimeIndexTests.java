@@ -0,0 +1,137 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimeIndexTests {
+
+    /**
+     * Offsets and times of all lines of log
+     */
+    private static List<long[]> readLines(Path log) throws IOException {
+        byte[] bytes = Files.readAllBytes(log);
+        List<long[]> lines = new ArrayList<>();
+        ByteLogLineParser parser = new ByteLogLineParser();
+        int lineStart = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') continue;
+            parser.parse(bytes, lineStart, i);
+            lines.add(new long[]{lineStart, parser.getEpochMillis()});
+            lineStart = i + 1;
+        }
+        return lines;
+    }
+
+    private static Path copyLog(Path directory, int copies) throws IOException {
+        // copies of access.log shifted by its duration make a log longer than several probes
+        List<String> lines = Files.readAllLines(Path.of("access.log"), StandardCharsets.US_ASCII);
+        List<String> shifted = new ArrayList<>();
+        for (int copy = 0; copy < copies; copy++) {
+            String minute = String.format("%02d", 47 + copy * 2);
+            String nextMinute = String.format("%02d", 48 + copy * 2);
+            for (String line : lines) {
+                shifted.add(line.replace(":16:47:", ":16:" + minute + ":").replace(":16:48:", ":16:" + nextMinute + ":"));
+            }
+        }
+        Path log = directory.resolve("access.log");
+        Files.write(log, shifted, StandardCharsets.US_ASCII);
+        return log;
+    }
+
+    private static void assertRange(List<long[]> lines, long fromMillis, long toMillis, long start, long end) {
+        for (long[] line : lines) {
+            boolean isInRange = fromMillis <= line[1] && line[1] <= toMillis;
+            if (isInRange) assertTrue(start <= line[0] && line[0] < end, "line at " + line[0] + " is out of range");
+        }
+        assertTrue(lines.stream().anyMatch(line -> line[0] == start) || start == 0);
+    }
+
+    @Test
+    void findRangeWithIndexAndWithout(@TempDir Path directory) throws IOException {
+        Path log = copyLog(directory, 5);
+        List<long[]> lines = readLines(log);
+        TimeIndex timeIndex = TimeIndex.build(log, 10);
+        long firstMillis = lines.get(0)[1];
+
+        for (long fromSecond = -5; fromSecond < 600; fromSecond += 37) {
+            long fromMillis = firstMillis + fromSecond * 1000;
+            long toMillis = fromMillis + 45_000;
+
+            long start = timeIndex.findStart(fromMillis);
+            long end = timeIndex.findEnd(toMillis + 1);
+            assertRange(lines, fromMillis, toMillis, start, end);
+            assertTrue(end - start < Files.size(log) / 2);
+
+            assertRange(lines, fromMillis, toMillis, TimeIndex.findStart(log, fromMillis), TimeIndex.findEnd(log, toMillis + 1));
+        }
+    }
+
+    @Test
+    void writeAndLoadIndex(@TempDir Path directory) throws IOException {
+        Path log = copyLog(directory, 2);
+        TimeIndex timeIndex = TimeIndex.build(log, 60);
+        timeIndex.write(log);
+
+        TimeIndex loaded = TimeIndex.load(log).orElseThrow();
+        assertEquals(timeIndex.getEntriesNumber(), loaded.getEntriesNumber());
+        assertEquals(60, loaded.getIntervalSeconds());
+        long millis = readLines(log).get(3000)[1];
+        assertEquals(timeIndex.findStart(millis), loaded.findStart(millis));
+        assertEquals(timeIndex.findEnd(millis), loaded.findEnd(millis));
+    }
+
+    @Test
+    void ignoreIndexOfChangedLog(@TempDir Path directory) throws IOException {
+        Path log = copyLog(directory, 1);
+        TimeIndex.build(log, 60).write(log);
+        Files.writeString(log, "192.168.32.181 - - [14/06/2017:16:49:02 +1000] \"PUT /rest/v1.4/documents HTTP/1.1\" 200 2 44.5 \"-\" \"-\" prio:0\n",
+                StandardOpenOption.APPEND);
+
+        assertTrue(TimeIndex.load(log).isEmpty());
+        assertTrue(TimeIndex.load(directory.resolve("missing.log")).isEmpty());
+    }
+
+    @Test
+    void findRangeOfLogFormat(@TempDir Path directory) throws IOException {
+        LogFormat logFormat = LogFormat.compile("[$time_local] $status $response_time");
+        Path log = directory.resolve("custom.log");
+        List<long[]> lines = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        long firstMillis = Instant.parse("2017-06-14T06:00:00Z").toEpochMilli();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy:HH:mm:ss Z").withZone(ZoneOffset.ofHours(10));
+        for (int second = 0; second < 20_000; second++) {
+            long millis = firstMillis + second * 1000L;
+            lines.add(new long[]{text.length(), millis});
+            text.append('[').append(formatter.format(Instant.ofEpochMilli(millis))).append("] 200 1.5\n");
+        }
+        Files.writeString(log, text, StandardCharsets.US_ASCII);
+
+        TimeIndex timeIndex = TimeIndex.build(log, 60, logFormat);
+        assertEquals(334, timeIndex.getEntriesNumber());
+        long fromMillis = firstMillis + 1234_000;
+        long toMillis = fromMillis + 300_000;
+        assertRange(lines, fromMillis, toMillis, timeIndex.findStart(fromMillis), timeIndex.findEnd(toMillis + 1));
+        long start = TimeIndex.findStart(log, fromMillis, logFormat);
+        long end = TimeIndex.findEnd(log, toMillis + 1, logFormat);
+        assertRange(lines, fromMillis, toMillis, start, end);
+        assertTrue(end - start < Files.size(log) / 2);
+    }
+
+    @Test
+    void wrongArgumentsTest() {
+        assertThrows(IllegalArgumentException.class, () -> TimeIndex.build(Path.of("access.log"), 0));
+    }
+}
@@ -0,0 +1,67 @@
+package com.pavelisaenko;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopOffendersTests {
+
+    private static void record(TopOffenders topOffenders, String ip, String path) {
+        byte[] line = (ip + " - - [14/06/2017:16:47:02 +1000] PUT " + path + " HTTP/1.1 500 2 44.5 - @agent prio:0")
+                .getBytes(StandardCharsets.UTF_8);
+        topOffenders.record(line, 0, line.length);
+    }
+
+    private static List<String> topPaths(TopOffenders topOffenders) {
+        return topOffenders.getTopPaths().stream().map(HeavyHitters.Entry::key).toList();
+    }
+
+    @Test
+    void normalizePaths() {
+        TopOffenders topOffenders = new TopOffenders(10);
+        record(topOffenders, "10.0.0.1", "/users/42/orders?zone=default");
+        record(topOffenders, "10.0.0.1", "/users/7/orders");
+        record(topOffenders, "10.0.0.1", "/documents/3f2504e0-4f89-11d3-9a0c-0305e82c3301/");
+        record(topOffenders, "10.0.0.1", "/rest/v1.4/documents/deadbeef");
+
+        assertEquals(List.of("/users/{id}/orders", "/documents/{id}/", "/rest/v1.4/documents/deadbeef"),
+                topPaths(topOffenders));
+        assertEquals(2, topOffenders.getTopPaths().get(0).count());
+    }
+
+    @Test
+    void countClientIps() {
+        TopOffenders topOffenders = new TopOffenders(1);
+        record(topOffenders, "10.0.0.1", "/a");
+        record(topOffenders, "10.0.0.2", "/a");
+        record(topOffenders, "10.0.0.2", "/b");
+
+        StringBuilder builder = new StringBuilder();
+        topOffenders.appendTo(builder);
+        assertEquals(" top_paths=/a:2 top_ips=10.0.0.2:2", builder.toString());
+
+        topOffenders.clear();
+        assertTrue(topOffenders.getTopClientIps().isEmpty());
+    }
+
+    @Test
+    void truncateLongPaths() {
+        TopOffenders topOffenders = new TopOffenders(1);
+        record(topOffenders, "10.0.0.1", "/" + "a".repeat(300));
+
+        assertEquals(TopOffenders.MAX_KEY_LENGTH, topPaths(topOffenders).get(0).length());
+    }
+
+    @Test
+    void skipLineWithoutPath() {
+        TopOffenders topOffenders = new TopOffenders(1);
+        byte[] line = "10.0.0.1 - -".getBytes(StandardCharsets.UTF_8);
+        topOffenders.record(line, 0, line.length);
+
+        assertTrue(topOffenders.getTopPaths().isEmpty());
+        assertTrue(topOffenders.getTopClientIps().isEmpty());
+    }
+}